@@ -2,7 +2,13 @@ import argparse
 import json
 import logging
 import os
+import socketserver
+import struct
+import threading
+import time
 import traceback
+from contextlib import contextmanager
+from typing import NamedTuple
 
 from fastapi import FastAPI, HTTPException
 from pydantic import BaseModel
@@ -16,6 +22,84 @@ logging.basicConfig(format=FORMAT, level=logging.DEBUG, handlers=[logging.Stream
 # FastAPI app initialization
 app = FastAPI(title="Modbus TCP API", description="FastAPI server for Modbus communication")
 
+# Seconds after which an unused connection to a Modbus server is closed
+POOL_IDLE_TIMEOUT = float(os.getenv("MODBUS_POOL_IDLE_TIMEOUT", 60))
+
+
+class PooledClient:
+    def __init__(self, host, port):
+        self.client = ModbusTcpClient(host, port=port)
+        # Requests to the same server are serialized, most gateways handle a single connection at a time
+        self.lock = threading.Lock()
+        self.last_used = time.monotonic()
+        # Number of requests holding the client, guarded by the lock of the pool
+        self.users = 0
+
+
+class ModbusClientPool:
+    """Keeps one connected client per (host, port), so requests do not pay for a new TCP connection."""
+
+    def __init__(self, idle_timeout):
+        self.idle_timeout = idle_timeout
+        self._lock = threading.Lock()
+        self._clients = {}
+
+    @contextmanager
+    def client(self, host, port):
+        pooled = self._get(host, port)
+
+        try:
+            with pooled.lock:
+                try:
+                    # Health check, a client closed by the server or after an error is connected again
+                    if not pooled.client.connected and not pooled.client.connect():
+                        raise ConnectionError(f"Failed to connect to Modbus server {host}:{port}")
+
+                    yield pooled.client
+                except Exception:
+                    pooled.client.close()
+                    raise
+        finally:
+            self._put(pooled)
+
+    def _get(self, host, port):
+        with self._lock:
+            self._evict_idle()
+
+            pooled = self._clients.get((host, port))
+            if pooled is None:
+                pooled = PooledClient(host, port)
+                self._clients[(host, port)] = pooled
+
+            # Taken before the pool lock is released, so the client cannot be evicted before the request locks it
+            pooled.users += 1
+            return pooled
+
+    def _put(self, pooled):
+        with self._lock:
+            pooled.users -= 1
+            pooled.last_used = time.monotonic()
+
+    def _evict_idle(self):
+        now = time.monotonic()
+
+        for key, pooled in list(self._clients.items()):
+            # Clients that are in use or waited for are never evicted
+            if pooled.users == 0 and now - pooled.last_used > self.idle_timeout:
+                logging.debug("Closing idle Modbus connection to %s:%s", *key)
+                pooled.client.close()
+                del self._clients[key]
+
+    def close_all(self):
+        with self._lock:
+            for pooled in self._clients.values():
+                with pooled.lock:
+                    pooled.client.close()
+            self._clients.clear()
+
+
+client_pool = ModbusClientPool(POOL_IDLE_TIMEOUT)
+
 
 # Define request model for FastAPI
 class ModbusRequest(BaseModel):
@@ -28,99 +112,270 @@ class ModbusRequest(BaseModel):
     count: int | None = 1
 
 
+class ModbusBatchRequest(BaseModel):
+    requests: list[ModbusRequest]
+
+
 def modbus_request(host, port, unit_id, start_register, function_code, values, count):
     response_data = {"status": "error", "message": "Unknown error", "data": None}
 
     try:
-        modbus_client = ModbusTcpClient(host, port=port)
+        with client_pool.client(host, port) as modbus_client:
+            return execute_request(modbus_client, start_register, function_code, values, count, unit_id, response_data)
+    except ConnectionError:
+        response_data["message"] = "Failed to connect to Modbus server"
+        return response_data
+    except Exception as e:
+        # Print stack trace
+        print(traceback.format_exc())
+
+        return {"status": "error", "message": f"Error during Modbus communication: {e}", "data": None}
+
+
+def modbus_batch_request(requests):
+    """Runs the requests back-to-back, requests to the same server share one pooled connection."""
+    responses = [None] * len(requests)
+
+    by_server = {}
+    for index, request in enumerate(requests):
+        by_server.setdefault((request.host, request.port), []).append(index)
+
+    for (host, port), indexes in by_server.items():
+        try:
+            with client_pool.client(host, port) as modbus_client:
+                for index in indexes:
+                    request = requests[index]
+                    response_data = {"status": "error", "message": "Unknown error", "data": None}
+
+                    # A failed request closes the connection, the remaining requests connect again
+                    if not modbus_client.connected and not modbus_client.connect():
+                        response_data["message"] = "Failed to connect to Modbus server"
+                        responses[index] = response_data
+                        continue
+
+                    try:
+                        responses[index] = execute_request(modbus_client, request.start_register,
+                                                           request.function_code, request.values, request.count,
+                                                           request.unit_id, response_data)
+                    except Exception as e:
+                        print(traceback.format_exc())
+
+                        # Only this request fails, a late response must not be read as the answer to the next one
+                        modbus_client.close()
+                        responses[index] = {"status": "error", "message": f"Error during Modbus communication: {e}",
+                                            "data": None}
+        except ConnectionError:
+            for index in indexes:
+                if responses[index] is None:
+                    responses[index] = {"status": "error", "message": "Failed to connect to Modbus server", "data": None}
+        except Exception as e:
+            print(traceback.format_exc())
+
+            for index in indexes:
+                if responses[index] is None:
+                    responses[index] = {"status": "error", "message": f"Error during Modbus communication: {e}",
+                                        "data": None}
+
+    return responses
 
-        if not modbus_client.connect():
-            response_data["message"] = "Failed to connect to Modbus server"
-            #print(json.dumps(response_data))  # Output JSON
-            return response_data
 
-        response_modbus = None
-
-        match function_code:
-            case 1:  # Read Coils
-                print("Reading Coils")
-                response_modbus = modbus_client.read_coils(address=start_register, count=count, device_id=unit_id)
-            case 2:  # Read Discrete Inputs
-                print("Reading Discrete Inputs")
-                response_modbus = modbus_client.read_discrete_inputs(address=start_register, count=count, device_id=unit_id)
-            case 3:  # Read Holding Registers
-                print("Reading Holding Registers")
-                response_modbus = modbus_client.read_holding_registers(address=start_register, count=count,
-                                                                       device_id=unit_id)
-            case 4:  # Read Input Registers
-                print("Reading Input Registers")
-                response_modbus = modbus_client.read_input_registers(address=start_register, count=count, device_id=unit_id)
-            case 5:  # Write Single Coil
-                print("Reading Output Registers")
-                if values is None or len(values) != 1:
-                    response_data["message"] = "Error: --values must contain exactly one value (0 or 1) for function code 5"
-                    return response_data
-                response_modbus = modbus_client.write_coil(start_register, values[0] > 0, device_id=unit_id)
-            case 6:  # Write Single Register
-                print("Writing Single Register")
-                if values is None or len(values) != 1:
-                    response_data["message"] = "Error: --values must contain exactly one value for function code 6"
-                    return response_data
-                response_modbus = modbus_client.write_register(start_register, values[0], device_id=unit_id)
-            case 16:  # Write Multiple Registers
-                print("Writing Multiple Registers")
-                if values is None:
-                    response_data["message"] = "Error: --values must be specified for function code 11"
-                    return response_data
-                response_modbus = modbus_client.write_registers(start_register, values, device_id=unit_id)
-            case 15:  # Write Multiple Coils
-                print("Writing Multiple Coils")
-                if values is None:
-                    response_data["message"] = "Error: --values must be specified for function code 15"
-                    return response_data
-                response_modbus = modbus_client.write_coils(start_register, [v > 0 for v in values], device_id=unit_id)
-            case 23:  # Read Write Multiple Registers
-                print("Read Write Multiple Registers")
-                if values is None:
-                    response_data["message"] = "Error: --values must be specified for function code 16"
-                    return response_data
-
-                print(values)
-                response_modbus = modbus_client.readwrite_registers(address=start_register,
-                                                                    values=values,
-                                                                    read_count=count,
-                                                                    device_id=unit_id)
-            case _:
-                print(f"Unsupported function code: {function_code}")
-                response_data["message"] = f"Unsupported function code: {function_code}"
+def pack_bits(bits, count):
+    # Sixteen bits per word, the first bit in the least significant bit of the first word
+    words = [0] * ((count + 15) // 16)
+
+    for i, bit in enumerate(bits[:count]):
+        if bit:
+            words[i // 16] |= 1 << (i % 16)
+
+    return words
+
+
+def execute_request(modbus_client, start_register, function_code, values, count, unit_id, response_data):
+    response_modbus = None
+
+    match function_code:
+        case 1:  # Read Coils
+            print("Reading Coils")
+            response_modbus = modbus_client.read_coils(address=start_register, count=count, device_id=unit_id)
+        case 2:  # Read Discrete Inputs
+            print("Reading Discrete Inputs")
+            response_modbus = modbus_client.read_discrete_inputs(address=start_register, count=count, device_id=unit_id)
+        case 3:  # Read Holding Registers
+            print("Reading Holding Registers")
+            response_modbus = modbus_client.read_holding_registers(address=start_register, count=count,
+                                                                   device_id=unit_id)
+        case 4:  # Read Input Registers
+            print("Reading Input Registers")
+            response_modbus = modbus_client.read_input_registers(address=start_register, count=count, device_id=unit_id)
+        case 5:  # Write Single Coil
+            print("Reading Output Registers")
+            if values is None or len(values) != 1:
+                response_data["message"] = "Error: --values must contain exactly one value (0 or 1) for function code 5"
+                return response_data
+            response_modbus = modbus_client.write_coil(start_register, values[0] > 0, device_id=unit_id)
+        case 6:  # Write Single Register
+            print("Writing Single Register")
+            if values is None or len(values) != 1:
+                response_data["message"] = "Error: --values must contain exactly one value for function code 6"
+                return response_data
+            response_modbus = modbus_client.write_register(start_register, values[0], device_id=unit_id)
+        case 16:  # Write Multiple Registers
+            print("Writing Multiple Registers")
+            if values is None:
+                response_data["message"] = "Error: --values must be specified for function code 11"
+                return response_data
+            response_modbus = modbus_client.write_registers(start_register, values, device_id=unit_id)
+        case 15:  # Write Multiple Coils
+            print("Writing Multiple Coils")
+            if values is None:
+                response_data["message"] = "Error: --values must be specified for function code 15"
+                return response_data
+            response_modbus = modbus_client.write_coils(start_register, [v > 0 for v in values], device_id=unit_id)
+        case 23:  # Read Write Multiple Registers
+            print("Read Write Multiple Registers")
+            if values is None:
+                response_data["message"] = "Error: --values must be specified for function code 16"
                 return response_data
 
-        # Handle response
-        if response_modbus is None or isinstance(response_modbus, ModbusIOException):
-            response_data["message"] = f"Failed to execute function code {function_code} at address {start_register}"
-        else:
-            response_data["status"] = "success"
-            response_data[
-                "message"] = f"Successfully executed function code {function_code} at address {start_register}"
-
-            if function_code in [1, 2]:  # Read Coils & Discrete Inputs return bits
-                print(f"Bits: {response_modbus.bits}")
-                response_data["data"] = response_modbus.bits
-            elif function_code in [3, 4, 23]:  # Read Registers return registers
-                print(f"Registers: {response_modbus.registers}")
-                response_data["data"] = response_modbus.registers
-            else:
-                response_data["data"] = "Write operation successful"
-
-        # Close connection
+            print(values)
+            response_modbus = modbus_client.readwrite_registers(address=start_register,
+                                                                values=values,
+                                                                read_count=count,
+                                                                device_id=unit_id)
+        case _:
+            print(f"Unsupported function code: {function_code}")
+            response_data["message"] = f"Unsupported function code: {function_code}"
+            return response_data
+
+    # Handle response
+    if response_modbus is None or isinstance(response_modbus, ModbusIOException):
+        response_data["message"] = f"Failed to execute function code {function_code} at address {start_register}"
+        # The connection is opened again for the next request, a late response would be out of sync
         modbus_client.close()
+    else:
+        response_data["status"] = "success"
+        response_data[
+            "message"] = f"Successfully executed function code {function_code} at address {start_register}"
 
-        return response_data
-    except Exception as e:
-        # Print stack trace
-        print(traceback.format_exc())
+        if function_code in [1, 2]:  # Read Coils & Discrete Inputs return bits
+            print(f"Bits: {response_modbus.bits[:count]}")
+            response_data["data"] = pack_bits(response_modbus.bits, count)
+        elif function_code in [3, 4, 23]:  # Read Registers return registers
+            print(f"Registers: {response_modbus.registers}")
+            response_data["data"] = response_modbus.registers
+        else:
+            response_data["data"] = "Write operation successful"
+
+    return response_data
+
+
+# Binary frames exchanged over a Unix domain socket, all fields are big-endian
+FRAME_HEADER = struct.Struct(">I")
+FRAME_REQUEST = struct.Struct(">HBBHHH")
+FRAME_MAX_PAYLOAD = 1 << 20
+
+
+class FrameRequest(NamedTuple):
+    host: str
+    port: int
+    unit_id: int
+    start_register: int
+    function_code: int
+    values: list | None
+    count: int
+
+
+def decode_frame_requests(payload):
+    (request_count,) = struct.unpack_from(">H", payload, 0)
+    offset = 2
+    requests = []
+
+    for _ in range(request_count):
+        (host_length,) = struct.unpack_from(">H", payload, offset)
+        offset += 2
+        host = payload[offset:offset + host_length].decode()
+        offset += host_length
+
+        port, unit_id, function_code, start_register, count, value_count = FRAME_REQUEST.unpack_from(payload, offset)
+        offset += FRAME_REQUEST.size
+        values = list(struct.unpack_from(f">{value_count}H", payload, offset))
+        offset += 2 * value_count
+
+        requests.append(FrameRequest(host, port, unit_id, start_register, function_code, values or None, count))
+
+    return requests
 
-        return {"status": "error", "message": f"Error during Modbus communication: {e}", "data": None}
+
+def encode_frame_responses(responses):
+    parts = [struct.pack(">H", len(responses))]
+
+    for response in responses:
+        # Write operations respond with a message instead of data
+        data = response["data"] if isinstance(response["data"], list) else []
+        message = str(response["message"]).encode()[:0xFFFF]
+
+        parts.append(struct.pack(f">BH{len(data)}H", 0 if response["status"] == "success" else 1, len(data),
+                                 *[int(value) & 0xFFFF for value in data]))
+        parts.append(struct.pack(">H", len(message)))
+        parts.append(message)
+
+    payload = b"".join(parts)
+    return FRAME_HEADER.pack(len(payload)) + payload
+
+
+def recv_exactly(sock, length):
+    buffer = bytearray()
+
+    while len(buffer) < length:
+        chunk = sock.recv(length - len(buffer))
+        if not chunk:
+            return None
+        buffer.extend(chunk)
+
+    return bytes(buffer)
+
+
+class ModbusFrameHandler(socketserver.BaseRequestHandler):
+    """Handles frames of one connection from LPC, every frame is executed like a batch request."""
+
+    def handle(self):
+        while True:
+            header = recv_exactly(self.request, FRAME_HEADER.size)
+            if header is None:
+                return
+
+            (length,) = FRAME_HEADER.unpack(header)
+            if length > FRAME_MAX_PAYLOAD:
+                logging.error("Frame of %s bytes exceeds the maximum size", length)
+                return
+
+            payload = recv_exactly(self.request, length)
+            if payload is None:
+                return
+
+            responses = modbus_batch_request(decode_frame_requests(payload))
+            self.request.sendall(encode_frame_responses(responses))
+
+
+class ModbusFrameServer(socketserver.ThreadingUnixStreamServer):
+    daemon_threads = True
+
+
+def serve_socket(path):
+    # A socket left behind by a previous process would prevent binding
+    if os.path.exists(path):
+        os.remove(path)
+
+    with ModbusFrameServer(path, ModbusFrameHandler) as server:
+        try:
+            server.serve_forever()
+        finally:
+            client_pool.close_all()
+
+
+@app.on_event("shutdown")
+def close_modbus_clients():
+    client_pool.close_all()
 
 
 @app.post("/modbus")
@@ -141,6 +396,12 @@ def modbus_api(request: ModbusRequest):
     return response_modbus
 
 
+@app.post("/modbus/batch")
+def modbus_batch_api(request: ModbusBatchRequest):
+    # Failed requests are reported per request, so the successful ones of the cycle are still used
+    return {"responses": modbus_batch_request(request.requests)}
+
+
 if __name__ == '__main__':
     import uvicorn
 
@@ -157,10 +418,13 @@ if __name__ == '__main__':
     parser.add_argument("--count", type=int, default=1, help="Number of registers/coils to read")
     parser.add_argument("--api", action="store_true", help="Start FastAPI server")
     parser.add_argument("--api_port", type=int, default=8000, help="FastAPI server port")
+    parser.add_argument("--socket", type=str, help="Serve binary frames on this Unix domain socket path")
 
     args = parser.parse_args()
 
-    if args.api:
+    if args.socket:
+        serve_socket(args.socket)
+    elif args.api:
         uvicorn.run("pymodbus_script:app", host="0.0.0.0", port=args.api_port)
     else:
         if args.start_register is None or args.function_code is None:
@@ -176,4 +440,5 @@ if __name__ == '__main__':
             values=args.values,
             count=args.count
         )
+        client_pool.close_all()
         print(json.dumps(response))
@@ -39,7 +39,7 @@ import java.util.function.Consumer;
 
 /**
  * Main application class for the Legacy Protocol Converter.
- * Initializes REST API endpoints, manages Python process for Modbus operations,
+ * Initializes REST API endpoints, manages Python process for Modbus operations when a configuration uses it,
  * and starts the transformation handling service.
  *
  * @author David Trafela, Sunesis
@@ -51,6 +51,8 @@ public class LegacyProtocolConverterApplication extends ResourceConfig {
 
     private Process pythonProcess = null;
 
+    private Thread pythonThread = null;
+
     @Inject
     private TransformationsHandler handler;
 
@@ -68,11 +70,11 @@ public class LegacyProtocolConverterApplication extends ResourceConfig {
 
     /**
      * Initialization method that runs after dependency injection is complete.
-     * Starts the Python Modbus service and initializes transformation handling.
+     * Initializes transformation handling, which starts the Python Modbus service once a configuration uses it.
      */
     @PostConstruct
     public void init() {
-        pythonHandler();
+        this.handler.setPythonServiceStarter(this::pythonHandler);
 
         try {
             this.handler.startHandling();
@@ -85,12 +87,21 @@ public class LegacyProtocolConverterApplication extends ResourceConfig {
     /**
      * Manages the Python process used for Modbus operations.
      * Launches a Python script in a separate process, monitors its output,
-     * and automatically restarts it if it fails.
+     * and automatically restarts it if it fails. The process is started only once, later calls do nothing.
      */
-    private void pythonHandler() {
+    private synchronized void pythonHandler() {
+        if (pythonThread != null) {
+            return;
+        }
+
         Thread thread = new Thread(() -> {
             String port = System.getenv("PYTHON_PORT") != null ? System.getenv("PYTHON_PORT") : "9093";
-            String[] cmd = {"python3", "pymodbus_script.py", "--api", "--api_port", port};
+            String socket = System.getenv("PYTHON_SOCKET");
+
+            // With a socket path requests are exchanged as binary frames over a Unix domain socket instead of HTTP
+            String[] cmd = socket != null
+                    ? new String[]{"python3", "pymodbus_script.py", "--socket", socket}
+                    : new String[]{"python3", "pymodbus_script.py", "--api", "--api_port", port};
 
             ProcessBuilder processBuilder = new ProcessBuilder(cmd);
 
@@ -132,6 +143,7 @@ public class LegacyProtocolConverterApplication extends ResourceConfig {
 
         thread.setDaemon(false); // Ensure it runs as a non-daemon thread
         thread.start();
+        pythonThread = thread;
 
         // Register JVM shutdown hook
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
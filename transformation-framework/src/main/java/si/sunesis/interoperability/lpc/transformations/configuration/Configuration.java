@@ -27,12 +27,14 @@ import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import si.sunesis.interoperability.lpc.transformations.configuration.models.ConfigurationModel;
+import si.sunesis.interoperability.lpc.transformations.configuration.models.MessageModel;
 import si.sunesis.interoperability.lpc.transformations.configuration.models.TransformationModel;
 import si.sunesis.interoperability.lpc.transformations.constants.Constants;
 import si.sunesis.interoperability.lpc.transformations.enums.ValidateIEEE2030Dot5;
 import si.sunesis.interoperability.lpc.transformations.exceptions.LPCException;
 import si.sunesis.interoperability.lpc.transformations.logging.LoggingInit;
 import si.sunesis.interoperability.lpc.transformations.transformation.ObjectTransformer;
+import si.sunesis.interoperability.lpc.transformations.transformation.RegisterDecodePlan;
 
 import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
@@ -124,6 +126,31 @@ public class Configuration {
         }
     }
 
+    /**
+     * Checks whether any message of the loaded configurations uses the given Modbus library.
+     *
+     * @param modbusLibrary Name of the Modbus library, "java", "java-lenient" or "python"
+     * @return True if a to-incoming, to-outgoing or interval request message uses the library
+     */
+    public boolean usesModbusLibrary(String modbusLibrary) {
+        for (ConfigurationModel configurationModel : configurations) {
+            for (TransformationModel transformationModel : configurationModel.getTransformations()) {
+                MessageModel intervalRequest = transformationModel.getIntervalRequest() != null
+                        ? transformationModel.getIntervalRequest().getRequest()
+                        : null;
+
+                for (MessageModel messageModel : new MessageModel[]{transformationModel.getToIncoming(),
+                        transformationModel.getToOutgoing(), intervalRequest}) {
+                    if (messageModel != null && modbusLibrary.equalsIgnoreCase(messageModel.getModbusLibrary())) {
+                        return true;
+                    }
+                }
+            }
+        }
+
+        return false;
+    }
+
     /**
      * Reads content from an input stream and converts it to a string.
      *
@@ -304,6 +331,12 @@ public class Configuration {
                         || transformationModel.getValidateIEEE2030dot5() == ValidateIEEE2030Dot5.INCOMING)) {
                     objectTransformer.mockTransform(transformationModel.getToIncoming().getMessage(), transformationModel.getValidateIEEE2030dot5());
                 }
+
+                RegisterDecodePlan.compileInto(transformationModel.getToIncoming());
+                RegisterDecodePlan.compileInto(transformationModel.getToOutgoing());
+                if (transformationModel.getIntervalRequest() != null) {
+                    RegisterDecodePlan.compileInto(transformationModel.getIntervalRequest().getRequest());
+                }
             } catch (JsonProcessingException ex) {
                 log.error("Error validating transformation: {}", transformationModel.getName());
                 log.error("Error processing JSON: {}", ex.getOriginalMessage());
@@ -21,8 +21,10 @@
 package si.sunesis.interoperability.lpc.transformations.configuration.models;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonSetter;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
+import si.sunesis.interoperability.lpc.transformations.enums.ModbusEngine;
 
 /**
  * Represents a connection configuration for various protocol types.
@@ -139,6 +141,53 @@ public class ConnectionModel {
     @JsonProperty("stop-bits")
     private Integer stopBits;
 
+    /**
+     * Maximum number of Modbus TCP requests sent without waiting for a response, matched by transaction ID
+     */
+    @JsonProperty("max-inflight")
+    private Integer maxInflight = 1;
+
+    /**
+     * Time in milliseconds to wait for a Modbus response before the request is cancelled
+     */
+    @JsonProperty("response-timeout")
+    private Integer responseTimeout = 1000;
+
+    /**
+     * Time in milliseconds a Modbus serial bus stays idle after a request timed out, so late replies do not collide with the next request
+     */
+    @JsonProperty("timeout-turnaround")
+    private Integer timeoutTurnaround;
+
+    /**
+     * Whether the Modbus TCP device is a gateway to several units, all connections to the gateway share one connection
+     */
+    private Boolean gateway = false;
+
+    /**
+     * Time in milliseconds a unit behind a Modbus gateway has to respond to a request, by default the response timeout
+     */
+    @JsonProperty("unit-timeout")
+    private Integer unitTimeout;
+
+    /**
+     * Engine used for Modbus TCP connections, either jlibmodbus or nio
+     */
+    private ModbusEngine modbusEngine = ModbusEngine.JLIBMODBUS;
+
+    @JsonSetter("modbus-engine")
+    public void setModbusEngine(String modbusEngine) {
+        if (modbusEngine == null) {
+            return;
+        }
+
+        try {
+            this.modbusEngine = ModbusEngine.valueOf(modbusEngine.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            this.modbusEngine = ModbusEngine.JLIBMODBUS;
+        }
+    }
+
     // NATS specific parameters
     /**
      * Maximum number of pings without a response before considering the connection lost
@@ -23,6 +23,12 @@ package si.sunesis.interoperability.lpc.transformations.configuration.models;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonSetter;
 import lombok.Data;
+import si.sunesis.interoperability.lpc.transformations.enums.OverrunPolicy;
+import si.sunesis.interoperability.lpc.transformations.enums.PhaseMode;
+import si.sunesis.interoperability.lpc.transformations.enums.PollMode;
+
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Defines an interval-based request configuration for polling data periodically.
@@ -76,4 +82,89 @@ public class IntervalRequestModel {
      * Message configuration for the periodic request
      */
     private MessageModel request;
+
+    /**
+     * Polling mode for Modbus connections, either sequential or concurrent
+     */
+    private PollMode pollMode = PollMode.SEQUENTIAL;
+
+    @JsonSetter("poll-mode")
+    public void setPollMode(String pollMode) {
+        if (pollMode == null) {
+            return;
+        }
+
+        try {
+            this.pollMode = PollMode.valueOf(pollMode.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            this.pollMode = PollMode.SEQUENTIAL;
+        }
+    }
+
+    /**
+     * Phase of the poll within the interval, either aligned, hash or spread
+     */
+    private PhaseMode phaseMode = PhaseMode.ALIGNED;
+
+    @JsonSetter("phase-mode")
+    public void setPhaseMode(String phaseMode) {
+        if (phaseMode == null) {
+            return;
+        }
+
+        try {
+            this.phaseMode = PhaseMode.valueOf(phaseMode.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            this.phaseMode = PhaseMode.ALIGNED;
+        }
+    }
+
+    /**
+     * Delay in milliseconds of the poll after the aligned start of the interval, overrides the phase mode
+     */
+    @JsonProperty("phase-offset")
+    private Integer phaseOffset;
+
+    /**
+     * Handling of polls that take longer than the interval, either skip, realign or queue
+     */
+    private OverrunPolicy overrunPolicy = OverrunPolicy.SKIP;
+
+    @JsonSetter("overrun-policy")
+    public void setOverrunPolicy(String overrunPolicy) {
+        if (overrunPolicy == null) {
+            return;
+        }
+
+        try {
+            this.overrunPolicy = OverrunPolicy.valueOf(overrunPolicy.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            this.overrunPolicy = OverrunPolicy.SKIP;
+        }
+    }
+
+    /**
+     * Maximum number of missed polls executed back-to-back with the queue overrun policy
+     */
+    @JsonProperty("overrun-queue-limit")
+    private Integer overrunQueueLimit = 1;
+
+    /**
+     * Intervals in milliseconds of the poll classes of registers by class name, 0 to read the registers only once
+     */
+    @JsonProperty("poll-classes")
+    private Map<String, Integer> pollClasses = new HashMap<>();
+
+    /**
+     * Deadline in milliseconds for a single Modbus device when polling concurrently.
+     * If not set, the interval is used.
+     */
+    @JsonProperty("device-timeout")
+    private Integer deviceTimeout;
+
+    /**
+     * Maximum time in milliseconds without publishing when no register changed beyond its deadband
+     */
+    @JsonProperty("max-silence")
+    private Integer maxSilence;
 }
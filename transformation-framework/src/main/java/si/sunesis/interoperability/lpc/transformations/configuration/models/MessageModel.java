@@ -20,10 +20,14 @@
  */
 package si.sunesis.interoperability.lpc.transformations.configuration.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonSetter;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import si.sunesis.interoperability.lpc.transformations.enums.Endianness;
+import si.sunesis.interoperability.lpc.transformations.transformation.RegisterDecodePlan;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -76,15 +80,15 @@ public class MessageModel {
     private Endianness endianness = Endianness.BIG_ENDIAN;
 
     /**
-     * Modbus library implementation to use ("java" or "python")
+     * Modbus library implementation to use ("java", "java-lenient" or "python")
      */
     private String modbusLibrary = "java";
 
     /**
      * Sets the Modbus library implementation to use.
-     * Supports either "java" or "python" as valid values.
+     * Supports "java", "java-lenient" or "python" as valid values.
      * If input is null, the current value is preserved.
-     * Defaults to "java" if the input matches "java" (case-insensitive).
+     * Sets to "java" or "java-lenient" if the input matches one of them (case-insensitive).
      * Sets to "python" for any other non-null value.
      *
      * @param modbusLibrary The name of the Modbus library to use
@@ -97,6 +101,8 @@ public class MessageModel {
 
         if (modbusLibrary.equalsIgnoreCase("java")) {
             this.modbusLibrary = "java";
+        } else if (modbusLibrary.equalsIgnoreCase("java-lenient")) {
+            this.modbusLibrary = "java-lenient";
         } else {
             this.modbusLibrary = "python";
         }
@@ -139,4 +145,60 @@ public class MessageModel {
 
     @JsonProperty("retry-count")
     private Integer retryCount = 0;
+
+    /**
+     * Maximum number of unused registers between two registers that are still read in the same request
+     */
+    @JsonProperty("max-gap-registers")
+    private Integer maxGapRegisters = 0;
+
+    /**
+     * Maximum number of registers read in a single request, limited to 125 by the Modbus protocol
+     */
+    @JsonProperty("max-block-registers")
+    private Integer maxBlockRegisters = 125;
+
+    /**
+     * Maximum number of coils or discrete inputs read in a single request, limited to 2000 by the Modbus protocol
+     */
+    @JsonProperty("max-block-bits")
+    private Integer maxBlockBits = 2000;
+
+    /**
+     * Maximum age in milliseconds of registers read by other transformations from the same device that are reused
+     */
+    @JsonProperty("cache-max-age")
+    private Integer cacheMaxAge;
+
+    /**
+     * Name of the device model, devices of the same model share the learned layout of unreadable registers
+     */
+    @JsonProperty("device-model")
+    private String deviceModel;
+
+    /**
+     * Time in milliseconds during which register writes from the server are merged into one write, only for function code 16
+     */
+    @JsonProperty("coalesce-window")
+    private Integer coalesceWindow;
+
+    /**
+     * Skip writes with function code 6 or 16 that would write the same words as the last successful write
+     */
+    @JsonProperty("suppress-unchanged-writes")
+    private Boolean suppressUnchangedWrites = false;
+
+    /**
+     * Time in milliseconds after which unchanged registers are written again even if unchanged writes are suppressed
+     */
+    @JsonProperty("write-refresh-interval")
+    private Integer writeRefreshInterval;
+
+    /**
+     * Decode plan for the registers, compiled when the configuration is loaded
+     */
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private RegisterDecodePlan decodePlan;
 }
@@ -70,4 +70,21 @@ public class ModbusModel {
      */
     @JsonProperty("default")
     private Float defaultValue;
+
+    /**
+     * Absolute change of the value needed to publish interval polls with report-by-exception
+     */
+    private Double deadband;
+
+    /**
+     * Change of the value in percent of the last published value needed to publish interval polls with report-by-exception
+     */
+    @JsonProperty("deadband-percent")
+    private Double deadbandPercent;
+
+    /**
+     * Name of the poll class of the register, read with the interval of the class instead of every interval poll
+     */
+    @JsonProperty("poll-class")
+    private String pollClass;
 }
@@ -36,7 +36,20 @@ import org.eclipse.paho.mqttv5.common.MqttException;
 import si.sunesis.interoperability.common.interfaces.RequestHandler;
 import si.sunesis.interoperability.lpc.transformations.configuration.Configuration;
 import si.sunesis.interoperability.lpc.transformations.configuration.models.ConnectionModel;
+import si.sunesis.interoperability.lpc.transformations.enums.ModbusEngine;
 import si.sunesis.interoperability.lpc.transformations.exceptions.LPCException;
+import si.sunesis.interoperability.lpc.transformations.modbus.LenientModbusTcpTransport;
+import si.sunesis.interoperability.lpc.transformations.modbus.ModbusGateway;
+import si.sunesis.interoperability.lpc.transformations.modbus.ModbusTransport;
+import si.sunesis.interoperability.lpc.transformations.modbus.NioModbusEngine;
+import si.sunesis.interoperability.lpc.transformations.modbus.NioModbusTcpTransport;
+import si.sunesis.interoperability.lpc.transformations.modbus.PipelinedModbusTcpMaster;
+import si.sunesis.interoperability.lpc.transformations.modbus.PythonModbusClient;
+import si.sunesis.interoperability.lpc.transformations.modbus.RegisterSnapshotCache;
+import si.sunesis.interoperability.lpc.transformations.modbus.SerialBusArbiter;
+import si.sunesis.interoperability.lpc.transformations.transformation.PollPhasePlanner;
+import si.sunesis.interoperability.lpc.transformations.transformation.RegisterHoleMap;
+import si.sunesis.interoperability.lpc.transformations.transformation.RegisterWriteFilter;
 import si.sunesis.interoperability.modbus.ModbusClient;
 import si.sunesis.interoperability.mqtt.Mqtt3Client;
 import si.sunesis.interoperability.mqtt.Mqtt5Client;
@@ -52,6 +65,7 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.nio.file.Path;
 import java.security.KeyManagementException;
 import java.security.KeyStore;
 import java.security.NoSuchAlgorithmException;
@@ -61,6 +75,8 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeoutException;
 
 /**
@@ -81,6 +97,36 @@ public class Connections {
     @Getter
     private final Map<String, ConnectionModel> connectionModelMap = new HashMap<>();
 
+    @Getter
+    private final Map<String, ModbusTransport> modbusTransportMap = new HashMap<>();
+
+    @Getter
+    private final Map<String, SerialBusArbiter> serialBusArbiterMap = new HashMap<>();
+
+    @Getter
+    private final Map<String, ModbusTransport> lenientModbusTransportMap = new ConcurrentHashMap<>();
+
+    @Getter
+    private final Map<String, ModbusGateway> modbusGatewayMap = new HashMap<>();
+
+    @Getter
+    private final RegisterSnapshotCache registerSnapshotCache = new RegisterSnapshotCache();
+
+    @Getter
+    private final RegisterWriteFilter registerWriteFilter = new RegisterWriteFilter();
+
+    @Getter
+    private final RegisterHoleMap registerHoleMap = new RegisterHoleMap(
+            System.getenv("REGISTER_LAYOUT_FILE") != null ? Path.of(System.getenv("REGISTER_LAYOUT_FILE")) : null);
+
+    @Getter
+    private final PollPhasePlanner pollPhasePlanner = new PollPhasePlanner();
+
+    @Getter
+    private final PythonModbusClient pythonModbusClient = new PythonModbusClient(
+            System.getenv("PYTHON_PORT") != null ? System.getenv("PYTHON_PORT") : "9093", System.getenv("PYTHON_SOCKET"),
+            getMaxPythonRequests());
+
     private final Boolean newConf;
 
     public Connections(Configuration configuration, Boolean newConf) throws LPCException {
@@ -100,12 +146,20 @@ public class Connections {
     public void init() throws LPCException {
         connectionsMap.clear();
         connectionModelMap.clear();
+        modbusTransportMap.clear();
+        serialBusArbiterMap.clear();
+        lenientModbusTransportMap.clear();
+        modbusGatewayMap.clear();
 
         List<ConnectionModel> yamlConnections = configuration.getConfigurations().stream()
                 .flatMap(item -> item.getConnections().stream())
                 .toList();
 
         Map<ConnectionModel, RequestHandler> clientMap = new HashMap<>();
+        Map<ConnectionModel, ModbusTransport> transportMap = new HashMap<>();
+        Map<String, SerialBusArbiter> busMap = new HashMap<>();
+
+        validateSerialBuses(yamlConnections);
 
         log.debug("Found {} connections", yamlConnections.size());
         for (ConnectionModel connection : yamlConnections) {
@@ -116,6 +170,12 @@ public class Connections {
             if (requestHandler != null) {
                 log.debug("Connection {} already exists under different name", connection.getName());
                 this.connectionsMap.put(connection.getName(), requestHandler);
+                if (transportMap.containsKey(connection)) {
+                    this.modbusTransportMap.put(connection.getName(), transportMap.get(connection));
+                }
+                if (busMap.containsKey(getSerialBusKey(connection))) {
+                    this.serialBusArbiterMap.put(connection.getName(), busMap.get(getSerialBusKey(connection)));
+                }
                 continue;
             }
 
@@ -163,15 +223,50 @@ public class Connections {
 
                 try {
                     Modbus.setLogLevel(Modbus.LogLevel.LEVEL_DEBUG);
-                    ModbusClient client = buildModbusClient(connection);
+                    SerialBusArbiter arbiter = connection.getDevice() != null ? busMap.get(getSerialBusKey(connection)) : null;
+
+                    ModbusClient client;
+                    if (arbiter != null) {
+                        // All connections on the same serial bus share the master of its arbiter, which owns the port
+                        client = arbiter.getClient();
+                        this.connectionNameToIp.put(connection.getName(), connection.getHost() != null
+                                ? connection.getHost() + ":" + connection.getPort() + " / " + connection.getDevice()
+                                : connection.getDevice());
+                    } else {
+                        client = buildModbusClient(connection);
+                    }
                     this.connectionsMap.put(connection.getName(), client);
                     clientMap.put(connection, client);
+
+                    if (connection.getDevice() != null) {
+                        if (arbiter == null) {
+                            arbiter = new SerialBusArbiter(getSerialBusKey(connection), client, connection.getBaudRate(),
+                                    connection.getResponseTimeout(), connection.getTimeoutTurnaround());
+                            busMap.put(getSerialBusKey(connection), arbiter);
+                        }
+                        this.serialBusArbiterMap.put(connection.getName(), arbiter);
+                    }
                 } catch (UnknownHostException | SerialPortException e) {
                     log.error("Error building Modbus client", e);
                     if (!newConf) {
                         throw new LPCException("Error building Modbus client", e);
                     }
                 }
+
+                try {
+                    ModbusTransport transport = Boolean.TRUE.equals(connection.getGateway())
+                            ? getModbusGateway(connection)
+                            : buildModbusTransport(connection);
+                    if (transport != null) {
+                        this.modbusTransportMap.put(connection.getName(), transport);
+                        transportMap.put(connection, transport);
+                    }
+                } catch (IOException e) {
+                    log.error("Error building Modbus transport", e);
+                    if (!newConf) {
+                        throw new LPCException("Error building Modbus transport", e);
+                    }
+                }
             } else if (connection.getType().equalsIgnoreCase("RabbitMQ")) {
                 RabbitMQClient client;
                 try {
@@ -209,6 +304,43 @@ public class Connections {
         return modbusConnections;
     }
 
+    /**
+     * Retrieves the Modbus transport used instead of the Modbus client for the given connection.
+     *
+     * @param connectionName Name of the Modbus connection
+     * @return Modbus transport, or null if requests are sent through the Modbus client
+     */
+    public ModbusTransport getModbusTransport(String connectionName) {
+        return modbusTransportMap.get(connectionName);
+    }
+
+    /**
+     * Retrieves the lenient Modbus transport used by the java-lenient library for the given connection.
+     * The transport is created on first use and shared by all connections to the same device.
+     *
+     * @param connectionName Name of the Modbus connection
+     * @return Lenient Modbus transport, or null if the connection is not a Modbus TCP connection
+     */
+    public ModbusTransport getLenientModbusTransport(String connectionName) {
+        ConnectionModel connectionModel = connectionModelMap.get(connectionName);
+        if (connectionModel == null || connectionModel.getHost() == null || connectionModel.getDevice() != null) {
+            return null;
+        }
+
+        return lenientModbusTransportMap.computeIfAbsent(connectionModel.getHost() + ":" + connectionModel.getPort(),
+                key -> new LenientModbusTcpTransport(connectionModel.getHost(), connectionModel.getPort(), connectionModel.getResponseTimeout()));
+    }
+
+    /**
+     * Retrieves the arbiter of the serial bus used by the given connection.
+     *
+     * @param connectionName Name of the Modbus connection
+     * @return Serial bus arbiter, or null if the connection is not a serial connection
+     */
+    public SerialBusArbiter getSerialBusArbiter(String connectionName) {
+        return serialBusArbiterMap.get(connectionName);
+    }
+
     /**
      * Builds a NATS client based on connection configuration.
      *
@@ -433,6 +565,129 @@ public class Connections {
         }
     }
 
+    /**
+     * Builds a Modbus TCP transport used instead of the jlibmodbus client.
+     * The NIO engine is used if configured, otherwise a pipelined transport if more than one request in flight is configured.
+     *
+     * @param connectionModel The connection model containing Modbus configuration parameters
+     * @return Modbus TCP transport, or null if the jlibmodbus client is used
+     * @throws IOException If the NIO engine cannot be started
+     */
+    private ModbusTransport buildModbusTransport(ConnectionModel connectionModel) throws IOException {
+        if (connectionModel.getHost() == null || connectionModel.getDevice() != null) {
+            return null;
+        }
+
+        int maxInflight = connectionModel.getMaxInflight() != null ? connectionModel.getMaxInflight() : 1;
+
+        if (connectionModel.getModbusEngine() == ModbusEngine.NIO) {
+            return new NioModbusTcpTransport(NioModbusEngine.getInstance(),
+                    connectionModel.getHost(),
+                    connectionModel.getPort(),
+                    maxInflight,
+                    connectionModel.getResponseTimeout());
+        }
+
+        if (maxInflight <= 1) {
+            return null;
+        }
+
+        return new PipelinedModbusTcpMaster(connectionModel.getHost(),
+                connectionModel.getPort(),
+                maxInflight,
+                connectionModel.getResponseTimeout());
+    }
+
+    /**
+     * Gets the gateway shared by all connections to the same Modbus TCP gateway, creating it on first use.
+     * Connections to the gateway may differ in other settings, the first connection defines the settings of the gateway.
+     *
+     * @param connectionModel The connection model containing Modbus configuration parameters
+     * @return Modbus gateway, or null if the connection is not a Modbus TCP connection
+     * @throws IOException If the NIO engine cannot be started
+     */
+    private ModbusGateway getModbusGateway(ConnectionModel connectionModel) throws IOException {
+        if (connectionModel.getHost() == null || connectionModel.getDevice() != null) {
+            return null;
+        }
+
+        String key = connectionModel.getHost() + ":" + connectionModel.getPort();
+        ModbusGateway gateway = modbusGatewayMap.get(key);
+
+        if (gateway == null) {
+            int maxInflight = connectionModel.getMaxInflight() != null ? connectionModel.getMaxInflight() : 1;
+
+            ModbusTransport transport = buildModbusTransport(connectionModel);
+            if (transport == null) {
+                transport = new PipelinedModbusTcpMaster(connectionModel.getHost(),
+                        connectionModel.getPort(),
+                        maxInflight,
+                        connectionModel.getResponseTimeout());
+            }
+
+            long unitTimeout = connectionModel.getUnitTimeout() != null
+                    ? connectionModel.getUnitTimeout()
+                    : connectionModel.getResponseTimeout();
+
+            gateway = new ModbusGateway(key, transport, maxInflight, unitTimeout);
+            modbusGatewayMap.put(key, gateway);
+            log.info("Created Modbus gateway {} with unit timeout {} ms", key, unitTimeout);
+        }
+
+        return gateway;
+    }
+
+    /**
+     * Gets the maximum number of requests to the Python Modbus service in flight, shared by all transformations.
+     *
+     * @return Value of the PYTHON_MAX_CONCURRENT_REQUESTS environment variable, or the default
+     */
+    private static int getMaxPythonRequests() {
+        String maxRequests = System.getenv("PYTHON_MAX_CONCURRENT_REQUESTS");
+
+        try {
+            return maxRequests != null ? Integer.parseInt(maxRequests) : PythonModbusClient.DEFAULT_MAX_CONCURRENT_REQUESTS;
+        } catch (NumberFormatException e) {
+            log.warn("Invalid PYTHON_MAX_CONCURRENT_REQUESTS: {}", maxRequests);
+            return PythonModbusClient.DEFAULT_MAX_CONCURRENT_REQUESTS;
+        }
+    }
+
+    /**
+     * Checks that all Modbus connections on the same serial bus use the same serial line parameters.
+     * The bus is opened once with the parameters of its first connection, so a connection with different parameters
+     * would silently use the wrong baud rate or framing.
+     *
+     * @param connections Connections of all configurations
+     * @throws LPCException If two connections on the same serial bus differ in baud rate, data bits, parity or stop bits
+     */
+    private static void validateSerialBuses(List<ConnectionModel> connections) throws LPCException {
+        Map<String, ConnectionModel> buses = new HashMap<>();
+
+        for (ConnectionModel connection : connections) {
+            if (!connection.getType().equalsIgnoreCase("modbus") || connection.getDevice() == null) {
+                continue;
+            }
+
+            ConnectionModel first = buses.putIfAbsent(getSerialBusKey(connection), connection);
+            if (first != null && (!Objects.equals(first.getBaudRate(), connection.getBaudRate())
+                    || !Objects.equals(first.getDataBits(), connection.getDataBits())
+                    || !Objects.equals(first.getParity(), connection.getParity())
+                    || !Objects.equals(first.getStopBits(), connection.getStopBits()))) {
+                throw new LPCException("Modbus connections " + first.getName() + " and " + connection.getName()
+                        + " use serial bus " + getSerialBusKey(connection) + " with different baud rate, data bits, parity or stop bits");
+            }
+        }
+    }
+
+    private static String getSerialBusKey(ConnectionModel connectionModel) {
+        if (connectionModel.getHost() != null) {
+            return connectionModel.getHost() + ":" + connectionModel.getPort() + "/" + connectionModel.getDevice();
+        }
+
+        return connectionModel.getDevice();
+    }
+
     private void openPort(ConnectionModel connectionModel) throws LPCException {
         try {
             jssc.SerialPort port = new jssc.SerialPort(connectionModel.getDevice());
@@ -0,0 +1,6 @@
+package si.sunesis.interoperability.lpc.transformations.enums;
+
+public enum ModbusEngine {
+    JLIBMODBUS,
+    NIO
+}
@@ -0,0 +1,7 @@
+package si.sunesis.interoperability.lpc.transformations.enums;
+
+public enum OverrunPolicy {
+    SKIP,
+    REALIGN,
+    QUEUE
+}
@@ -0,0 +1,71 @@
+package si.sunesis.interoperability.lpc.transformations.enums;
+
+import lombok.Getter;
+
+@Getter
+public enum RegisterType {
+    INT8(1, false),
+    INT16(1, false),
+    INT32(2, false),
+    INT64(4, false),
+    UINT8(1, true),
+    UINT16(1, true),
+    UINT32(2, true),
+    UINT64(4, true),
+    FLOAT32(2, false),
+    FLOAT64(4, false);
+
+    /**
+     * Number of registers used by a value of this type
+     */
+    private final int registers;
+
+    private final boolean unsigned;
+
+    RegisterType(int registers, boolean unsigned) {
+        this.registers = registers;
+        this.unsigned = unsigned;
+    }
+
+    /**
+     * Parses the register type configured for a Modbus register.
+     * Besides the type names, long, double, short and byte are accepted as int64, float64, int16 and int8.
+     *
+     * @param type The data type string (e.g., "int16", "float32", "uint64")
+     * @return The register type
+     * @throws IllegalArgumentException If the data type is not supported
+     */
+    public static RegisterType fromType(String type) {
+        if (type == null) {
+            throw new IllegalArgumentException("Missing type");
+        }
+
+        String lowerType = type.toLowerCase();
+
+        if (lowerType.contains("int")) {
+            boolean unsigned = lowerType.contains("uint");
+
+            if (lowerType.contains("8")) {
+                return unsigned ? UINT8 : INT8;
+            } else if (lowerType.contains("16")) {
+                return unsigned ? UINT16 : INT16;
+            } else if (lowerType.contains("64")) {
+                return unsigned ? UINT64 : INT64;
+            } else {
+                return unsigned ? UINT32 : INT32;
+            }
+        } else if (lowerType.contains("long")) {
+            return INT64;
+        } else if (lowerType.contains("float")) {
+            return lowerType.contains("64") ? FLOAT64 : FLOAT32;
+        } else if (lowerType.contains("double")) {
+            return FLOAT64;
+        } else if (lowerType.contains("short")) {
+            return INT16;
+        } else if (lowerType.contains("byte")) {
+            return INT8;
+        }
+
+        throw new IllegalArgumentException("Wrong type: " + type);
+    }
+}
@@ -0,0 +1,21 @@
+package si.sunesis.interoperability.lpc.transformations.exceptions;
+
+public class ModbusPduException extends LPCException {
+
+    public static final int ILLEGAL_FUNCTION = 1;
+    public static final int ILLEGAL_DATA_ADDRESS = 2;
+    public static final int ILLEGAL_DATA_VALUE = 3;
+    public static final int GATEWAY_PATH_UNAVAILABLE = 10;
+    public static final int GATEWAY_TARGET_FAILED = 11;
+
+    private final int exceptionCode;
+
+    public ModbusPduException(int functionCode, int exceptionCode) {
+        super("Modbus exception response for function code " + functionCode + ": " + exceptionCode);
+        this.exceptionCode = exceptionCode;
+    }
+
+    public int getExceptionCode() {
+        return exceptionCode;
+    }
+}
@@ -28,6 +28,7 @@ import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 import org.w3c.dom.Document;
 import org.xml.sax.InputSource;
+import si.sunesis.interoperability.lpc.transformations.transformation.RegisterValues;
 
 import javax.xml.XMLConstants;
 import javax.xml.parsers.DocumentBuilder;
@@ -168,6 +169,19 @@ public abstract class AbstractMapper {
         return null;
     }
 
+    /**
+     * Extracts a register value read from a Modbus device, using the register address as path.
+     * The value is formatted directly from the primitive register store without boxing.
+     *
+     * @param modbusInput Register values read from the Modbus device
+     * @return The formatted value, or null if the register was not read
+     */
+    public String getMappedValueModbus(RegisterValues modbusInput) {
+        setPath(getPath().replace("/", ""));
+
+        return modbusInput.format(Integer.parseInt(getPath()));
+    }
+
     private String getValue(String cleanedValue) {
         cleanedValue = cleanedValue.trim();
         if (getValues() != null && getValues().length > 0) {
@@ -0,0 +1,244 @@
+/*
+ *  Copyright (c) 2023-2024 Sunesis and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package si.sunesis.interoperability.lpc.transformations.modbus;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Executes asynchronous requests with a limit on the number of requests in flight and a deadline per request.
+ * Requests over the limit wait in a queue without blocking the caller. Failed requests are retried with exponential
+ * backoff scheduled on a timer, so no thread sleeps between attempts.
+ *
+ * @author David Trafela, Sunesis
+ * @since 1.6.0
+ */
+@Slf4j
+public class AsyncRequestLimiter {
+
+    private final int maxConcurrent;
+
+    private final int maxRetries;
+
+    private final long initialBackoff;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final Queue<Waiting> waiting = new ArrayDeque<>();
+
+    private int running;
+
+    private boolean closed;
+
+    /**
+     * @param name           Name of the timer thread
+     * @param maxConcurrent  Maximum number of requests in flight
+     * @param maxRetries     Maximum number of retries of a failed request
+     * @param initialBackoff Delay in milliseconds before the first retry, doubled for every further retry
+     */
+    public AsyncRequestLimiter(String name, int maxConcurrent, int maxRetries, long initialBackoff) {
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.maxRetries = maxRetries;
+        this.initialBackoff = initialBackoff;
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Submits a request.
+     * If the request does not complete before the deadline, the future completes with a {@link TimeoutException}.
+     *
+     * @param deadline  Deadline in {@link System#nanoTime()} units
+     * @param request   Sends the request, called once per attempt
+     * @param retryable Decides whether a failed attempt is retried
+     * @param <T>       Type of the response
+     * @return Future completed with the response of the first successful attempt
+     */
+    public <T> CompletableFuture<T> submit(long deadline, Supplier<CompletableFuture<T>> request, Predicate<Throwable> retryable) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+            result.completeExceptionally(new TimeoutException("Deadline expired before the request was sent"));
+            return result;
+        }
+
+        // Requests waiting for a free slot also expire
+        result.orTimeout(remaining, TimeUnit.NANOSECONDS);
+
+        acquire(() -> attempt(0, deadline, request, retryable, result), result);
+
+        return result;
+    }
+
+    /**
+     * Stops scheduled retries and fails requests waiting for a free slot.
+     */
+    public void close() {
+        Waiting[] rejected;
+
+        synchronized (this) {
+            closed = true;
+            rejected = waiting.toArray(new Waiting[0]);
+            waiting.clear();
+        }
+
+        scheduler.shutdownNow();
+
+        for (Waiting request : rejected) {
+            request.result.completeExceptionally(new RejectedExecutionException("Request limiter is closed"));
+        }
+    }
+
+    /**
+     * Gets the number of requests in flight.
+     *
+     * @return Number of requests in flight
+     */
+    public synchronized int getRunning() {
+        return running;
+    }
+
+    /**
+     * Sends an attempt of a request in an acquired slot.
+     *
+     * @return False if the deadline expired before the attempt was sent, the slot is then not used
+     */
+    private <T> boolean attempt(int retry, long deadline, Supplier<CompletableFuture<T>> request,
+                                Predicate<Throwable> retryable, CompletableFuture<T> result) {
+        long remaining = deadline - System.nanoTime();
+        if (result.isDone() || remaining <= 0) {
+            result.completeExceptionally(new TimeoutException("Deadline expired before the request was sent"));
+            return false;
+        }
+
+        CompletableFuture<T> response;
+        try {
+            response = request.get();
+        } catch (Exception e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+
+        // A request that expires or is cancelled while in flight cancels the attempt, so the client can abort it
+        CompletableFuture<T> inFlight = response;
+        result.whenComplete((value, throwable) -> inFlight.cancel(false));
+
+        response.orTimeout(remaining, TimeUnit.NANOSECONDS).whenComplete((value, throwable) -> {
+            release();
+
+            if (throwable == null) {
+                result.complete(value);
+                return;
+            }
+
+            Throwable cause = unwrap(throwable);
+            long delay = TimeUnit.MILLISECONDS.toNanos(initialBackoff << Math.min(retry, 30));
+
+            if (retry >= maxRetries || !retryable.test(cause) || deadline - System.nanoTime() <= delay) {
+                result.completeExceptionally(cause);
+                return;
+            }
+
+            log.warn("Request failed, retrying in {} ms ({}/{}): {}",
+                    TimeUnit.NANOSECONDS.toMillis(delay), retry + 1, maxRetries, cause.getMessage());
+
+            try {
+                scheduler.schedule(() -> acquire(() -> attempt(retry + 1, deadline, request, retryable, result), result),
+                        delay, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                result.completeExceptionally(cause);
+            }
+        });
+
+        return true;
+    }
+
+    private void acquire(BooleanSupplier start, CompletableFuture<?> result) {
+        boolean rejected;
+
+        synchronized (this) {
+            rejected = closed;
+
+            if (!rejected && running >= maxConcurrent) {
+                waiting.add(new Waiting(start, result));
+                return;
+            }
+
+            if (!rejected) {
+                running++;
+            }
+        }
+
+        if (rejected) {
+            result.completeExceptionally(new RejectedExecutionException("Request limiter is closed"));
+        } else if (!start.getAsBoolean()) {
+            release();
+        }
+    }
+
+    private void release() {
+        while (true) {
+            Waiting next;
+
+            synchronized (this) {
+                next = waiting.poll();
+                if (next == null) {
+                    running--;
+                    return;
+                }
+            }
+
+            // The slot is handed over to the next waiting request, expired requests pass it on in this loop
+            if (next.start.getAsBoolean()) {
+                return;
+            }
+        }
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        while ((throwable instanceof CompletionException || throwable instanceof ExecutionException)
+                && throwable.getCause() != null) {
+            throwable = throwable.getCause();
+        }
+
+        return throwable;
+    }
+
+    private record Waiting(BooleanSupplier start, CompletableFuture<?> result) {
+    }
+}
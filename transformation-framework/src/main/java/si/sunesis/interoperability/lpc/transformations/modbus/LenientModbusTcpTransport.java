@@ -0,0 +1,293 @@
+/*
+ *  Copyright (c) 2023-2024 Sunesis and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package si.sunesis.interoperability.lpc.transformations.modbus;
+
+import lombok.extern.slf4j.Slf4j;
+import si.sunesis.interoperability.lpc.transformations.exceptions.ModbusPduException;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Modbus TCP transport tolerating devices that do not strictly follow the Modbus TCP specification,
+ * following the behaviour of the pymodbus client used by the python Modbus library.
+ * <ul>
+ *     <li>Requests are executed one at a time.</li>
+ *     <li>The length of a response is taken from its function code and byte count, a wrong MBAP length field is ignored.
+ *     The transaction ID of the response is not checked, as only one request is sent at a time on a connection.</li>
+ *     <li>The connection is closed after every request without a response and opened again by the next request. Reconnects are
+ *     delayed, starting with {@value #INITIAL_RECONNECT_DELAY} ms and doubling up to {@value #MAX_RECONNECT_DELAY} ms.</li>
+ *     <li>A request failing on a connection reused from an earlier request is sent once more on a new connection,
+ *     as devices often close idle connections without notice.</li>
+ * </ul>
+ *
+ * @author David Trafela, Sunesis
+ * @since 1.6.0
+ */
+@Slf4j
+public class LenientModbusTcpTransport implements ModbusTransport {
+
+    static final long INITIAL_RECONNECT_DELAY = 100L;
+
+    static final long MAX_RECONNECT_DELAY = 300_000L;
+
+    private static final int MBAP_HEADER_LENGTH = 7;
+
+    private final String host;
+
+    private final int port;
+
+    private final int responseTimeout;
+
+    private final ExecutorService executor;
+
+    private Socket socket;
+
+    private DataInputStream inputStream;
+
+    private OutputStream outputStream;
+
+    private int transactionId;
+
+    private long reconnectDelay;
+
+    private long nextConnect;
+
+    public LenientModbusTcpTransport(String host, int port, int responseTimeout) {
+        this.host = host;
+        this.port = port;
+        this.responseTimeout = responseTimeout;
+
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "modbus-lenient-" + host + ":" + port);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public CompletableFuture<byte[]> request(int unitId, byte[] pdu) {
+        CompletableFuture<byte[]> future = new CompletableFuture<>();
+
+        try {
+            executor.execute(() -> {
+                if (!future.isDone()) {
+                    execute(unitId, pdu, future);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(new IOException("Connection to " + host + ":" + port + " closed"));
+        }
+
+        return future;
+    }
+
+    @Override
+    public void connect() {
+        // The connection is opened by the first request, so a device that is offline at startup does not fail the configuration
+    }
+
+    @Override
+    public void disconnect() {
+        executor.shutdownNow();
+
+        synchronized (this) {
+            close();
+        }
+    }
+
+    private synchronized void execute(int unitId, byte[] pdu, CompletableFuture<byte[]> future) {
+        boolean reused = socket != null;
+
+        try {
+            future.complete(exchange(unitId, pdu));
+            return;
+        } catch (ModbusPduException e) {
+            future.completeExceptionally(e);
+            return;
+        } catch (IOException e) {
+            if (!reused || e instanceof SocketTimeoutException) {
+                fail(future, e);
+                return;
+            }
+
+            close();
+            log.debug("Connection to {}:{} failed, retrying on a new connection: {}", host, port, e.getMessage());
+        }
+
+        try {
+            future.complete(exchange(unitId, pdu));
+        } catch (ModbusPduException e) {
+            future.completeExceptionally(e);
+        } catch (IOException e) {
+            fail(future, e);
+        }
+    }
+
+    private void fail(CompletableFuture<byte[]> future, IOException cause) {
+        // The next request connects again, a late response must not be read as its response
+        close();
+
+        if (cause instanceof SocketTimeoutException) {
+            future.completeExceptionally(new TimeoutException("No response from " + host + ":" + port + " within " + responseTimeout + " ms"));
+        } else {
+            future.completeExceptionally(cause);
+        }
+    }
+
+    private byte[] exchange(int unitId, byte[] pdu) throws IOException, ModbusPduException {
+        open();
+
+        int id = transactionId;
+        transactionId = (transactionId + 1) & 0xFFFF;
+
+        byte[] frame = new byte[MBAP_HEADER_LENGTH + pdu.length];
+        frame[0] = (byte) (id >> 8);
+        frame[1] = (byte) id;
+        frame[4] = (byte) ((pdu.length + 1) >> 8);
+        frame[5] = (byte) (pdu.length + 1);
+        frame[6] = (byte) unitId;
+        System.arraycopy(pdu, 0, frame, MBAP_HEADER_LENGTH, pdu.length);
+
+        outputStream.write(frame);
+        outputStream.flush();
+
+        byte[] header = new byte[MBAP_HEADER_LENGTH];
+        inputStream.readFully(header);
+
+        int responseId = ((header[0] & 0xFF) << 8) | (header[1] & 0xFF);
+        int length = ((header[4] & 0xFF) << 8) | (header[5] & 0xFF);
+
+        if (responseId != id) {
+            log.debug("Response from {}:{} has transaction ID {}, expected {}", host, port, responseId, id);
+        }
+
+        byte[] response = readPdu(length - 1);
+        ModbusPdu.checkException(response);
+
+        return response;
+    }
+
+    /**
+     * Reads a response PDU, its length is derived from the function code and not from the MBAP header.
+     * Bytes announced by the MBAP header beyond the PDU are skipped if they were already received.
+     *
+     * @param announced Length of the PDU according to the MBAP header
+     * @return Response PDU
+     * @throws IOException If the connection fails or no response is received within the response timeout
+     */
+    private byte[] readPdu(int announced) throws IOException {
+        int functionCode = inputStream.readUnsignedByte();
+        int length;
+
+        if ((functionCode & 0x80) != 0) {
+            length = 2;
+        } else {
+            switch (functionCode) {
+                case 1, 2, 3, 4, 23 -> {
+                    int byteCount = inputStream.readUnsignedByte();
+                    byte[] pdu = new byte[2 + byteCount];
+                    pdu[0] = (byte) functionCode;
+                    pdu[1] = (byte) byteCount;
+                    inputStream.readFully(pdu, 2, byteCount);
+                    skipAvailable(announced - pdu.length);
+                    return pdu;
+                }
+                case 5, 6, 15, 16 -> length = 5;
+                default -> length = Math.max(1, announced);
+            }
+        }
+
+        byte[] pdu = new byte[length];
+        pdu[0] = (byte) functionCode;
+        inputStream.readFully(pdu, 1, length - 1);
+        skipAvailable(announced - length);
+
+        return pdu;
+    }
+
+    private void skipAvailable(int count) throws IOException {
+        int skip = Math.min(count, inputStream.available());
+        if (skip > 0) {
+            log.debug("Skipping {} bytes after response from {}:{}", skip, host, port);
+            inputStream.skipBytes(skip);
+        }
+    }
+
+    private void open() throws IOException {
+        if (socket != null) {
+            return;
+        }
+
+        long wait = nextConnect - System.currentTimeMillis();
+        if (wait > 0) {
+            throw new IOException("Reconnect to " + host + ":" + port + " delayed for " + wait + " ms");
+        }
+
+        Socket newSocket = new Socket();
+        try {
+            newSocket.setTcpNoDelay(true);
+            newSocket.setSoTimeout(responseTimeout);
+            newSocket.connect(new InetSocketAddress(host, port), responseTimeout);
+        } catch (IOException e) {
+            newSocket.close();
+            delayReconnect();
+            throw e;
+        }
+
+        socket = newSocket;
+        inputStream = new DataInputStream(newSocket.getInputStream());
+        outputStream = newSocket.getOutputStream();
+        reconnectDelay = 0;
+
+        log.info("Connected to Modbus TCP device {}:{}", host, port);
+    }
+
+    private void delayReconnect() {
+        reconnectDelay = reconnectDelay == 0 ? INITIAL_RECONNECT_DELAY : Math.min(reconnectDelay * 2, MAX_RECONNECT_DELAY);
+        nextConnect = System.currentTimeMillis() + reconnectDelay;
+    }
+
+    private void close() {
+        if (socket == null) {
+            return;
+        }
+
+        try {
+            socket.close();
+        } catch (IOException e) {
+            log.debug("Failed to close socket: {}", e.getMessage());
+        }
+
+        socket = null;
+        inputStream = null;
+        outputStream = null;
+    }
+}
@@ -0,0 +1,293 @@
+/*
+ *  Copyright (c) 2023-2024 Sunesis and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package si.sunesis.interoperability.lpc.transformations.modbus;
+
+import lombok.extern.slf4j.Slf4j;
+import si.sunesis.interoperability.lpc.transformations.exceptions.ModbusPduException;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Modbus TCP gateway addressing several units over a single connection.
+ * Requests are queued per unit ID and sent in round-robin order across units, with at most one request per unit
+ * in flight, so a unit with many requests cannot delay the others. Each request must be answered within the unit
+ * timeout. A unit that does not respond to several consecutive requests is marked offline, its requests then fail
+ * immediately instead of occupying the connection, and a single probe request is let through with increasing
+ * intervals until the unit responds again.
+ *
+ * @author David Trafela, Sunesis
+ * @since 1.6.0
+ */
+@Slf4j
+public class ModbusGateway implements ModbusTransport {
+
+    /**
+     * Number of consecutive requests without a response after which a unit is marked offline
+     */
+    public static final int OFFLINE_THRESHOLD = 3;
+
+    private static final long MIN_PROBE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final long MAX_PROBE_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final String name;
+
+    private final ModbusTransport transport;
+
+    private final int maxInflight;
+
+    private final long unitTimeout;
+
+    private final Map<Integer, Unit> units = new LinkedHashMap<>();
+
+    // Units in round-robin order, the next request is taken from the first unit that can send one
+    private final List<Unit> order = new ArrayList<>();
+
+    private int next;
+
+    private int inflight;
+
+    /**
+     * @param name        Name of the gateway used in logs
+     * @param transport   Transport of the connection to the gateway
+     * @param maxInflight Maximum number of requests to different units in flight
+     * @param unitTimeout Time in milliseconds a unit has to respond to a request
+     */
+    public ModbusGateway(String name, ModbusTransport transport, int maxInflight, long unitTimeout) {
+        this.name = name;
+        this.transport = transport;
+        this.maxInflight = Math.max(1, maxInflight);
+        this.unitTimeout = unitTimeout;
+    }
+
+    @Override
+    public CompletableFuture<byte[]> request(int unitId, byte[] pdu) {
+        CompletableFuture<byte[]> future = new CompletableFuture<>();
+
+        synchronized (this) {
+            Unit unit = units.computeIfAbsent(unitId, this::addUnit);
+
+            if (unit.offline && System.nanoTime() - unit.probeAt < 0) {
+                return CompletableFuture.failedFuture(new IOException("Unit " + unitId + " of gateway " + name + " is offline"));
+            }
+
+            unit.queue.add(new Job(pdu, future));
+        }
+
+        dispatch();
+
+        return future;
+    }
+
+    /**
+     * Checks if the unit responded to its last requests.
+     *
+     * @param unitId Unit ID of the device
+     * @return False if the unit is marked offline
+     */
+    public synchronized boolean isUnitOnline(int unitId) {
+        Unit unit = units.get(unitId);
+        return unit == null || !unit.offline;
+    }
+
+    @Override
+    public void connect() throws IOException {
+        transport.connect();
+    }
+
+    @Override
+    public void disconnect() {
+        List<Job> jobs = new ArrayList<>();
+
+        synchronized (this) {
+            for (Unit unit : order) {
+                jobs.addAll(unit.queue);
+                unit.queue.clear();
+            }
+        }
+
+        for (Job job : jobs) {
+            job.future.completeExceptionally(new IOException("Connection to gateway " + name + " closed"));
+        }
+
+        transport.disconnect();
+    }
+
+    private Unit addUnit(int unitId) {
+        Unit unit = new Unit(unitId);
+        order.add(unit);
+        return unit;
+    }
+
+    /**
+     * Sends queued requests of units in round-robin order while the in-flight window allows it.
+     */
+    private void dispatch() {
+        List<Map.Entry<Unit, Job>> send = new ArrayList<>();
+
+        synchronized (this) {
+            Map.Entry<Unit, Job> entry;
+            while (inflight < maxInflight && (entry = nextJob()) != null) {
+                entry.getKey().busy = true;
+                inflight++;
+                send.add(entry);
+            }
+        }
+
+        for (Map.Entry<Unit, Job> entry : send) {
+            Unit unit = entry.getKey();
+            Job job = entry.getValue();
+
+            CompletableFuture<byte[]> response;
+            try {
+                response = transport.request(unit.unitId, job.pdu);
+            } catch (Exception e) {
+                response = CompletableFuture.failedFuture(e);
+            }
+
+            response.orTimeout(unitTimeout, TimeUnit.MILLISECONDS)
+                    .whenComplete((pdu, throwable) -> complete(unit, job, pdu, throwable));
+        }
+    }
+
+    private Map.Entry<Unit, Job> nextJob() {
+        for (int i = 0; i < order.size(); i++) {
+            int index = (next + i) % order.size();
+            Unit unit = order.get(index);
+            if (unit.busy) {
+                continue;
+            }
+
+            // Requests cancelled by their Modbus cycle are dropped
+            Job job = unit.queue.poll();
+            while (job != null && job.future.isDone()) {
+                job = unit.queue.poll();
+            }
+
+            if (job != null) {
+                // Wrapped when the next unit is chosen, so units added in the meantime are not skipped
+                next = index + 1;
+
+                if (unit.offline) {
+                    // Probe, further requests fail until the unit responds or the next probe is due
+                    unit.probeAt = System.nanoTime() + getProbeInterval(unit);
+                }
+
+                return Map.entry(unit, job);
+            }
+        }
+
+        return null;
+    }
+
+    private void complete(Unit unit, Job job, byte[] pdu, Throwable throwable) {
+        Throwable cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+        List<Job> failed = new ArrayList<>();
+
+        synchronized (this) {
+            unit.busy = false;
+            inflight--;
+
+            if (isUnitFailure(cause)) {
+                unit.failures++;
+
+                if (!unit.offline && unit.failures >= OFFLINE_THRESHOLD) {
+                    log.warn("Unit {} of gateway {} did not respond to {} requests, marking it offline", unit.unitId, name, unit.failures);
+                    unit.offline = true;
+                    unit.probeAt = System.nanoTime() + getProbeInterval(unit);
+                }
+
+                if (unit.offline) {
+                    failed.addAll(unit.queue);
+                    unit.queue.clear();
+                }
+            } else if (cause == null || cause instanceof ModbusPduException) {
+                // Any response, including an exception response, shows that the unit is alive
+                if (unit.offline) {
+                    log.info("Unit {} of gateway {} is online again", unit.unitId, name);
+                }
+                unit.offline = false;
+                unit.failures = 0;
+            }
+        }
+
+        if (cause == null) {
+            job.future.complete(pdu);
+        } else {
+            job.future.completeExceptionally(cause);
+        }
+
+        for (Job failedJob : failed) {
+            failedJob.future.completeExceptionally(new IOException("Unit " + unit.unitId + " of gateway " + name + " is offline"));
+        }
+
+        dispatch();
+    }
+
+    /**
+     * Checks if a request failed because the unit did not respond, as opposed to a failed connection to the gateway.
+     *
+     * @param cause Cause of the failed request, or null
+     * @return True if the unit did not respond
+     */
+    private static boolean isUnitFailure(Throwable cause) {
+        return cause instanceof TimeoutException
+                || (cause instanceof ModbusPduException modbusPduException
+                && (modbusPduException.getExceptionCode() == ModbusPduException.GATEWAY_PATH_UNAVAILABLE
+                || modbusPduException.getExceptionCode() == ModbusPduException.GATEWAY_TARGET_FAILED));
+    }
+
+    private static long getProbeInterval(Unit unit) {
+        int doublings = Math.min(Math.max(0, unit.failures - OFFLINE_THRESHOLD), 6);
+        return Math.min(MAX_PROBE_INTERVAL_NANOS, MIN_PROBE_INTERVAL_NANOS << doublings);
+    }
+
+    private static class Unit {
+
+        private final int unitId;
+
+        private final ArrayDeque<Job> queue = new ArrayDeque<>();
+
+        private boolean busy;
+
+        private boolean offline;
+
+        private int failures;
+
+        private long probeAt;
+
+        private Unit(int unitId) {
+            this.unitId = unitId;
+        }
+    }
+
+    private record Job(byte[] pdu, CompletableFuture<byte[]> future) {
+    }
+}
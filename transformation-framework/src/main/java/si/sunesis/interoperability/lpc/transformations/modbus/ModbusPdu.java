@@ -0,0 +1,213 @@
+/*
+ *  Copyright (c) 2023-2024 Sunesis and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package si.sunesis.interoperability.lpc.transformations.modbus;
+
+import si.sunesis.interoperability.lpc.transformations.exceptions.ModbusPduException;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Utility class for building and parsing Modbus protocol data units.
+ *
+ * @author David Trafela, Sunesis
+ * @since 1.6.0
+ */
+public class ModbusPdu {
+
+    private ModbusPdu() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Builds a read request PDU for function codes 1, 2, 3 and 4.
+     *
+     * @param functionCode Read function code
+     * @param start        Starting address
+     * @param quantity     Number of coils or registers to read
+     * @return Request PDU
+     */
+    public static byte[] read(int functionCode, int start, int quantity) {
+        return new byte[]{(byte) functionCode,
+                (byte) (start >> 8), (byte) start,
+                (byte) (quantity >> 8), (byte) quantity};
+    }
+
+    /**
+     * Builds a write single coil request PDU (function code 5).
+     *
+     * @param address Address of the coil
+     * @param value   Value of the coil
+     * @return Request PDU
+     */
+    public static byte[] writeSingleCoil(int address, boolean value) {
+        return new byte[]{5,
+                (byte) (address >> 8), (byte) address,
+                (byte) (value ? 0xFF : 0x00), 0x00};
+    }
+
+    /**
+     * Builds a write single register request PDU (function code 6).
+     *
+     * @param address Address of the register
+     * @param value   Value of the register
+     * @return Request PDU
+     */
+    public static byte[] writeSingleRegister(int address, int value) {
+        return new byte[]{6,
+                (byte) (address >> 8), (byte) address,
+                (byte) (value >> 8), (byte) value};
+    }
+
+    /**
+     * Builds a write multiple coils request PDU (function code 15).
+     *
+     * @param start  Starting address
+     * @param values Values of the coils
+     * @return Request PDU
+     */
+    public static byte[] writeMultipleCoils(int start, boolean[] values) {
+        int byteCount = (values.length + 7) / 8;
+        byte[] pdu = new byte[6 + byteCount];
+        pdu[0] = 15;
+        pdu[1] = (byte) (start >> 8);
+        pdu[2] = (byte) start;
+        pdu[3] = (byte) (values.length >> 8);
+        pdu[4] = (byte) values.length;
+        pdu[5] = (byte) byteCount;
+
+        for (int i = 0; i < values.length; i++) {
+            if (values[i]) {
+                pdu[6 + i / 8] |= (byte) (1 << (i % 8));
+            }
+        }
+
+        return pdu;
+    }
+
+    /**
+     * Builds a write multiple registers request PDU (function code 16).
+     *
+     * @param start     Starting address
+     * @param registers Values of the registers
+     * @return Request PDU
+     */
+    public static byte[] writeMultipleRegisters(int start, int[] registers) {
+        byte[] pdu = new byte[6 + registers.length * 2];
+        pdu[0] = 16;
+        pdu[1] = (byte) (start >> 8);
+        pdu[2] = (byte) start;
+        pdu[3] = (byte) (registers.length >> 8);
+        pdu[4] = (byte) registers.length;
+        pdu[5] = (byte) (registers.length * 2);
+        putRegisters(pdu, 6, registers);
+
+        return pdu;
+    }
+
+    /**
+     * Builds a read/write multiple registers request PDU (function code 23).
+     *
+     * @param readStart     Starting address of the registers to read
+     * @param readQuantity  Number of registers to read
+     * @param writeStart    Starting address of the registers to write
+     * @param registers     Values of the registers to write
+     * @return Request PDU
+     */
+    public static byte[] readWriteMultipleRegisters(int readStart, int readQuantity, int writeStart, int[] registers) {
+        byte[] pdu = new byte[10 + registers.length * 2];
+        pdu[0] = 23;
+        pdu[1] = (byte) (readStart >> 8);
+        pdu[2] = (byte) readStart;
+        pdu[3] = (byte) (readQuantity >> 8);
+        pdu[4] = (byte) readQuantity;
+        pdu[5] = (byte) (writeStart >> 8);
+        pdu[6] = (byte) writeStart;
+        pdu[7] = (byte) (registers.length >> 8);
+        pdu[8] = (byte) registers.length;
+        pdu[9] = (byte) (registers.length * 2);
+        putRegisters(pdu, 10, registers);
+
+        return pdu;
+    }
+
+    /**
+     * Checks if the response PDU is an exception response.
+     *
+     * @param pdu Response PDU
+     * @throws ModbusPduException If the response is an exception response
+     */
+    public static void checkException(byte[] pdu) throws ModbusPduException {
+        if (pdu.length > 1 && (pdu[0] & 0x80) != 0) {
+            throw new ModbusPduException(pdu[0] & 0x7F, pdu[1] & 0xFF);
+        }
+    }
+
+    /**
+     * Gets the function code of a PDU, without the exception flag.
+     *
+     * @param pdu Request or response PDU
+     * @return Function code
+     */
+    public static int getFunctionCode(byte[] pdu) {
+        return pdu[0] & 0x7F;
+    }
+
+    /**
+     * Gets the data of a read response PDU (function codes 1, 2, 3, 4 and 23).
+     * For registers, the data contains big-endian register values, for coils and discrete inputs packed bits.
+     *
+     * @param pdu Response PDU
+     * @return Data bytes of the response
+     */
+    public static byte[] getData(byte[] pdu) {
+        if (pdu.length < 2) {
+            return new byte[0];
+        }
+
+        int byteCount = pdu[1] & 0xFF;
+
+        return Arrays.copyOfRange(pdu, 2, 2 + Math.min(byteCount, pdu.length - 2));
+    }
+
+    /**
+     * Gets a read-only view of the data of a read response PDU without copying it.
+     *
+     * @param pdu Response PDU
+     * @return Buffer positioned at the first data byte, limited to the data of the response
+     */
+    public static ByteBuffer getDataView(byte[] pdu) {
+        if (pdu.length < 2) {
+            return ByteBuffer.allocate(0);
+        }
+
+        int byteCount = pdu[1] & 0xFF;
+
+        return ByteBuffer.wrap(pdu, 2, Math.min(byteCount, pdu.length - 2)).slice().asReadOnlyBuffer();
+    }
+
+    private static void putRegisters(byte[] pdu, int offset, int[] registers) {
+        for (int i = 0; i < registers.length; i++) {
+            pdu[offset + i * 2] = (byte) (registers[i] >> 8);
+            pdu[offset + i * 2 + 1] = (byte) registers[i];
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ *  Copyright (c) 2023-2024 Sunesis and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package si.sunesis.interoperability.lpc.transformations.modbus;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Transport for sending Modbus requests to a device and receiving responses asynchronously.
+ * Requests and responses are exchanged as protocol data units (function code followed by data),
+ * framing is done by the transport.
+ *
+ * @author David Trafela, Sunesis
+ * @since 1.6.0
+ */
+public interface ModbusTransport {
+
+    /**
+     * Sends a request to the device.
+     * The returned future completes with the response PDU, or exceptionally with a
+     * {@link si.sunesis.interoperability.lpc.transformations.exceptions.ModbusPduException} if the device
+     * returned an exception response, with a {@link java.util.concurrent.TimeoutException} if the device did not
+     * respond in time, or with an {@link IOException} if the connection failed.
+     *
+     * @param unitId Unit ID of the device
+     * @param pdu    Request PDU
+     * @return Future completed with the response PDU
+     */
+    CompletableFuture<byte[]> request(int unitId, byte[] pdu);
+
+    /**
+     * Opens the connection to the device if it is not opened yet.
+     *
+     * @throws IOException If the connection cannot be opened
+     */
+    void connect() throws IOException;
+
+    /**
+     * Closes the connection and fails all pending requests.
+     */
+    void disconnect();
+}
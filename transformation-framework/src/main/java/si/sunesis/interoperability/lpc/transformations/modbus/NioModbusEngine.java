@@ -0,0 +1,151 @@
+/*
+ *  Copyright (c) 2023-2024 Sunesis and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package si.sunesis.interoperability.lpc.transformations.modbus;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Single selector loop shared by all {@link NioModbusTcpTransport} connections and the connections of the
+ * {@link PythonSocketTransport}.
+ * All connection state is accessed only from the selector thread, other threads submit work with {@link #execute(Runnable)}.
+ * Request futures are completed on a small pool of completion threads, so decoding responses never delays the selector.
+ * The number of threads therefore stays the same regardless of the number of devices.
+ *
+ * @author David Trafela, Sunesis
+ * @since 1.6.0
+ */
+@Slf4j
+public class NioModbusEngine implements Runnable {
+
+    private static NioModbusEngine instance;
+
+    private final Selector selector;
+
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    private final ExecutorService completionExecutor;
+
+    private NioModbusEngine() throws IOException {
+        this.selector = Selector.open();
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.completionExecutor = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()), runnable -> {
+            Thread thread = new Thread(runnable, "modbus-nio-completion-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Thread thread = new Thread(this, "modbus-nio-selector");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Gets the shared engine, starting the selector thread on first use.
+     *
+     * @return Shared NIO Modbus engine
+     * @throws IOException If the selector cannot be opened
+     */
+    public static synchronized NioModbusEngine getInstance() throws IOException {
+        if (instance == null) {
+            instance = new NioModbusEngine();
+        }
+
+        return instance;
+    }
+
+    /**
+     * Runs the task on the selector thread, in the next iteration of the selector loop.
+     *
+     * @param task Task to run
+     */
+    public void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    /**
+     * Runs the task on the selector thread after the delay.
+     *
+     * @param task  Task to run
+     * @param delay Delay in milliseconds
+     */
+    public void schedule(Runnable task, long delay) {
+        CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS, this::execute).execute(task);
+    }
+
+    Selector getSelector() {
+        return selector;
+    }
+
+    /**
+     * Gets the executor completing request futures, so stages depending on a response do not run on the selector thread.
+     *
+     * @return Executor of request completions
+     */
+    Executor getCompletionExecutor() {
+        return completionExecutor;
+    }
+
+    @Override
+    public void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                selector.select();
+            } catch (IOException e) {
+                log.error("Error selecting Modbus connections", e);
+                continue;
+            }
+
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    log.error("Error running Modbus task", e);
+                }
+            }
+
+            Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+            while (iterator.hasNext()) {
+                SelectionKey key = iterator.next();
+                iterator.remove();
+
+                if (key.attachment() instanceof NioChannelHandler handler) {
+                    handler.handle(key);
+                }
+            }
+        }
+    }
+}
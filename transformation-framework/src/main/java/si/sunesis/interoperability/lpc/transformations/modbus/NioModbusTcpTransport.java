@@ -0,0 +1,411 @@
+/*
+ *  Copyright (c) 2023-2024 Sunesis and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package si.sunesis.interoperability.lpc.transformations.modbus;
+
+import lombok.extern.slf4j.Slf4j;
+import si.sunesis.interoperability.lpc.transformations.exceptions.ModbusPduException;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Non-blocking Modbus TCP transport running on the shared {@link NioModbusEngine} selector loop.
+ * Each connection is a small state machine (disconnected, connecting, connected) with its own direct buffers
+ * for framing, and no thread of its own. Up to the configured number of requests are kept in flight
+ * and responses are matched to requests by the MBAP transaction ID, unit ID and function code.
+ * A connection attempt is abandoned after the response timeout. A connection whose requests time out consecutively
+ * is considered half-open, no further requests are sent on it and it is opened again once its requests are done.
+ * Request futures are completed on the completion threads of the engine, not on the selector thread.
+ *
+ * @author David Trafela, Sunesis
+ * @since 1.6.0
+ */
+@Slf4j
+public class NioModbusTcpTransport implements ModbusTransport, NioChannelHandler {
+
+    private static final int MBAP_HEADER_LENGTH = 7;
+
+    private static final int MAX_ADU_LENGTH = 260;
+
+    // Consecutive response timeouts after which the connection is opened again
+    private static final int MAX_CONSECUTIVE_TIMEOUTS = 3;
+
+    private enum State {
+        DISCONNECTED,
+        CONNECTING,
+        CONNECTED
+    }
+
+    private final NioModbusEngine engine;
+
+    private final InetSocketAddress address;
+
+    private final int maxInflight;
+
+    private final long responseTimeout;
+
+    // State below is accessed only from the selector thread
+    private final Queue<PendingModbusRequest> queued = new ArrayDeque<>();
+
+    private final Map<Integer, PendingModbusRequest> pending = new HashMap<>();
+
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(MAX_ADU_LENGTH * 4);
+
+    private final ByteBuffer writeBuffer;
+
+    private State state = State.DISCONNECTED;
+
+    private SocketChannel channel;
+
+    private SelectionKey key;
+
+    private int transactionId;
+
+    private int consecutiveTimeouts;
+
+    public NioModbusTcpTransport(NioModbusEngine engine, String host, int port, int maxInflight, long responseTimeout) {
+        this.engine = engine;
+        this.address = new InetSocketAddress(host, port);
+        this.maxInflight = Math.max(1, maxInflight);
+        this.responseTimeout = responseTimeout;
+        this.writeBuffer = ByteBuffer.allocateDirect(MAX_ADU_LENGTH * this.maxInflight);
+    }
+
+    @Override
+    public CompletableFuture<byte[]> request(int unitId, byte[] pdu) {
+        PendingModbusRequest request = new PendingModbusRequest(unitId, pdu);
+
+        request.future.whenComplete((response, throwable) -> engine.execute(() -> release(request, throwable)));
+
+        engine.execute(() -> {
+            queued.add(request);
+            dispatch();
+        });
+
+        return request.future;
+    }
+
+    @Override
+    public void connect() {
+        engine.execute(() -> {
+            if (state == State.DISCONNECTED) {
+                startConnect();
+                dispatch();
+            }
+        });
+    }
+
+    @Override
+    public void disconnect() {
+        engine.execute(() -> close(new IOException("Connection to " + address + " closed")));
+    }
+
+    @Override
+    public void handle(SelectionKey selectionKey) {
+        if (selectionKey != key || !selectionKey.isValid()) {
+            return;
+        }
+
+        try {
+            if (selectionKey.isConnectable()) {
+                if (!channel.finishConnect()) {
+                    return;
+                }
+
+                state = State.CONNECTED;
+                key.interestOps(SelectionKey.OP_READ);
+                log.info("Connected to Modbus TCP device {} with {} requests in flight", address, maxInflight);
+                dispatch();
+            }
+
+            if (selectionKey.isValid() && selectionKey.isReadable()) {
+                read();
+            }
+
+            if (selectionKey.isValid() && selectionKey.isWritable()) {
+                flush();
+            }
+        } catch (IOException e) {
+            log.warn("Connection to Modbus TCP device {} lost: {}", address, e.getMessage());
+            close(e);
+        }
+    }
+
+    private void startConnect() {
+        if (address.isUnresolved()) {
+            close(new IOException("Unresolved address " + address));
+            return;
+        }
+
+        try {
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+
+            state = State.CONNECTING;
+            key = channel.register(engine.getSelector(), SelectionKey.OP_CONNECT, this);
+
+            if (channel.connect(address)) {
+                state = State.CONNECTED;
+                key.interestOps(SelectionKey.OP_READ);
+            } else {
+                SocketChannel connecting = channel;
+                engine.schedule(() -> {
+                    if (channel == connecting && state == State.CONNECTING) {
+                        log.warn("Connecting to Modbus TCP device {} timed out", address);
+                        close(new IOException("Connect to " + address + " timed out"));
+                    }
+                }, responseTimeout);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to connect to Modbus TCP device {}: {}", address, e.getMessage());
+            close(e);
+        }
+    }
+
+    /**
+     * Frames queued requests into the write buffer while the in-flight window allows it.
+     */
+    private void dispatch() {
+        if (queued.isEmpty()) {
+            return;
+        }
+
+        if (state == State.DISCONNECTED) {
+            startConnect();
+        }
+
+        if (state != State.CONNECTED || consecutiveTimeouts >= MAX_CONSECUTIVE_TIMEOUTS) {
+            return;
+        }
+
+        while (!queued.isEmpty() && pending.size() < maxInflight) {
+            PendingModbusRequest request = queued.peek();
+            if (request.future.isDone()) {
+                queued.poll();
+                continue;
+            }
+
+            if (writeBuffer.remaining() < MBAP_HEADER_LENGTH + request.pdu.length) {
+                break;
+            }
+
+            queued.poll();
+
+            int id = nextTransactionId();
+            request.transactionId = id;
+            pending.put(id, request);
+
+            writeBuffer.putShort((short) id)
+                    .putShort((short) 0)
+                    .putShort((short) (request.pdu.length + 1))
+                    .put((byte) request.unitId)
+                    .put(request.pdu);
+
+            // Time spent waiting in the queue does not count towards the response timeout
+            request.future.orTimeout(responseTimeout, TimeUnit.MILLISECONDS);
+        }
+
+        try {
+            flush();
+        } catch (IOException e) {
+            log.warn("Failed to send Modbus request to {}: {}", address, e.getMessage());
+            close(e);
+        }
+    }
+
+    private void flush() throws IOException {
+        writeBuffer.flip();
+        channel.write(writeBuffer);
+        writeBuffer.compact();
+
+        if (writeBuffer.position() > 0) {
+            key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        } else {
+            key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    private void read() throws IOException {
+        if (channel.read(readBuffer) < 0) {
+            throw new IOException("Connection closed by device");
+        }
+
+        readBuffer.flip();
+
+        while (readBuffer.remaining() >= MBAP_HEADER_LENGTH) {
+            int start = readBuffer.position();
+            int id = readBuffer.getShort(start) & 0xFFFF;
+            int length = readBuffer.getShort(start + 4) & 0xFFFF;
+            int unitId = readBuffer.get(start + 6) & 0xFF;
+
+            if (length < 2 || length > MAX_ADU_LENGTH - 6) {
+                throw new IOException("Invalid MBAP length " + length);
+            }
+
+            if (readBuffer.remaining() < 6 + length) {
+                break;
+            }
+
+            byte[] pdu = new byte[length - 1];
+            readBuffer.position(start + MBAP_HEADER_LENGTH);
+            readBuffer.get(pdu);
+
+            complete(id, unitId, pdu);
+        }
+
+        readBuffer.compact();
+    }
+
+    private void complete(int id, int unitId, byte[] pdu) {
+        PendingModbusRequest request = pending.get(id);
+        if (request == null) {
+            log.debug("Discarding response with unknown transaction ID {} from {}", id, address);
+            return;
+        }
+
+        // The exception bit 0x80 is ignored, exception responses are matched by their function code
+        if (unitId != request.unitId || (pdu[0] & 0x7F) != (request.pdu[0] & 0x7F)) {
+            log.debug("Discarding response with transaction ID {} from {}, unit ID {} and function code {} do not match the request",
+                    id, address, unitId, pdu[0] & 0x7F);
+            return;
+        }
+
+        pending.remove(id);
+        consecutiveTimeouts = 0;
+
+        try {
+            ModbusPdu.checkException(pdu);
+            completeAsync(request, pdu, null);
+        } catch (ModbusPduException e) {
+            completeAsync(request, null, e);
+        }
+
+        dispatch();
+    }
+
+    /**
+     * Completes the future of a request on a completion thread of the engine,
+     * so the response is decoded and merged into the Modbus cycle without blocking the selector thread.
+     *
+     * @param request Request to complete
+     * @param pdu     Response PDU, or null if the request failed
+     * @param cause   Cause of the failure, or null if the request succeeded
+     */
+    private void completeAsync(PendingModbusRequest request, byte[] pdu, Throwable cause) {
+        engine.getCompletionExecutor().execute(() -> {
+            if (cause != null) {
+                request.future.completeExceptionally(cause);
+            } else {
+                request.future.complete(pdu);
+            }
+        });
+    }
+
+    /**
+     * Releases the transaction ID of a completed request, for example after a timeout.
+     * After consecutive timeouts no further requests are sent on the connection, and once its last request in flight
+     * is done the connection is closed, so queued requests are sent on a new connection.
+     *
+     * @param request   Completed request
+     * @param throwable Cause of the failure, or null if the request succeeded
+     */
+    private void release(PendingModbusRequest request, Throwable throwable) {
+        queued.remove(request);
+
+        if (request.transactionId < 0 || !pending.remove(request.transactionId, request)) {
+            return;
+        }
+
+        if (throwable instanceof TimeoutException) {
+            consecutiveTimeouts++;
+        }
+
+        if (consecutiveTimeouts >= MAX_CONSECUTIVE_TIMEOUTS && pending.isEmpty() && state == State.CONNECTED) {
+            log.warn("{} consecutive requests to Modbus TCP device {} timed out, connecting again", consecutiveTimeouts, address);
+            closeChannel();
+        }
+
+        dispatch();
+    }
+
+    private int nextTransactionId() {
+        int id;
+        do {
+            transactionId = (transactionId + 1) & 0xFFFF;
+            id = transactionId;
+        } while (pending.containsKey(id));
+
+        return id;
+    }
+
+    /**
+     * Closes the channel and fails all pending and queued requests.
+     *
+     * @param cause Cause passed to the failed requests
+     */
+    private void close(IOException cause) {
+        closeChannel();
+
+        List<PendingModbusRequest> failed = new ArrayList<>(pending.values());
+        failed.addAll(queued);
+        pending.clear();
+        queued.clear();
+
+        for (PendingModbusRequest request : failed) {
+            completeAsync(request, null, cause);
+        }
+    }
+
+    private void closeChannel() {
+        if (key != null) {
+            key.cancel();
+            key = null;
+        }
+
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.debug("Failed to close channel: {}", e.getMessage());
+            }
+            channel = null;
+        }
+
+        state = State.DISCONNECTED;
+        consecutiveTimeouts = 0;
+        readBuffer.clear();
+        writeBuffer.clear();
+    }
+}
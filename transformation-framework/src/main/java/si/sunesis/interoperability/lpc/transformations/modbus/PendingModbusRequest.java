@@ -0,0 +1,45 @@
+/*
+ *  Copyright (c) 2023-2024 Sunesis and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package si.sunesis.interoperability.lpc.transformations.modbus;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Modbus request waiting to be sent or for its response.
+ *
+ * @author David Trafela, Sunesis
+ * @since 1.6.0
+ */
+class PendingModbusRequest {
+
+    final int unitId;
+
+    final byte[] pdu;
+
+    final CompletableFuture<byte[]> future = new CompletableFuture<>();
+
+    volatile int transactionId = -1;
+
+    PendingModbusRequest(int unitId, byte[] pdu) {
+        this.unitId = unitId;
+        this.pdu = pdu;
+    }
+}
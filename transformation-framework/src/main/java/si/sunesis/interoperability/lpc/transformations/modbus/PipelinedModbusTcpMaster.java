@@ -0,0 +1,295 @@
+/*
+ *  Copyright (c) 2023-2024 Sunesis and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package si.sunesis.interoperability.lpc.transformations.modbus;
+
+import lombok.extern.slf4j.Slf4j;
+import si.sunesis.interoperability.lpc.transformations.exceptions.ModbusPduException;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Modbus TCP master which keeps several requests in flight on a single socket.
+ * Responses are matched to requests by the MBAP transaction ID, unit ID and function code, so they may arrive in any order.
+ * Requests exceeding the in-flight window are queued and sent as soon as a response is received.
+ * Requests are written by a single writer thread, so the reader thread never blocks on sending or reconnecting.
+ * Requests which are not answered within the response timeout after they were written are cancelled and their
+ * transaction ID is released.
+ *
+ * @author David Trafela, Sunesis
+ * @since 1.6.0
+ */
+@Slf4j
+public class PipelinedModbusTcpMaster implements ModbusTransport {
+
+    private static final int MBAP_HEADER_LENGTH = 7;
+
+    private final String host;
+
+    private final int port;
+
+    private final int maxInflight;
+
+    private final long responseTimeout;
+
+    private final Map<Integer, PendingModbusRequest> pending = new ConcurrentHashMap<>();
+
+    private final Queue<PendingModbusRequest> queued = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger inflight = new AtomicInteger();
+
+    private final AtomicInteger transactionId = new AtomicInteger();
+
+    private final ExecutorService writer;
+
+    private Socket socket;
+
+    private OutputStream outputStream;
+
+    public PipelinedModbusTcpMaster(String host, int port, int maxInflight, long responseTimeout) {
+        this.host = host;
+        this.port = port;
+        this.maxInflight = Math.max(1, maxInflight);
+        this.responseTimeout = responseTimeout;
+
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "modbus-writer-" + host + ":" + port);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public CompletableFuture<byte[]> request(int unitId, byte[] pdu) {
+        PendingModbusRequest request = new PendingModbusRequest(unitId, pdu);
+
+        request.future.whenComplete((response, throwable) -> {
+            queued.remove(request);
+
+            if (request.transactionId >= 0 && pending.remove(request.transactionId, request)) {
+                inflight.decrementAndGet();
+                scheduleDispatch();
+            }
+        });
+
+        queued.add(request);
+        scheduleDispatch();
+
+        return request.future;
+    }
+
+    @Override
+    public synchronized void connect() throws IOException {
+        if (socket != null && !socket.isClosed()) {
+            return;
+        }
+
+        Socket newSocket = new Socket();
+        newSocket.setTcpNoDelay(true);
+        newSocket.connect(new InetSocketAddress(host, port), (int) responseTimeout);
+
+        socket = newSocket;
+        outputStream = newSocket.getOutputStream();
+
+        Thread reader = new Thread(() -> readResponses(newSocket), "modbus-reader-" + host + ":" + port);
+        reader.setDaemon(true);
+        reader.start();
+
+        log.info("Connected to Modbus TCP device {}:{} with {} requests in flight", host, port, maxInflight);
+    }
+
+    @Override
+    public void disconnect() {
+        writer.shutdownNow();
+        closeSocket(null, new IOException("Connection to " + host + ":" + port + " closed"));
+
+        PendingModbusRequest request;
+        while ((request = queued.poll()) != null) {
+            request.future.completeExceptionally(new IOException("Connection to " + host + ":" + port + " closed"));
+        }
+    }
+
+    /**
+     * Hands sending of queued requests to the writer thread, so callers completing a request are never blocked.
+     */
+    private void scheduleDispatch() {
+        try {
+            writer.execute(this::dispatch);
+        } catch (RejectedExecutionException e) {
+            PendingModbusRequest request;
+            while ((request = queued.poll()) != null) {
+                request.future.completeExceptionally(new IOException("Connection to " + host + ":" + port + " closed"));
+            }
+        }
+    }
+
+    /**
+     * Sends queued requests while the in-flight window allows it. Runs on the writer thread only.
+     */
+    private void dispatch() {
+        while (!queued.isEmpty()) {
+            int current = inflight.get();
+            if (current >= maxInflight) {
+                return;
+            }
+
+            if (!inflight.compareAndSet(current, current + 1)) {
+                continue;
+            }
+
+            PendingModbusRequest request = queued.poll();
+            if (request == null || request.future.isDone()) {
+                inflight.decrementAndGet();
+                continue;
+            }
+
+            send(request);
+        }
+    }
+
+    private void send(PendingModbusRequest request) {
+        int id = nextTransactionId();
+        request.transactionId = id;
+        pending.put(id, request);
+
+        byte[] frame = new byte[MBAP_HEADER_LENGTH + request.pdu.length];
+        frame[0] = (byte) (id >> 8);
+        frame[1] = (byte) id;
+        frame[4] = (byte) ((request.pdu.length + 1) >> 8);
+        frame[5] = (byte) (request.pdu.length + 1);
+        frame[6] = (byte) request.unitId;
+        System.arraycopy(request.pdu, 0, frame, MBAP_HEADER_LENGTH, request.pdu.length);
+
+        try {
+            synchronized (this) {
+                connect();
+                outputStream.write(frame);
+                outputStream.flush();
+            }
+
+            // Time spent waiting in the queue does not count towards the response timeout
+            request.future.orTimeout(responseTimeout, TimeUnit.MILLISECONDS);
+        } catch (IOException e) {
+            log.warn("Failed to send Modbus request to {}:{}: {}", host, port, e.getMessage());
+            closeSocket(null, e);
+            request.future.completeExceptionally(e);
+        }
+
+        // Completed by a timeout or a closed connection before the request was registered
+        if (request.future.isDone() && pending.remove(id, request)) {
+            inflight.decrementAndGet();
+        }
+    }
+
+    private int nextTransactionId() {
+        int id;
+        do {
+            id = transactionId.getAndIncrement() & 0xFFFF;
+        } while (pending.containsKey(id));
+
+        return id;
+    }
+
+    private void readResponses(Socket readerSocket) {
+        try {
+            DataInputStream inputStream = new DataInputStream(readerSocket.getInputStream());
+            byte[] header = new byte[MBAP_HEADER_LENGTH];
+
+            while (!readerSocket.isClosed()) {
+                inputStream.readFully(header);
+
+                int id = ((header[0] & 0xFF) << 8) | (header[1] & 0xFF);
+                int length = ((header[4] & 0xFF) << 8) | (header[5] & 0xFF);
+                if (length < 2) {
+                    throw new IOException("Invalid MBAP length " + length);
+                }
+
+                byte[] pdu = new byte[length - 1];
+                inputStream.readFully(pdu);
+
+                PendingModbusRequest request = pending.get(id);
+                if (request == null) {
+                    log.debug("Discarding response with unknown transaction ID {} from {}:{}", id, host, port);
+                    continue;
+                }
+
+                // The exception bit 0x80 is ignored, exception responses are matched by their function code
+                if ((header[6] & 0xFF) != request.unitId || (pdu[0] & 0x7F) != (request.pdu[0] & 0x7F)) {
+                    log.debug("Discarding response with transaction ID {} from {}:{}, unit ID {} and function code {} do not match the request",
+                            id, host, port, header[6] & 0xFF, pdu[0] & 0x7F);
+                    continue;
+                }
+
+                try {
+                    ModbusPdu.checkException(pdu);
+                    request.future.complete(pdu);
+                } catch (ModbusPduException e) {
+                    request.future.completeExceptionally(e);
+                }
+            }
+        } catch (IOException e) {
+            if (!readerSocket.isClosed()) {
+                log.warn("Connection to Modbus TCP device {}:{} lost: {}", host, port, e.getMessage());
+            }
+            closeSocket(readerSocket, e);
+        }
+    }
+
+    /**
+     * Closes the socket and fails all requests in flight.
+     *
+     * @param expected Socket to close, or null to close the current socket
+     * @param cause    Cause passed to the failed requests
+     */
+    private void closeSocket(Socket expected, IOException cause) {
+        synchronized (this) {
+            if (socket == null || (expected != null && socket != expected)) {
+                return;
+            }
+
+            try {
+                socket.close();
+            } catch (IOException e) {
+                log.debug("Failed to close socket: {}", e.getMessage());
+            }
+
+            socket = null;
+            outputStream = null;
+        }
+
+        for (PendingModbusRequest request : pending.values()) {
+            request.future.completeExceptionally(cause);
+        }
+    }
+}
@@ -0,0 +1,302 @@
+/*
+ *  Copyright (c) 2023-2024 Sunesis and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package si.sunesis.interoperability.lpc.transformations.modbus;
+
+import lombok.extern.slf4j.Slf4j;
+import si.sunesis.interoperability.lpc.transformations.exceptions.LPCException;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonException;
+import javax.json.JsonNumber;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import javax.json.JsonValue;
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.client.*;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous client of the Python Modbus service shared by all transformations.
+ * The number of requests in flight is limited globally, every request has a deadline and failed requests are retried
+ * with a scheduled exponential backoff.
+ * Requests are sent as JSON over HTTP, or as binary frames over a Unix domain socket if a socket path is configured.
+ * No thread is blocked while waiting for the service. Responses of both protocols are returned as
+ * {@link PythonModbusFrame.Response}, so the register words of socket responses are used without conversion.
+ *
+ * @author David Trafela, Sunesis
+ * @since 1.6.0
+ */
+@Slf4j
+public class PythonModbusClient {
+
+    public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 8;
+
+    private static final int MAX_RETRIES = 3;
+
+    private static final long INITIAL_BACKOFF = 100L;
+
+    private final Client client;
+
+    private final WebTarget webTarget;
+
+    private final PythonSocketTransport socketTransport;
+
+    private final AsyncRequestLimiter limiter;
+
+    public PythonModbusClient(String port, String socketPath, int maxConcurrent) {
+        this.limiter = new AsyncRequestLimiter("python-modbus-client", maxConcurrent, MAX_RETRIES, INITIAL_BACKOFF);
+
+        if (socketPath != null) {
+            try {
+                this.socketTransport = new PythonSocketTransport(NioModbusEngine.getInstance(), Path.of(socketPath));
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to start the NIO engine of the Python Modbus socket", e);
+            }
+            this.client = null;
+            this.webTarget = null;
+            return;
+        }
+
+        this.socketTransport = null;
+
+        org.glassfish.jersey.client.ClientConfig clientConfig = new org.glassfish.jersey.client.ClientConfig();
+
+        clientConfig.property("jersey.config.client.connectionPoolSize", maxConcurrent);
+        clientConfig.property("jersey.config.client.keepAlive", true);
+
+        // Register custom tracing filter
+        clientConfig.register((ClientRequestFilter) requestContext -> log.debug("Sending HTTP request to Python Modbus service: {}",
+                requestContext.getMethod() + " " + requestContext.getUri()));
+
+        // Register response filter
+        clientConfig.register((ClientResponseFilter) (requestContext, responseContext) -> log.debug("Received HTTP response from Python Modbus service: {} {}",
+                responseContext.getStatus(),
+                responseContext.getStatusInfo().getReasonPhrase()));
+
+        this.client = ClientBuilder.newBuilder()
+                .withConfig(clientConfig)
+                .connectTimeout(5, TimeUnit.SECONDS)
+                .build();
+        this.webTarget = client.target("http://localhost:" + port + "/").path("modbus");
+    }
+
+    /**
+     * Sends a single Modbus request to the service.
+     *
+     * @param request  Modbus request built by the Modbus handler
+     * @param deadline Deadline in {@link System#nanoTime()} units
+     * @return Future completed with the successful response, failed if the service could not execute the request
+     */
+    public CompletableFuture<PythonModbusFrame.Response> request(JsonObject request, long deadline) {
+        if (socketTransport != null) {
+            return limiter.submit(deadline, () -> exchange(request, deadline), PythonModbusClient::isRetryable);
+        }
+
+        return limiter.submit(deadline, () -> post(webTarget, request, deadline).thenApply(PythonModbusClient::toResponse),
+                PythonModbusClient::isRetryable);
+    }
+
+    /**
+     * Sends a batch of Modbus requests to the batch endpoint of the service.
+     *
+     * @param request  Batch request built by the Modbus handler
+     * @param deadline Deadline in {@link System#nanoTime()} units
+     * @return Future completed with the responses in the order of the requests, including failed ones
+     */
+    public CompletableFuture<List<PythonModbusFrame.Response>> requestBatch(JsonObject request, long deadline) {
+        if (socketTransport != null) {
+            return limiter.submit(deadline, () -> exchangeBatch(request, deadline), PythonModbusClient::isRetryable);
+        }
+
+        return limiter.submit(deadline, () -> post(webTarget.path("batch"), request, deadline).thenApply(PythonModbusClient::toBatchResponses),
+                PythonModbusClient::isRetryable);
+    }
+
+    /**
+     * Fails all waiting requests and closes the HTTP client or socket connections.
+     */
+    public void close() {
+        limiter.close();
+
+        if (socketTransport != null) {
+            socketTransport.close();
+        } else {
+            client.close();
+        }
+    }
+
+    private CompletableFuture<PythonModbusFrame.Response> exchange(JsonObject request, long deadline) {
+        return socketTransport.exchange(List.of(toFrameRequest(request)), deadline)
+                .thenApply(responses -> {
+                    if (responses.isEmpty()) {
+                        throw new CompletionException(new IOException("Empty response from Python Modbus service"));
+                    }
+
+                    PythonModbusFrame.Response response = responses.get(0);
+                    if (!response.success()) {
+                        throw new CompletionException(new LPCException("Python Modbus request failed: " + response.message()));
+                    }
+
+                    return response;
+                });
+    }
+
+    private CompletableFuture<List<PythonModbusFrame.Response>> exchangeBatch(JsonObject request, long deadline) {
+        List<PythonModbusFrame.Request> requests = request.getJsonArray("requests").getValuesAs(JsonObject.class).stream()
+                .map(PythonModbusClient::toFrameRequest)
+                .toList();
+
+        return socketTransport.exchange(requests, deadline);
+    }
+
+    /**
+     * Converts a JSON request built by the Modbus handler to a binary frame request.
+     *
+     * @param request JSON request
+     * @return Frame request
+     */
+    private static PythonModbusFrame.Request toFrameRequest(JsonObject request) {
+        int[] values = request.getJsonArray("values").getValuesAs(JsonNumber.class).stream()
+                .mapToInt(JsonNumber::intValue)
+                .toArray();
+
+        return new PythonModbusFrame.Request(request.getString("host"), request.getInt("port"), request.getInt("unit_id"),
+                request.getInt("function_code"), request.getInt("start_register"), request.getInt("count"), values);
+    }
+
+    /**
+     * Converts the JSON body of a single request to the response of a frame.
+     *
+     * @param body JSON response body
+     * @return Response
+     */
+    private static PythonModbusFrame.Response toResponse(String body) {
+        try (JsonReader reader = Json.createReader(new StringReader(body))) {
+            return toResponse(reader.readObject());
+        } catch (JsonException | ClassCastException e) {
+            throw new CompletionException(new LPCException("Invalid Python Modbus response", e));
+        }
+    }
+
+    /**
+     * Converts the JSON body of a batch request to the responses of a frame.
+     *
+     * @param body JSON response body
+     * @return Responses in the order of the requests
+     */
+    private static List<PythonModbusFrame.Response> toBatchResponses(String body) {
+        try (JsonReader reader = Json.createReader(new StringReader(body))) {
+            JsonArray responses = reader.readObject().getJsonArray("responses");
+            if (responses == null) {
+                throw new CompletionException(new LPCException("Python batch response does not contain responses"));
+            }
+
+            return responses.getValuesAs(JsonObject.class).stream()
+                    .map(PythonModbusClient::toResponse)
+                    .toList();
+        } catch (JsonException | ClassCastException e) {
+            throw new CompletionException(new LPCException("Invalid Python batch response", e));
+        }
+    }
+
+    /**
+     * Converts a JSON response of the HTTP endpoints to the response of a frame.
+     * Write operations respond with a message instead of data, their response has no data words.
+     *
+     * @param response JSON response
+     * @return Response
+     */
+    private static PythonModbusFrame.Response toResponse(JsonObject response) {
+        JsonValue data = response.get("data");
+        int[] words = data instanceof JsonArray array
+                ? array.getValuesAs(JsonNumber.class).stream().mapToInt(JsonNumber::intValue).toArray()
+                : new int[0];
+
+        return new PythonModbusFrame.Response("success".equals(response.getString("status", "error")), words,
+                response.getString("message", ""));
+    }
+
+    private static CompletableFuture<String> post(WebTarget target, JsonObject request, long deadline) {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        long timeout = Math.max(1L, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+
+        log.debug("Request data: {}", request);
+
+        Future<Response> call = target.request(MediaType.APPLICATION_JSON)
+                .property("jersey.config.client.readTimeout", (int) Math.min(Integer.MAX_VALUE, timeout))
+                .async()
+                .post(Entity.json(request), new InvocationCallback<Response>() {
+                    @Override
+                    public void completed(Response response) {
+                        try {
+                            String body = response.hasEntity() ? response.readEntity(String.class) : "";
+                            log.debug("Received python response: {}", body);
+
+                            if (response.getStatus() >= 500) {
+                                future.completeExceptionally(new IOException("Python Modbus service responded with status " + response.getStatus()));
+                            } else if (response.getStatus() >= 400) {
+                                future.completeExceptionally(new LPCException("Python Modbus request failed: " + body));
+                            } else {
+                                future.complete(body);
+                            }
+                        } catch (Exception e) {
+                            future.completeExceptionally(e);
+                        } finally {
+                            response.close();
+                        }
+                    }
+
+                    @Override
+                    public void failed(Throwable throwable) {
+                        future.completeExceptionally(throwable);
+                    }
+                });
+
+        // A request that timed out or was cancelled must not keep the HTTP connection busy
+        future.whenComplete((body, throwable) -> {
+            if (throwable != null) {
+                call.cancel(true);
+            }
+        });
+
+        return future;
+    }
+
+    /**
+     * Connection errors and server errors are retried, failed Modbus requests are not.
+     *
+     * @param throwable Cause of the failed attempt
+     * @return True if the request is sent again
+     */
+    private static boolean isRetryable(Throwable throwable) {
+        return throwable instanceof ProcessingException || throwable instanceof IOException;
+    }
+}
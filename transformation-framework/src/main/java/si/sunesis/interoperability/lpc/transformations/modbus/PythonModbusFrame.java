@@ -0,0 +1,150 @@
+/*
+ *  Copyright (c) 2023-2024 Sunesis and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package si.sunesis.interoperability.lpc.transformations.modbus;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary frames exchanged with the Python Modbus service over a Unix domain socket.
+ * A frame starts with the length of its payload as an unsigned 32-bit integer, all fields are big-endian.
+ * <p>
+ * Request payload: number of requests (u16), then per request the host length (u16), host (UTF-8), port (u16),
+ * unit ID (u8), function code (u8), start register (u16), count (u16), number of values (u16) and the values (u16 each).
+ * <p>
+ * Response payload: number of responses (u16), then per response the status (u8, 0 on success), number of data words
+ * (u16), the data words (u16 each), message length (u16) and message (UTF-8).
+ *
+ * @author David Trafela, Sunesis
+ * @since 1.6.0
+ */
+public class PythonModbusFrame {
+
+    public static final int HEADER_LENGTH = 4;
+
+    public static final int MAX_PAYLOAD_LENGTH = 1 << 20;
+
+    private static final int STATUS_SUCCESS = 0;
+
+    /**
+     * Single Modbus request of a frame
+     *
+     * @param host         Host of the Modbus server
+     * @param port         Port of the Modbus server
+     * @param unitId       Unit ID of the device
+     * @param functionCode Modbus function code
+     * @param start        Start register or coil address
+     * @param count        Number of registers or coils to read
+     * @param values       Register words or coil values to write
+     */
+    public record Request(String host, int port, int unitId, int functionCode, int start, int count, int[] values) {
+    }
+
+    /**
+     * Single response of a frame
+     *
+     * @param success True if the request was executed
+     * @param data    Registers or coil values read
+     * @param message Message of the service, describes the error if the request failed
+     */
+    public record Response(boolean success, int[] data, String message) {
+    }
+
+    private PythonModbusFrame() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Encodes requests into a frame including its length header.
+     *
+     * @param requests Requests to encode
+     * @return Encoded frame
+     */
+    public static ByteBuffer encodeRequests(List<Request> requests) {
+        int length = 2;
+        List<byte[]> hosts = new ArrayList<>(requests.size());
+
+        for (Request request : requests) {
+            byte[] host = request.host().getBytes(StandardCharsets.UTF_8);
+            hosts.add(host);
+            length += 2 + host.length + 10 + 2 * request.values().length;
+        }
+
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_LENGTH + length);
+        frame.putInt(length);
+        frame.putShort((short) requests.size());
+
+        for (int i = 0; i < requests.size(); i++) {
+            Request request = requests.get(i);
+
+            frame.putShort((short) hosts.get(i).length);
+            frame.put(hosts.get(i));
+            frame.putShort((short) request.port());
+            frame.put((byte) request.unitId());
+            frame.put((byte) request.functionCode());
+            frame.putShort((short) request.start());
+            frame.putShort((short) request.count());
+            frame.putShort((short) request.values().length);
+
+            for (int value : request.values()) {
+                frame.putShort((short) value);
+            }
+        }
+
+        return frame.flip();
+    }
+
+    /**
+     * Decodes the payload of a response frame, without its length header.
+     *
+     * @param payload Payload of the frame
+     * @return Decoded responses in the order of the requests
+     * @throws IOException If the payload is truncated
+     */
+    public static List<Response> decodeResponses(ByteBuffer payload) throws IOException {
+        try {
+            int count = Short.toUnsignedInt(payload.getShort());
+            List<Response> responses = new ArrayList<>(count);
+
+            for (int i = 0; i < count; i++) {
+                boolean success = Byte.toUnsignedInt(payload.get()) == STATUS_SUCCESS;
+
+                int[] data = new int[Short.toUnsignedInt(payload.getShort())];
+                for (int j = 0; j < data.length; j++) {
+                    data[j] = Short.toUnsignedInt(payload.getShort());
+                }
+
+                byte[] message = new byte[Short.toUnsignedInt(payload.getShort())];
+                payload.get(message);
+
+                responses.add(new Response(success, data, new String(message, StandardCharsets.UTF_8)));
+            }
+
+            return responses;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated response frame from Python Modbus service", e);
+        }
+    }
+}
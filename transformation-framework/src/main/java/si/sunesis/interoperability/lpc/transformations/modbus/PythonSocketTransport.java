@@ -0,0 +1,299 @@
+/*
+ *  Copyright (c) 2023-2024 Sunesis and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package si.sunesis.interoperability.lpc.transformations.modbus;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transport to the Python Modbus service over a Unix domain socket using {@link PythonModbusFrame} frames.
+ * Connections are non-blocking and run on the selector loop of the shared {@link NioModbusEngine}, so no thread waits
+ * for a response. A connection carries one exchange at a time and is kept open and reused, it is closed when its exchange
+ * fails or misses the deadline, so a late response is never read by the next exchange.
+ *
+ * @author David Trafela, Sunesis
+ * @since 1.6.0
+ */
+@Slf4j
+public class PythonSocketTransport {
+
+    private final NioModbusEngine engine;
+
+    private final UnixDomainSocketAddress address;
+
+    // State below is accessed only from the selector thread
+    private final Deque<Connection> idle = new ArrayDeque<>();
+
+    private final Map<CompletableFuture<List<PythonModbusFrame.Response>>, Connection> active = new HashMap<>();
+
+    private boolean closed;
+
+    public PythonSocketTransport(NioModbusEngine engine, Path socketPath) {
+        this.engine = engine;
+        this.address = UnixDomainSocketAddress.of(socketPath);
+    }
+
+    /**
+     * Sends the requests in a single frame and reads the responses.
+     *
+     * @param requests Requests to send
+     * @param deadline Deadline in {@link System#nanoTime()} units, the connection is closed when it expires
+     * @return Future completed with the responses in the order of the requests
+     */
+    public CompletableFuture<List<PythonModbusFrame.Response>> exchange(List<PythonModbusFrame.Request> requests, long deadline) {
+        CompletableFuture<List<PythonModbusFrame.Response>> future = new CompletableFuture<>();
+        ByteBuffer frame = PythonModbusFrame.encodeRequests(requests);
+
+        engine.execute(() -> start(future, frame));
+
+        return future.orTimeout(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)
+                .whenComplete((responses, throwable) -> {
+                    if (throwable != null) {
+                        // The response may still arrive, so the connection cannot be reused
+                        engine.execute(() -> abort(future));
+                    }
+                });
+    }
+
+    /**
+     * Closes all connections and fails the exchanges in progress.
+     */
+    public void close() {
+        engine.execute(() -> {
+            closed = true;
+
+            Connection connection;
+            while ((connection = idle.poll()) != null) {
+                connection.close();
+            }
+
+            for (Connection activeConnection : new ArrayList<>(active.values())) {
+                activeConnection.fail(new IOException("Python Modbus socket transport closed"));
+            }
+        });
+    }
+
+    private void start(CompletableFuture<List<PythonModbusFrame.Response>> future, ByteBuffer frame) {
+        if (future.isDone()) {
+            return;
+        }
+
+        if (closed) {
+            future.completeExceptionally(new IOException("Python Modbus socket transport closed"));
+            return;
+        }
+
+        Connection connection = idle.poll();
+
+        try {
+            if (connection == null) {
+                connection = new Connection();
+                log.debug("Connected to Python Modbus service at {}", address);
+            }
+
+            active.put(future, connection);
+            connection.start(future, frame);
+        } catch (IOException e) {
+            if (connection != null) {
+                connection.fail(e);
+            } else {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private void abort(CompletableFuture<List<PythonModbusFrame.Response>> future) {
+        Connection connection = active.remove(future);
+
+        if (connection != null) {
+            connection.close();
+        }
+    }
+
+    /**
+     * Non-blocking connection to the service, writes the frame of its exchange and reads the response frame.
+     */
+    private final class Connection implements NioChannelHandler {
+
+        private final SocketChannel channel;
+
+        private final SelectionKey key;
+
+        private final ByteBuffer header = ByteBuffer.allocate(PythonModbusFrame.HEADER_LENGTH);
+
+        private ByteBuffer payload;
+
+        private ByteBuffer frame;
+
+        private CompletableFuture<List<PythonModbusFrame.Response>> exchange;
+
+        private Connection() throws IOException {
+            channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+
+            try {
+                channel.configureBlocking(false);
+                boolean connected = channel.connect(address);
+                key = channel.register(engine.getSelector(), connected ? SelectionKey.OP_READ : SelectionKey.OP_CONNECT, this);
+            } catch (IOException e) {
+                closeQuietly(channel);
+                throw e;
+            }
+        }
+
+        private void start(CompletableFuture<List<PythonModbusFrame.Response>> future, ByteBuffer requestFrame) throws IOException {
+            exchange = future;
+            frame = requestFrame;
+            header.clear();
+            payload = null;
+
+            if (channel.isConnected()) {
+                write();
+            }
+        }
+
+        @Override
+        public void handle(SelectionKey selectionKey) {
+            if (!selectionKey.isValid()) {
+                return;
+            }
+
+            try {
+                if (selectionKey.isConnectable()) {
+                    if (!channel.finishConnect()) {
+                        return;
+                    }
+
+                    key.interestOps(SelectionKey.OP_READ);
+                    if (exchange != null) {
+                        write();
+                    }
+                }
+
+                if (selectionKey.isValid() && selectionKey.isWritable()) {
+                    write();
+                }
+
+                if (selectionKey.isValid() && selectionKey.isReadable()) {
+                    read();
+                }
+            } catch (IOException e) {
+                log.debug("Python Modbus socket failed: {}", e.getMessage());
+                fail(e);
+            }
+        }
+
+        private void write() throws IOException {
+            channel.write(frame);
+
+            key.interestOps(frame.hasRemaining() ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        }
+
+        private void read() throws IOException {
+            if (exchange == null) {
+                // An idle connection is only readable when the service closed it
+                throw new EOFException("Python Modbus service closed the connection");
+            }
+
+            if (payload == null) {
+                if (channel.read(header) < 0) {
+                    throw new EOFException("Python Modbus service closed the connection");
+                }
+
+                if (header.hasRemaining()) {
+                    return;
+                }
+
+                int length = header.flip().getInt();
+                if (length < 0 || length > PythonModbusFrame.MAX_PAYLOAD_LENGTH) {
+                    throw new IOException("Invalid frame length from Python Modbus service: " + length);
+                }
+
+                payload = ByteBuffer.allocate(length);
+            }
+
+            if (payload.hasRemaining() && channel.read(payload) < 0) {
+                throw new EOFException("Python Modbus service closed the connection");
+            }
+
+            if (payload.hasRemaining()) {
+                return;
+            }
+
+            List<PythonModbusFrame.Response> responses = PythonModbusFrame.decodeResponses(payload.flip());
+            CompletableFuture<List<PythonModbusFrame.Response>> completed = exchange;
+
+            active.remove(completed);
+            exchange = null;
+            frame = null;
+            payload = null;
+
+            if (closed) {
+                close();
+            } else {
+                idle.offer(this);
+            }
+
+            engine.getCompletionExecutor().execute(() -> completed.complete(responses));
+        }
+
+        private void fail(IOException cause) {
+            CompletableFuture<List<PythonModbusFrame.Response>> failed = exchange;
+
+            close();
+
+            if (failed != null) {
+                active.remove(failed);
+                engine.getCompletionExecutor().execute(() -> failed.completeExceptionally(cause));
+            }
+        }
+
+        private void close() {
+            exchange = null;
+            idle.remove(this);
+            key.cancel();
+            closeQuietly(channel);
+        }
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.debug("Error closing Python Modbus socket", e);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ *  Copyright (c) 2023-2024 Sunesis and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package si.sunesis.interoperability.lpc.transformations.modbus;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache of register values read from Modbus devices, shared by all transformations.
+ * Register words are stored per connection, unit ID, function code and address together with the time they were read.
+ * A block read is served from the cache if all of its registers are fresh, and concurrent reads of the same block
+ * share a single request to the device.
+ * Every device has a generation that is increased when its registers are invalidated. Registers of a read that started
+ * before the invalidation are not cached, since they may have been read before a write to the device.
+ *
+ * @author David Trafela, Sunesis
+ * @since 1.6.0
+ */
+@Slf4j
+public class RegisterSnapshotCache {
+
+    private final Map<RegisterKey, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+    private final Map<BlockKey, CompletableFuture<byte[]>> inflight = new ConcurrentHashMap<>();
+
+    private final Map<DeviceKey, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    /**
+     * Reads a block of registers from the cache, or from the device if the cached registers are older than maxAge.
+     * If the same block is already being read, the pending read is shared instead of reading it again.
+     *
+     * @param connection   Connection to the device, compared by identity
+     * @param unitId       Unit ID of the device
+     * @param functionCode Read function code
+     * @param start        Starting address of the block
+     * @param quantity     Number of registers in the block
+     * @param maxAge       Maximum age of cached registers in milliseconds
+     * @param reader       Reads the block from the device, returning big-endian register bytes
+     * @return Future completed with big-endian register bytes of the block
+     */
+    public CompletableFuture<byte[]> read(Object connection, int unitId, int functionCode, int start, int quantity,
+                                         long maxAge, Supplier<CompletableFuture<byte[]>> reader) {
+        AtomicLong generation = getGeneration(connection, unitId);
+        long readGeneration = generation.get();
+
+        byte[] cached = get(connection, unitId, functionCode, start, quantity, System.currentTimeMillis() - maxAge);
+        if (cached != null) {
+            log.debug("Registers {}-{} of unit {} served from cache", start, start + quantity - 1, unitId);
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        BlockKey blockKey = new BlockKey(connection, unitId, functionCode, start, quantity);
+        CompletableFuture<byte[]> future = new CompletableFuture<>();
+        CompletableFuture<byte[]> existing = inflight.putIfAbsent(blockKey, future);
+        if (existing != null) {
+            log.debug("Sharing pending read of registers {}-{} of unit {}", start, start + quantity - 1, unitId);
+            return existing;
+        }
+
+        CompletableFuture<byte[]> read;
+        try {
+            read = reader.get();
+        } catch (Exception e) {
+            read = CompletableFuture.failedFuture(e);
+        }
+
+        read.whenComplete((bytes, throwable) -> {
+            inflight.remove(blockKey, future);
+
+            if (throwable != null) {
+                future.completeExceptionally(throwable);
+                return;
+            }
+
+            if (generation.get() == readGeneration) {
+                put(connection, unitId, functionCode, start, bytes, System.currentTimeMillis());
+            } else {
+                log.debug("Registers {}-{} of unit {} were invalidated during the read, not caching them", start, start + quantity - 1, unitId);
+            }
+            future.complete(bytes);
+        });
+
+        return future;
+    }
+
+    /**
+     * Removes cached registers, for example before and after they are written.
+     * Reads of the device that are pending are not cached anymore and are not shared with later reads.
+     *
+     * @param connection   Connection to the device
+     * @param unitId       Unit ID of the device
+     * @param functionCode Read function code of the registers
+     * @param start        Starting address
+     * @param quantity     Number of registers
+     */
+    public void invalidate(Object connection, int unitId, int functionCode, int start, int quantity) {
+        getGeneration(connection, unitId).incrementAndGet();
+
+        inflight.keySet().removeIf(key -> key.connection() == connection && key.unitId() == unitId
+                && key.functionCode() == functionCode && key.start() < start + quantity && start < key.start() + key.quantity());
+
+        for (int i = 0; i < quantity; i++) {
+            snapshots.remove(new RegisterKey(connection, unitId, functionCode, start + i));
+        }
+    }
+
+    private AtomicLong getGeneration(Object connection, int unitId) {
+        return generations.computeIfAbsent(new DeviceKey(connection, unitId), key -> new AtomicLong());
+    }
+
+    private byte[] get(Object connection, int unitId, int functionCode, int start, int quantity, long minTimestamp) {
+        byte[] bytes = new byte[quantity * 2];
+
+        for (int i = 0; i < quantity; i++) {
+            Snapshot snapshot = snapshots.get(new RegisterKey(connection, unitId, functionCode, start + i));
+            if (snapshot == null || snapshot.timestamp() < minTimestamp) {
+                return null;
+            }
+
+            bytes[i * 2] = (byte) (snapshot.word() >> 8);
+            bytes[i * 2 + 1] = (byte) snapshot.word();
+        }
+
+        return bytes;
+    }
+
+    private void put(Object connection, int unitId, int functionCode, int start, byte[] bytes, long timestamp) {
+        for (int i = 0; i + 1 < bytes.length; i += 2) {
+            int word = ((bytes[i] & 0xFF) << 8) | (bytes[i + 1] & 0xFF);
+            snapshots.put(new RegisterKey(connection, unitId, functionCode, start + i / 2), new Snapshot(word, timestamp));
+        }
+    }
+
+    private record RegisterKey(Object connection, int unitId, int functionCode, int address) {
+    }
+
+    private record DeviceKey(Object connection, int unitId) {
+    }
+
+    private record BlockKey(Object connection, int unitId, int functionCode, int start, int quantity) {
+    }
+
+    private record Snapshot(int word, long timestamp) {
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ *  Copyright (c) 2023-2024 Sunesis and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package si.sunesis.interoperability.lpc.transformations.modbus;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import si.sunesis.interoperability.modbus.ModbusClient;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Arbiter owning a shared Modbus RTU serial bus.
+ * The arbiter owns the single Modbus master of the serial device, which all connections on the bus use.
+ * Requests from all transformations using the same serial device are queued and executed one at a time by a single worker,
+ * with commands executed before telemetry polls. Between two frames the RTU inter-frame gap of 3.5 characters is kept.
+ * After a request timed out the bus stays idle for the turnaround time of its connection, so a late reply of a slow slave
+ * does not collide with the next request or get matched to it.
+ *
+ * @author David Trafela, Sunesis
+ * @since 1.6.0
+ */
+@Slf4j
+public class SerialBusArbiter {
+
+    /**
+     * Priority of a request on the bus, requests with lower ordinal are executed first
+     */
+    public enum Priority {
+        COMMAND,
+        POLL
+    }
+
+    /**
+     * Single request-reply exchange on the bus
+     *
+     * @param <T> Type of the reply
+     */
+    @FunctionalInterface
+    public interface Exchange<T> {
+        void send(Consumer<T> reply) throws Exception;
+    }
+
+    public static final int DEFAULT_BAUD_RATE = 19200;
+
+    public static final int DEFAULT_TIMEOUT_TURNAROUND = 200;
+
+    // Start bit, 8 data bits, parity or second stop bit and stop bit
+    private static final int BITS_PER_CHARACTER = 11;
+
+    // Fixed inter-frame gap for baud rates above 19200, defined by the Modbus serial line specification
+    private static final long FIXED_INTER_FRAME_GAP_NANOS = 1_750_000L;
+
+    private final String device;
+
+    /**
+     * Modbus master of the serial device, or null if the exchanges use their own
+     */
+    @Getter
+    private final ModbusClient client;
+
+    private final long interFrameGapNanos;
+
+    private final long responseTimeout;
+
+    private final long timeoutTurnaroundNanos;
+
+    private final PriorityBlockingQueue<Job<?>> queue = new PriorityBlockingQueue<>();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final Thread worker;
+
+    private long lastFrameEnd = System.nanoTime();
+
+    public SerialBusArbiter(String device, Integer baudRate, long responseTimeout) {
+        this(device, baudRate, responseTimeout, null);
+    }
+
+    public SerialBusArbiter(String device, Integer baudRate, long responseTimeout, Integer timeoutTurnaround) {
+        this(device, null, baudRate, responseTimeout, timeoutTurnaround);
+    }
+
+    /**
+     * @param device            Name of the serial device
+     * @param client            Modbus master of the serial device, or null if the exchanges use their own
+     * @param baudRate          Baud rate of the serial bus, or null for the default
+     * @param responseTimeout   Default time in milliseconds to wait for a reply
+     * @param timeoutTurnaround Default time in milliseconds the bus stays idle after a request timed out, or null for the default
+     */
+    public SerialBusArbiter(String device, ModbusClient client, Integer baudRate, long responseTimeout, Integer timeoutTurnaround) {
+        this.device = device;
+        this.client = client;
+        this.interFrameGapNanos = getInterFrameGapNanos(baudRate != null ? baudRate : DEFAULT_BAUD_RATE);
+        this.responseTimeout = responseTimeout;
+        this.timeoutTurnaroundNanos = TimeUnit.MILLISECONDS.toNanos(timeoutTurnaround != null ? timeoutTurnaround : DEFAULT_TIMEOUT_TURNAROUND);
+
+        this.worker = new Thread(this::run, "modbus-bus-" + device);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Calculates the RTU inter-frame gap of 3.5 characters for the baud rate.
+     *
+     * @param baudRate Baud rate of the serial bus
+     * @return Inter-frame gap in nanoseconds
+     */
+    public static long getInterFrameGapNanos(int baudRate) {
+        if (baudRate > 19200) {
+            return FIXED_INTER_FRAME_GAP_NANOS;
+        }
+
+        return 35L * BITS_PER_CHARACTER * 100_000_000L / baudRate;
+    }
+
+    /**
+     * Queues an exchange on the bus.
+     * If the exchange is still queued after the deadline, it is not sent and the future completes with a {@link TimeoutException}.
+     *
+     * @param priority Priority of the exchange
+     * @param deadline Deadline in {@link System#nanoTime()} units
+     * @param exchange Exchange to execute
+     * @param <T>      Type of the reply
+     * @return Future completed with the reply
+     */
+    public <T> CompletableFuture<T> submit(Priority priority, long deadline, Exchange<T> exchange) {
+        return enqueue(priority, deadline, responseTimeout, timeoutTurnaroundNanos, exchange);
+    }
+
+    /**
+     * Queues an exchange on the bus with the timeouts of the connection it is sent for.
+     * Slaves on the same bus may answer at different speeds, so the timeouts are kept per exchange.
+     *
+     * @param priority          Priority of the exchange
+     * @param deadline          Deadline in {@link System#nanoTime()} units
+     * @param responseTimeout   Time in milliseconds to wait for the reply
+     * @param timeoutTurnaround Time in milliseconds the bus stays idle if the reply does not arrive, or null for the default
+     * @param exchange          Exchange to execute
+     * @param <T>               Type of the reply
+     * @return Future completed with the reply
+     */
+    public <T> CompletableFuture<T> submit(Priority priority, long deadline, long responseTimeout, Integer timeoutTurnaround,
+                                           Exchange<T> exchange) {
+        return enqueue(priority, deadline, responseTimeout,
+                timeoutTurnaround != null ? TimeUnit.MILLISECONDS.toNanos(timeoutTurnaround) : timeoutTurnaroundNanos, exchange);
+    }
+
+    private <T> CompletableFuture<T> enqueue(Priority priority, long deadline, long responseTimeout, long timeoutTurnaroundNanos,
+                                             Exchange<T> exchange) {
+        Job<T> job = new Job<>(priority, sequence.getAndIncrement(), deadline, responseTimeout, timeoutTurnaroundNanos, exchange);
+        queue.add(job);
+
+        return job.future;
+    }
+
+    /**
+     * Stops the worker and fails all queued exchanges.
+     */
+    public void shutdown() {
+        worker.interrupt();
+
+        Job<?> job;
+        while ((job = queue.poll()) != null) {
+            job.future.cancel(false);
+        }
+    }
+
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Job<?> job;
+            try {
+                job = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            // Cancelled by the Modbus cycle that queued it
+            if (job.future.isDone()) {
+                continue;
+            }
+
+            if (System.nanoTime() - job.deadline > 0) {
+                job.future.completeExceptionally(new TimeoutException("Request expired in queue of " + device));
+                continue;
+            }
+
+            long gap;
+            while ((gap = lastFrameEnd + interFrameGapNanos - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(gap);
+            }
+
+            boolean timedOut = false;
+            try {
+                timedOut = !execute(job);
+            } catch (InterruptedException e) {
+                job.future.cancel(false);
+                Thread.currentThread().interrupt();
+            } finally {
+                // A late reply may still be on the wire after a timeout
+                lastFrameEnd = System.nanoTime() + (timedOut ? job.timeoutTurnaroundNanos : 0);
+            }
+        }
+    }
+
+    /**
+     * Sends the exchange and waits for its reply.
+     *
+     * @return False if the reply did not arrive within the response timeout
+     */
+    private <T> boolean execute(Job<T> job) throws InterruptedException {
+        CompletableFuture<T> reply = new CompletableFuture<>();
+
+        try {
+            job.exchange.send(reply::complete);
+            job.future.complete(reply.get(job.responseTimeout, TimeUnit.MILLISECONDS));
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (ExecutionException e) {
+            job.future.completeExceptionally(e.getCause());
+        } catch (TimeoutException e) {
+            log.warn("No response on serial bus {} within {} ms, keeping the bus idle for {} ms", device, job.responseTimeout,
+                    TimeUnit.NANOSECONDS.toMillis(job.timeoutTurnaroundNanos));
+            job.future.completeExceptionally(e);
+            return false;
+        } catch (Exception e) {
+            job.future.completeExceptionally(e);
+        }
+
+        return true;
+    }
+
+    private static class Job<T> implements Comparable<Job<?>> {
+
+        private final Priority priority;
+
+        private final long sequence;
+
+        private final long deadline;
+
+        private final long responseTimeout;
+
+        private final long timeoutTurnaroundNanos;
+
+        private final Exchange<T> exchange;
+
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        private Job(Priority priority, long sequence, long deadline, long responseTimeout, long timeoutTurnaroundNanos,
+                    Exchange<T> exchange) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.deadline = deadline;
+            this.responseTimeout = responseTimeout;
+            this.timeoutTurnaroundNanos = timeoutTurnaroundNanos;
+            this.exchange = exchange;
+        }
+
+        @Override
+        public int compareTo(Job<?> other) {
+            int result = priority.compareTo(other.priority);
+            if (result != 0) {
+                return result;
+            }
+
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+}
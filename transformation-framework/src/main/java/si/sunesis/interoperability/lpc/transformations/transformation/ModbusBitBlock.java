@@ -0,0 +1,90 @@
+/*
+ *  Copyright (c) 2023-2024 Sunesis and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package si.sunesis.interoperability.lpc.transformations.transformation;
+
+import si.sunesis.interoperability.lpc.transformations.configuration.models.ModbusModel;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Utility class for decoding blocks of coils or discrete inputs read with a single request.
+ * The bits of a block are kept in a {@link BitSet} indexed by the offset from the first address of the block,
+ * and every configured coil or discrete input is taken from the bit at its offset.
+ *
+ * @author David Trafela, Sunesis
+ * @since 1.6.0
+ */
+public class ModbusBitBlock {
+
+    private static final int BITS_PER_WORD = 16;
+
+    private ModbusBitBlock() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Reads the bits of a read coils or read discrete inputs response.
+     * Bits are packed eight per byte, the first bit in the least significant bit of the first byte.
+     *
+     * @param data Data bytes of the response, without the byte count
+     * @return Bits of the block
+     */
+    public static BitSet fromBytes(byte[] data) {
+        return BitSet.valueOf(data);
+    }
+
+    /**
+     * Reads the bits of a block returned by the Python Modbus service.
+     * Bits are packed sixteen per word, the first bit in the least significant bit of the first word.
+     *
+     * @param words Words containing the bits
+     * @return Bits of the block
+     */
+    public static BitSet fromWords(int[] words) {
+        BitSet bits = new BitSet(words.length * BITS_PER_WORD);
+
+        for (int i = 0; i < words.length; i++) {
+            for (int j = 0; j < BITS_PER_WORD; j++) {
+                if ((words[i] >> j & 1) == 1) {
+                    bits.set(i * BITS_PER_WORD + j);
+                }
+            }
+        }
+
+        return bits;
+    }
+
+    /**
+     * Stores the value of every coil or discrete input of the block.
+     *
+     * @param bits           Bits of the block
+     * @param block          Coil or discrete input definitions, starting with the first address of the block
+     * @param registerValues Store for the extracted values
+     */
+    public static void decode(BitSet bits, List<ModbusModel> block, RegisterValues registerValues) {
+        int start = block.get(0).getAddress();
+
+        for (ModbusModel model : block) {
+            registerValues.putBoolean(model.getAddress(), bits.get(model.getAddress() - start));
+        }
+    }
+}
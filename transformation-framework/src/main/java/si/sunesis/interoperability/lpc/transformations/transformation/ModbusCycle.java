@@ -0,0 +1,312 @@
+/*
+ *  Copyright (c) 2023-2024 Sunesis and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package si.sunesis.interoperability.lpc.transformations.transformation;
+
+import lombok.extern.slf4j.Slf4j;
+import si.sunesis.interoperability.lpc.transformations.configuration.models.MessageModel;
+import si.sunesis.interoperability.lpc.transformations.configuration.models.ModbusModel;
+import si.sunesis.interoperability.lpc.transformations.exceptions.LPCException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A single Modbus request cycle with explicit request futures.
+ * Every request has its own deadline, bounded by the deadline of the cycle. Responses are decoded one at a time into
+ * a scratch store reused for the whole cycle, and merged into the register values of the cycle only if the whole response
+ * was decoded while the cycle is open. When the cycle is closed, requests still pending are cancelled and their late
+ * responses are discarded, so the register values handed to the transform stage do not change anymore.
+ *
+ * @author David Trafela, Sunesis
+ * @since 1.6.0
+ */
+@Slf4j
+public class ModbusCycle {
+
+    private final RegisterValues registerValues;
+
+    private final long deadline;
+
+    private final List<Request> requests = new ArrayList<>();
+
+    private final Map<List<ModbusModel>, Throwable> failed = new IdentityHashMap<>();
+
+    // Decoded response, reused by all responses of the cycle and only accessed while holding the lock of the cycle
+    private final RegisterValues scratch = new RegisterValues();
+
+    private boolean closed;
+
+    /**
+     * @param registerValues Store for the register values of the cycle
+     * @param deadline       Deadline of the whole cycle in {@link System#nanoTime()} units
+     */
+    public ModbusCycle(RegisterValues registerValues, long deadline) {
+        this.registerValues = registerValues;
+        this.deadline = deadline;
+    }
+
+    /**
+     * Starts a cycle for the requests of a message. The cycle ends after the request timeout multiplied by the number
+     * of requests and by the retry count of the message + 1.
+     *
+     * @param registerValues Store for the register values of the cycle
+     * @param messageModel   Configuration for the Modbus message format
+     * @param requestTimeout Timeout of a single request in milliseconds
+     * @param requests       Number of requests sent by the cycle, without retries
+     * @return The started cycle
+     */
+    public static ModbusCycle start(RegisterValues registerValues, MessageModel messageModel, long requestTimeout, int requests) {
+        return start(registerValues, messageModel, requestTimeout, requests, 0);
+    }
+
+    /**
+     * Starts a cycle for the requests of a message that may bisect failed read blocks. The bisection requests are
+     * added to the requests multiplied by the retry count of the message + 1, as they are sent before the retries.
+     *
+     * @param registerValues Store for the register values of the cycle
+     * @param messageModel   Configuration for the Modbus message format
+     * @param requestTimeout Timeout of a single request in milliseconds
+     * @param requests       Number of requests sent by the cycle, without retries
+     * @param bisectRequests Number of requests sent to bisect read blocks
+     * @return The started cycle
+     */
+    public static ModbusCycle start(RegisterValues registerValues, MessageModel messageModel, long requestTimeout, int requests,
+                                    int bisectRequests) {
+        long timeout = requestTimeout * ((long) requests * (messageModel.getRetryCount() + 1) + bisectRequests);
+
+        return new ModbusCycle(registerValues, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout));
+    }
+
+    public long getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Tracks the request of a single register group.
+     *
+     * @param group           Group of registers of the request
+     * @param request         Future of the request, completed exceptionally if it is not done before its deadline
+     * @param requestDeadline Deadline of the request in {@link System#nanoTime()} units
+     * @param handler         Decodes the response into register values
+     * @param <T>             Type of the response
+     */
+    public <T> void track(List<ModbusModel> group, CompletableFuture<T> request, long requestDeadline, ResponseHandler<T> handler) {
+        trackBatch(List.of(group), request, requestDeadline, (response, values) -> {
+            handler.handle(response, values);
+            return Collections.emptyList();
+        });
+    }
+
+    /**
+     * Tracks a request covering multiple register groups.
+     *
+     * @param groups          Groups of registers of the request
+     * @param request         Future of the request, completed exceptionally if it is not done before its deadline
+     * @param requestDeadline Deadline of the request in {@link System#nanoTime()} units
+     * @param handler         Decodes the response into register values and returns the groups that failed
+     * @param <T>             Type of the response
+     */
+    public <T> void trackBatch(List<List<ModbusModel>> groups, CompletableFuture<T> request, long requestDeadline, BatchResponseHandler<T> handler) {
+        request.orTimeout(Math.max(0L, Math.min(requestDeadline, deadline) - System.nanoTime()), TimeUnit.NANOSECONDS);
+
+        CompletableFuture<Void> processed = request.handle((response, throwable) -> {
+            if (throwable != null) {
+                Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+                log.error("Error in grouped Modbus response: {}", cause.getMessage());
+                fail(groups, cause);
+                return null;
+            }
+
+            complete(groups, response, handler);
+            return null;
+        });
+
+        synchronized (this) {
+            if (closed) {
+                request.cancel(false);
+                return;
+            }
+
+            requests.add(new Request(request, processed));
+        }
+    }
+
+    /**
+     * Marks groups as failed, for example if their request could not be built.
+     *
+     * @param groups Failed groups
+     * @param cause  Cause of the failure
+     */
+    public synchronized void fail(List<List<ModbusModel>> groups, Throwable cause) {
+        if (!closed) {
+            groups.forEach(group -> failed.put(group, cause));
+        }
+    }
+
+    /**
+     * Removes a failed group that is not requested anymore, for example because it was split into smaller groups.
+     *
+     * @param group Failed group
+     */
+    public synchronized void discard(List<ModbusModel> group) {
+        failed.remove(group);
+    }
+
+    /**
+     * Waits until all tracked requests are processed, or until the given time or the deadline of the cycle.
+     *
+     * @param until Time in {@link System#nanoTime()} units after which the method returns
+     * @throws InterruptedException If the thread is interrupted while waiting
+     */
+    public void await(long until) throws InterruptedException {
+        long end = Math.min(until, deadline);
+
+        while (true) {
+            CompletableFuture<?>[] pending;
+            synchronized (this) {
+                pending = requests.stream()
+                        .map(Request::processed)
+                        .filter(future -> !future.isDone())
+                        .toArray(CompletableFuture[]::new);
+            }
+
+            long remaining = end - System.nanoTime();
+            if (pending.length == 0 || remaining <= 0) {
+                return;
+            }
+
+            try {
+                CompletableFuture.allOf(pending).get(remaining, TimeUnit.NANOSECONDS);
+            } catch (ExecutionException e) {
+                // Processing never fails, failed requests are recorded in the failed groups
+                log.debug("Error waiting for Modbus requests", e);
+            } catch (TimeoutException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the groups whose last request failed.
+     *
+     * @return Failed groups
+     */
+    public synchronized List<List<ModbusModel>> getFailed() {
+        return new ArrayList<>(failed.keySet());
+    }
+
+    /**
+     * Returns the cause of the last failed request of a group.
+     *
+     * @param group Failed group
+     * @return Cause of the failure, or null if the group did not fail
+     */
+    public synchronized Throwable getFailure(List<ModbusModel> group) {
+        return failed.get(group);
+    }
+
+    /**
+     * Checks if all tracked requests were processed and no group failed.
+     *
+     * @return True if the cycle completed successfully
+     */
+    public synchronized boolean isCompleted() {
+        return failed.isEmpty() && requests.stream().allMatch(request -> request.processed().isDone());
+    }
+
+    /**
+     * Closes the cycle and cancels all requests that are still pending.
+     * The register values are not changed by the cycle anymore after it is closed, ownership of the store passes back
+     * to the caller, which may hand it to the transform stage and reuse it for a later cycle once it was published.
+     *
+     * @return Register values of the cycle
+     */
+    public RegisterValues close() {
+        List<Request> pending;
+
+        synchronized (this) {
+            closed = true;
+            pending = requests.stream()
+                    .filter(request -> !request.processed().isDone())
+                    .toList();
+        }
+
+        if (!pending.isEmpty()) {
+            log.warn("Cancelling {} Modbus requests not answered before the deadline", pending.size());
+            pending.forEach(request -> request.request().cancel(false));
+        }
+
+        return registerValues;
+    }
+
+    private synchronized <T> void complete(List<List<ModbusModel>> groups, T response, BatchResponseHandler<T> handler) {
+        if (closed) {
+            log.debug("Discarding late Modbus response of a closed cycle");
+            return;
+        }
+
+        scratch.clear();
+        List<List<ModbusModel>> failedGroups;
+
+        try {
+            failedGroups = handler.handle(response, scratch);
+        } catch (Exception e) {
+            log.error("Error handling grouped Modbus response: {}", e.getMessage());
+            fail(groups, e);
+            return;
+        }
+
+        registerValues.putAll(scratch);
+        groups.forEach(failed::remove);
+        failedGroups.forEach(group -> failed.put(group, new LPCException("Modbus request failed")));
+    }
+
+    /**
+     * Decodes the response of a single group.
+     *
+     * @param <T> Type of the response
+     */
+    @FunctionalInterface
+    public interface ResponseHandler<T> {
+        void handle(T response, RegisterValues values) throws Exception;
+    }
+
+    /**
+     * Decodes the response of a request covering multiple groups.
+     *
+     * @param <T> Type of the response
+     */
+    @FunctionalInterface
+    public interface BatchResponseHandler<T> {
+        List<List<ModbusModel>> handle(T response, RegisterValues values) throws Exception;
+    }
+
+    private record Request(CompletableFuture<?> request, CompletableFuture<Void> processed) {
+    }
+}
@@ -20,9 +20,6 @@
  */
 package si.sunesis.interoperability.lpc.transformations.transformation;
 
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
-import com.google.gson.JsonSyntaxException;
 import com.intelligt.modbus.jlibmodbus.Modbus;
 import com.intelligt.modbus.jlibmodbus.exception.IllegalDataAddressException;
 import com.intelligt.modbus.jlibmodbus.exception.ModbusNumberException;
@@ -39,11 +36,18 @@ import si.sunesis.interoperability.lpc.transformations.configuration.models.Conn
 import si.sunesis.interoperability.lpc.transformations.configuration.models.MessageModel;
 import si.sunesis.interoperability.lpc.transformations.configuration.models.ModbusModel;
 import si.sunesis.interoperability.lpc.transformations.enums.Endianness;
+import si.sunesis.interoperability.lpc.transformations.enums.RegisterType;
+import si.sunesis.interoperability.lpc.transformations.exceptions.LPCException;
+import si.sunesis.interoperability.lpc.transformations.exceptions.ModbusPduException;
+import si.sunesis.interoperability.lpc.transformations.modbus.ModbusPdu;
+import si.sunesis.interoperability.lpc.transformations.modbus.ModbusTransport;
+import si.sunesis.interoperability.lpc.transformations.modbus.PythonModbusFrame;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.json.Json;
 import javax.json.JsonArrayBuilder;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -196,10 +200,7 @@ public class ModbusHandler {
      * @throws ModbusNumberException If there is an error with register numbers or addressing
      */
     protected static ModbusRequest buildJavaModbusRequest(Map<Integer, Float> msgToRegisterMap, List<ModbusModel> groupedModbusModel, MessageModel messageModel) throws ModbusNumberException {
-        int quantity = 0;
-        for (ModbusModel model : groupedModbusModel) {
-            quantity += getNumOfRegisters(model.getType());
-        }
+        int quantity = ModbusReadPlanner.getBlockQuantity(groupedModbusModel);
 
         return buildModbusRequest(msgToRegisterMap, groupedModbusModel, messageModel, quantity);
     }
@@ -217,7 +218,7 @@ public class ModbusHandler {
     protected static javax.json.JsonObject buildPythonModbusRequest(Map<Integer, Float> msgToRegisterMap, List<ModbusModel> groupedModbusModel, MessageModel messageModel, ConnectionModel connectionModel) {
         int[] regs = ModbusHandler.buildRegisters(msgToRegisterMap, groupedModbusModel, messageModel);
 
-        int count = groupedModbusModel.stream().map(i -> (int) Math.ceil(ModbusHandler.getNumOfRegisters(i.getType()) / 2.0)).reduce(0, Integer::sum);
+        int count = ModbusReadPlanner.getBlockQuantity(groupedModbusModel);
 
         JsonArrayBuilder values = Json.createArrayBuilder();
 
@@ -236,40 +237,145 @@ public class ModbusHandler {
                 .build();
     }
 
+    /**
+     * Builds a batch request for the Python Modbus service containing the requests of all groups.
+     * The service runs the requests back-to-back on one connection and responds in the same order.
+     *
+     * @param msgToRegisterMap Map of register addresses to their values
+     * @param groups           Groups of Modbus register models, one request per group
+     * @param messageModel     Message configuration containing function code and device ID
+     * @param connectionModel  Connection details including host and port information
+     * @return JSON object representing the batch request for the Python Modbus implementation
+     */
+    protected static javax.json.JsonObject buildPythonModbusBatchRequest(Map<Integer, Float> msgToRegisterMap, List<List<ModbusModel>> groups, MessageModel messageModel, ConnectionModel connectionModel) {
+        JsonArrayBuilder requests = Json.createArrayBuilder();
+
+        for (List<ModbusModel> group : groups) {
+            requests.add(buildPythonModbusRequest(msgToRegisterMap, group, messageModel, connectionModel));
+        }
+
+        return Json.createObjectBuilder()
+                .add("requests", requests.build())
+                .build();
+    }
+
+    /**
+     * Builds a Modbus request PDU for sending through a {@link ModbusTransport}.
+     * Produces the same request as {@link #buildJavaModbusRequest(Map, List, MessageModel)}, without framing.
+     *
+     * @param msgToRegisterMap   Map of register addresses to their values
+     * @param groupedModbusModel List of Modbus register models to use in the request
+     * @param messageModel       Message configuration containing function code
+     * @return Request PDU, or null if the function code is not supported
+     */
+    protected static byte[] buildModbusPdu(Map<Integer, Float> msgToRegisterMap, List<ModbusModel> groupedModbusModel, MessageModel messageModel) {
+        int start = groupedModbusModel.get(0).getAddress();
+        int quantity = ModbusReadPlanner.getBlockQuantity(groupedModbusModel);
+
+        while (!Modbus.checkEndAddress(start + quantity)) {
+            quantity--;
+        }
+
+        log.debug("Quantity: {}", quantity);
+
+        int[] registers = buildRegisters(msgToRegisterMap, groupedModbusModel, messageModel);
+
+        return switch (ModbusFunctionCode.get(messageModel.getFunctionCode())) {
+            case READ_COILS, READ_DISCRETE_INPUTS, READ_HOLDING_REGISTERS, READ_INPUT_REGISTERS ->
+                    ModbusPdu.read(messageModel.getFunctionCode(), start, quantity);
+            case WRITE_SINGLE_COIL -> ModbusPdu.writeSingleCoil(start, registers[0] == 1);
+            case WRITE_SINGLE_REGISTER -> ModbusPdu.writeSingleRegister(start, registers[0]);
+            case READ_EXCEPTION_STATUS -> new byte[]{(byte) messageModel.getFunctionCode().intValue()};
+            case WRITE_MULTIPLE_COILS -> ModbusPdu.writeMultipleCoils(start, new boolean[]{registers[0] == 1});
+            case WRITE_MULTIPLE_REGISTERS -> ModbusPdu.writeMultipleRegisters(start, registers);
+            case READ_WRITE_MULTIPLE_REGISTERS ->
+                    ModbusPdu.readWriteMultipleRegisters(start, quantity, start, registers);
+            default -> {
+                log.warn("Function code not supported: {}", messageModel.getFunctionCode());
+                yield null;
+            }
+        };
+    }
+
     /**
      * Processes a Modbus response from the Java implementation.
      * Extracts register values from the response and stores them in the register map.
      *
      * @param response           The Modbus response to process
-     * @param registerMap        Map to store extracted register values
+     * @param registerValues     Store for the extracted register values
      * @param groupedModbusModel List of Modbus register models used in the request
      * @param messageModel       Message configuration containing function code and endianness
      * @throws IllegalDataAddressException If the response contains an illegal data address
+     * @throws ModbusPduException          If the device responded with an exception, so a rejected write fails its group
      */
-    protected static void handleJavaModbusResponse(ModbusResponse response, Map<Integer, Object> registerMap, List<ModbusModel> groupedModbusModel, MessageModel messageModel) throws IllegalDataAddressException {
+    protected static void handleJavaModbusResponse(ModbusResponse response, RegisterValues registerValues, List<ModbusModel> groupedModbusModel, MessageModel messageModel) throws IllegalDataAddressException, ModbusPduException {
+        if (response.getModbusExceptionCode() != null && response.getModbusExceptionCode() != ModbusExceptionCode.NO_EXCEPTION) {
+            log.warn("Modbus exception code: {}", response.getModbusExceptionCode());
+            throw new ModbusPduException(messageModel.getFunctionCode(), response.getModbusExceptionCode().getValue());
+        }
+
         if (response.getFunction() != messageModel.getFunctionCode()) {
             log.warn("Function code mismatch! Response: {}, message model: {}", response.getFunction(), messageModel.getFunctionCode());
             return;
         }
 
-        if (response.getModbusExceptionCode() != null && response.getModbusExceptionCode() != ModbusExceptionCode.NO_EXCEPTION) {
-            log.warn("Modbus exception code: {}", response.getModbusExceptionCode());
-        }
-
         switch (ModbusFunctionCode.get(messageModel.getFunctionCode())) {
             case READ_DISCRETE_INPUTS, READ_COILS -> {
-                if (!groupedModbusModel.get(0).getType().contains("bool")) {
-                    throw new IllegalArgumentException("Wrong type");
-                }
+                checkBitTypes(groupedModbusModel);
 
                 ReadCoilsResponse coilsResponse = (ReadCoilsResponse) response;
-                registerMap.put(groupedModbusModel.get(0).getAddress(), coilsResponse.getModbusCoils().get(0));
+                int start = groupedModbusModel.get(0).getAddress();
+                for (ModbusModel model : groupedModbusModel) {
+                    registerValues.putBoolean(model.getAddress(), coilsResponse.getModbusCoils().get(model.getAddress() - start));
+                }
             }
             case READ_WRITE_MULTIPLE_REGISTERS, READ_INPUT_REGISTERS, READ_HOLDING_REGISTERS -> {
                 ReadHoldingRegistersResponse holdingRegistersResponse = (ReadHoldingRegistersResponse) response;
 
-                getValueFromJavaRegisters(holdingRegistersResponse, registerMap, groupedModbusModel, messageModel);
+                getValueFromJavaRegisters(holdingRegistersResponse, registerValues, groupedModbusModel, messageModel);
+            }
+            default ->
+                    log.debug("Function code is write only: {}. So no data to read.", messageModel.getFunctionCode());
+        }
+    }
+
+    /**
+     * Checks that all coils or discrete inputs of a block are configured with a boolean type.
+     *
+     * @param groupedModbusModel List of Modbus models read with a single request
+     * @throws IllegalArgumentException If a model is not configured with a boolean type
+     */
+    private static void checkBitTypes(List<ModbusModel> groupedModbusModel) {
+        for (ModbusModel model : groupedModbusModel) {
+            if (!ModbusReadPlanner.isBit(model)) {
+                throw new IllegalArgumentException("Wrong type");
+            }
+        }
+    }
+
+    /**
+     * Processes a Modbus response PDU received through a {@link ModbusTransport}.
+     * Extracts register values from the response and stores them in the register map.
+     *
+     * @param pdu                The response PDU to process
+     * @param registerValues     Store for the extracted register values
+     * @param groupedModbusModel List of Modbus register models used in the request
+     * @param messageModel       Message configuration containing function code and endianness
+     */
+    protected static void handleModbusPduResponse(byte[] pdu, RegisterValues registerValues, List<ModbusModel> groupedModbusModel, MessageModel messageModel) {
+        if (ModbusPdu.getFunctionCode(pdu) != messageModel.getFunctionCode()) {
+            log.warn("Function code mismatch! Response: {}, message model: {}", ModbusPdu.getFunctionCode(pdu), messageModel.getFunctionCode());
+            return;
+        }
+
+        switch (ModbusFunctionCode.get(messageModel.getFunctionCode())) {
+            case READ_DISCRETE_INPUTS, READ_COILS -> {
+                checkBitTypes(groupedModbusModel);
+
+                ModbusBitBlock.decode(ModbusBitBlock.fromBytes(ModbusPdu.getData(pdu)), groupedModbusModel, registerValues);
             }
+            case READ_WRITE_MULTIPLE_REGISTERS, READ_INPUT_REGISTERS, READ_HOLDING_REGISTERS ->
+                    handleModbusBlock(ModbusPdu.getDataView(pdu), registerValues, groupedModbusModel, messageModel);
             default ->
                     log.debug("Function code is write only: {}. So no data to read.", messageModel.getFunctionCode());
         }
@@ -280,79 +386,83 @@ public class ModbusHandler {
      * Takes the raw response data and converts it to proper register values based on the configured endianness.
      *
      * @param response           The Modbus response containing register values
-     * @param registerMap        Map to store the extracted register values
+     * @param registerValues     Store for the extracted register values
      * @param groupedModbusModel List of Modbus models defining the registers
      * @param messageModel       Message configuration containing endianness settings
      */
     protected static void getValueFromJavaRegisters(ReadHoldingRegistersResponse response,
-                                                    Map<Integer, Object> registerMap,
+                                                    RegisterValues registerValues,
                                                     List<ModbusModel> groupedModbusModel,
                                                     MessageModel messageModel) {
-        int[] registers;
         byte[] bytes = response.getHoldingRegisters().getBytes();
 
-        if (messageModel.getEndianness() == Endianness.BIG_ENDIAN) {
-            registers = DataUtils.BeToRegArray(bytes);
-        } else if (messageModel.getEndianness() == Endianness.BIG_ENDIAN_SWAP) {
-            bytes = ModbusHandler.beSwapToBe(bytes);
-            registers = DataUtils.BeToRegArray(bytes);
-        } else if (messageModel.getEndianness() == Endianness.LITTLE_ENDIAN_SWAP) {
-            bytes = ModbusHandler.leSwapToLe(bytes);
-            bytes = ModbusHandler.leToBe(bytes);
-            registers = DataUtils.BeToRegArray(bytes);
-        } else {
-            bytes = ModbusHandler.leToBe(bytes);
-            registers = DataUtils.BeToRegArray(bytes);
-        }
-
-        handleModbusRegisers(registers, bytes,
-                registerMap, groupedModbusModel);
+        handleModbusBlock(bytes, registerValues, groupedModbusModel, messageModel);
     }
 
     /**
      * Processes a Modbus response from the Python implementation.
-     * Parses the JSON response and extracts register values into the register map.
+     * Decodes the register words of the response directly into the register map.
      *
-     * @param response           The JSON response string from the Python Modbus service
-     * @param registerMap        Map to store extracted register values
+     * @param response           Response of the Python Modbus service
+     * @param registerValues     Store for the extracted register values
      * @param groupedModbusModel List of Modbus register models used in the request
      * @param messageModel       Message configuration containing function code and endianness
      */
-    protected static void handlePythonModbusResponse(String response, Map<Integer, Object> registerMap, List<ModbusModel> groupedModbusModel, MessageModel messageModel) {
-        try {
-            JsonObject jsonObject = new JsonParser().parse(response).getAsJsonObject();
+    protected static void handlePythonModbusResponse(PythonModbusFrame.Response response, RegisterValues registerValues, List<ModbusModel> groupedModbusModel, MessageModel messageModel) {
+        int[] data = response.data();
 
-            if (jsonObject.get("data").isJsonArray()) {
-                // Output the JsonObject
-                int[] data = new int[jsonObject.getAsJsonArray("data").size()];
-                for (int i = 0; i < jsonObject.getAsJsonArray("data").size(); i++) {
-                    data[i] = jsonObject.getAsJsonArray("data").get(i).getAsInt();  // Convert JsonElement to String
-                }
+        log.debug("Data: {}", Arrays.toString(data));
 
-                log.info("Data: {}", Arrays.toString(data));
-
-                if (data.length > 0) {
-                    switch (ModbusFunctionCode.get(messageModel.getFunctionCode())) {
-                        case READ_DISCRETE_INPUTS, READ_COILS -> {
-                            if (!groupedModbusModel.get(0).getType().contains("bool")) {
-                                throw new IllegalArgumentException("Wrong type");
-                            }
-
-                            registerMap.put(groupedModbusModel.get(0).getAddress(), data[0]);
-                        }
-                        case READ_WRITE_MULTIPLE_REGISTERS, READ_INPUT_REGISTERS, READ_HOLDING_REGISTERS -> {
-                            getValueFromPythonRegisters(data, registerMap, groupedModbusModel, messageModel);
-                        }
-                        default ->
-                                log.debug("Function code is write only: {}. So no data to read.", messageModel.getFunctionCode());
-                    }
-                }
+        if (data.length == 0) {
+            return;
+        }
+
+        switch (ModbusFunctionCode.get(messageModel.getFunctionCode())) {
+            case READ_DISCRETE_INPUTS, READ_COILS -> {
+                checkBitTypes(groupedModbusModel);
+
+                // The service packs the bits into words
+                ModbusBitBlock.decode(ModbusBitBlock.fromWords(data), groupedModbusModel, registerValues);
+            }
+            case READ_WRITE_MULTIPLE_REGISTERS, READ_INPUT_REGISTERS, READ_HOLDING_REGISTERS ->
+                    getValueFromPythonRegisters(data, registerValues, groupedModbusModel, messageModel);
+            default ->
+                    log.debug("Function code is write only: {}. So no data to read.", messageModel.getFunctionCode());
+        }
+    }
+
+    /**
+     * Processes a batch response from the Python Modbus service.
+     * Each response is handled by {@link #handlePythonModbusResponse(PythonModbusFrame.Response, RegisterValues, List, MessageModel)}
+     * with the group of the request at the same position.
+     *
+     * @param responses      Responses of the Python Modbus service in the order of the batch request
+     * @param registerValues Store to populate with register values
+     * @param groups         Groups of Modbus register models in the order of the batch request
+     * @param messageModel   Message configuration with function code and other parameters
+     * @return Groups whose request failed
+     * @throws LPCException If the response does not contain a response for every group
+     */
+    protected static List<List<ModbusModel>> handlePythonModbusBatchResponse(List<PythonModbusFrame.Response> responses, RegisterValues registerValues, List<List<ModbusModel>> groups, MessageModel messageModel) throws LPCException {
+        if (responses.size() != groups.size()) {
+            throw new LPCException("Python batch response does not match the request");
+        }
+
+        List<List<ModbusModel>> failed = new ArrayList<>();
+
+        for (int i = 0; i < groups.size(); i++) {
+            PythonModbusFrame.Response groupResponse = responses.get(i);
+
+            if (!groupResponse.success()) {
+                log.error("Python Modbus request at address {} failed: {}", groups.get(i).get(0).getAddress(), groupResponse.message());
+                failed.add(groups.get(i));
+                continue;
             }
-        } catch (JsonSyntaxException err) {
-            log.error("Json Syntax Exception: this is most likely due to failed Python response", err);
-        } catch (Exception e) {
-            log.error("Error while parsing Python response", e);
+
+            handlePythonModbusResponse(groupResponse, registerValues, groups.get(i), messageModel);
         }
+
+        return failed;
     }
 
     /**
@@ -360,142 +470,126 @@ public class ModbusHandler {
      * Converts integer data from Python response to proper register values based on endianness.
      *
      * @param data               Array of register values from Python response
-     * @param registerMap        Map to store the extracted register values
+     * @param registerValues     Store for the extracted register values
      * @param groupedModbusModel List of Modbus models defining the registers
      * @param messageModel       Message configuration containing endianness settings
      */
     protected static void getValueFromPythonRegisters(int[] data,
-                                                      Map<Integer, Object> registerMap,
+                                                      RegisterValues registerValues,
                                                       List<ModbusModel> groupedModbusModel,
                                                       MessageModel messageModel) {
-        int[] registers = data.clone();
-        byte[] bytes = new byte[registers.length * 2]; // 2 bytes per register
+        handleModbusBlock(toBytes(data), registerValues, groupedModbusModel, messageModel);
+    }
 
-        // Assuming big-endian (most significant register first)
-        for (int i = 0; i < registers.length; i++) {
-            // Extract high byte and low byte from each register
-            bytes[i * 2] = (byte) ((registers[i] >> 8) & 0xFF);     // High byte
-            bytes[i * 2 + 1] = (byte) (registers[i] & 0xFF);        // Low byte
+    /**
+     * Extracts the raw big-endian register bytes from a Java Modbus response.
+     *
+     * @param response     The Modbus response of a register read
+     * @param functionCode Function code of the request
+     * @return Raw register bytes, empty if the response does not contain registers
+     * @throws ModbusPduException If the device responded with an exception
+     */
+    protected static byte[] getRegisterBytes(ModbusResponse response, int functionCode) throws ModbusPduException {
+        if (response.getModbusExceptionCode() != null && response.getModbusExceptionCode() != ModbusExceptionCode.NO_EXCEPTION) {
+            throw new ModbusPduException(functionCode, response.getModbusExceptionCode().getValue());
         }
 
-        if (messageModel.getEndianness() == Endianness.BIG_ENDIAN) {
-            registers = DataUtils.BeToRegArray(bytes);
-        } else if (messageModel.getEndianness() == Endianness.BIG_ENDIAN_SWAP) {
-            bytes = ModbusHandler.beSwapToBe(bytes);
-            registers = DataUtils.BeToRegArray(bytes);
-        } else if (messageModel.getEndianness() == Endianness.LITTLE_ENDIAN_SWAP) {
-            bytes = ModbusHandler.leSwapToLe(bytes);
-            bytes = ModbusHandler.leToBe(bytes);
-            registers = DataUtils.BeToRegArray(bytes);
-        } else {
-            bytes = ModbusHandler.leToBe(bytes);
-            registers = DataUtils.BeToRegArray(bytes);
+        if (response instanceof ReadHoldingRegistersResponse holdingRegistersResponse) {
+            return holdingRegistersResponse.getHoldingRegisters().getBytes();
         }
 
-        handleModbusRegisers(registers, bytes,
-                registerMap, groupedModbusModel);
+        return new byte[0];
     }
 
     /**
-     * Processes Modbus registers and extracts typed values based on register models.
-     * Maps register values to their addresses according to data types specified in the models.
-     * Handles different data types (int, uint, float, double) and various bit widths.
+     * Checks that a register read returned all registers of the block.
      *
-     * @param registers          Array of integer register values
-     * @param bytes              Raw byte representation of the register values
-     * @param registerMap        Map to store the extracted and typed register values
-     * @param groupedModbusModel List of register models containing type information
+     * @param bytes    Raw register bytes of the response
+     * @param quantity Number of registers in the block
+     * @return The register bytes
+     * @throws LPCException If the response contains fewer registers than the block
      */
-    private static void handleModbusRegisers(int[] registers,
-                                             byte[] bytes,
-                                             Map<Integer, Object> registerMap,
-                                             List<ModbusModel> groupedModbusModel) {
-        log.debug("Bytes: {}", bytes);
-        log.debug("Registers: {}", registers);
-
-        for (ModbusModel modbusModel : groupedModbusModel) {
-            String type = modbusModel.getType();
-
-            Float factor = modbusModel.getFactor();
-
-            int offset = modbusModel.getAddress() - groupedModbusModel.get(0).getAddress();
+    protected static byte[] checkRegisterBytes(byte[] bytes, int quantity) throws LPCException {
+        if (bytes.length < quantity * 2) {
+            throw new LPCException("Register read returned " + bytes.length + " bytes, expected " + quantity * 2);
+        }
 
-            if (type.contains("uint")) {
-                // Handle unsigned integers
-                if (type.contains("8")) {
-                    // Extract low byte as unsigned 8-bit
-                    int regValue = get(offset, registers);
-                    int uint8Value = regValue & 0xFF;
+        return bytes;
+    }
 
-                    uint8Value *= factor;
+    /**
+     * Extracts the raw big-endian register bytes from a Python Modbus response.
+     *
+     * @param response Response of the Python Modbus service
+     * @return Raw register bytes, empty if the response does not contain registers
+     */
+    protected static byte[] getRegisterBytes(PythonModbusFrame.Response response) {
+        return toBytes(response.data());
+    }
 
-                    registerMap.put(modbusModel.getAddress(), uint8Value);
-                } else if (type.contains("16")) {
-                    int regValue = getUInt16At(offset, registers);
-                    regValue *= factor;
+    private static byte[] toBytes(int[] data) {
+        byte[] bytes = new byte[data.length * 2]; // 2 bytes per register
 
-                    registerMap.put(modbusModel.getAddress(), regValue);
-                } else if (type.contains("64")) {
-                    BigInteger uint64Value = getUInt64At(offset, registers);
-                    uint64Value = uint64Value.multiply(BigInteger.valueOf(factor.longValue()));
+        // Assuming big-endian (most significant register first)
+        for (int i = 0; i < data.length; i++) {
+            // Extract high byte and low byte from each register
+            bytes[i * 2] = (byte) ((data[i] >> 8) & 0xFF);     // High byte
+            bytes[i * 2 + 1] = (byte) (data[i] & 0xFF);        // Low byte
+        }
 
-                    registerMap.put(modbusModel.getAddress(), uint64Value);
-                } else {
-                    long uint32Value = getUInt32At(offset, registers);
-                    uint32Value *= factor;
+        return bytes;
+    }
 
-                    registerMap.put(modbusModel.getAddress(), uint32Value);
-                }
-            } else if (type.contains("int")) {
-                // Handle signed integers
-                if (type.contains("8")) {
-                    byte regValue = DataUtils.byteLow(get(offset, registers));
-                    regValue *= factor;
-
-                    registerMap.put(modbusModel.getAddress(), regValue);
-                } else if (type.contains("16")) {
-                    int regValue = getInt16At(offset, registers);
-                    regValue *= factor;
-
-                    registerMap.put(modbusModel.getAddress(), regValue);
-                } else if (type.contains("64")) {
-                    long regValue = getInt64At(offset, registers);
-                    regValue *= factor;
-
-                    registerMap.put(modbusModel.getAddress(), regValue);
-                } else {
-                    int regValue = getInt32At(offset, registers);
-                    regValue *= factor;
+    /**
+     * Processes a block of registers read with a single request.
+     *
+     * @param blockBytes         Raw big-endian bytes of all registers in the block
+     * @param registerValues     Store for the extracted register values
+     * @param groupedModbusModel List of Modbus models defining the registers, starting with the first register of the block
+     * @param messageModel       Message configuration containing endianness settings
+     */
+    protected static void handleModbusBlock(byte[] blockBytes,
+                                            RegisterValues registerValues,
+                                            List<ModbusModel> groupedModbusModel,
+                                            MessageModel messageModel) {
+        handleModbusBlock(ByteBuffer.wrap(blockBytes), registerValues, groupedModbusModel, messageModel);
+    }
 
-                    registerMap.put(modbusModel.getAddress(), regValue);
-                }
-            } else if (type.contains("long")) {
-                long regValue = getInt64At(offset, registers);
-                regValue *= factor;
+    /**
+     * Processes a block of registers read with a single request.
+     * Values are decoded with the compiled decode plan of the message model directly from the buffer,
+     * endianness conversion is applied separately to the registers of each value, so values keep their position
+     * even when the block contains multiple multi-register values.
+     *
+     * @param block              Raw big-endian bytes of all registers in the block
+     * @param registerValues     Store for the extracted register values
+     * @param groupedModbusModel List of Modbus models defining the registers, starting with the first register of the block
+     * @param messageModel       Message configuration containing endianness settings
+     */
+    protected static void handleModbusBlock(ByteBuffer block,
+                                            RegisterValues registerValues,
+                                            List<ModbusModel> groupedModbusModel,
+                                            MessageModel messageModel) {
+        getDecodePlan(messageModel).decode(block, groupedModbusModel.get(0).getAddress(), registerValues);
 
-                registerMap.put(modbusModel.getAddress(), regValue);
-            } else if (type.contains("float")) {
-                if (type.contains("64")) {
-                    double regValue = getFloat64At(offset, registers);
-                    regValue *= factor;
+        log.debug("Register values: {}", registerValues);
+    }
 
-                    registerMap.put(modbusModel.getAddress(), regValue);
-                } else {
-                    float regValue = getFloat32At(offset, registers);
-                    regValue *= factor;
+    /**
+     * Gets the decode plan of the message model, compiling it if it was not compiled when the configuration was loaded.
+     *
+     * @param messageModel Message configuration containing the registers and endianness
+     * @return The compiled decode plan
+     */
+    private static RegisterDecodePlan getDecodePlan(MessageModel messageModel) {
+        RegisterDecodePlan decodePlan = messageModel.getDecodePlan();
 
-                    registerMap.put(modbusModel.getAddress(), regValue);
-                }
-            } else if (type.contains("double")) {
-                double regValue = getFloat64At(offset, registers);
-                regValue *= factor;
-                registerMap.put(modbusModel.getAddress(), regValue);
-            } else {
-                throw new IllegalArgumentException("Wrong type: " + type);
-            }
+        if (decodePlan == null) {
+            decodePlan = RegisterDecodePlan.compile(messageModel);
+            messageModel.setDecodePlan(decodePlan);
         }
 
-        log.debug("Register map: {}", registerMap);
+        return decodePlan;
     }
 
     // Existing methods remain but with corrected signed handling
@@ -757,33 +851,7 @@ public class ModbusHandler {
      * @throws IllegalArgumentException If the data type is not supported
      */
     public static int getNumOfRegisters(String type) {
-        if (type.contains("int")) {
-            if (type.contains("8")) {
-                return 1;
-            } else if (type.contains("16")) {
-                return 1;
-            } else if (type.contains("64")) {
-                return 4;
-            } else {
-                return 2;
-            }
-        } else if (type.contains("long")) {
-            return 4;
-        } else if (type.contains("float")) {
-            if (type.contains("64")) {
-                return 4;
-            } else {
-                return 2;
-            }
-        } else if (type.contains("double")) {
-            return 4;
-        } else if (type.contains("short")) {
-            return 1;
-        } else if (type.contains("byte")) {
-            return 1;
-        } else {
-            throw new IllegalArgumentException("Wrong type");
-        }
+        return RegisterType.fromType(type).getRegisters();
     }
 
     /**
@@ -0,0 +1,177 @@
+/*
+ *  Copyright (c) 2023-2024 Sunesis and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package si.sunesis.interoperability.lpc.transformations.transformation;
+
+import lombok.extern.slf4j.Slf4j;
+import si.sunesis.interoperability.lpc.transformations.configuration.models.MessageModel;
+import si.sunesis.interoperability.lpc.transformations.configuration.models.ModbusModel;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Utility class for planning coalesced Modbus read transactions.
+ * Merges register definitions into blocks that can be read with a single request,
+ * while respecting the maximum number of registers per request and the allowed gap between registers.
+ * Coils and discrete inputs, configured with a boolean type, occupy a single bit address each.
+ *
+ * @author David Trafela, Sunesis
+ * @since 1.6.0
+ */
+@Slf4j
+public class ModbusReadPlanner {
+
+    /**
+     * Maximum number of registers that can be read with a single request (function codes 3 and 4)
+     */
+    public static final int MAX_READ_REGISTERS = 125;
+
+    /**
+     * Maximum number of coils or discrete inputs that can be read with a single request (function codes 1 and 2)
+     */
+    public static final int MAX_READ_BITS = 2000;
+
+    private ModbusReadPlanner() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Merges the registers read by a message into blocks, using the gap and block size configured for the message.
+     * Function codes 1 and 2 are planned as bits, other function codes as registers.
+     *
+     * @param messageModel Configuration for the Modbus message format
+     * @param models       Register definitions to plan
+     * @return List of register blocks, each one sorted by address
+     */
+    public static List<List<ModbusModel>> plan(MessageModel messageModel, List<ModbusModel> models) {
+        int functionCode = messageModel.getFunctionCode();
+
+        if (functionCode == 1 || functionCode == 2) {
+            return planBits(models, messageModel.getMaxGapRegisters(), messageModel.getMaxBlockBits());
+        }
+
+        return plan(models, messageModel.getMaxGapRegisters(), messageModel.getMaxBlockRegisters());
+    }
+
+    /**
+     * Merges register definitions into blocks that can be read in a single Modbus transaction.
+     * A register is added to the current block if the number of unused registers between the end of the
+     * block and the register is not greater than maxGap and the whole block still fits into maxBlock registers.
+     * A register that is wider than maxBlock always forms its own block.
+     *
+     * @param models   Register definitions to plan
+     * @param maxGap   Maximum number of unused registers allowed between two registers in the same block
+     * @param maxBlock Maximum number of registers read by a single block
+     * @return List of register blocks, each one sorted by address
+     */
+    public static List<List<ModbusModel>> plan(List<ModbusModel> models, int maxGap, int maxBlock) {
+        return plan(models, maxGap, maxBlock, MAX_READ_REGISTERS);
+    }
+
+    /**
+     * Merges coil or discrete input definitions into blocks that can be read in a single Modbus transaction.
+     * Works the same as {@link #plan(List, int, int)}, with blocks of up to {@value #MAX_READ_BITS} bits.
+     *
+     * @param models   Coil or discrete input definitions to plan
+     * @param maxGap   Maximum number of unused bits allowed between two bits in the same block
+     * @param maxBlock Maximum number of bits read by a single block
+     * @return List of bit blocks, each one sorted by address
+     */
+    public static List<List<ModbusModel>> planBits(List<ModbusModel> models, int maxGap, int maxBlock) {
+        return plan(models, maxGap, maxBlock, MAX_READ_BITS);
+    }
+
+    private static List<List<ModbusModel>> plan(List<ModbusModel> models, int maxGap, int maxBlock, int limit) {
+        List<ModbusModel> sortedModels = new ArrayList<>(models);
+        sortedModels.sort(Comparator.comparingInt(ModbusModel::getAddress));
+
+        maxGap = Math.max(0, maxGap);
+        maxBlock = Math.max(1, Math.min(maxBlock, limit));
+
+        List<List<ModbusModel>> blocks = new ArrayList<>();
+        List<ModbusModel> currentBlock = new ArrayList<>();
+        int blockStart = 0;
+        int blockEnd = 0;
+
+        for (ModbusModel model : sortedModels) {
+            int start = model.getAddress();
+            int end = start + getWidth(model);
+
+            if (!currentBlock.isEmpty()
+                    && start - blockEnd <= maxGap
+                    && Math.max(end, blockEnd) - blockStart <= maxBlock) {
+                currentBlock.add(model);
+                blockEnd = Math.max(end, blockEnd);
+                continue;
+            }
+
+            if (!currentBlock.isEmpty()) {
+                blocks.add(currentBlock);
+            }
+
+            currentBlock = new ArrayList<>();
+            currentBlock.add(model);
+            blockStart = start;
+            blockEnd = end;
+        }
+
+        if (!currentBlock.isEmpty()) {
+            blocks.add(currentBlock);
+        }
+
+        log.debug("Planned {} read blocks for {} registers", blocks.size(), sortedModels.size());
+
+        return blocks;
+    }
+
+    /**
+     * Calculates the number of registers or bits covered by a block, from the first address
+     * to the end of the last register, including any unused registers in between.
+     *
+     * @param block Register definitions sorted by address
+     * @return Number of registers or bits needed to read the whole block
+     */
+    public static int getBlockQuantity(List<ModbusModel> block) {
+        int start = block.get(0).getAddress();
+        int end = start;
+
+        for (ModbusModel model : block) {
+            end = Math.max(end, model.getAddress() + getWidth(model));
+        }
+
+        return end - start;
+    }
+
+    /**
+     * Checks if the definition is a coil or discrete input, configured with a boolean type.
+     *
+     * @param model Register definition
+     * @return True if the definition is a single bit
+     */
+    public static boolean isBit(ModbusModel model) {
+        return model.getType() != null && model.getType().toLowerCase().contains("bool");
+    }
+
+    private static int getWidth(ModbusModel model) {
+        return isBit(model) ? 1 : ModbusHandler.getNumOfRegisters(model.getType());
+    }
+}
@@ -87,11 +87,27 @@ public class ObjectTransformer {
      * @return The transformed object as a string, or null if transformation fails
      */
     public String transform(Object objectInput, String mappingDefinition, String fromFormat, String toFormat) {
+        return transform(objectInput, mappingDefinition, fromFormat, toFormat, System.currentTimeMillis());
+    }
+
+    /**
+     * Transforms an input object to a different format based on a mapping definition.
+     * Works the same as {@link #transform(Object, String, String, String)}, with the timestamp
+     * placeholders replaced by the given time instead of the current time.
+     *
+     * @param objectInput       The input object to transform
+     * @param mappingDefinition The mapping definition specifying how to transform the object
+     * @param fromFormat        The format of the input object (auto-detected if null)
+     * @param toFormat          The target format for the output (auto-detected if null)
+     * @param timestamp         Time in milliseconds used for the timestamp placeholders
+     * @return The transformed object as a string, or null if transformation fails
+     */
+    public String transform(Object objectInput, String mappingDefinition, String fromFormat, String toFormat, long timestamp) {
         if (mappingDefinition == null) {
             return null;
         }
 
-        mappingDefinition = replaceTimestamp(mappingDefinition);
+        mappingDefinition = replaceTimestamp(mappingDefinition, timestamp);
 
         if (toFormat == null) {
             if (isValidJson(mappingDefinition) != null) {
@@ -240,7 +256,7 @@ public class ObjectTransformer {
         }
 
         long millisecond = System.currentTimeMillis();
-        mappingDefinition = replaceTimestamp(mappingDefinition);
+        mappingDefinition = replaceTimestamp(mappingDefinition, millisecond);
 
         JsonNode jsonNode = isValidJson(mappingDefinition);
 
@@ -460,13 +476,17 @@ public class ObjectTransformer {
 
     private String getValueFromMapper(AbstractMapper mapper, Object input) {
         String value = null;
-        HashMap<Integer, Object> registersMap = isValidMap(input);
         if (input instanceof JsonNode node) {
             value = mapper.getMappedValueJSON(node);
         } else if (input instanceof Document document) {
             value = mapper.getMappedValueXML(document);
-        } else if (registersMap != null && !registersMap.isEmpty()) {
-            value = mapper.getMappedValueModbus(registersMap);
+        } else if (input instanceof RegisterValues registerValues) {
+            value = mapper.getMappedValueModbus(registerValues);
+        } else {
+            HashMap<Integer, Object> registersMap = isValidMap(input);
+            if (registersMap != null && !registersMap.isEmpty()) {
+                value = mapper.getMappedValueModbus(registersMap);
+            }
         }
 
         return value;
@@ -498,8 +518,7 @@ public class ObjectTransformer {
         return null;
     }
 
-    private String replaceTimestamp(String mappingDefinition) {
-        long millisecond = System.currentTimeMillis();
+    private String replaceTimestamp(String mappingDefinition, long millisecond) {
         String patternZ = "yyyy-MM-dd'T'HH:mm:ss'Z'";
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern(patternZ);
         Date date = new Date(millisecond);
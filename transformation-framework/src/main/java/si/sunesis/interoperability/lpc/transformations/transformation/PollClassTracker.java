@@ -0,0 +1,164 @@
+/*
+ *  Copyright (c) 2023-2024 Sunesis and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package si.sunesis.interoperability.lpc.transformations.transformation;
+
+import lombok.extern.slf4j.Slf4j;
+import si.sunesis.interoperability.lpc.transformations.configuration.models.IntervalRequestModel;
+import si.sunesis.interoperability.lpc.transformations.configuration.models.ModbusModel;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tracks the poll classes of the registers of a Modbus interval poll.
+ * Registers with a poll class are only read when the interval of their class elapsed since the class was last read
+ * completely, registers without a poll class are read in every poll. The registers due in a poll are read together,
+ * so they are coalesced into as few requests as possible. The latest values of the registers that are not due are
+ * taken from a cache kept per device, so every published message contains all registers.
+ *
+ * @author David Trafela, Sunesis
+ * @since 1.6.0
+ */
+@Slf4j
+public class PollClassTracker {
+
+    private final Map<String, Integer> pollClasses;
+
+    private final Map<String, DeviceState> deviceStates = new ConcurrentHashMap<>();
+
+    public PollClassTracker(IntervalRequestModel intervalRequestModel) {
+        this.pollClasses = new HashMap<>(intervalRequestModel.getPollClasses());
+
+        for (ModbusModel model : intervalRequestModel.getRequest().getModbusRegisters()) {
+            if (model.getPollClass() != null && !pollClasses.containsKey(model.getPollClass())) {
+                log.warn("Poll class {} of register {} is not defined, the register is read in every poll",
+                        model.getPollClass(), model.getAddress());
+            }
+        }
+    }
+
+    /**
+     * Checks if any register of the interval request is assigned to a poll class.
+     *
+     * @param intervalRequestModel Interval request configuration
+     * @return True if the tracker should be used for the interval request
+     */
+    public static boolean isConfigured(IntervalRequestModel intervalRequestModel) {
+        return intervalRequestModel.getRequest() != null && intervalRequestModel.getRequest().getModbusRegisters().stream()
+                .anyMatch(model -> model.getPollClass() != null);
+    }
+
+    /**
+     * Selects the registers due in a poll.
+     *
+     * @param device Key of the device, for example the connection name
+     * @param models Register definitions of the interval request
+     * @param tick   Nominal time of the poll in milliseconds
+     * @return Registers to read in the poll
+     */
+    public List<ModbusModel> getDue(String device, List<ModbusModel> models, long tick) {
+        DeviceState state = deviceStates.computeIfAbsent(device, key -> new DeviceState());
+        List<ModbusModel> due = new ArrayList<>();
+
+        synchronized (state) {
+            for (ModbusModel model : models) {
+                if (isDue(state, model.getPollClass(), tick)) {
+                    due.add(model);
+                }
+            }
+        }
+
+        return due;
+    }
+
+    /**
+     * Completes a poll. Classes whose due registers were all read are marked as read at the tick, values read are
+     * stored in the cache, and the cached values of registers that were not due are added to the register values.
+     *
+     * @param device         Key of the device
+     * @param models         Register definitions of the interval request
+     * @param due            Registers read in the poll
+     * @param registerValues Register values read in the poll
+     * @param tick           Nominal time of the poll in milliseconds
+     */
+    public void complete(String device, List<ModbusModel> models, List<ModbusModel> due, RegisterValues registerValues, long tick) {
+        DeviceState state = deviceStates.computeIfAbsent(device, key -> new DeviceState());
+
+        synchronized (state) {
+            Set<String> incomplete = new HashSet<>();
+            Set<String> read = new HashSet<>();
+            Set<Integer> dueAddresses = new HashSet<>();
+
+            for (ModbusModel model : due) {
+                dueAddresses.add(model.getAddress());
+
+                if (registerValues.contains(model.getAddress())) {
+                    state.values.putFrom(registerValues, model.getAddress());
+                } else if (model.getPollClass() != null) {
+                    incomplete.add(model.getPollClass());
+                }
+
+                if (model.getPollClass() != null) {
+                    read.add(model.getPollClass());
+                }
+            }
+
+            for (String pollClass : read) {
+                if (!incomplete.contains(pollClass)) {
+                    state.lastRead.put(pollClass, tick);
+                }
+            }
+
+            for (ModbusModel model : models) {
+                if (!dueAddresses.contains(model.getAddress())) {
+                    registerValues.putFrom(state.values, model.getAddress());
+                }
+            }
+        }
+    }
+
+    private boolean isDue(DeviceState state, String pollClass, long tick) {
+        Integer interval = pollClass != null ? pollClasses.get(pollClass) : null;
+        if (interval == null) {
+            return true;
+        }
+
+        Long lastRead = state.lastRead.get(pollClass);
+        if (lastRead == null) {
+            return true;
+        }
+
+        return interval > 0 && tick - lastRead >= interval;
+    }
+
+    private static class DeviceState {
+
+        // Nominal time of the last poll that read all registers of the class
+        private final Map<String, Long> lastRead = new HashMap<>();
+
+        private final RegisterValues values = new RegisterValues();
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ *  Copyright (c) 2023-2024 Sunesis and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package si.sunesis.interoperability.lpc.transformations.transformation;
+
+import lombok.extern.slf4j.Slf4j;
+import si.sunesis.interoperability.lpc.transformations.enums.OverrunPolicy;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongConsumer;
+
+/**
+ * Scheduler of interval poll cycles on a fixed grid of ticks.
+ * The next cycle is scheduled when the previous one completes, so cycles never overlap or pile up.
+ * A cycle that completes after the start of the next tick is an overrun, handled by the {@link OverrunPolicy}:
+ * {@link OverrunPolicy#SKIP} waits for the next tick that has not started yet, {@link OverrunPolicy#REALIGN} runs one
+ * cycle immediately for the latest started tick and then continues on the grid, and {@link OverrunPolicy#QUEUE} runs
+ * the cycles of all started ticks back-to-back, at most the queue limit of them, dropping the oldest.
+ * Ticks without a cycle are counted as missed, cycles started after their tick are counted as late.
+ *
+ * @author David Trafela, Sunesis
+ * @since 1.6.0
+ */
+@Slf4j
+public class PollCycleScheduler {
+
+    /**
+     * Next cycle to run after an overrun check
+     *
+     * @param tick   Nominal time of the tick of the cycle
+     * @param missed Number of ticks skipped before the tick
+     * @param late   True if the tick already started when the previous cycle completed
+     */
+    public record Slot(long tick, long missed, boolean late) {
+    }
+
+    private final String name;
+
+    private final ScheduledExecutorService executorService;
+
+    private final long interval;
+
+    private final long phase;
+
+    private final OverrunPolicy policy;
+
+    private final int queueLimit;
+
+    private final LongAdder missedCycles = new LongAdder();
+
+    private final LongAdder lateCycles = new LongAdder();
+
+    private ScheduledFuture<?> future;
+
+    private volatile boolean cancelled;
+
+    /**
+     * @param name            Name of the poll, used in log messages
+     * @param executorService Executor running the cycles
+     * @param interval        Interval between the ticks in milliseconds
+     * @param phase           Delay of every cycle after its tick in milliseconds
+     * @param policy          Handling of cycles that take longer than the interval
+     * @param queueLimit      Maximum number of started ticks run back-to-back with {@link OverrunPolicy#QUEUE}
+     */
+    public PollCycleScheduler(String name, ScheduledExecutorService executorService, long interval, long phase,
+                              OverrunPolicy policy, Integer queueLimit) {
+        this.name = name;
+        this.executorService = executorService;
+        this.interval = interval;
+        this.phase = phase;
+        this.policy = policy != null ? policy : OverrunPolicy.SKIP;
+        this.queueLimit = queueLimit != null ? Math.max(1, queueLimit) : 1;
+    }
+
+    /**
+     * Starts the cycles with the first tick.
+     *
+     * @param firstTick Nominal time of the first tick in milliseconds
+     * @param cycle     Cycle to run, called with the nominal time of its tick
+     */
+    public synchronized void start(long firstTick, LongConsumer cycle) {
+        cancelled = false;
+        schedule(new Slot(firstTick, 0, false), cycle);
+    }
+
+    /**
+     * Stops scheduling cycles. A running cycle completes, but no further cycle is scheduled.
+     */
+    public synchronized void cancel() {
+        cancelled = true;
+
+        if (future != null) {
+            future.cancel(false);
+            future = null;
+        }
+    }
+
+    /**
+     * Returns the number of ticks skipped since the start.
+     *
+     * @return Number of missed cycles
+     */
+    public long getMissedCycles() {
+        return missedCycles.sum();
+    }
+
+    /**
+     * Returns the number of cycles started after their tick since the start.
+     *
+     * @return Number of late cycles
+     */
+    public long getLateCycles() {
+        return lateCycles.sum();
+    }
+
+    /**
+     * Determines the next cycle after the cycle of a tick completed.
+     *
+     * @param tick       Nominal time of the tick of the completed cycle
+     * @param now        Time the cycle completed, relative to the ticks without the phase
+     * @param interval   Interval between the ticks
+     * @param policy     Handling of overruns
+     * @param queueLimit Maximum number of started ticks run back-to-back with {@link OverrunPolicy#QUEUE}
+     * @return Next cycle
+     */
+    public static Slot next(long tick, long now, long interval, OverrunPolicy policy, int queueLimit) {
+        long next = tick + interval;
+        if (now <= next) {
+            return new Slot(next, 0, false);
+        }
+
+        // Ticks from the next one up to the latest started one
+        long started = (now - next) / interval + 1;
+
+        return switch (policy) {
+            case REALIGN -> new Slot(next + (started - 1) * interval, started - 1, true);
+            case QUEUE -> {
+                long dropped = Math.max(0, started - queueLimit);
+                yield new Slot(next + dropped * interval, dropped, true);
+            }
+            default -> {
+                long skipped = (now - next + interval - 1) / interval;
+                yield new Slot(next + skipped * interval, skipped, false);
+            }
+        };
+    }
+
+    private synchronized void schedule(Slot slot, LongConsumer cycle) {
+        if (cancelled) {
+            return;
+        }
+
+        long delay = Math.max(0, slot.tick() + phase - System.currentTimeMillis());
+        future = executorService.schedule(() -> run(slot.tick(), cycle), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void run(long tick, LongConsumer cycle) {
+        try {
+            cycle.accept(tick);
+        } catch (Exception e) {
+            log.error("Error in poll cycle of {}", name, e);
+        }
+
+        Slot slot = next(tick, System.currentTimeMillis() - phase, interval, policy, queueLimit);
+
+        if (slot.missed() > 0) {
+            missedCycles.add(slot.missed());
+        }
+        if (slot.late()) {
+            lateCycles.increment();
+        }
+        if (slot.missed() > 0 || slot.late()) {
+            log.warn("Poll cycle of {} took longer than the interval of {} ms, {} cycles missed and {} late in total",
+                    name, interval, missedCycles.sum(), lateCycles.sum());
+        }
+
+        schedule(slot, cycle);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ *  Copyright (c) 2023-2024 Sunesis and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package si.sunesis.interoperability.lpc.transformations.transformation;
+
+import lombok.extern.slf4j.Slf4j;
+import si.sunesis.interoperability.lpc.transformations.enums.PhaseMode;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Site-wide planner of the phase of interval polls.
+ * All polls with the same interval start on the same aligned tick, the phase delays a poll within its interval,
+ * so devices and transformations polled with the same interval do not all send their requests at the same time.
+ * Published readings still carry the nominal aligned time of the tick.
+ *
+ * @author David Trafela, Sunesis
+ * @since 1.6.0
+ */
+@Slf4j
+public class PollPhasePlanner {
+
+    // Spreads consecutive hash codes over the whole interval
+    private static final int HASH_MULTIPLIER = 0x9E3779B9;
+
+    private final Map<String, Phase> phases = new HashMap<>();
+
+    /**
+     * Plans the phase of a poll. An explicit phase offset is used as is, otherwise the phase is chosen by the mode:
+     * {@link PhaseMode#ALIGNED} polls on the tick, {@link PhaseMode#HASH} derives the phase from the key, so it
+     * is the same after every restart, and {@link PhaseMode#SPREAD} places the poll in the middle of the largest
+     * gap between the phases of polls already planned with the same interval.
+     *
+     * @param key         Unique name of the poll
+     * @param interval    Interval of the poll in milliseconds
+     * @param mode        Phase mode of the poll
+     * @param phaseOffset Explicit phase in milliseconds, or null
+     * @return Phase in milliseconds, from 0 up to the interval
+     */
+    public synchronized long plan(String key, long interval, PhaseMode mode, Integer phaseOffset) {
+        phases.remove(key);
+
+        long phase;
+        if (interval <= 0) {
+            phase = 0;
+        } else if (phaseOffset != null) {
+            phase = Math.floorMod(phaseOffset, interval);
+        } else if (mode == PhaseMode.HASH) {
+            phase = Math.floorMod(Integer.toUnsignedLong(key.hashCode() * HASH_MULTIPLIER), interval);
+        } else if (mode == PhaseMode.SPREAD) {
+            phase = getLargestGapMiddle(interval);
+        } else {
+            phase = 0;
+        }
+
+        phases.put(key, new Phase(interval, phase));
+        log.info("Poll {} with interval {} ms planned with phase {} ms", key, interval, phase);
+
+        return phase;
+    }
+
+    /**
+     * Removes the phase of a poll that is no longer scheduled.
+     *
+     * @param key Unique name of the poll
+     */
+    public synchronized void release(String key) {
+        phases.remove(key);
+    }
+
+    private long getLargestGapMiddle(long interval) {
+        TreeSet<Long> planned = new TreeSet<>();
+        for (Phase phase : phases.values()) {
+            if (phase.interval() == interval) {
+                planned.add(phase.phase());
+            }
+        }
+
+        if (planned.isEmpty()) {
+            return 0;
+        }
+
+        long bestStart = 0;
+        long bestGap = -1;
+
+        Long previous = null;
+        for (long phase : planned) {
+            if (previous != null && phase - previous > bestGap) {
+                bestStart = previous;
+                bestGap = phase - previous;
+            }
+            previous = phase;
+        }
+
+        // The gap after the last phase wraps around to the first phase of the next interval
+        if (planned.first() + interval - planned.last() > bestGap) {
+            bestStart = planned.last();
+            bestGap = planned.first() + interval - planned.last();
+        }
+
+        return (bestStart + bestGap / 2) % interval;
+    }
+
+    private record Phase(long interval, long phase) {
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ *  Copyright (c) 2023-2024 Sunesis and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package si.sunesis.interoperability.lpc.transformations.transformation;
+
+import lombok.extern.slf4j.Slf4j;
+import si.sunesis.interoperability.lpc.transformations.configuration.models.MessageModel;
+import si.sunesis.interoperability.lpc.transformations.configuration.models.ModbusModel;
+import si.sunesis.interoperability.lpc.transformations.enums.Endianness;
+import si.sunesis.interoperability.lpc.transformations.enums.RegisterType;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable plan for decoding register values read with a single Modbus request.
+ * The plan is compiled once per message model when the configuration is loaded, so register types are parsed
+ * and validated at startup and decoding a response only loops over the raw register bytes.
+ *
+ * @author David Trafela, Sunesis
+ * @since 1.6.0
+ */
+@Slf4j
+public final class RegisterDecodePlan {
+
+    private final int[] addresses;
+
+    private final RegisterType[] types;
+
+    private final float[] factors;
+
+    /**
+     * Byte order of the bytes within a register, little-endian when the bytes of each register are swapped
+     */
+    private final ByteOrder wordOrder;
+
+    private final boolean wordReverse;
+
+    /**
+     * True if the value bytes are contiguous in wordOrder, so multi-register values can be read with a single get
+     */
+    private final boolean contiguous;
+
+    private RegisterDecodePlan(int[] addresses, RegisterType[] types, float[] factors, Endianness endianness) {
+        this.addresses = addresses;
+        this.types = types;
+        this.factors = factors;
+        boolean byteSwap = endianness == Endianness.BIG_ENDIAN_SWAP || endianness == Endianness.LITTLE_ENDIAN;
+
+        this.wordOrder = byteSwap ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+        this.wordReverse = endianness == Endianness.LITTLE_ENDIAN || endianness == Endianness.LITTLE_ENDIAN_SWAP;
+        this.contiguous = byteSwap == wordReverse;
+    }
+
+    /**
+     * Compiles the decode plan of a message model that reads Modbus registers and stores it in the message model.
+     * Called when the configuration is loaded, so unsupported register types are reported then instead of on every response.
+     *
+     * @param messageModel The message model to compile, can be null
+     * @throws IllegalArgumentException If the type of a register is not supported
+     */
+    public static void compileInto(MessageModel messageModel) {
+        if (messageModel == null || messageModel.getFunctionCode() == null) {
+            return;
+        }
+
+        int functionCode = messageModel.getFunctionCode();
+        if (functionCode == 3 || functionCode == 4 || functionCode == 23) {
+            messageModel.setDecodePlan(compile(messageModel));
+        }
+    }
+
+    /**
+     * Compiles the decode plan for the registers of a message model.
+     * Registers with a default value are not read from the device and are left out of the plan.
+     *
+     * @param messageModel Message configuration containing the registers and endianness
+     * @return The compiled decode plan
+     * @throws IllegalArgumentException If the type of a register is not supported
+     */
+    public static RegisterDecodePlan compile(MessageModel messageModel) {
+        List<ModbusModel> models = new ArrayList<>();
+        for (ModbusModel model : messageModel.getModbusRegisters()) {
+            if (model.getDefaultValue() == null) {
+                models.add(model);
+            }
+        }
+        models.sort(Comparator.comparingInt(ModbusModel::getAddress));
+
+        int[] addresses = new int[models.size()];
+        RegisterType[] types = new RegisterType[models.size()];
+        float[] factors = new float[models.size()];
+
+        for (int i = 0; i < models.size(); i++) {
+            ModbusModel model = models.get(i);
+
+            if (model.getAddress() == null) {
+                throw new IllegalArgumentException("Missing register address for path: " + model.getPath());
+            }
+
+            addresses[i] = model.getAddress();
+            types[i] = RegisterType.fromType(model.getType());
+            factors[i] = model.getFactor() == null ? 1f : model.getFactor();
+        }
+
+        return new RegisterDecodePlan(addresses, types, factors, messageModel.getEndianness());
+    }
+
+    /**
+     * Decodes all planned registers contained in a block read with a single request.
+     *
+     * @param blockBytes     Raw big-endian bytes of all registers in the block
+     * @param blockStart     Address of the first register in the block
+     * @param registerValues Store for the decoded register values
+     */
+    public void decode(byte[] blockBytes, int blockStart, RegisterValues registerValues) {
+        decode(ByteBuffer.wrap(blockBytes), blockStart, registerValues);
+    }
+
+    /**
+     * Decodes all planned registers contained in a block read with a single request.
+     * Each value is read directly from the buffer in the configured byte and word order, without copying the block.
+     * Values that are only partially contained in the block are skipped.
+     *
+     * @param block          Raw big-endian bytes of all registers in the block, from the position to the limit
+     * @param blockStart     Address of the first register in the block
+     * @param registerValues Store for the decoded register values
+     */
+    public void decode(ByteBuffer block, int blockStart, RegisterValues registerValues) {
+        ByteBuffer view = block.duplicate().order(wordOrder);
+        int base = view.position();
+        int blockEnd = blockStart + view.remaining() / 2;
+
+        for (int i = firstIndex(blockStart); i < addresses.length && addresses[i] < blockEnd; i++) {
+            RegisterType type = types[i];
+
+            if (addresses[i] + type.getRegisters() > blockEnd) {
+                log.warn("Register {} is not part of the response", addresses[i]);
+                continue;
+            }
+
+            long raw = readRaw(view, base + (addresses[i] - blockStart) * 2, type.getRegisters());
+
+            store(registerValues, addresses[i], raw, type, factors[i]);
+        }
+    }
+
+    /**
+     * Gets the number of registers that are decoded by the plan.
+     *
+     * @return Number of registers in the plan
+     */
+    public int size() {
+        return addresses.length;
+    }
+
+    private int firstIndex(int blockStart) {
+        int low = 0;
+        int high = addresses.length;
+
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (addresses[mid] < blockStart) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * Reads the bits of a value from the block, converting the configured endianness to big-endian.
+     */
+    private long readRaw(ByteBuffer view, int position, int registers) {
+        if (registers == 1) {
+            return view.getShort(position) & 0xFFFFL;
+        } else if (contiguous && registers == 2) {
+            return view.getInt(position) & 0xFFFFFFFFL;
+        } else if (contiguous && registers == 4) {
+            return view.getLong(position);
+        }
+
+        long raw = 0;
+        for (int i = 0; i < registers; i++) {
+            int word = wordReverse ? registers - 1 - i : i;
+            raw = (raw << 16) | (view.getShort(position + word * 2) & 0xFFFFL);
+        }
+
+        return raw;
+    }
+
+    private static void store(RegisterValues registerValues, int address, long raw, RegisterType type, float factor) {
+        if (factor == 1f) {
+            // Integer values are stored exactly, scaling through float would round values above 2^24
+            storeUnscaled(registerValues, address, raw, type);
+            return;
+        }
+
+        switch (type) {
+            case INT8 -> registerValues.putInt(address, (byte) ((byte) raw * factor));
+            case UINT8 -> registerValues.putInt(address, (int) ((raw & 0xFF) * factor));
+            case INT16 -> registerValues.putInt(address, (int) ((short) raw * factor));
+            case UINT16 -> registerValues.putInt(address, (int) ((raw & 0xFFFF) * factor));
+            case INT32 -> registerValues.putInt(address, (int) ((int) raw * factor));
+            case UINT32 -> registerValues.putLong(address, (long) ((raw & 0xFFFFFFFFL) * factor));
+            case INT64 -> registerValues.putLong(address, (long) (raw * factor));
+            case UINT64 -> registerValues.putUnsignedLong(address, raw * (long) factor);
+            case FLOAT32 -> registerValues.putFloat(address, Float.intBitsToFloat((int) raw) * factor);
+            case FLOAT64 -> registerValues.putDouble(address, Double.longBitsToDouble(raw) * factor);
+        }
+    }
+
+    private static void storeUnscaled(RegisterValues registerValues, int address, long raw, RegisterType type) {
+        switch (type) {
+            case INT8 -> registerValues.putInt(address, (byte) raw);
+            case UINT8 -> registerValues.putInt(address, (int) (raw & 0xFF));
+            case INT16 -> registerValues.putInt(address, (short) raw);
+            case UINT16 -> registerValues.putInt(address, (int) (raw & 0xFFFF));
+            case INT32 -> registerValues.putInt(address, (int) raw);
+            case UINT32 -> registerValues.putLong(address, raw & 0xFFFFFFFFL);
+            case INT64 -> registerValues.putLong(address, raw);
+            case UINT64 -> registerValues.putUnsignedLong(address, raw);
+            case FLOAT32 -> registerValues.putFloat(address, Float.intBitsToFloat((int) raw));
+            case FLOAT64 -> registerValues.putDouble(address, Double.longBitsToDouble(raw));
+        }
+    }
+}
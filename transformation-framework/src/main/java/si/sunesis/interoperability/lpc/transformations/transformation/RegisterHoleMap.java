@@ -0,0 +1,288 @@
+/*
+ *  Copyright (c) 2023-2024 Sunesis and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package si.sunesis.interoperability.lpc.transformations.transformation;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import lombok.extern.slf4j.Slf4j;
+import si.sunesis.interoperability.lpc.transformations.configuration.models.ConnectionModel;
+import si.sunesis.interoperability.lpc.transformations.configuration.models.MessageModel;
+import si.sunesis.interoperability.lpc.transformations.configuration.models.ModbusModel;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Learned layout of unreadable register ranges per device model.
+ * Devices that respond with an illegal data address exception when a read covers unmapped registers are learned by
+ * bisecting the failed blocks: if both halves of a block are readable, the registers between them are unreadable, and
+ * a single register that still fails is unreadable itself. Planned read blocks are split at the learned ranges, and the
+ * ranges are stored in a file if one is set, so they are reused after a restart.
+ * A configured register that is unreadable itself is only left out for the device it failed on, and is read again
+ * after {@link #REPROBE_INTERVAL}, as the failure may be caused by the state or firmware of that single device.
+ *
+ * @author David Trafela, Sunesis
+ * @since 1.6.0
+ */
+@Slf4j
+public class RegisterHoleMap {
+
+    private static final Type LAYOUT_TYPE = new TypeToken<Map<String, List<int[]>>>() {
+    }.getType();
+
+    /**
+     * Time in milliseconds after which an unreadable configured register is read again
+     */
+    public static final long REPROBE_INTERVAL = TimeUnit.HOURS.toMillis(1);
+
+    private final Path file;
+
+    private final Map<String, List<int[]>> layouts = new HashMap<>();
+
+    // Unreadable configured registers per device, with the time they are read again
+    private final Map<String, Map<Integer, Long>> unreadable = new HashMap<>();
+
+    /**
+     * Creates the layout map.
+     *
+     * @param file File the learned ranges are loaded from and stored to, or null to keep them in memory only
+     */
+
+    public RegisterHoleMap(Path file) {
+        this.file = file;
+
+        if (file == null || !Files.exists(file)) {
+            return;
+        }
+
+        try {
+            Map<String, List<int[]>> stored = new Gson().fromJson(Files.readString(file, StandardCharsets.UTF_8), LAYOUT_TYPE);
+            if (stored != null) {
+                layouts.putAll(stored);
+            }
+
+            log.info("Loaded learned register layouts of {} device models from {}", layouts.size(), file);
+        } catch (IOException | JsonParseException e) {
+            log.error("Error loading learned register layouts from {}", file, e);
+        }
+    }
+
+    /**
+     * Gets the key of the learned register layout of a device, the device model if configured,
+     * otherwise the connection and device ID.
+     *
+     * @param messageModel    Configuration for the Modbus message format
+     * @param connectionModel Connection configuration for the Modbus device
+     * @return Key of the register layout
+     */
+    public static String getLayout(MessageModel messageModel, ConnectionModel connectionModel) {
+        if (messageModel.getDeviceModel() != null) {
+            return messageModel.getDeviceModel();
+        }
+
+        return connectionModel.getName() + ":" + messageModel.getDeviceId();
+    }
+
+    /**
+     * Splits planned read blocks wherever the registers between two neighbouring registers contain an unreadable range
+     * of the device model. Configured registers inside such a range are read in blocks of their own.
+     * Configured registers that are unreadable on the device are left out until they are due to be read again.
+     *
+     * @param layout Key of the device model
+     * @param device Key of the device
+     * @param blocks Planned read blocks, each one sorted by address
+     * @param now    Current time in milliseconds
+     * @return Read blocks that do not cover any unreadable range
+     */
+    public synchronized List<List<ModbusModel>> split(String layout, String device, List<List<ModbusModel>> blocks, long now) {
+        List<int[]> holes = layouts.getOrDefault(layout, List.of());
+        Map<Integer, Long> registers = unreadable.get(device);
+        if (registers != null) {
+            // Registers that are due are read again, and learned again if they still fail
+            registers.values().removeIf(reprobe -> now - reprobe >= 0);
+        }
+
+        if (holes.isEmpty() && (registers == null || registers.isEmpty())) {
+            return blocks;
+        }
+
+        List<List<ModbusModel>> result = new ArrayList<>();
+
+        for (List<ModbusModel> block : blocks) {
+            List<ModbusModel> current = new ArrayList<>();
+            int end = 0;
+            boolean separate = false;
+
+            for (ModbusModel model : block) {
+                if (registers != null && registers.containsKey(model.getAddress())) {
+                    separate = true;
+                    continue;
+                }
+
+                int start = model.getAddress();
+                int modelEnd = start + ModbusHandler.getNumOfRegisters(model.getType());
+                boolean covered = isCovered(holes, start, modelEnd);
+
+                if (!current.isEmpty() && (separate || covered || (end < start && isUnreadable(holes, end, start)))) {
+                    result.add(current);
+                    current = new ArrayList<>();
+                }
+
+                current.add(model);
+                end = Math.max(end, modelEnd);
+                // A register inside an unreadable range is not read together with the next one either
+                separate = covered;
+            }
+
+            if (!current.isEmpty()) {
+                result.add(current);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Stores an unreadable register range of a device model and writes the layouts to the file.
+     *
+     * @param layout Key of the device model
+     * @param start  First unreadable register
+     * @param end    Register after the last unreadable register
+     */
+    public synchronized void learn(String layout, int start, int end) {
+        if (end <= start) {
+            return;
+        }
+
+        List<int[]> holes = layouts.computeIfAbsent(layout, key -> new ArrayList<>());
+        if (isCovered(holes, start, end)) {
+            return;
+        }
+
+        holes.add(new int[]{start, end});
+        log.info("Learned unreadable registers {} to {} of device model {}", start, end - 1, layout);
+
+        save();
+    }
+
+    /**
+     * Stores the registers between the two readable halves of a bisected block as unreadable.
+     *
+     * @param layout Key of the device model
+     * @param first  First half of the block
+     * @param second Second half of the block
+     */
+    public void learn(String layout, List<ModbusModel> first, List<ModbusModel> second) {
+        ModbusModel last = first.get(first.size() - 1);
+
+        learn(layout, last.getAddress() + ModbusHandler.getNumOfRegisters(last.getType()), second.get(0).getAddress());
+    }
+
+    /**
+     * Stores a configured register as unreadable on a device until {@link #REPROBE_INTERVAL} elapses.
+     * The register is not stored in the file and does not affect other devices of the same device model.
+     *
+     * @param device Key of the device
+     * @param model  Register definition the device does not allow to read
+     * @param now    Current time in milliseconds
+     */
+    public synchronized void learn(String device, ModbusModel model, long now) {
+        Long previous = unreadable.computeIfAbsent(device, key -> new HashMap<>()).put(model.getAddress(), now + REPROBE_INTERVAL);
+        if (previous == null) {
+            log.warn("Configured register {} of device {} is unreadable, it is not read for {} ms", model.getAddress(), device,
+                    REPROBE_INTERVAL);
+        }
+    }
+
+    /**
+     * Gets the number of requests needed to find an unreadable range in every block by bisection.
+     * Each bisection round reads both halves of a block, and a block is halved until single registers remain.
+     *
+     * @param blocks Planned read blocks
+     * @return Number of bisection requests
+     */
+    public static int getBisectRequests(List<List<ModbusModel>> blocks) {
+        int requests = 0;
+
+        for (List<ModbusModel> block : blocks) {
+            int rounds = 32 - Integer.numberOfLeadingZeros(block.size() - 1);
+            requests += 2 * rounds;
+        }
+
+        return requests;
+    }
+
+    /**
+     * Splits a block into two halves with the same number of register definitions.
+     *
+     * @param block Read block sorted by address, with at least two registers
+     * @return The two halves of the block
+     */
+    public static List<List<ModbusModel>> bisect(List<ModbusModel> block) {
+        int middle = block.size() / 2;
+
+        return List.of(new ArrayList<>(block.subList(0, middle)), new ArrayList<>(block.subList(middle, block.size())));
+    }
+
+    private static boolean isUnreadable(List<int[]> holes, int start, int end) {
+        for (int[] hole : holes) {
+            if (hole[0] < end && start < hole[1]) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean isCovered(List<int[]> holes, int start, int end) {
+        for (int[] hole : holes) {
+            if (hole[0] <= start && end <= hole[1]) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void save() {
+        if (file == null) {
+            return;
+        }
+
+        try {
+            Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.writeString(temporary, new Gson().toJson(layouts, LAYOUT_TYPE), StandardCharsets.UTF_8);
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.error("Error storing learned register layouts to {}", file, e);
+        }
+    }
+}
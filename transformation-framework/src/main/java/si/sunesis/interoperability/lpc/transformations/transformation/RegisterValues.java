@@ -0,0 +1,380 @@
+/*
+ *  Copyright (c) 2023-2024 Sunesis and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package si.sunesis.interoperability.lpc.transformations.transformation;
+
+import java.util.Arrays;
+
+/**
+ * Register values read from a Modbus device, keyed by register address.
+ * Values are kept in primitive slots together with their type, so decoding and transforming
+ * registers does not box values, and the store can be cleared and reused for the next poll cycle.
+ * All methods are synchronized, since responses of grouped requests can be handled on different threads.
+ *
+ * @author David Trafela, Sunesis
+ * @since 1.6.0
+ */
+public final class RegisterValues {
+
+    /**
+     * Type of a stored value, used to format it the same way as the Java type it was read as
+     */
+    public enum ValueType {
+        BOOLEAN,
+        INT,
+        LONG,
+        UNSIGNED_LONG,
+        FLOAT,
+        DOUBLE
+    }
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    // Orders locking of two stores with the same identity hash code
+    private static final Object TIE_LOCK = new Object();
+
+    private int[] keys;
+
+    private long[] bits;
+
+    private ValueType[] types;
+
+    private int size;
+
+    public RegisterValues() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public RegisterValues(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(DEFAULT_CAPACITY, expectedSize * 2 - 1)) << 1;
+
+        keys = new int[capacity];
+        bits = new long[capacity];
+        types = new ValueType[capacity];
+    }
+
+    public synchronized void putBoolean(int address, boolean value) {
+        put(address, ValueType.BOOLEAN, value ? 1L : 0L);
+    }
+
+    public synchronized void putInt(int address, int value) {
+        put(address, ValueType.INT, value);
+    }
+
+    public synchronized void putLong(int address, long value) {
+        put(address, ValueType.LONG, value);
+    }
+
+    /**
+     * Stores a 64-bit value that is interpreted as unsigned.
+     *
+     * @param address Register address
+     * @param value   Bits of the unsigned value
+     */
+    public synchronized void putUnsignedLong(int address, long value) {
+        put(address, ValueType.UNSIGNED_LONG, value);
+    }
+
+    public synchronized void putFloat(int address, float value) {
+        put(address, ValueType.FLOAT, Float.floatToRawIntBits(value));
+    }
+
+    public synchronized void putDouble(int address, double value) {
+        put(address, ValueType.DOUBLE, Double.doubleToRawLongBits(value));
+    }
+
+    /**
+     * Stores a boxed value, for example a default value from the configuration.
+     * Byte and short values are stored as int, other numbers are stored as double.
+     *
+     * @param address Register address
+     * @param value   Value to store, null values are ignored
+     */
+    public synchronized void put(int address, Object value) {
+        if (value instanceof Boolean b) {
+            putBoolean(address, b);
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            putInt(address, ((Number) value).intValue());
+        } else if (value instanceof Long l) {
+            putLong(address, l);
+        } else if (value instanceof Float f) {
+            putFloat(address, f);
+        } else if (value instanceof Number n) {
+            putDouble(address, n.doubleValue());
+        }
+    }
+
+    /**
+     * Copies all values of another store into this one, replacing values at the same address.
+     * Both stores are locked in a fixed order, so stores merged into each other by different threads do not deadlock.
+     * The slots of this store only grow if the values do not fit.
+     *
+     * @param other Store to copy the values from
+     */
+    public void putAll(RegisterValues other) {
+        if (other == this) {
+            return;
+        }
+
+        int hash = System.identityHashCode(this);
+        int otherHash = System.identityHashCode(other);
+
+        if (hash < otherHash) {
+            synchronized (this) {
+                synchronized (other) {
+                    copyFrom(other);
+                }
+            }
+        } else if (hash > otherHash) {
+            synchronized (other) {
+                synchronized (this) {
+                    copyFrom(other);
+                }
+            }
+        } else {
+            synchronized (TIE_LOCK) {
+                synchronized (this) {
+                    synchronized (other) {
+                        copyFrom(other);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies the value at the address from another store, if the other store contains one.
+     *
+     * @param other   Store to copy the value from
+     * @param address Register address
+     */
+    public void putFrom(RegisterValues other, int address) {
+        ValueType type;
+        long value;
+
+        synchronized (other) {
+            int index = other.indexOf(address);
+            if (index < 0) {
+                return;
+            }
+
+            type = other.types[index];
+            value = other.bits[index];
+        }
+
+        synchronized (this) {
+            put(address, type, value);
+        }
+    }
+
+    public synchronized boolean contains(int address) {
+        return indexOf(address) >= 0;
+    }
+
+    /**
+     * Gets the type of the value at the address.
+     *
+     * @param address Register address
+     * @return Type of the value, or null if there is no value at the address
+     */
+    public synchronized ValueType getType(int address) {
+        int index = indexOf(address);
+        return index >= 0 ? types[index] : null;
+    }
+
+    /**
+     * Gets the value at the address converted to double. Booleans are converted to 1 or 0.
+     *
+     * @param address Register address
+     * @return The value as double, or NaN if there is no value at the address
+     */
+    public synchronized double getDouble(int address) {
+        int index = indexOf(address);
+        if (index < 0) {
+            return Double.NaN;
+        }
+
+        long value = bits[index];
+
+        return switch (types[index]) {
+            case BOOLEAN, INT, LONG -> value;
+            case UNSIGNED_LONG -> value >= 0 ? value : (value >>> 1) * 2.0 + (value & 1);
+            case FLOAT -> Float.intBitsToFloat((int) value);
+            case DOUBLE -> Double.longBitsToDouble(value);
+        };
+    }
+
+    /**
+     * Checks if the values at the address are equal in both stores, comparing type and bits.
+     *
+     * @param address Register address
+     * @param other   Store to compare with
+     * @return True if both stores contain the same value at the address, or neither contains a value
+     */
+    public boolean equalsAt(int address, RegisterValues other) {
+        ValueType otherType;
+        long otherValue;
+
+        // The stores are never locked together, so comparing them from both sides does not deadlock
+        synchronized (other) {
+            int otherIndex = other.indexOf(address);
+            otherType = otherIndex >= 0 ? other.types[otherIndex] : null;
+            otherValue = otherIndex >= 0 ? other.bits[otherIndex] : 0L;
+        }
+
+        synchronized (this) {
+            int index = indexOf(address);
+            if (index < 0 || otherType == null) {
+                return index < 0 && otherType == null;
+            }
+
+            return types[index] == otherType && bits[index] == otherValue;
+        }
+    }
+
+    /**
+     * Formats the value at the address as text for a transformed message.
+     *
+     * @param address Register address
+     * @return The formatted value, or null if there is no value at the address
+     */
+    public synchronized String format(int address) {
+        int index = indexOf(address);
+        if (index < 0) {
+            return null;
+        }
+
+        long value = bits[index];
+
+        return switch (types[index]) {
+            case BOOLEAN -> String.valueOf(value != 0);
+            case INT -> String.valueOf((int) value);
+            case LONG -> String.valueOf(value);
+            case UNSIGNED_LONG -> Long.toUnsignedString(value);
+            case FLOAT -> String.valueOf(Float.intBitsToFloat((int) value));
+            case DOUBLE -> String.valueOf(Double.longBitsToDouble(value));
+        };
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes all values, keeping the allocated slots for the next poll cycle.
+     */
+    public synchronized void clear() {
+        Arrays.fill(types, null);
+        size = 0;
+    }
+
+    /**
+     * Creates a copy of the store.
+     *
+     * @return A new store with the same values
+     */
+    public RegisterValues copy() {
+        RegisterValues copy = new RegisterValues(size());
+        copy.putAll(this);
+        return copy;
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder builder = new StringBuilder("{");
+
+        for (int i = 0; i < types.length; i++) {
+            if (types[i] != null) {
+                if (builder.length() > 1) {
+                    builder.append(", ");
+                }
+                builder.append(keys[i]).append('=').append(format(keys[i]));
+            }
+        }
+
+        return builder.append('}').toString();
+    }
+
+    private void put(int address, ValueType type, long value) {
+        if ((size + 1) * 2 > types.length) {
+            resize();
+        }
+
+        int index = slot(address, keys.length);
+        while (types[index] != null && keys[index] != address) {
+            index = (index + 1) & (keys.length - 1);
+        }
+
+        if (types[index] == null) {
+            keys[index] = address;
+            size++;
+        }
+
+        types[index] = type;
+        bits[index] = value;
+    }
+
+    private int indexOf(int address) {
+        int index = slot(address, keys.length);
+
+        while (types[index] != null) {
+            if (keys[index] == address) {
+                return index;
+            }
+            index = (index + 1) & (keys.length - 1);
+        }
+
+        return -1;
+    }
+
+    private void copyFrom(RegisterValues other) {
+        for (int i = 0; i < other.types.length; i++) {
+            if (other.types[i] != null) {
+                put(other.keys[i], other.types[i], other.bits[i]);
+            }
+        }
+    }
+
+    private void resize() {
+        int[] oldKeys = keys;
+        long[] oldBits = bits;
+        ValueType[] oldTypes = types;
+
+        keys = new int[oldKeys.length * 2];
+        bits = new long[oldKeys.length * 2];
+        types = new ValueType[oldKeys.length * 2];
+        size = 0;
+
+        for (int i = 0; i < oldTypes.length; i++) {
+            if (oldTypes[i] != null) {
+                put(oldKeys[i], oldTypes[i], oldBits[i]);
+            }
+        }
+    }
+
+    private static int slot(int address, int capacity) {
+        int hash = address * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & (capacity - 1);
+    }
+}
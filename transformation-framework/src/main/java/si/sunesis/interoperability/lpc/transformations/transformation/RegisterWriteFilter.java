@@ -0,0 +1,244 @@
+/*
+ *  Copyright (c) 2023-2024 Sunesis and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package si.sunesis.interoperability.lpc.transformations.transformation;
+
+import lombok.extern.slf4j.Slf4j;
+import si.sunesis.interoperability.lpc.transformations.configuration.models.ConnectionModel;
+import si.sunesis.interoperability.lpc.transformations.configuration.models.MessageModel;
+import si.sunesis.interoperability.lpc.transformations.configuration.models.ModbusModel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Suppresses Modbus writes that would not change the registers of a device.
+ * Keeps the encoded words last written to every register per device, replaced by the words read back from the device
+ * if they differ, for example because the register was changed locally. A write is suppressed if all of its registers
+ * were last written or read with the same words, unless the refresh interval expired since then.
+ * The number of suppressed writes is counted for all devices together.
+ *
+ * @author David Trafela, Sunesis
+ * @since 1.6.0
+ */
+@Slf4j
+public class RegisterWriteFilter {
+
+    private final Map<String, Map<Integer, WrittenRegister>> devices = new ConcurrentHashMap<>();
+
+    private final LongAdder suppressedWrites = new LongAdder();
+
+    /**
+     * Checks if writes that do not change the registers of the device are skipped for the message model.
+     *
+     * @param messageModel Configuration for the Modbus message format
+     * @return True if unchanged writes with function code 6 or 16 are suppressed
+     */
+    public static boolean isConfigured(MessageModel messageModel) {
+        return Boolean.TRUE.equals(messageModel.getSuppressUnchangedWrites())
+                && messageModel.getFunctionCode() != null
+                && (messageModel.getFunctionCode() == 6 || messageModel.getFunctionCode() == 16);
+    }
+
+    /**
+     * Gets the key of a device whose writes are filtered, the connection and device ID.
+     *
+     * @param messageModel    Configuration for the Modbus message format
+     * @param connectionModel Connection configuration for the Modbus device
+     * @return Key of the device
+     */
+    public static String getDevice(MessageModel messageModel, ConnectionModel connectionModel) {
+        return connectionModel.getName() + ":" + messageModel.getDeviceId();
+    }
+
+    /**
+     * Checks if registers of the device were written with suppression of unchanged writes.
+     *
+     * @param device Key of the device
+     * @return True if last written words are kept for the device
+     */
+    public boolean isTracked(String device) {
+        Map<Integer, WrittenRegister> registers = devices.get(device);
+        return registers != null && !registers.isEmpty();
+    }
+
+    /**
+     * Removes the write groups whose encoded words are the same as the last successful write to the device,
+     * using the write refresh interval of the message model.
+     *
+     * @param device       Key of the device, for example the connection name and device ID
+     * @param groups       Write groups of the Modbus cycle
+     * @param values       Map of register addresses to values to write
+     * @param messageModel Configuration for the Modbus message format
+     * @param writtenWords Encoded words of the groups that are written, filled by this method
+     * @param now          Current time in milliseconds
+     * @return Groups that have to be written
+     */
+    public List<List<ModbusModel>> filter(String device,
+                                          List<List<ModbusModel>> groups,
+                                          Map<Integer, Float> values,
+                                          MessageModel messageModel,
+                                          Map<List<ModbusModel>, int[]> writtenWords,
+                                          long now) {
+        List<List<ModbusModel>> changed = new ArrayList<>();
+
+        for (List<ModbusModel> group : groups) {
+            int[] words = ModbusHandler.buildRegisters(values, group, messageModel);
+
+            if (!suppress(device, group, words, messageModel.getWriteRefreshInterval(), now)) {
+                changed.add(group);
+                writtenWords.put(group, words);
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * Decides if a write of a register block can be skipped, and counts it if so.
+     *
+     * @param device          Key of the device, for example the connection name and device ID
+     * @param block           Registers written with the request, sorted by address
+     * @param words           Encoded words of the request, starting at the address of the first register
+     * @param refreshInterval Time in milliseconds after which unchanged registers are written again, null to never write them
+     * @param now             Current time in milliseconds
+     * @return True if the write has to be skipped
+     */
+    public boolean suppress(String device, List<ModbusModel> block, int[] words, Integer refreshInterval, long now) {
+        Map<Integer, WrittenRegister> registers = devices.get(device);
+        if (registers == null) {
+            return false;
+        }
+
+        int start = block.get(0).getAddress();
+
+        for (ModbusModel model : block) {
+            WrittenRegister written = registers.get(model.getAddress());
+
+            if (written == null || !Arrays.equals(written.words(), slice(words, start, model))) {
+                return false;
+            }
+
+            if (refreshInterval != null && now - written.time() >= refreshInterval) {
+                return false;
+            }
+        }
+
+        suppressedWrites.increment();
+        log.debug("Suppressed unchanged write of {} registers from address {} on device {}, {} writes suppressed in total",
+                words.length, start, device, suppressedWrites.sum());
+
+        return true;
+    }
+
+    /**
+     * Stores the words of a successful write as the last written values of its registers.
+     *
+     * @param device Key of the device
+     * @param block  Registers written with the request, sorted by address
+     * @param words  Encoded words of the request, starting at the address of the first register
+     * @param now    Current time in milliseconds
+     */
+    public void written(String device, List<ModbusModel> block, int[] words, long now) {
+        Map<Integer, WrittenRegister> registers = devices.computeIfAbsent(device, key -> new ConcurrentHashMap<>());
+        int start = block.get(0).getAddress();
+
+        for (ModbusModel model : block) {
+            registers.put(model.getAddress(), new WrittenRegister(slice(words, start, model), now));
+        }
+    }
+
+    /**
+     * Replaces the last written words of registers with the words read from the device if they differ,
+     * so a write restoring the previous words is not suppressed.
+     *
+     * @param device Key of the device
+     * @param start  Address of the first register read
+     * @param block  Big-endian register bytes of the read, starting at the address of the first register
+     * @param now    Current time in milliseconds
+     */
+    public void read(String device, int start, byte[] block, long now) {
+        Map<Integer, WrittenRegister> registers = devices.get(device);
+        if (registers == null) {
+            return;
+        }
+
+        int quantity = block.length / 2;
+
+        for (Map.Entry<Integer, WrittenRegister> entry : registers.entrySet()) {
+            int from = entry.getKey() - start;
+            int[] written = entry.getValue().words();
+            if (from < 0 || from + written.length > quantity) {
+                continue;
+            }
+
+            int[] words = new int[written.length];
+            for (int i = 0; i < words.length; i++) {
+                words[i] = (block[2 * (from + i)] & 0xFF) << 8 | block[2 * (from + i) + 1] & 0xFF;
+            }
+
+            if (!Arrays.equals(written, words)) {
+                log.debug("Register {} of device {} was changed since the last write", entry.getKey(), device);
+                entry.setValue(new WrittenRegister(words, now));
+            }
+        }
+    }
+
+    /**
+     * Forgets the last written values of registers whose write may have failed, so the next write is not suppressed.
+     *
+     * @param device Key of the device
+     * @param block  Registers of the failed request
+     */
+    public void forget(String device, List<ModbusModel> block) {
+        Map<Integer, WrittenRegister> registers = devices.get(device);
+        if (registers == null) {
+            return;
+        }
+
+        for (ModbusModel model : block) {
+            registers.remove(model.getAddress());
+        }
+    }
+
+    /**
+     * Returns the number of writes suppressed since the start.
+     *
+     * @return Number of suppressed writes
+     */
+    public long getSuppressedWrites() {
+        return suppressedWrites.sum();
+    }
+
+    private static int[] slice(int[] words, int start, ModbusModel model) {
+        int from = Math.min(words.length, model.getAddress() - start);
+        int to = Math.min(words.length, from + ModbusHandler.getNumOfRegisters(model.getType()));
+
+        // Words are compared as read from the device, without the sign of 16-bit values
+        return Arrays.stream(Arrays.copyOfRange(words, from, to)).map(word -> word & 0xFFFF).toArray();
+    }
+
+    private record WrittenRegister(int[] words, long time) {
+    }
+}
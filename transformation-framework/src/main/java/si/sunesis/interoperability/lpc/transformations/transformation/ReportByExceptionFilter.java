@@ -0,0 +1,148 @@
+/*
+ *  Copyright (c) 2023-2024 Sunesis and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package si.sunesis.interoperability.lpc.transformations.transformation;
+
+import lombok.extern.slf4j.Slf4j;
+import si.sunesis.interoperability.lpc.transformations.configuration.models.IntervalRequestModel;
+import si.sunesis.interoperability.lpc.transformations.configuration.models.ModbusModel;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Report-by-exception filter for Modbus interval polls.
+ * Keeps the last published register values per device and decides if a newly read set of registers
+ * has to be published. A register is changed when its value moved more than its absolute or percent deadband
+ * from the last published value. Registers without a deadband are changed on any difference.
+ * If nothing changed, the registers are still published after the max-silence interval.
+ *
+ * @author David Trafela, Sunesis
+ * @since 1.6.0
+ */
+@Slf4j
+public class ReportByExceptionFilter {
+
+    private final Integer maxSilence;
+
+    private final Map<String, PublishedState> publishedStates = new ConcurrentHashMap<>();
+
+    public ReportByExceptionFilter(IntervalRequestModel intervalRequestModel) {
+        this.maxSilence = intervalRequestModel.getMaxSilence();
+    }
+
+    /**
+     * Checks if report-by-exception is configured for the interval request,
+     * either with a max-silence interval or with a deadband on any of the registers.
+     *
+     * @param intervalRequestModel Interval request configuration
+     * @return True if the filter should be used for the interval request
+     */
+    public static boolean isConfigured(IntervalRequestModel intervalRequestModel) {
+        if (intervalRequestModel.getMaxSilence() != null) {
+            return true;
+        }
+
+        return intervalRequestModel.getRequest() != null && intervalRequestModel.getRequest().getModbusRegisters().stream()
+                .anyMatch(model -> model.getDeadband() != null || model.getDeadbandPercent() != null);
+    }
+
+    /**
+     * Decides if the registers read from a device have to be published.
+     * The registers are compared with the last published values, they are not recorded until
+     * {@link #published(String, RegisterValues, long)} is called after the message was sent.
+     *
+     * @param device         Key of the device, for example the connection name
+     * @param registerValues Register values read from the device
+     * @param models         Register definitions with deadbands
+     * @param now            Current time in milliseconds
+     * @return True if the registers have to be published
+     */
+    public boolean shouldPublish(String device, RegisterValues registerValues, List<ModbusModel> models, long now) {
+        PublishedState state = publishedStates.get(device);
+
+        return state == null
+                || (maxSilence != null && now - state.timestamp() >= maxSilence)
+                || isChanged(state.values(), registerValues, models);
+    }
+
+    /**
+     * Stores the registers as the last published values of the device.
+     * Must only be called once the message with the registers was sent, so a message that was not sent is not
+     * suppressed as unchanged by the next poll.
+     *
+     * @param device         Key of the device, for example the connection name
+     * @param registerValues Register values published for the device
+     * @param now            Current time in milliseconds
+     */
+    public void published(String device, RegisterValues registerValues, long now) {
+        PublishedState state = publishedStates.get(device);
+
+        // The published values of the device are updated in place, only the first publish allocates a store
+        RegisterValues values = state != null ? state.values() : new RegisterValues(registerValues.size());
+        values.putAll(registerValues);
+        publishedStates.put(device, new PublishedState(values, now));
+    }
+
+    private static boolean isChanged(RegisterValues published, RegisterValues registerValues, List<ModbusModel> models) {
+        for (ModbusModel model : models) {
+            int address = model.getAddress();
+
+            if (!registerValues.contains(address)) {
+                continue;
+            }
+
+            if (!published.contains(address) || exceedsDeadband(published, registerValues, address, model)) {
+                log.debug("Register {} changed from {} to {}", address, published.format(address), registerValues.format(address));
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean exceedsDeadband(RegisterValues published, RegisterValues registerValues, int address, ModbusModel model) {
+        if (published.getType(address) == RegisterValues.ValueType.BOOLEAN
+                || registerValues.getType(address) == RegisterValues.ValueType.BOOLEAN) {
+            return !published.equalsAt(address, registerValues);
+        }
+
+        double last = published.getDouble(address);
+        double difference = Math.abs(registerValues.getDouble(address) - last);
+
+        if (model.getDeadband() == null && model.getDeadbandPercent() == null) {
+            return difference > 0;
+        }
+
+        double deadband = 0;
+        if (model.getDeadband() != null) {
+            deadband = model.getDeadband();
+        }
+        if (model.getDeadbandPercent() != null) {
+            deadband = Math.max(deadband, Math.abs(last) * model.getDeadbandPercent() / 100);
+        }
+
+        return difference > deadband;
+    }
+
+    private record PublishedState(RegisterValues values, long timestamp) {
+    }
+}
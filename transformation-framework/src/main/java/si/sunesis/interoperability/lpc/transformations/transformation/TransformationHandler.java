@@ -26,20 +26,26 @@ import com.intelligt.modbus.jlibmodbus.exception.IllegalDataAddressException;
 import com.intelligt.modbus.jlibmodbus.exception.ModbusIOException;
 import com.intelligt.modbus.jlibmodbus.exception.ModbusNumberException;
 import com.intelligt.modbus.jlibmodbus.msg.base.ModbusRequest;
+import com.intelligt.modbus.jlibmodbus.msg.base.ModbusResponse;
+import com.intelligt.modbus.jlibmodbus.utils.ModbusFunctionCode;
 import lombok.extern.slf4j.Slf4j;
 import si.sunesis.interoperability.common.exceptions.HandlerException;
 import si.sunesis.interoperability.common.interfaces.RequestHandler;
 import si.sunesis.interoperability.lpc.transformations.configuration.models.*;
 import si.sunesis.interoperability.lpc.transformations.connections.Connections;
+import si.sunesis.interoperability.lpc.transformations.enums.PollMode;
 import si.sunesis.interoperability.lpc.transformations.enums.ValidateIEEE2030Dot5;
 import si.sunesis.interoperability.lpc.transformations.exceptions.LPCException;
+import si.sunesis.interoperability.lpc.transformations.exceptions.ModbusPduException;
+import si.sunesis.interoperability.lpc.transformations.modbus.ModbusPdu;
+import si.sunesis.interoperability.lpc.transformations.modbus.ModbusTransport;
+import si.sunesis.interoperability.lpc.transformations.modbus.PythonModbusFrame;
+import si.sunesis.interoperability.lpc.transformations.modbus.RegisterSnapshotCache;
+import si.sunesis.interoperability.lpc.transformations.modbus.SerialBusArbiter;
 import si.sunesis.interoperability.lpc.transformations.utils.TimeUtils;
 import si.sunesis.interoperability.modbus.ModbusClient;
 
 import javax.json.JsonObject;
-import javax.ws.rs.client.*;
-import javax.ws.rs.core.MediaType;
-import javax.ws.rs.core.Response;
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Type;
@@ -48,6 +54,8 @@ import java.nio.file.Paths;
 import java.text.ParseException;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -70,18 +78,34 @@ public class TransformationHandler {
 
     ScheduledExecutorService executorService = Executors
             .newScheduledThreadPool(1);
-    private ScheduledFuture<?> modbusScheduledFuture;
+    // Polls Modbus connections in parallel, created by the first poll in the concurrent poll mode
+    private ExecutorService pollExecutorService;
+    private PollCycleScheduler pollCycleScheduler;
     private ScheduledFuture<?> scheduledFuture;
 
     private Map<String, String> mappingsCache = null;
 
+    private final ReportByExceptionFilter reportByExceptionFilter;
+
+    // Register values of completed poll cycles per connection, reused by the next cycle
+    private final Map<String, RegisterValues> registerValuesPool = new ConcurrentHashMap<>();
+
     private RegistrationModel registration;
 
-    private final String port = System.getenv("PYTHON_PORT") != null ? System.getenv("PYTHON_PORT") : "9093";
+    // Merges bursts of register writes from the server, null if writes are not coalesced
+    private WriteCoalescer writeCoalescer;
+
+    // Selects the registers due in interval polls, null if no register has a poll class
+    private final PollClassTracker pollClassTracker;
 
-    // Use a connection pool configuration for the client
-    private final javax.ws.rs.client.Client webClient;
-    private final WebTarget webTarget;
+    // Nominal aligned time of the running interval poll, published instead of the time the poll completed
+    private volatile long pollTimestamp;
+
+    // Timeout of requests to the Python Modbus service that are not interval polls
+    private static final long PYTHON_REQUEST_TIMEOUT = 10000L;
+
+    // Added to the response timeout of the connection for the time spent in LPC and the Modbus library
+    private static final long REQUEST_TIMEOUT_MARGIN = 100L;
 
     public TransformationHandler(TransformationModel transformation, ObjectTransformer objectTransformer, Connections connections, RegistrationModel registrationModel) {
         this.transformation = transformation;
@@ -91,32 +115,17 @@ public class TransformationHandler {
 
         log.info("Transformation: {}", transformation.getName());
 
-        // Initialize client with connection pooling and retry configuration
-        org.glassfish.jersey.client.ClientConfig clientConfig = new org.glassfish.jersey.client.ClientConfig();
-
-        clientConfig.property("jersey.config.client.connectionPoolSize", 20);
-        clientConfig.property("jersey.config.client.keepAlive", true);
-
-        // Configure timeouts - more generous timeouts
-        clientConfig.property("jersey.config.client.connectTimeout", 90000);  // 90 seconds
-        clientConfig.property("jersey.config.client.readTimeout", 90000);     // 90 seconds
-
-        // Register custom tracing filter
-        clientConfig.register((ClientRequestFilter) requestContext -> log.debug("Sending HTTP request to Python Modbus service: {}",
-                requestContext.getMethod() + " " + requestContext.getUri()));
-
-        // Register response filter
-        clientConfig.register((ClientResponseFilter) (requestContext, responseContext) -> log.debug("Received HTTP response from Python Modbus service: {} {}",
-                responseContext.getStatus(),
-                responseContext.getStatusInfo().getReasonPhrase()));
+        if (transformation.getIntervalRequest() != null && ReportByExceptionFilter.isConfigured(transformation.getIntervalRequest())) {
+            reportByExceptionFilter = new ReportByExceptionFilter(transformation.getIntervalRequest());
+        } else {
+            reportByExceptionFilter = null;
+        }
 
-        // Create the client with the configuration
-        webClient = ClientBuilder.newBuilder()
-                .withConfig(clientConfig)
-                .connectTimeout(90, java.util.concurrent.TimeUnit.SECONDS)
-                .readTimeout(90, java.util.concurrent.TimeUnit.SECONDS)
-                .build();
-        webTarget = webClient.target("http://localhost:" + port + "/").path("modbus");
+        if (transformation.getIntervalRequest() != null && PollClassTracker.isConfigured(transformation.getIntervalRequest())) {
+            pollClassTracker = new PollClassTracker(transformation.getIntervalRequest());
+        } else {
+            pollClassTracker = null;
+        }
     }
 
     /**
@@ -204,22 +213,40 @@ public class TransformationHandler {
             scheduledFuture.cancel(false);
             scheduledFuture = null;
         }
-        if (modbusScheduledFuture != null) {
-            modbusScheduledFuture.cancel(false);
-            modbusScheduledFuture = null;
+        if (pollCycleScheduler != null) {
+            pollCycleScheduler.cancel();
+            pollCycleScheduler = null;
+            connections.getPollPhasePlanner().release(transformation.getName());
+        }
+        if (writeCoalescer != null) {
+            writeCoalescer.close();
+            writeCoalescer = null;
         }
 
         for (Map.Entry<String, RequestHandler> entry : connections.getConnectionsMap().entrySet()) {
             entry.getValue().disconnect();
         }
 
+        for (ModbusTransport transport : connections.getModbusTransportMap().values()) {
+            transport.disconnect();
+        }
+
+        for (ModbusTransport transport : connections.getLenientModbusTransportMap().values()) {
+            transport.disconnect();
+        }
+
+        connections.getSerialBusArbiterMap().values().stream().distinct().forEach(SerialBusArbiter::shutdown);
+
         incomingConnections.clear();
         outgoingConnections.clear();
 
-        // Close the HTTP client
-        if (webClient != null) {
-            webClient.close();
+        synchronized (this) {
+            if (pollExecutorService != null) {
+                pollExecutorService.shutdownNow();
+            }
         }
+
+        connections.getPythonModbusClient().close();
     }
 
     /**
@@ -257,10 +284,16 @@ public class TransformationHandler {
             throw new LPCException("Modbus connections are not supported as outgoing connections");
         }
 
-        for (ModbusClient modbusClient : connections.getModbusConnections(incomingConnectionNames).values()) {
+        for (Map.Entry<String, ModbusClient> entry : connections.getModbusConnections(incomingConnectionNames).entrySet()) {
+            ModbusTransport transport = connections.getModbusTransport(entry.getKey());
+
             try {
-                modbusClient.getClient().connect();
-            } catch (ModbusIOException ignored) {
+                if (transport != null) {
+                    transport.connect();
+                } else {
+                    entry.getValue().getClient().connect();
+                }
+            } catch (ModbusIOException | IOException ignored) {
                 log.warn("Modbus connection failed");
             }
         }
@@ -382,6 +415,11 @@ public class TransformationHandler {
 
                 log.debug("Subscribing to incoming topic for Modbus: {}", outgoingTopic);
 
+                if (isCoalescedWrite(messageModel)) {
+                    writeCoalescer = new WriteCoalescer("write-coalescer-" + transformation.getName(), messageModel,
+                            values -> sendModbusRequests(values, incomingModbusConnections, outgoingConnections, messageModel));
+                }
+
                 for (RequestHandler outgoingConnection : outgoingConnections) {
                     outgoingConnection.subscribe(outgoingTopic, message -> {
                         String msg = new String((byte[]) message);
@@ -397,7 +435,13 @@ public class TransformationHandler {
                         }
 
                         try {
-                            buildModbusRequests(msg, incomingModbusConnections, outgoingConnections, messageModel);
+                            if (writeCoalescer != null) {
+                                writeCoalescer.submit(objectTransformer.transformToModbus(messageModel.getModbusRegisters(),
+                                        msg,
+                                        transformation.getConnections().getOutgoingFormat()));
+                            } else {
+                                buildModbusRequests(msg, incomingModbusConnections, outgoingConnections, messageModel);
+                            }
                         } catch (ModbusNumberException | ParseException e) {
                             log.error("Error building modbus requests", e);
                         }
@@ -415,8 +459,9 @@ public class TransformationHandler {
      * @param topic       The topic to publish the message to
      * @param connections List of connection handlers to publish through
      * @param retryCount  Number of retry attempts for failed publishes
+     * @return True if the message was published through all connections
      */
-    private void sendMessage(String message, String topic, List<RequestHandler> connections, int retryCount) {
+    private boolean sendMessage(String message, String topic, List<RequestHandler> connections, int retryCount) {
         Map<RequestHandler, String[]> failed = new HashMap<>();
 
         log.debug("Publishing message to topic: {} with message: {}", topic, message);
@@ -440,40 +485,59 @@ public class TransformationHandler {
 
         if (retryCount > 0) {
             for (int i = 0; i < retryCount; i++) {
-                for (Map.Entry<RequestHandler, String[]> entry : failed.entrySet()) {
+                Iterator<Map.Entry<RequestHandler, String[]>> iterator = failed.entrySet().iterator();
+                while (iterator.hasNext()) {
+                    Map.Entry<RequestHandler, String[]> entry = iterator.next();
                     try {
                         log.debug("Retrying to publish message");
                         entry.getKey().publish(entry.getValue()[0], entry.getValue()[1]);
-                        failed.remove(entry.getKey());
+                        iterator.remove();
                     } catch (HandlerException e) {
                         log.error("Error publishing failed message", e);
                     }
                 }
             }
         }
+
+        return failed.isEmpty();
     }
 
     /**
      * Sends Modbus requests to a Modbus device using either Java or Python libraries.
      * Groups requests for efficiency, sends them in parallel, and implements retry logic for failed requests.
      * Supports both TCP/IP and serial connections.
+     * Every request has a deadline derived from the response timeout of the connection, requests not answered before
+     * the deadline of the cycle are cancelled and their late responses do not change the register values.
      *
      * @param modbusClient     The Modbus client to use for sending requests
      * @param connectionModel  Connection configuration for the Modbus device
      * @param msgToRegisterMap Map of register addresses to values from the incoming message
-     * @param registerMap      Map to store register values read from or written to the device
+     * @param registerValues   Store for register values read from or written to the device
      * @param messageModel     Configuration for the Modbus message format
+     * @param registers        Registers to read or write, only the due registers for interval polls with poll classes
      */
     private void sendModbusRequest(ModbusClient modbusClient,
                                    ConnectionModel connectionModel,
                                    Map<Integer, Float> msgToRegisterMap,
-                                   Map<Integer, Object> registerMap,
-                                   MessageModel messageModel) {
-        ArrayList<List<ModbusModel>> failed = new ArrayList<>();
-
-        List<List<ModbusModel>> groups = getModbusGroups(messageModel, registerMap);
+                                   RegisterValues registerValues,
+                                   MessageModel messageModel,
+                                   List<ModbusModel> registers) {
+        String device = RegisterWriteFilter.getDevice(messageModel, connectionModel);
+
+        List<List<ModbusModel>> groups;
+        if (isCoalescedWrite(messageModel)) {
+            // Only registers with a value are written, merged into contiguous blocks
+            groups = WriteCoalescer.plan(messageModel, msgToRegisterMap);
+        } else {
+            groups = getModbusGroups(messageModel, registers, registerValues, RegisterHoleMap.getLayout(messageModel, connectionModel),
+                    device);
+        }
 
-        CountDownLatch latch = new CountDownLatch(groups.size());
+        Map<List<ModbusModel>, int[]> writtenWords = new IdentityHashMap<>();
+        if (RegisterWriteFilter.isConfigured(messageModel)) {
+            groups = connections.getRegisterWriteFilter().filter(device, groups, msgToRegisterMap, messageModel, writtenWords,
+                    System.currentTimeMillis());
+        }
 
         if (groups.size() > 1) {
             log.info("Grouping Modbus requests");
@@ -484,99 +548,512 @@ public class TransformationHandler {
 
         log.debug("Using library: {}", messageModel.getModbusLibrary());
 
+        ModbusTransport transport = getModbusTransport(messageModel, connectionModel);
+        SerialBusArbiter arbiter = connections.getSerialBusArbiter(connectionModel.getName());
+        SerialBusArbiter.Priority priority = getBusPriority(messageModel);
+
+        long requestTimeout = getRequestTimeout(messageModel, connectionModel);
+        // Reads of registers tracked by the write filter are sent separately, as a batch does not return the register words
+        boolean batched = isPythonBatch(groups, isCachedRead(messageModel), messageModel, connectionModel)
+                && !isWriteFilterRead(messageModel, connectionModel);
+        // Blocks rejected with an illegal data address exception are bisected, which the Python service does not report
+        int bisectRequests = isRegisterRead(messageModel) && !isPythonRequest(messageModel, connectionModel)
+                ? RegisterHoleMap.getBisectRequests(groups)
+                : 0;
+        ModbusCycle cycle;
+        if (isIntervalRequest(messageModel) && isPythonRequest(messageModel, connectionModel)) {
+            // The service retries requests itself, so the whole poll including retries is bounded by the device timeout
+            // instead of blocking the scheduler for the device timeout of every request
+            cycle = new ModbusCycle(registerValues, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(getDeviceTimeout()));
+        } else {
+            // A batch sends all groups in one HTTP request, so it is bounded like a single request
+            cycle = ModbusCycle.start(registerValues, messageModel, requestTimeout, batched ? 1 : groups.size(), bisectRequests);
+        }
+
+        if (isRegisterWrite(messageModel)) {
+            // Registers read later must not be served from values cached before the write
+            invalidateWrittenRegisters(modbusClient, groups, messageModel);
+        }
+
+        try {
+            if (batched) {
+                // The whole cycle is sent in one HTTP request and read back-to-back on one connection
+                CompletableFuture<List<PythonModbusFrame.Response>> batch = sendPythonModbusBatch(cycle, msgToRegisterMap, groups, messageModel, connectionModel);
+                cycle.await(cycle.getDeadline());
+
+                if (batch.isCompletedExceptionally()) {
+                    log.warn("Batched Python Modbus request failed, sending groups separately");
+                    sendModbusGroups(cycle, cycle.getFailed(), requestTimeout, modbusClient, connectionModel, transport, arbiter, priority,
+                            msgToRegisterMap, messageModel);
+                }
+            } else {
+                sendModbusGroups(cycle, groups, requestTimeout, modbusClient, connectionModel, transport, arbiter, priority,
+                        msgToRegisterMap, messageModel);
+            }
+
+            if (isRegisterRead(messageModel)) {
+                bisectIllegalAddressGroups(cycle, requestTimeout, modbusClient, connectionModel, transport, arbiter, priority,
+                        messageModel);
+            }
+
+            // Retry logic for failed groups
+            for (int i = 0; i < messageModel.getRetryCount(); i++) {
+                List<List<ModbusModel>> failed = cycle.getFailed();
+                if (failed.isEmpty()) {
+                    break;
+                }
+
+                log.debug("Retrying {} failed Modbus groups", failed.size());
+                sendModbusGroups(cycle, failed, requestTimeout, modbusClient, connectionModel, transport, arbiter, priority,
+                        msgToRegisterMap, messageModel);
+            }
+        } catch (InterruptedException e) {
+            log.error("Interrupted while waiting for Modbus responses", e);
+            Thread.currentThread().interrupt();
+        }
+
+        boolean completed = cycle.isCompleted();
+        if (!completed) {
+            log.error("Modbus cycle of connection {} did not complete, {} groups failed", connectionModel.getName(), cycle.getFailed().size());
+        }
+
+        // Pending requests are cancelled, late responses do not change the register values anymore
+        cycle.close();
+
+        if (isRegisterWrite(messageModel)) {
+            // Reads started while the write was pending may have cached values from before the write
+            invalidateWrittenRegisters(modbusClient, groups, messageModel);
+        }
+
+        // Written words are only remembered if the whole cycle succeeded, a write that may have failed is never suppressed
+        long now = System.currentTimeMillis();
+        for (Map.Entry<List<ModbusModel>, int[]> entry : writtenWords.entrySet()) {
+            if (completed) {
+                connections.getRegisterWriteFilter().written(device, entry.getKey(), entry.getValue(), now);
+            } else {
+                connections.getRegisterWriteFilter().forget(device, entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * Removes written registers from the register snapshot cache.
+     * Input registers at the same addresses are removed as well, since some devices map holding registers
+     * to input registers.
+     *
+     * @param modbusClient The Modbus client of the connection
+     * @param groups       Groups of registers written
+     * @param messageModel Configuration for the Modbus message format
+     */
+    private void invalidateWrittenRegisters(ModbusClient modbusClient, List<List<ModbusModel>> groups, MessageModel messageModel) {
         for (List<ModbusModel> group : groups) {
-            try {
-                // If Host is null, it means it is Serial connection
-                if (messageModel.getModbusLibrary().equalsIgnoreCase("java") || connectionModel.getHost() == null) {
-                    ModbusRequest request = ModbusHandler.buildJavaModbusRequest(msgToRegisterMap, group, messageModel);
+            int start = group.get(0).getAddress();
+            int quantity = ModbusReadPlanner.getBlockQuantity(group);
 
-                    modbusClient.requestReply(request, String.valueOf(messageModel.getDeviceId()), msg -> {
-                        try {
-                            ModbusHandler.handleJavaModbusResponse(msg, registerMap, group, messageModel);
-                        } catch (IllegalDataAddressException e) {
-                            log.error("Illegal data address in group response", e);
-                        } finally {
-                            latch.countDown();
-                        }
-                    });
+            connections.getRegisterSnapshotCache().invalidate(modbusClient, messageModel.getDeviceId(),
+                    ModbusFunctionCode.READ_HOLDING_REGISTERS.toInt(), start, quantity);
+            connections.getRegisterSnapshotCache().invalidate(modbusClient, messageModel.getDeviceId(),
+                    ModbusFunctionCode.READ_INPUT_REGISTERS.toInt(), start, quantity);
+        }
+    }
+
+    /**
+     * Learns unreadable registers of the device from read blocks that failed with an illegal data address exception.
+     * Each failed block is split into two halves that are read separately. If both halves are readable, the registers
+     * between them are stored as unreadable for the device model, and later reads are not coalesced across them.
+     * Halves that fail with the same exception are split again until single registers remain. A single register that
+     * still fails is stored as unreadable for the device only, and is not read until it is due to be read again.
+     *
+     * @param cycle           Modbus cycle tracking the requests
+     * @param requestTimeout  Timeout of a single request in milliseconds
+     * @param modbusClient    The Modbus client of the connection
+     * @param connectionModel Connection configuration for the Modbus device
+     * @param transport       Modbus transport of the connection, or null
+     * @param arbiter         Serial bus arbiter of the connection, or null
+     * @param priority        Priority of the requests on the serial bus
+     * @param messageModel    Configuration for the Modbus message format
+     * @throws InterruptedException If the thread is interrupted while waiting
+     */
+    private void bisectIllegalAddressGroups(ModbusCycle cycle,
+                                            long requestTimeout,
+                                            ModbusClient modbusClient,
+                                            ConnectionModel connectionModel,
+                                            ModbusTransport transport,
+                                            SerialBusArbiter arbiter,
+                                            SerialBusArbiter.Priority priority,
+                                            MessageModel messageModel) throws InterruptedException {
+        String layout = RegisterHoleMap.getLayout(messageModel, connectionModel);
+        String device = RegisterWriteFilter.getDevice(messageModel, connectionModel);
+
+        while (System.nanoTime() - cycle.getDeadline() < 0) {
+            List<List<List<ModbusModel>>> bisected = new ArrayList<>();
+
+            for (List<ModbusModel> group : cycle.getFailed()) {
+                if (!isIllegalDataAddress(cycle.getFailure(group))) {
+                    continue;
+                }
+
+                cycle.discard(group);
+                if (group.size() > 1) {
+                    bisected.add(RegisterHoleMap.bisect(group));
                 } else {
-                    javax.json.JsonObject modbusRequest = ModbusHandler.buildPythonModbusRequest(msgToRegisterMap, group, messageModel, connectionModel);
+                    connections.getRegisterHoleMap().learn(device, group.get(0), System.currentTimeMillis());
+                }
+            }
 
-                    log.debug("Request data: {}", modbusRequest);
+            if (bisected.isEmpty()) {
+                return;
+            }
 
-                    int maxRetries = 3;
-                    int retryCount = 0;
-                    boolean success = false;
+            log.info("Splitting {} Modbus read blocks that cover unreadable registers", bisected.size());
 
-                    while (!success) {
-                        success = sendPythonModbusRequest(modbusRequest, group, registerMap, messageModel, retryCount, maxRetries);
-                    }
+            List<List<ModbusModel>> halves = bisected.stream().flatMap(List::stream).toList();
+            sendModbusGroups(cycle, halves, requestTimeout, modbusClient, connectionModel, transport, arbiter, priority,
+                    Collections.emptyMap(), messageModel);
+
+            List<List<ModbusModel>> failed = cycle.getFailed();
+            for (List<List<ModbusModel>> pair : bisected) {
+                List<ModbusModel> first = pair.get(0);
+                List<ModbusModel> second = pair.get(1);
 
-                    latch.countDown();
+                if (failed.stream().noneMatch(group -> group == first || group == second)) {
+                    connections.getRegisterHoleMap().learn(layout, first, second);
                 }
-            } catch (InterruptedException ie) {
-                log.error("Error during retrying Modbus request", ie);
-                latch.countDown();
-                failed.add(group);
-                Thread.currentThread().interrupt();
-            } catch (Exception e) {
-                log.error("Error building or sending grouped Modbus request", e);
-                latch.countDown();
-                failed.add(group);
             }
         }
+    }
+
+    /**
+     * Checks if a request failed because the device responded with an illegal data address exception.
+     *
+     * @param throwable Cause of the failed request
+     * @return True if the device does not allow reading some of the requested registers
+     */
+    private static boolean isIllegalDataAddress(Throwable throwable) {
+        return throwable instanceof IllegalDataAddressException
+                || (throwable instanceof ModbusPduException modbusPduException
+                && modbusPduException.getExceptionCode() == ModbusPduException.ILLEGAL_DATA_ADDRESS);
+    }
+
+    /**
+     * Sends the requests of register groups and waits until they are processed.
+     * Requests on a connection are executed one after another, so the deadline of every request
+     * is one request timeout after the deadline of the previous one, bounded by the deadline of the cycle.
+     *
+     * @param cycle            Modbus cycle tracking the requests
+     * @param groups           Groups of registers to request
+     * @param requestTimeout   Timeout of a single request in milliseconds
+     * @param modbusClient     The Modbus client of the connection
+     * @param connectionModel  Connection configuration for the Modbus device
+     * @param transport        Modbus transport of the connection, or null
+     * @param arbiter          Serial bus arbiter of the connection, or null
+     * @param priority         Priority of the requests on the serial bus
+     * @param msgToRegisterMap Map of register addresses to values from the incoming message
+     * @param messageModel     Configuration for the Modbus message format
+     * @throws InterruptedException If the thread is interrupted while waiting
+     */
+    private void sendModbusGroups(ModbusCycle cycle,
+                                  List<List<ModbusModel>> groups,
+                                  long requestTimeout,
+                                  ModbusClient modbusClient,
+                                  ConnectionModel connectionModel,
+                                  ModbusTransport transport,
+                                  SerialBusArbiter arbiter,
+                                  SerialBusArbiter.Priority priority,
+                                  Map<Integer, Float> msgToRegisterMap,
+                                  MessageModel messageModel) throws InterruptedException {
+        long start = System.nanoTime();
+        long requestDeadline = start;
+
+        for (List<ModbusModel> group : groups) {
+            requestDeadline = Math.min(cycle.getDeadline(), requestDeadline + TimeUnit.MILLISECONDS.toNanos(requestTimeout));
+            sendModbusGroup(cycle, group, requestDeadline, modbusClient, connectionModel, transport, arbiter, priority,
+                    msgToRegisterMap, messageModel);
+        }
+
+        cycle.await(requestDeadline);
+    }
 
+    /**
+     * Sends the request of a single register group through the transport, serial bus or library of the connection,
+     * and tracks it in the Modbus cycle.
+     *
+     * @param cycle            Modbus cycle tracking the request
+     * @param group            Group of registers to request
+     * @param requestDeadline  Deadline of the request in {@link System#nanoTime()} units
+     * @param modbusClient     The Modbus client of the connection
+     * @param connectionModel  Connection configuration for the Modbus device
+     * @param transport        Modbus transport of the connection, or null
+     * @param arbiter          Serial bus arbiter of the connection, or null
+     * @param priority         Priority of the request on the serial bus
+     * @param msgToRegisterMap Map of register addresses to values from the incoming message
+     * @param messageModel     Configuration for the Modbus message format
+     */
+    private void sendModbusGroup(ModbusCycle cycle,
+                                 List<ModbusModel> group,
+                                 long requestDeadline,
+                                 ModbusClient modbusClient,
+                                 ConnectionModel connectionModel,
+                                 ModbusTransport transport,
+                                 SerialBusArbiter arbiter,
+                                 SerialBusArbiter.Priority priority,
+                                 Map<Integer, Float> msgToRegisterMap,
+                                 MessageModel messageModel) {
         try {
-            boolean await = latch.await(1100L * groups.size(), TimeUnit.MILLISECONDS);
-            if (!await) {
-                log.error("Timed out waiting for group response");
+            if (isCachedRead(messageModel)) {
+                // Fresh registers are reused from the cache, pending reads of the same block are shared
+                CompletableFuture<byte[]> read = connections.getRegisterSnapshotCache().read(modbusClient, messageModel.getDeviceId(), messageModel.getFunctionCode(),
+                        group.get(0).getAddress(), ModbusReadPlanner.getBlockQuantity(group), messageModel.getCacheMaxAge(),
+                        () -> readRegisterBlock(modbusClient, connectionModel, transport, arbiter, priority, requestDeadline, group, messageModel));
+
+                // The read may be shared with other transformations, only the copy of this cycle is cancelled
+                cycle.track(group, read.copy(), requestDeadline,
+                        (bytes, values) -> handleRegisterBlock(bytes, values, group, messageModel, connectionModel));
+            } else if (isWriteFilterRead(messageModel, connectionModel)) {
+                // Registers written with suppression of unchanged writes are read back as raw words
+                cycle.track(group, readRegisterBlock(modbusClient, connectionModel, transport, arbiter, priority, requestDeadline, group, messageModel),
+                        requestDeadline, (bytes, values) -> handleRegisterBlock(bytes, values, group, messageModel, connectionModel));
+            } else if (transport != null && !isPythonLibrary(messageModel)) {
+                // Pipelined transport, all groups are sent without waiting for the previous response
+                byte[] pdu = ModbusHandler.buildModbusPdu(msgToRegisterMap, group, messageModel);
+                if (pdu == null) {
+                    return;
+                }
+
+                cycle.track(group, transport.request(messageModel.getDeviceId(), pdu), requestDeadline,
+                        (response, values) -> ModbusHandler.handleModbusPduResponse(response, values, group, messageModel));
+            } else if (!isPythonLibrary(messageModel) || connectionModel.getHost() == null) {
+                // If Host is null, it means it is Serial connection
+                ModbusRequest request = ModbusHandler.buildJavaModbusRequest(msgToRegisterMap, group, messageModel);
+                CompletableFuture<ModbusResponse> reply;
+
+                if (arbiter != null) {
+                    // Shared serial bus, the request is queued until the bus is free
+                    reply = sendSerialBusRequest(arbiter, priority, requestDeadline, modbusClient, request, messageModel, connectionModel);
+                } else {
+                    reply = new CompletableFuture<>();
+                    modbusClient.requestReply(request, String.valueOf(messageModel.getDeviceId()), reply::complete);
+                }
+
+                cycle.track(group, reply, requestDeadline,
+                        (response, values) -> ModbusHandler.handleJavaModbusResponse(response, values, group, messageModel));
+            } else {
+                JsonObject modbusRequest = ModbusHandler.buildPythonModbusRequest(msgToRegisterMap, group, messageModel, connectionModel);
+
+                cycle.track(group, connections.getPythonModbusClient().request(modbusRequest, requestDeadline), requestDeadline,
+                        (response, values) -> ModbusHandler.handlePythonModbusResponse(response, values, group, messageModel));
             }
-        } catch (InterruptedException e) {
-            log.error("Error waiting for latch", e);
-            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Error building or sending grouped Modbus request", e);
+            cycle.fail(List.of(group), e);
         }
+    }
 
-        // Retry logic for failed groups
-        if (messageModel.getRetryCount() > 0) {
-            for (int i = 0; i < messageModel.getRetryCount(); i++) {
-                for (List<ModbusModel> group : failed) {
-                    try {
-                        if (messageModel.getModbusLibrary().equalsIgnoreCase("java") || connectionModel.getHost() == null) {
-                            ModbusRequest request = ModbusHandler.buildJavaModbusRequest(msgToRegisterMap, group, messageModel);
-                            modbusClient.requestReply(request, String.valueOf(messageModel.getDeviceId()), msg -> {
-                                try {
-                                    ModbusHandler.handleJavaModbusResponse(msg, registerMap, group, messageModel);
-                                    failed.remove(group);
-                                } catch (IllegalDataAddressException e) {
-                                    log.error("Illegal data address in group response", e);
-                                }
-                            });
-                        } else {
-                            JsonObject modbusRequest = ModbusHandler.buildPythonModbusRequest(msgToRegisterMap, group, messageModel, connectionModel);
+    /**
+     * Reads a block of registers from the device using the transport, serial bus or library of the connection.
+     *
+     * @param modbusClient    The Modbus client of the connection
+     * @param connectionModel Connection configuration for the Modbus device
+     * @param transport       Modbus transport of the connection, or null
+     * @param arbiter         Serial bus arbiter of the connection, or null
+     * @param priority        Priority of the request on the serial bus
+     * @param deadline        Deadline of the request on the serial bus in {@link System#nanoTime()} units
+     * @param group           Group of registers to read
+     * @param messageModel    Configuration for the Modbus message format
+     * @return Future completed with the big-endian register bytes of the block, failed with a {@link ModbusPduException}
+     * if the device responded with an exception, or with an {@link LPCException} if registers of the block are missing
+     */
+    private CompletableFuture<byte[]> readRegisterBlock(ModbusClient modbusClient,
+                                                        ConnectionModel connectionModel,
+                                                        ModbusTransport transport,
+                                                        SerialBusArbiter arbiter,
+                                                        SerialBusArbiter.Priority priority,
+                                                        long deadline,
+                                                        List<ModbusModel> group,
+                                                        MessageModel messageModel) {
+        Map<Integer, Float> noValues = Collections.emptyMap();
+        int quantity = ModbusReadPlanner.getBlockQuantity(group);
+
+        CompletableFuture<byte[]> read;
+        try {
+            if (transport != null && !isPythonLibrary(messageModel)) {
+                read = transport.request(messageModel.getDeviceId(), ModbusHandler.buildModbusPdu(noValues, group, messageModel))
+                        .thenApply(ModbusPdu::getData);
+            } else if (!isPythonLibrary(messageModel) || connectionModel.getHost() == null) {
+                ModbusRequest request = ModbusHandler.buildJavaModbusRequest(noValues, group, messageModel);
+
+                if (arbiter != null) {
+                    read = sendSerialBusRequest(arbiter, priority, deadline, modbusClient, request, messageModel, connectionModel)
+                            .thenApply(response -> getRegisterBytes(response, messageModel));
+                } else {
+                    CompletableFuture<ModbusResponse> reply = new CompletableFuture<>();
+                    modbusClient.requestReply(request, String.valueOf(messageModel.getDeviceId()), reply::complete);
 
-                            int maxRetries = 3;
-                            int retryCount = 0;
-                            boolean success = false;
+                    read = reply.orTimeout(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)
+                            .thenApply(response -> getRegisterBytes(response, messageModel));
+                }
+            } else {
+                JsonObject modbusRequest = ModbusHandler.buildPythonModbusRequest(noValues, group, messageModel, connectionModel);
 
-                            while (!success) {
-                                success = sendPythonModbusRequest(modbusRequest, group, registerMap, messageModel, retryCount, maxRetries);
+                read = connections.getPythonModbusClient().request(modbusRequest, deadline)
+                        .thenApply(ModbusHandler::getRegisterBytes);
+            }
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
 
-                                if (success) {
-                                    failed.remove(group);
-                                }
-                            }
-                        }
-                    } catch (InterruptedException ie) {
-                        log.error("Error during retrying Modbus request", ie);
-                        Thread.currentThread().interrupt();
-                    } catch (Exception e) {
-                        log.error("Error retrying Modbus request", e);
-                    }
-                }
+        // Exception responses and short responses must fail the read, so they are neither cached nor treated as success
+        return read.thenApply(bytes -> {
+            try {
+                return ModbusHandler.checkRegisterBytes(bytes, quantity);
+            } catch (LPCException e) {
+                throw new CompletionException(e);
             }
+        });
+    }
+
+    /**
+     * Decodes a read register block into register values. Holding registers read from a device whose writes are filtered
+     * replace the last written words that differ, so a later write is not suppressed by stale words.
+     *
+     * @param bytes           Big-endian register bytes of the block
+     * @param values          Store for the decoded register values
+     * @param group           Group of registers read
+     * @param messageModel    Configuration for the Modbus message format
+     * @param connectionModel Connection configuration for the Modbus device
+     */
+    private void handleRegisterBlock(byte[] bytes, RegisterValues values, List<ModbusModel> group, MessageModel messageModel,
+                                     ConnectionModel connectionModel) {
+        if (messageModel.getFunctionCode() == ModbusFunctionCode.READ_HOLDING_REGISTERS.toInt()) {
+            connections.getRegisterWriteFilter().read(RegisterWriteFilter.getDevice(messageModel, connectionModel),
+                    group.get(0).getAddress(), bytes, System.currentTimeMillis());
+        }
+
+        ModbusHandler.handleModbusBlock(bytes, values, group, messageModel);
+    }
+
+    /**
+     * Checks if holding registers read by the message model were written to the device with suppression of unchanged writes.
+     *
+     * @param messageModel    Configuration for the Modbus message format
+     * @param connectionModel Connection configuration for the Modbus device
+     * @return True if the read has to update the last written words of the device
+     */
+    private boolean isWriteFilterRead(MessageModel messageModel, ConnectionModel connectionModel) {
+        return messageModel.getFunctionCode() == ModbusFunctionCode.READ_HOLDING_REGISTERS.toInt()
+                && connections.getRegisterWriteFilter().isTracked(RegisterWriteFilter.getDevice(messageModel, connectionModel));
+    }
+
+    /**
+     * Gets the register bytes of a Java Modbus response, failing the read if the device responded with an exception.
+     *
+     * @param response     The Modbus response of a register read
+     * @param messageModel Configuration for the Modbus message format
+     * @return Raw register bytes
+     */
+    private static byte[] getRegisterBytes(ModbusResponse response, MessageModel messageModel) {
+        try {
+            return ModbusHandler.getRegisterBytes(response, messageModel.getFunctionCode());
+        } catch (ModbusPduException e) {
+            throw new CompletionException(e);
         }
     }
 
+    /**
+     * Checks if registers read by the message model can be served from the register snapshot cache.
+     *
+     * @param messageModel Configuration for the Modbus message format
+     * @return True if registers are read with function code 3 or 4 and a cache max age is configured
+     */
+    private boolean isCachedRead(MessageModel messageModel) {
+        return messageModel.getCacheMaxAge() != null && messageModel.getCacheMaxAge() > 0
+                && (messageModel.getFunctionCode() == ModbusFunctionCode.READ_HOLDING_REGISTERS.toInt()
+                || messageModel.getFunctionCode() == ModbusFunctionCode.READ_INPUT_REGISTERS.toInt());
+    }
+
+    /**
+     * Checks if the message model reads holding or input registers.
+     *
+     * @param messageModel Configuration for the Modbus message format
+     * @return True if registers are read with function code 3 or 4
+     */
+    private boolean isRegisterRead(MessageModel messageModel) {
+        return messageModel.getFunctionCode() != null
+                && (messageModel.getFunctionCode() == ModbusFunctionCode.READ_HOLDING_REGISTERS.toInt()
+                || messageModel.getFunctionCode() == ModbusFunctionCode.READ_INPUT_REGISTERS.toInt());
+    }
+
+    /**
+     * Checks if the message model writes holding registers.
+     *
+     * @param messageModel Configuration for the Modbus message format
+     * @return True if registers are written with function code 6, 16 or 23
+     */
+    private boolean isRegisterWrite(MessageModel messageModel) {
+        return messageModel.getFunctionCode() != null
+                && (messageModel.getFunctionCode() == ModbusFunctionCode.WRITE_SINGLE_REGISTER.toInt()
+                || messageModel.getFunctionCode() == ModbusFunctionCode.WRITE_MULTIPLE_REGISTERS.toInt()
+                || messageModel.getFunctionCode() == ModbusFunctionCode.READ_WRITE_MULTIPLE_REGISTERS.toInt());
+    }
+
+    /**
+     * Checks if register writes from the server are coalesced for the message model.
+     *
+     * @param messageModel Configuration for the Modbus message format
+     * @return True if a coalescing window is configured for writes with function code 16
+     */
+    private boolean isCoalescedWrite(MessageModel messageModel) {
+        return WriteCoalescer.isConfigured(messageModel) && !isIntervalRequest(messageModel);
+    }
+
+    /**
+     * Queues a Modbus request on a shared serial bus, with the response timeout and turnaround of the connection.
+     *
+     * @param arbiter         Arbiter of the serial bus
+     * @param priority        Priority of the request on the bus
+     * @param deadline        Deadline in {@link System#nanoTime()} units after which the request is not sent anymore
+     * @param modbusClient    The Modbus client to send the request with, the master owned by the arbiter
+     * @param request         The Modbus request
+     * @param messageModel    Configuration for the Modbus message format
+     * @param connectionModel Connection configuration for the Modbus device
+     * @return Future completed with the Modbus response
+     */
+    private CompletableFuture<ModbusResponse> sendSerialBusRequest(SerialBusArbiter arbiter,
+                                                                   SerialBusArbiter.Priority priority,
+                                                                   long deadline,
+                                                                   ModbusClient modbusClient,
+                                                                   ModbusRequest request,
+                                                                   MessageModel messageModel,
+                                                                   ConnectionModel connectionModel) {
+        return arbiter.submit(priority, deadline, connectionModel.getResponseTimeout(), connectionModel.getTimeoutTurnaround(),
+                reply -> modbusClient.requestReply(request, String.valueOf(messageModel.getDeviceId()), reply::accept));
+    }
+
+    /**
+     * Determines the priority of a Modbus request on a shared serial bus.
+     * Requests triggered by messages from the server are executed before interval polls.
+     *
+     * @param messageModel Configuration for the Modbus message format
+     * @return Priority of the request
+     */
+    private SerialBusArbiter.Priority getBusPriority(MessageModel messageModel) {
+        if (isIntervalRequest(messageModel)) {
+            return SerialBusArbiter.Priority.POLL;
+        }
+
+        return SerialBusArbiter.Priority.COMMAND;
+    }
+
+    /**
+     * Checks if the message model is the request of the interval polling.
+     *
+     * @param messageModel Configuration for the Modbus message format
+     * @return True if the message model is polled periodically
+     */
+    private boolean isIntervalRequest(MessageModel messageModel) {
+        return transformation.getIntervalRequest() != null && transformation.getIntervalRequest().getRequest() == messageModel;
+    }
+
     /**
      * Sets up periodic request handling based on the configured interval.
      * Delegates to specific handlers for Modbus or standard protocol intervals.
@@ -651,16 +1128,27 @@ public class TransformationHandler {
      * Handles periodic requests for Modbus protocols.
      * Sets up a scheduled task that sends Modbus requests at specified intervals.
      * Unlike standard protocols, this directly initiates Modbus requests rather than publishing messages.
+     * Each poll is delayed by the phase planned by the site-wide {@link PollPhasePlanner},
+     * and its readings are published with the nominal time of the aligned tick.
+     * Polls taking longer than the interval are handled by the overrun policy of the {@link PollCycleScheduler}.
      */
     private void handleModbusInterval() {
         // Modbus request
         Map<String, ModbusClient> incomingModbusConnections = connections.getModbusConnections(transformation.getConnections().getIncomingConnections());
 
-        Integer interval = transformation.getIntervalRequest().getInterval();
+        IntervalRequestModel intervalRequest = transformation.getIntervalRequest();
+        Integer interval = intervalRequest.getInterval();
 
         Long delay = getIntervalDelay();
+        long phase = connections.getPollPhasePlanner().plan(transformation.getName(), interval,
+                intervalRequest.getPhaseMode(), intervalRequest.getPhaseOffset());
+
+        pollCycleScheduler = new PollCycleScheduler(transformation.getName(), executorService, interval, phase,
+                intervalRequest.getOverrunPolicy(), intervalRequest.getOverrunQueueLimit());
+
+        pollCycleScheduler.start(System.currentTimeMillis() + delay, tick -> {
+            pollTimestamp = tick;
 
-        modbusScheduledFuture = executorService.scheduleAtFixedRate(() -> {
             log.info("Publishing Modbus interval request");
             MessageModel messageModel = transformation.getIntervalRequest().getRequest();
 
@@ -671,7 +1159,7 @@ public class TransformationHandler {
             } catch (ParseException e) {
                 log.error("Error parsing message", e);
             }
-        }, delay, interval, TimeUnit.MILLISECONDS);
+        });
     }
 
     /**
@@ -699,110 +1187,356 @@ public class TransformationHandler {
                             transformation.getConnections().getOutgoingFormat());
         }
 
+        sendModbusRequests(msgToRegisterMap, incomingModbusConnections, outgoingConnections, messageModel);
+    }
+
+    /**
+     * Sends Modbus requests with the register values to all Modbus connections, then transforms and publishes the results.
+     * Interval polls are sent to the connections concurrently if concurrent polling is enabled, writes from the server
+     * are always sent to one connection after another and never cancelled.
+     *
+     * @param msgToRegisterMap          Map of register addresses to values from the incoming message
+     * @param incomingModbusConnections Map of Modbus client connections to use
+     * @param outgoingConnections       List of outgoing connections for publishing responses
+     * @param messageModel              Configuration for the Modbus message format
+     */
+    private void sendModbusRequests(Map<Integer, Float> msgToRegisterMap,
+                                    Map<String, ModbusClient> incomingModbusConnections,
+                                    List<RequestHandler> outgoingConnections,
+                                    MessageModel messageModel) {
+        if (isIntervalRequest(messageModel) && isConcurrentPolling() && incomingModbusConnections.size() > 1) {
+            pollModbusConnectionsConcurrently(incomingModbusConnections, outgoingConnections, messageModel);
+            return;
+        }
+
+        for (Map.Entry<String, ModbusClient> modbusName : incomingModbusConnections.entrySet()) {
+            pollModbusConnection(modbusName.getKey(), modbusName.getValue(), msgToRegisterMap, outgoingConnections, messageModel, null);
+        }
+    }
+
+    /**
+     * Polls all Modbus connections concurrently, each in its own task.
+     * Polls that do not complete within the device timeout are cancelled. A poll is either cancelled or published,
+     * whichever closes it first, so a cancelled poll is never published.
+     *
+     * @param incomingModbusConnections Map of Modbus client connections to use
+     * @param outgoingConnections       List of outgoing connections for publishing responses
+     * @param messageModel              Configuration of the interval request
+     */
+    private void pollModbusConnectionsConcurrently(Map<String, ModbusClient> incomingModbusConnections,
+                                                   List<RequestHandler> outgoingConnections,
+                                                   MessageModel messageModel) {
+        ExecutorService executor = getPollExecutorService(incomingModbusConnections.size());
+        Map<String, Future<?>> futures = new HashMap<>();
+        Map<String, AtomicBoolean> closed = new HashMap<>();
+
         for (Map.Entry<String, ModbusClient> modbusName : incomingModbusConnections.entrySet()) {
-            HashMap<Integer, Object> registerMap = new HashMap<>();
+            AtomicBoolean pollClosed = new AtomicBoolean();
+            closed.put(modbusName.getKey(), pollClosed);
+            futures.put(modbusName.getKey(), executor.submit(() ->
+                    pollModbusConnection(modbusName.getKey(), modbusName.getValue(), Collections.emptyMap(), outgoingConnections,
+                            messageModel, pollClosed)));
+        }
 
-            ConnectionModel connectionModel = connections.getConnectionModelMap().get(modbusName.getKey());
-            ModbusClient modbusClient = modbusName.getValue();
-            sendModbusRequest(modbusClient, connectionModel, msgToRegisterMap, registerMap, messageModel);
+        long deadline = System.currentTimeMillis() + getDeviceTimeout();
 
-            if (transformation.getToOutgoing() != null && !registerMap.isEmpty()) {
-                String transformedMessage = objectTransformer.transform(registerMap,
-                        transformation.getToOutgoing().getMessage(),
-                        transformation.getConnections().getIncomingFormat(),
-                        transformation.getConnections().getOutgoingFormat());
-                log.info("Transformed message: {}", transformedMessage);
+        for (Map.Entry<String, Future<?>> entry : futures.entrySet()) {
+            try {
+                entry.getValue().get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // A poll that is already publishing completes, it is not interrupted in the middle
+                if (closed.get(entry.getKey()).compareAndSet(false, true)) {
+                    log.warn("Modbus connection {} did not respond before the deadline", entry.getKey());
+                    entry.getValue().cancel(true);
+                }
+            } catch (ExecutionException e) {
+                log.error("Error polling Modbus connection {}", entry.getKey(), e.getCause());
+            } catch (InterruptedException e) {
+                log.error("Interrupted while polling Modbus connections", e);
+                closed.values().forEach(pollClosed -> pollClosed.set(true));
+                futures.values().forEach(future -> future.cancel(true));
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
 
-                String toTopic = transformation.getToOutgoing().getToTopic();
-                toTopic = replaceWithNatsId(toTopic,
-                        messageModel.getDeviceId());
-                toTopic = replacePlaceholders(toTopic);
+    /**
+     * Executes a Modbus cycle for a single connection, then transforms and publishes the registers read.
+     * The result of a concurrent poll is not published if the poll was cancelled because its deadline expired.
+     * Interval polls with poll classes only read the due registers, and publish the other registers with their latest values.
+     *
+     * @param connectionName      Name of the Modbus connection
+     * @param modbusClient        The Modbus client to use for sending requests
+     * @param msgToRegisterMap    Map of register addresses to values from the incoming message
+     * @param outgoingConnections List of outgoing connections for publishing responses
+     * @param messageModel        Configuration for the Modbus message format
+     * @param closed              Set when the poll is cancelled or published, or null if the poll cannot be cancelled
+     */
+    private void pollModbusConnection(String connectionName,
+                                      ModbusClient modbusClient,
+                                      Map<Integer, Float> msgToRegisterMap,
+                                      List<RequestHandler> outgoingConnections,
+                                      MessageModel messageModel,
+                                      AtomicBoolean closed) {
+        RegisterValues registerValues = registerValuesPool.remove(connectionName);
+        if (registerValues == null) {
+            registerValues = new RegisterValues(messageModel.getModbusRegisters().size());
+        } else {
+            registerValues.clear();
+        }
 
-                sendMessage(transformedMessage,
-                        toTopic,
-                        outgoingConnections,
-                        transformation.getToOutgoing().getRetryCount());
+        List<ModbusModel> registers = messageModel.getModbusRegisters();
+        boolean pollClasses = pollClassTracker != null && isIntervalRequest(messageModel);
+        long tick = pollTimestamp;
+
+        if (pollClasses) {
+            registers = pollClassTracker.getDue(connectionName, messageModel.getModbusRegisters(), tick);
+
+            if (registers.isEmpty()) {
+                log.debug("No poll class of connection {} is due", connectionName);
+                registerValuesPool.put(connectionName, registerValues);
+                return;
             }
         }
+
+        ConnectionModel connectionModel = connections.getConnectionModelMap().get(connectionName);
+        sendModbusRequest(modbusClient, connectionModel, msgToRegisterMap, registerValues, messageModel, registers);
+
+        if (pollClasses) {
+            // Registers that were not due are published with their latest values
+            pollClassTracker.complete(connectionName, messageModel.getModbusRegisters(), registers, registerValues, tick);
+        }
+
+        if (closed != null && !closed.compareAndSet(false, true)) {
+            log.warn("Modbus cycle for connection {} was cancelled", connectionName);
+            registerValuesPool.put(connectionName, registerValues);
+            return;
+        }
+
+        try {
+            // Interval polls are published with the nominal time of the tick they were started for
+            publishModbusValues(connectionName, registerValues, outgoingConnections, messageModel,
+                    isIntervalRequest(messageModel) ? tick : System.currentTimeMillis());
+        } finally {
+            // The cycle is closed, late responses cannot change the values anymore
+            registerValuesPool.put(connectionName, registerValues);
+        }
     }
 
     /**
-     * Sends a Modbus request to the Python-based Modbus service over HTTP.
-     * Processes the response and handles common errors with retry logic.
+     * Transforms and publishes the register values read in a Modbus cycle.
+     *
+     * @param connectionName      Name of the Modbus connection
+     * @param registerValues      Register values read from the device
+     * @param outgoingConnections List of outgoing connections for publishing responses
+     * @param messageModel        Configuration for the Modbus message format
+     * @param timestamp           Time of the readings in milliseconds
+     */
+    private void publishModbusValues(String connectionName,
+                                     RegisterValues registerValues,
+                                     List<RequestHandler> outgoingConnections,
+                                     MessageModel messageModel,
+                                     long timestamp) {
+        // Nothing is sent, so the report-by-exception filter must not record the values as published
+        if (transformation.getToOutgoing() == null || registerValues.isEmpty()) {
+            return;
+        }
+
+        boolean reportByException = reportByExceptionFilter != null && isIntervalRequest(messageModel);
+        if (reportByException
+                && !reportByExceptionFilter.shouldPublish(connectionName, registerValues, messageModel.getModbusRegisters(), System.currentTimeMillis())) {
+            log.debug("No register of connection {} changed beyond its deadband, skipping publish", connectionName);
+            return;
+        }
+
+        String transformedMessage = objectTransformer.transform(registerValues,
+                transformation.getToOutgoing().getMessage(),
+                transformation.getConnections().getIncomingFormat(),
+                transformation.getConnections().getOutgoingFormat(),
+                timestamp);
+        log.info("Transformed message: {}", transformedMessage);
+
+        String toTopic = transformation.getToOutgoing().getToTopic();
+        toTopic = replaceWithNatsId(toTopic,
+                messageModel.getDeviceId());
+        toTopic = replacePlaceholders(toTopic);
+
+        boolean sent = sendMessage(transformedMessage,
+                toTopic,
+                outgoingConnections,
+                transformation.getToOutgoing().getRetryCount());
+
+        // Values that were not sent are not recorded, so the next poll publishes them even if unchanged
+        if (reportByException && sent) {
+            reportByExceptionFilter.published(connectionName, registerValues, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Checks if requests of the message model are executed by the Python Modbus service.
+     *
+     * @param messageModel    Configuration for the Modbus message format
+     * @param connectionModel Connection configuration, serial connections have no host
+     * @return True if the Python library is configured for a TCP connection
+     */
+    private static boolean isPythonRequest(MessageModel messageModel, ConnectionModel connectionModel) {
+        return isPythonLibrary(messageModel) && connectionModel.getHost() != null;
+    }
+
+    /**
+     * Checks if the message model uses the Python Modbus library.
+     *
+     * @param messageModel Configuration for the Modbus message format
+     * @return True if the python library is configured
+     */
+    private static boolean isPythonLibrary(MessageModel messageModel) {
+        return messageModel.getModbusLibrary().equalsIgnoreCase("python");
+    }
+
+    /**
+     * Gets the Modbus transport used for the message model instead of the Modbus client.
+     * The java-lenient library always uses the lenient transport for Modbus TCP connections.
+     *
+     * @param messageModel    Configuration for the Modbus message format
+     * @param connectionModel Connection configuration for the Modbus device
+     * @return Modbus transport, or null if requests are sent through the Modbus client
+     */
+    private ModbusTransport getModbusTransport(MessageModel messageModel, ConnectionModel connectionModel) {
+        if (messageModel.getModbusLibrary().equalsIgnoreCase("java-lenient")) {
+            return connections.getLenientModbusTransport(connectionModel.getName());
+        }
+
+        return connections.getModbusTransport(connectionModel.getName());
+    }
+
+    /**
+     * Gets the timeout of a single Modbus request.
+     * Requests sent by LPC wait for the response timeout of the connection, or the unit timeout of a Modbus gateway,
+     * requests to the Python Modbus service must complete within the timeout of the whole cycle,
+     * because the service retries them itself.
+     *
+     * @param messageModel    Configuration for the Modbus message format
+     * @param connectionModel Connection configuration with the response timeout
+     * @return Timeout in milliseconds
+     */
+    private long getRequestTimeout(MessageModel messageModel, ConnectionModel connectionModel) {
+        if (isPythonRequest(messageModel, connectionModel)) {
+            return getPythonTimeout(messageModel);
+        }
+
+        if (Boolean.TRUE.equals(connectionModel.getGateway()) && connectionModel.getUnitTimeout() != null) {
+            return connectionModel.getUnitTimeout() + REQUEST_TIMEOUT_MARGIN;
+        }
+
+        return connectionModel.getResponseTimeout() + REQUEST_TIMEOUT_MARGIN;
+    }
+
+    /**
+     * Gets the time a request to the Python Modbus service may take.
+     * Interval polls must complete before the next poll, the whole poll cycle is bounded by the same time,
+     * other requests use a fixed timeout.
      *
-     * @param request      The JSON object containing the Modbus request details
-     * @param group        The group of Modbus registers to process in this request
-     * @param registerMap  Map to store register values from the response
      * @param messageModel Configuration for the Modbus message format
-     * @param retryCount   Current retry attempt counter
-     * @param maxRetries   Maximum number of retries to attempt
-     * @return True if the request was processed successfully, false otherwise
-     * @throws InterruptedException If the thread is interrupted during retry delays
-     */
-    private Boolean sendPythonModbusRequest(JsonObject
-                                                    request, List<ModbusModel> group, Map<Integer, Object> registerMap, MessageModel messageModel,
-                                            int retryCount, int maxRetries) throws InterruptedException {
-        Response response = null;
-        boolean success = false;
+     * @return Timeout in milliseconds
+     */
+    private long getPythonTimeout(MessageModel messageModel) {
+        if (isIntervalRequest(messageModel)) {
+            return getDeviceTimeout();
+        }
+
+        return PYTHON_REQUEST_TIMEOUT;
+    }
+
+    /**
+     * Checks whether the groups are sent to the Python Modbus service as a single batch request.
+     *
+     * @param groups          Groups of registers read in the cycle
+     * @param cachedRead      Whether the groups are read through the register snapshot cache
+     * @param messageModel    Message configuration with the Modbus library
+     * @param connectionModel Connection configuration, serial connections have no host
+     * @return True if the groups are sent as a batch
+     */
+    private static boolean isPythonBatch(List<List<ModbusModel>> groups, boolean cachedRead, MessageModel messageModel, ConnectionModel connectionModel) {
+        return groups.size() > 1 && !cachedRead && isPythonRequest(messageModel, connectionModel);
+    }
+
+    /**
+     * Sends all groups to the batch endpoint of the Python Modbus service and tracks the batch in the Modbus cycle.
+     * The responses are handled per group, the groups whose request failed are recorded as failed in the cycle.
+     *
+     * @param cycle            Modbus cycle tracking the batch
+     * @param msgToRegisterMap Map of register addresses to values to write
+     * @param groups           Groups of registers, one Modbus request per group
+     * @param messageModel     Message configuration with function code and device ID
+     * @param connectionModel  Connection configuration with host and port
+     * @return Future of the batch request, completed exceptionally if the batch itself failed
+     */
+    private CompletableFuture<List<PythonModbusFrame.Response>> sendPythonModbusBatch(ModbusCycle cycle, Map<Integer, Float> msgToRegisterMap,
+                                                            List<List<ModbusModel>> groups, MessageModel messageModel,
+                                                            ConnectionModel connectionModel) {
+        JsonObject batchRequest;
         try {
-            response = webTarget.request(MediaType.APPLICATION_JSON)
-                    .post(Entity.json(request));
-
-            if (response.hasEntity()) {
-                String responseString = response.readEntity(String.class);
-                log.debug("Received python response: {}", responseString);
-                ModbusHandler.handlePythonModbusResponse(responseString, registerMap, group, messageModel);
-            }
-            success = true;
-        } catch (javax.ws.rs.ProcessingException e) {
-            // Check if it's an EOFException or timeout
-            if (e.getCause() instanceof java.util.concurrent.ExecutionException &&
-                    e.getCause().getCause() instanceof java.io.EOFException) {
-                log.warn("EOFException occurred during HTTP request, retrying ({}/{})", retryCount + 1, maxRetries);
-                retryCount++;
-                if (retryCount >= maxRetries) {
-                    log.error("Max retries reached for HTTP request", e);
-                    throw e;
-                }
-                // Brief pause before retry
-                Thread.sleep(100L * retryCount);
-            } else {
-                // Other processing exception
-                log.error("Error processing HTTP request", e);
-                throw e;
-            }
+            batchRequest = ModbusHandler.buildPythonModbusBatchRequest(msgToRegisterMap, groups, messageModel, connectionModel);
         } catch (Exception e) {
-            log.error("Error sending Modbus request", e);
-            throw e;
-        } finally {
-            if (response != null) {
-                response.close();
-            }
+            log.error("Error building batched Python Modbus request", e);
+            cycle.fail(groups, e);
+            return CompletableFuture.failedFuture(e);
         }
 
-        return success;
+        CompletableFuture<List<PythonModbusFrame.Response>> batch = connections.getPythonModbusClient().requestBatch(batchRequest, cycle.getDeadline());
+        cycle.trackBatch(groups, batch, cycle.getDeadline(),
+                (response, values) -> ModbusHandler.handlePythonModbusBatchResponse(response, values, groups, messageModel));
+
+        return batch;
     }
 
     /**
      * Groups Modbus registers into consecutive blocks for more efficient communication.
      * Optimizes requests by grouping registers with consecutive addresses together.
      * Handles different function codes with appropriate grouping strategies.
+     * Registers read with function codes 3 and 4 are coalesced into blocks by the {@link ModbusReadPlanner},
+     * and the blocks are split at the unreadable registers learned for the device model and the device.
+     * Coils and discrete inputs read with function codes 1 and 2 are coalesced into blocks of bits.
      *
-     * @param messageModel Configuration for the Modbus message format containing register definitions
-     * @param registerMap  Map to store default register values defined in the configuration
+     * @param messageModel   Configuration for the Modbus message format
+     * @param registers      Register definitions to group
+     * @param registerValues Store for default register values defined in the configuration
+     * @param layout         Key of the learned register layout of the device
+     * @param device         Key of the device
      * @return List of register groups that can be processed in single Modbus transactions
      */
-    private List<List<ModbusModel>> getModbusGroups(MessageModel messageModel, Map<Integer, Object> registerMap) {
+    private List<List<ModbusModel>> getModbusGroups(MessageModel messageModel, List<ModbusModel> registers,
+                                                    RegisterValues registerValues, String layout, String device) {
         // Group ModbusModels into consecutive blocks
-        List<ModbusModel> sortedModels = new ArrayList<>(messageModel.getModbusRegisters());
+        List<ModbusModel> sortedModels = new ArrayList<>(registers);
         sortedModels.sort(Comparator.comparingInt(ModbusModel::getAddress));
 
         List<List<ModbusModel>> groups = new ArrayList<>();
         List<ModbusModel> currentGroup = new ArrayList<>();
 
+        if (messageModel.getFunctionCode() >= 1 && messageModel.getFunctionCode() <= 4) {
+            List<ModbusModel> readModels = new ArrayList<>();
+
+            for (ModbusModel model : sortedModels) {
+                if (model.getDefaultValue() != null) {
+                    registerValues.putFloat(model.getAddress(), model.getDefaultValue());
+                } else {
+                    readModels.add(model);
+                }
+            }
+
+            List<List<ModbusModel>> blocks = ModbusReadPlanner.plan(messageModel, readModels);
+            if (!isRegisterRead(messageModel)) {
+                return blocks;
+            }
+
+            return connections.getRegisterHoleMap().split(layout, device, blocks, System.currentTimeMillis());
+        }
+
         for (ModbusModel model : sortedModels) {
             if (model.getDefaultValue() != null) {
-                registerMap.put(model.getAddress(), model.getDefaultValue());
+                registerValues.putFloat(model.getAddress(), model.getDefaultValue());
             }
 
             if ((messageModel.getFunctionCode() != 16 && messageModel.getFunctionCode() != 23 && messageModel.getFunctionCode() != 11)
@@ -878,7 +1612,7 @@ public class TransformationHandler {
      *
      * @return The topic string with {natsId} replaced by the actual NATS ID
      */
-    private String replaceWithNatsId(String topic, Integer deviceId) {
+    private synchronized String replaceWithNatsId(String topic, Integer deviceId) {
         log.debug("Replacing NATS ID in topic: {} for device ID: {}", topic, deviceId);
 
         if (deviceId == null) return topic;
@@ -961,6 +1695,51 @@ public class TransformationHandler {
         return !clients.isEmpty();
     }
 
+    /**
+     * Gets the executor of concurrent polls, created on first use with a thread for every polled Modbus connection.
+     *
+     * @param connectionCount Number of Modbus connections polled concurrently
+     * @return Executor of concurrent polls
+     */
+    private synchronized ExecutorService getPollExecutorService(int connectionCount) {
+        if (pollExecutorService == null) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            pollExecutorService = Executors.newFixedThreadPool(Math.max(1, connectionCount), runnable -> {
+                Thread thread = new Thread(runnable, "modbus-poll-" + transformation.getName() + "-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        return pollExecutorService;
+    }
+
+    /**
+     * Determines if Modbus connections of this transformation are polled concurrently.
+     *
+     * @return true if the concurrent poll mode is configured, false otherwise
+     */
+    private boolean isConcurrentPolling() {
+        return transformation.getIntervalRequest() != null
+                && transformation.getIntervalRequest().getPollMode() == PollMode.CONCURRENT;
+    }
+
+    /**
+     * Gets the deadline for a single Modbus device when polling concurrently.
+     * Falls back to the interval if the device timeout is not configured.
+     *
+     * @return The deadline in milliseconds
+     */
+    private long getDeviceTimeout() {
+        IntervalRequestModel intervalRequest = transformation.getIntervalRequest();
+
+        if (intervalRequest.getDeviceTimeout() != null) {
+            return intervalRequest.getDeviceTimeout();
+        }
+
+        return intervalRequest.getInterval();
+    }
+
     /**
      * Calculates the delay for interval requests based on the configured cron expression or fixed interval.
      * If a cron expression is provided, it calculates the next execution time using NTP synchronization if NTP is provided.
@@ -20,6 +20,7 @@
  */
 package si.sunesis.interoperability.lpc.transformations.transformation;
 
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import si.sunesis.interoperability.common.exceptions.HandlerException;
 import si.sunesis.interoperability.common.interfaces.RequestHandler;
@@ -54,6 +55,12 @@ public class TransformationsHandler {
 
     private final ArrayList<TransformationHandler> transformationHandlers = new ArrayList<>();
 
+    /**
+     * Starts the Python Modbus service, called when a loaded configuration uses the python Modbus library.
+     */
+    @Setter
+    private Runnable pythonServiceStarter;
+
     /**
      * Starts the transformation handling process.
      * Sets up a configuration change consumer and initializes all transformations.
@@ -68,12 +75,17 @@ public class TransformationsHandler {
 
     /**
      * Creates and initializes all transformation handlers from the current configuration.
-     * Publishes registration messages to configured connections.
+     * Starts the Python Modbus service if a message uses it and publishes registration messages to configured connections.
      * Creates a transformation handler for each transformation model and starts it.
      *
      * @throws LPCException If there is an error initializing connections or handlers
      */
     private void handleTransformations(Boolean newConf) throws LPCException {
+        // The Python service is only needed for messages with modbus-library: python
+        if (pythonServiceStarter != null && configuration.usesModbusLibrary("python")) {
+            pythonServiceStarter.run();
+        }
+
         Connections connections = new Connections(configuration, newConf);
         for (ConfigurationModel configurationModel : configuration.getConfigurations()) {
             RegistrationModel registration = configurationModel.getRegistration();
@@ -0,0 +1,201 @@
+/*
+ *  Copyright (c) 2023-2024 Sunesis and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package si.sunesis.interoperability.lpc.transformations.transformation;
+
+import lombok.extern.slf4j.Slf4j;
+import si.sunesis.interoperability.lpc.transformations.configuration.models.MessageModel;
+import si.sunesis.interoperability.lpc.transformations.configuration.models.ModbusModel;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Coalesces bursts of Modbus register writes from the server.
+ * Register values of all messages received within the coalescing window are merged, the last value of a register wins.
+ * The merged values are written when the window expires, or immediately when a contiguous block of pending registers
+ * is as large as a single write request allows.
+ * Writes are executed in order on a single thread.
+ *
+ * @author David Trafela, Sunesis
+ * @since 1.6.0
+ */
+@Slf4j
+public class WriteCoalescer {
+
+    /**
+     * Maximum number of registers that can be written with a single request (function code 16)
+     */
+    public static final int MAX_WRITE_REGISTERS = 123;
+
+    private final List<ModbusModel> models;
+
+    private final long window;
+
+    private final int maxBlock;
+
+    private final Consumer<Map<Integer, Float>> writer;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final Map<Integer, Float> pending = new HashMap<>();
+
+    private ScheduledFuture<?> scheduledFlush;
+
+    public WriteCoalescer(String name, MessageModel messageModel, Consumer<Map<Integer, Float>> writer) {
+        this.models = messageModel.getModbusRegisters();
+        this.window = messageModel.getCoalesceWindow();
+        this.maxBlock = Math.max(1, Math.min(messageModel.getMaxBlockRegisters(), MAX_WRITE_REGISTERS));
+        this.writer = writer;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Checks if register writes are coalesced for the message model.
+     *
+     * @param messageModel Configuration for the Modbus message format
+     * @return True if a coalescing window is configured for writes with function code 16
+     */
+    public static boolean isConfigured(MessageModel messageModel) {
+        return messageModel.getCoalesceWindow() != null && messageModel.getCoalesceWindow() > 0
+                && messageModel.getFunctionCode() != null
+                && messageModel.getFunctionCode() == 16;
+    }
+
+    /**
+     * Merges register values of a message into the pending write.
+     * Registers without a value in the message keep their pending value.
+     *
+     * @param values Map of register addresses to values from the message
+     */
+    public synchronized void submit(Map<Integer, Float> values) {
+        values.forEach((address, value) -> {
+            if (value != null) {
+                pending.put(address, value);
+            }
+        });
+
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        if (isFull()) {
+            cancelScheduledFlush();
+            scheduler.execute(this::flush);
+        } else if (scheduledFlush == null) {
+            scheduledFlush = scheduler.schedule(this::flush, window, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Writes all pending register values.
+     */
+    public void flush() {
+        Map<Integer, Float> values;
+
+        synchronized (this) {
+            cancelScheduledFlush();
+
+            if (pending.isEmpty()) {
+                return;
+            }
+
+            values = new HashMap<>(pending);
+            pending.clear();
+        }
+
+        log.debug("Writing {} coalesced registers", values.size());
+
+        try {
+            writer.accept(values);
+        } catch (Exception e) {
+            log.error("Error writing coalesced registers", e);
+        }
+    }
+
+    /**
+     * Stops the coalescer, pending register values are not written anymore.
+     */
+    public synchronized void close() {
+        if (!pending.isEmpty()) {
+            log.warn("Dropping {} coalesced registers that were not written", pending.size());
+            pending.clear();
+        }
+
+        cancelScheduledFlush();
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Plans the write requests for the registers of the message model that have a value,
+     * using the block size configured for the message.
+     *
+     * @param messageModel Configuration for the Modbus message format
+     * @param values       Map of register addresses to values
+     * @return List of register blocks, each one sorted by address
+     */
+    public static List<List<ModbusModel>> plan(MessageModel messageModel, Map<Integer, Float> values) {
+        return plan(messageModel.getModbusRegisters(), values, messageModel.getMaxBlockRegisters());
+    }
+
+    /**
+     * Plans the write requests for the registers that have a value.
+     * Only registers without a gap between them are written with the same request.
+     *
+     * @param models   Register definitions of the message model
+     * @param values   Map of register addresses to values
+     * @param maxBlock Maximum number of registers written by a single request
+     * @return List of register blocks, each one sorted by address
+     */
+    public static List<List<ModbusModel>> plan(List<ModbusModel> models, Map<Integer, Float> values, int maxBlock) {
+        List<ModbusModel> writeModels = new ArrayList<>();
+
+        for (ModbusModel model : models) {
+            if (values.get(model.getAddress()) != null) {
+                writeModels.add(model);
+            }
+        }
+
+        return ModbusReadPlanner.plan(writeModels, 0, Math.min(maxBlock, MAX_WRITE_REGISTERS));
+    }
+
+    private boolean isFull() {
+        return plan(models, pending, maxBlock).stream()
+                .anyMatch(block -> ModbusReadPlanner.getBlockQuantity(block) >= maxBlock);
+    }
+
+    private void cancelScheduledFlush() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package si.sunesis.interoperability.lpc.transformations.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+import si.sunesis.interoperability.lpc.transformations.modbus.AsyncRequestLimiter;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AsyncRequestLimiterTest {
+
+    private static long deadline(long millis) {
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    @Test
+    public void testRequestsOverLimitWait() throws Exception {
+        AsyncRequestLimiter limiter = new AsyncRequestLimiter("test-limiter", 1, 0, 10);
+        CompletableFuture<String> first = new CompletableFuture<>();
+        AtomicInteger started = new AtomicInteger();
+
+        CompletableFuture<String> firstResult = limiter.submit(deadline(1000), () -> {
+            started.incrementAndGet();
+            return first;
+        }, throwable -> false);
+        CompletableFuture<String> secondResult = limiter.submit(deadline(1000), () -> {
+            started.incrementAndGet();
+            return CompletableFuture.completedFuture("second");
+        }, throwable -> false);
+
+        // The caller is not blocked, the second request waits for the first
+        Assert.assertEquals(1, started.get());
+        Assert.assertFalse(secondResult.isDone());
+
+        first.complete("first");
+
+        Assert.assertEquals("first", firstResult.get(1, TimeUnit.SECONDS));
+        Assert.assertEquals("second", secondResult.get(1, TimeUnit.SECONDS));
+        Assert.assertEquals(0, limiter.getRunning());
+        limiter.close();
+    }
+
+    @Test
+    public void testRetryWithBackoff() throws Exception {
+        AsyncRequestLimiter limiter = new AsyncRequestLimiter("test-limiter", 1, 3, 10);
+        AtomicInteger attempts = new AtomicInteger();
+
+        CompletableFuture<String> result = limiter.submit(deadline(1000), () -> {
+            if (attempts.incrementAndGet() < 3) {
+                return CompletableFuture.failedFuture(new IOException("Connection refused"));
+            }
+            return CompletableFuture.completedFuture("ok");
+        }, IOException.class::isInstance);
+
+        Assert.assertEquals("ok", result.get(1, TimeUnit.SECONDS));
+        Assert.assertEquals(3, attempts.get());
+        limiter.close();
+    }
+
+    @Test
+    public void testNonRetryableFailure() {
+        AsyncRequestLimiter limiter = new AsyncRequestLimiter("test-limiter", 1, 3, 10);
+        AtomicInteger attempts = new AtomicInteger();
+
+        CompletableFuture<String> result = limiter.submit(deadline(1000), () -> {
+            attempts.incrementAndGet();
+            return CompletableFuture.failedFuture(new IllegalStateException("Illegal data address"));
+        }, IOException.class::isInstance);
+
+        ExecutionException e = Assert.assertThrows(ExecutionException.class, () -> result.get(1, TimeUnit.SECONDS));
+        Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        Assert.assertEquals(1, attempts.get());
+        limiter.close();
+    }
+
+    @Test
+    public void testDeadline() {
+        AsyncRequestLimiter limiter = new AsyncRequestLimiter("test-limiter", 1, 3, 10);
+
+        CompletableFuture<String> hung = limiter.submit(deadline(200), CompletableFuture::new, throwable -> true);
+        // Expires while waiting for the hung request
+        CompletableFuture<String> queued = limiter.submit(deadline(50), () -> CompletableFuture.completedFuture("late"), throwable -> true);
+
+        ExecutionException e = Assert.assertThrows(ExecutionException.class, () -> hung.get(1, TimeUnit.SECONDS));
+        Assert.assertTrue(e.getCause() instanceof TimeoutException);
+        e = Assert.assertThrows(ExecutionException.class, () -> queued.get(1, TimeUnit.SECONDS));
+        Assert.assertTrue(e.getCause() instanceof TimeoutException);
+        limiter.close();
+    }
+
+    @Test
+    public void testExpiredRequestsPassSlotOn() throws Exception {
+        AsyncRequestLimiter limiter = new AsyncRequestLimiter("test-limiter", 1, 0, 10);
+        CompletableFuture<String> first = new CompletableFuture<>();
+        limiter.submit(deadline(1000), () -> first, throwable -> false);
+
+        // Many requests expire while waiting, the slot is passed on without growing the stack
+        for (int i = 0; i < 50_000; i++) {
+            limiter.submit(deadline(20), () -> CompletableFuture.completedFuture("late"), throwable -> false);
+        }
+        CompletableFuture<String> last = limiter.submit(deadline(1000), () -> CompletableFuture.completedFuture("last"), throwable -> false);
+
+        Thread.sleep(50);
+        first.complete("first");
+
+        Assert.assertEquals("last", last.get(1, TimeUnit.SECONDS));
+        Assert.assertEquals(0, limiter.getRunning());
+        limiter.close();
+    }
+
+    @Test
+    public void testCancelledRequestCancelsAttempt() throws Exception {
+        AsyncRequestLimiter limiter = new AsyncRequestLimiter("test-limiter", 1, 0, 10);
+        CompletableFuture<String> attempt = new CompletableFuture<>();
+
+        CompletableFuture<String> result = limiter.submit(deadline(1000), () -> attempt, throwable -> false);
+        result.cancel(false);
+
+        // The attempt in flight is cancelled, and its slot is free only after that
+        Assert.assertTrue(attempt.isCancelled());
+        Assert.assertEquals(0, limiter.getRunning());
+        limiter.close();
+    }
+
+    @Test
+    public void testClose() {
+        AsyncRequestLimiter limiter = new AsyncRequestLimiter("test-limiter", 1, 0, 10);
+
+        limiter.submit(deadline(1000), CompletableFuture::new, throwable -> false);
+        CompletableFuture<String> queued = limiter.submit(deadline(1000), () -> CompletableFuture.completedFuture("never"), throwable -> false);
+
+        limiter.close();
+
+        ExecutionException e = Assert.assertThrows(ExecutionException.class, () -> queued.get(1, TimeUnit.SECONDS));
+        Assert.assertTrue(e.getCause() instanceof RejectedExecutionException);
+    }
+}
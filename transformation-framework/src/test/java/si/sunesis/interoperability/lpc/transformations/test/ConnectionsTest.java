@@ -0,0 +1,35 @@
+package si.sunesis.interoperability.lpc.transformations.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+import si.sunesis.interoperability.lpc.transformations.configuration.Configuration;
+import si.sunesis.interoperability.lpc.transformations.connections.Connections;
+import si.sunesis.interoperability.lpc.transformations.exceptions.LPCException;
+
+import static si.sunesis.interoperability.lpc.transformations.test.ModbusFixtures.configuration;
+
+public class ConnectionsTest {
+
+    @Test
+    public void testConflictingSerialParametersAreRejected() {
+        Configuration configuration = new Configuration();
+        configuration.getConfigurations().add(configuration("""
+                connections:
+                  - name: meter
+                    type: Modbus
+                    device: /dev/ttyUSB0
+                    baud-rate: 9600
+                    parity: even
+                  - name: inverter
+                    type: Modbus
+                    device: /dev/ttyUSB0
+                    baud-rate: 19200
+                    parity: even
+                transformations: []
+                """));
+
+        // Rejected before the serial port is opened
+        LPCException exception = Assert.assertThrows(LPCException.class, () -> new Connections(configuration, false));
+        Assert.assertTrue(exception.getMessage().contains("/dev/ttyUSB0"));
+    }
+}
@@ -0,0 +1,140 @@
+package si.sunesis.interoperability.lpc.transformations.test;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import si.sunesis.interoperability.lpc.transformations.exceptions.ModbusPduException;
+import si.sunesis.interoperability.lpc.transformations.modbus.LenientModbusTcpTransport;
+import si.sunesis.interoperability.lpc.transformations.modbus.ModbusPdu;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class LenientModbusTcpTransportTest {
+
+    private ServerSocket serverSocket;
+
+    private LenientModbusTcpTransport transport;
+
+    private final AtomicInteger connections = new AtomicInteger();
+
+    @Before
+    public void setUp() throws IOException {
+        serverSocket = new ServerSocket(0);
+
+        Thread server = new Thread(this::accept);
+        server.setDaemon(true);
+        server.start();
+
+        transport = new LenientModbusTcpTransport("127.0.0.1", serverSocket.getLocalPort(), 300);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        transport.disconnect();
+        serverSocket.close();
+    }
+
+    @Test
+    public void testWrongLengthAndTransactionId() throws Exception {
+        // The device announces 4 bytes more than it sends and always responds with transaction ID 0
+        byte[] pdu = transport.request(1, ModbusPdu.read(3, 1, 2)).get(1, TimeUnit.SECONDS);
+
+        Assert.assertArrayEquals(new byte[]{0, 1, 0, 2}, ModbusPdu.getData(pdu));
+
+        pdu = transport.request(1, ModbusPdu.read(3, 1, 2)).get(1, TimeUnit.SECONDS);
+        Assert.assertArrayEquals(new byte[]{0, 1, 0, 2}, ModbusPdu.getData(pdu));
+        Assert.assertEquals(1, connections.get());
+    }
+
+    @Test
+    public void testExceptionResponse() {
+        ExecutionException exception = Assert.assertThrows(ExecutionException.class,
+                () -> transport.request(1, ModbusPdu.read(3, 7, 1)).get(1, TimeUnit.SECONDS));
+
+        Assert.assertTrue(exception.getCause() instanceof ModbusPduException);
+    }
+
+    @Test
+    public void testReconnectAfterIdleConnectionClosed() throws Exception {
+        // The device closes the connection after the response, the next request is sent again on a new connection
+        transport.request(1, ModbusPdu.read(3, 8, 2)).get(1, TimeUnit.SECONDS);
+        Thread.sleep(50);
+        byte[] pdu = transport.request(1, ModbusPdu.read(3, 1, 2)).get(1, TimeUnit.SECONDS);
+
+        Assert.assertArrayEquals(new byte[]{0, 1, 0, 2}, ModbusPdu.getData(pdu));
+        Assert.assertEquals(2, connections.get());
+    }
+
+    @Test
+    public void testTimeoutClosesConnection() throws Exception {
+        ExecutionException exception = Assert.assertThrows(ExecutionException.class,
+                () -> transport.request(1, ModbusPdu.read(3, 999, 1)).get(1, TimeUnit.SECONDS));
+        Assert.assertTrue(exception.getCause() instanceof TimeoutException);
+
+        byte[] pdu = transport.request(1, ModbusPdu.read(3, 1, 2)).get(1, TimeUnit.SECONDS);
+        Assert.assertArrayEquals(new byte[]{0, 1, 0, 2}, ModbusPdu.getData(pdu));
+        Assert.assertEquals(2, connections.get());
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.incrementAndGet();
+
+                Thread handler = new Thread(() -> serve(socket));
+                handler.setDaemon(true);
+                handler.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket) {
+            DataInputStream inputStream = new DataInputStream(socket.getInputStream());
+            OutputStream outputStream = socket.getOutputStream();
+
+            while (true) {
+                byte[] header = new byte[7];
+                inputStream.readFully(header);
+                byte[] pdu = new byte[((header[4] & 0xFF) << 8 | (header[5] & 0xFF)) - 1];
+                inputStream.readFully(pdu);
+
+                int address = (pdu[1] & 0xFF) << 8 | (pdu[2] & 0xFF);
+
+                if (address == 999) {
+                    continue;
+                }
+
+                byte[] response = address == 7
+                        ? new byte[]{(byte) 0x83, 2}
+                        : new byte[]{3, 4, 0, 1, 0, 2};
+
+                byte[] frame = new byte[7 + response.length];
+                frame[5] = (byte) (response.length + 1 + 4);
+                frame[6] = header[6];
+                System.arraycopy(response, 0, frame, 7, response.length);
+
+                outputStream.write(frame);
+                outputStream.flush();
+
+                if (address == 8) {
+                    return;
+                }
+            }
+        } catch (IOException ignored) {
+            // Connection closed
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package si.sunesis.interoperability.lpc.transformations.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+import si.sunesis.interoperability.lpc.transformations.configuration.models.MessageModel;
+import si.sunesis.interoperability.lpc.transformations.configuration.models.ModbusModel;
+import si.sunesis.interoperability.lpc.transformations.transformation.ModbusBitBlock;
+import si.sunesis.interoperability.lpc.transformations.transformation.ModbusReadPlanner;
+import si.sunesis.interoperability.lpc.transformations.transformation.RegisterValues;
+
+import java.util.List;
+
+import static si.sunesis.interoperability.lpc.transformations.test.ModbusFixtures.message;
+import static si.sunesis.interoperability.lpc.transformations.test.ModbusFixtures.register;
+
+public class ModbusBitBlockTest {
+
+    private final List<ModbusModel> block = List.of(register(100, "bool"), register(102, "bool"), register(108, "bool"), register(117, "bool"));
+
+    @Test
+    public void testDecodePackedBytes() {
+        // Bits 0, 8 and 17 are set, bit 2 is not
+        RegisterValues registerValues = new RegisterValues();
+        ModbusBitBlock.decode(ModbusBitBlock.fromBytes(new byte[]{0x01, 0x01, 0x02}), block, registerValues);
+
+        Assert.assertEquals("true", registerValues.format(100));
+        Assert.assertEquals("false", registerValues.format(102));
+        Assert.assertEquals("true", registerValues.format(108));
+        Assert.assertEquals("true", registerValues.format(117));
+    }
+
+    @Test
+    public void testDecodePythonWords() {
+        RegisterValues registerValues = new RegisterValues();
+        ModbusBitBlock.decode(ModbusBitBlock.fromWords(new int[]{0x0104, 0x0000}), block, registerValues);
+
+        Assert.assertEquals("false", registerValues.format(100));
+        Assert.assertEquals("true", registerValues.format(102));
+        Assert.assertEquals("true", registerValues.format(108));
+        Assert.assertEquals("false", registerValues.format(117));
+    }
+
+    @Test
+    public void testShortResponse() {
+        // Bits missing in the response are decoded as false
+        RegisterValues registerValues = new RegisterValues();
+        ModbusBitBlock.decode(ModbusBitBlock.fromBytes(new byte[]{0x05}), block, registerValues);
+
+        Assert.assertEquals("true", registerValues.format(102));
+        Assert.assertEquals("false", registerValues.format(117));
+    }
+
+    @Test
+    public void testDecodePlannedCoilBlocks() {
+        MessageModel messageModel = message("""
+                modbus-function-code: 1
+                max-gap-registers: 9
+                max-block-bits: 16
+                modbus-registers:
+                  - register-address: 100
+                    type: bool
+                  - register-address: 102
+                    type: bool
+                  - register-address: 108
+                    type: bool
+                  - register-address: 117
+                    type: bool
+                """);
+
+        // Coil 117 is within max-gap-registers of coil 108, but 100 to 117 exceeds max-block-bits
+        List<List<ModbusModel>> blocks = ModbusReadPlanner.plan(messageModel, messageModel.getModbusRegisters());
+        Assert.assertEquals(2, blocks.size());
+        Assert.assertEquals(9, ModbusReadPlanner.getBlockQuantity(blocks.get(0)));
+
+        RegisterValues registerValues = new RegisterValues();
+        ModbusBitBlock.decode(ModbusBitBlock.fromBytes(new byte[]{0x01, 0x01}), blocks.get(0), registerValues);
+        ModbusBitBlock.decode(ModbusBitBlock.fromBytes(new byte[]{0x01}), blocks.get(1), registerValues);
+
+        Assert.assertEquals("true", registerValues.format(100));
+        Assert.assertEquals("false", registerValues.format(102));
+        Assert.assertEquals("true", registerValues.format(108));
+        Assert.assertEquals("true", registerValues.format(117));
+    }
+}
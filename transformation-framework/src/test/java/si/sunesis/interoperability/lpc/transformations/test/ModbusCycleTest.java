@@ -0,0 +1,160 @@
+package si.sunesis.interoperability.lpc.transformations.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+import si.sunesis.interoperability.lpc.transformations.configuration.models.MessageModel;
+import si.sunesis.interoperability.lpc.transformations.configuration.models.ModbusModel;
+import si.sunesis.interoperability.lpc.transformations.transformation.ModbusCycle;
+import si.sunesis.interoperability.lpc.transformations.transformation.RegisterValues;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static si.sunesis.interoperability.lpc.transformations.test.ModbusFixtures.message;
+import static si.sunesis.interoperability.lpc.transformations.test.ModbusFixtures.register;
+
+public class ModbusCycleTest {
+
+    private final List<ModbusModel> first = List.of(register(100, "int16"));
+
+    private final List<ModbusModel> second = List.of(register(200, "int16"));
+
+    private static long deadline(long millis) {
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    @Test
+    public void testDeadlineCoversRetries() {
+        MessageModel messageModel = message("""
+                modbus-function-code: 3
+                retry-count: 2
+                """);
+
+        long before = System.nanoTime();
+        ModbusCycle cycle = ModbusCycle.start(new RegisterValues(), messageModel, 100, 4);
+        long after = System.nanoTime();
+
+        // 4 requests of 100 ms, each one sent up to 3 times
+        Assert.assertTrue(cycle.getDeadline() - before >= TimeUnit.MILLISECONDS.toNanos(1200));
+        Assert.assertTrue(cycle.getDeadline() - after <= TimeUnit.MILLISECONDS.toNanos(1200));
+    }
+
+    @Test
+    public void testResponsesAreMerged() throws InterruptedException {
+        RegisterValues registerValues = new RegisterValues();
+        ModbusCycle cycle = new ModbusCycle(registerValues, deadline(1000));
+        CompletableFuture<Integer> request = new CompletableFuture<>();
+
+        cycle.track(first, CompletableFuture.completedFuture(1), deadline(1000), (response, values) -> values.putInt(100, response));
+        cycle.track(second, request, deadline(1000), (response, values) -> values.putInt(200, response));
+
+        // Not visible before the response is processed
+        Assert.assertFalse(registerValues.contains(200));
+
+        CompletableFuture.runAsync(() -> request.complete(2));
+        cycle.await(cycle.getDeadline());
+
+        Assert.assertTrue(cycle.isCompleted());
+        Assert.assertSame(registerValues, cycle.close());
+        Assert.assertEquals(2.0, registerValues.getDouble(200), 0.0);
+    }
+
+    @Test
+    public void testRequestDeadline() throws InterruptedException {
+        ModbusCycle cycle = new ModbusCycle(new RegisterValues(), deadline(1000));
+        CompletableFuture<Integer> request = new CompletableFuture<>();
+
+        cycle.track(first, request, deadline(50), (response, values) -> values.putInt(100, response));
+        cycle.await(cycle.getDeadline());
+
+        Assert.assertTrue(request.isCompletedExceptionally());
+        Assert.assertFalse(cycle.isCompleted());
+        Assert.assertEquals(1, cycle.getFailed().size());
+        Assert.assertSame(first, cycle.getFailed().get(0));
+    }
+
+    @Test
+    public void testLateResponseIsDiscarded() throws InterruptedException {
+        RegisterValues registerValues = new RegisterValues();
+        ModbusCycle cycle = new ModbusCycle(registerValues, deadline(50));
+        CompletableFuture<Integer> straggler = new CompletableFuture<>();
+        CompletableFuture<Integer> late = new CompletableFuture<>();
+
+        cycle.track(first, straggler, deadline(1000), (response, values) -> values.putInt(100, response));
+        cycle.await(deadline(10));
+        RegisterValues snapshot = cycle.close();
+
+        // Pending requests are cancelled when the cycle is closed
+        Assert.assertTrue(straggler.isCancelled());
+
+        cycle.track(second, late, deadline(1000), (response, values) -> values.putInt(200, response));
+        late.complete(2);
+
+        Assert.assertTrue(late.isCancelled());
+        Assert.assertFalse(snapshot.contains(100));
+        Assert.assertFalse(snapshot.contains(200));
+    }
+
+    @Test
+    public void testRetryRemovesFailedGroup() throws InterruptedException {
+        ModbusCycle cycle = new ModbusCycle(new RegisterValues(), deadline(1000));
+
+        cycle.trackBatch(List.of(first, second), CompletableFuture.completedFuture("batch"), deadline(1000), (response, values) -> {
+            values.putInt(100, 1);
+            return List.of(second);
+        });
+        Assert.assertEquals(List.of(second), cycle.getFailed());
+
+        cycle.track(second, CompletableFuture.failedFuture(new IOException("Connection reset")), deadline(1000), (response, values) -> {
+        });
+        Assert.assertEquals(1, cycle.getFailed().size());
+
+        cycle.track(second, CompletableFuture.completedFuture(2), deadline(1000), (response, values) -> values.putInt(200, response));
+        cycle.await(cycle.getDeadline());
+
+        Assert.assertTrue(cycle.getFailed().isEmpty());
+        Assert.assertTrue(cycle.isCompleted());
+        Assert.assertTrue(cycle.close().contains(200));
+    }
+
+    @Test
+    public void testPartiallyDecodedResponseIsNotMerged() throws InterruptedException {
+        ModbusCycle cycle = new ModbusCycle(new RegisterValues(), deadline(1000));
+
+        cycle.track(first, CompletableFuture.completedFuture(1), deadline(1000), (response, values) -> {
+            values.putInt(100, response);
+            throw new IllegalStateException("Short response");
+        });
+        cycle.track(second, CompletableFuture.completedFuture(2), deadline(1000), (response, values) -> values.putInt(200, response));
+        cycle.await(cycle.getDeadline());
+
+        // The store of the failed response is reused, its values are not merged into the next response
+        RegisterValues registerValues = cycle.close();
+        Assert.assertEquals(List.of(first), cycle.getFailed());
+        Assert.assertFalse(registerValues.contains(100));
+        Assert.assertEquals(2.0, registerValues.getDouble(200), 0.0);
+    }
+
+    @Test
+    public void testClosedStoreIsOwnedByCaller() throws InterruptedException {
+        RegisterValues registerValues = new RegisterValues();
+        ModbusCycle cycle = new ModbusCycle(registerValues, deadline(1000));
+        CompletableFuture<Integer> late = new CompletableFuture<>();
+
+        cycle.track(first, CompletableFuture.completedFuture(1), deadline(1000), (response, values) -> values.putInt(100, response));
+        cycle.track(second, late, deadline(1000), (response, values) -> values.putInt(200, response));
+        Assert.assertSame(registerValues, cycle.close());
+
+        // The caller reuses the store for the next cycle, the request of the closed cycle does not write into it
+        registerValues.clear();
+        late.complete(2);
+        ModbusCycle next = new ModbusCycle(registerValues, deadline(1000));
+        next.track(first, CompletableFuture.completedFuture(3), deadline(1000), (response, values) -> values.putInt(100, response));
+        next.await(next.getDeadline());
+
+        Assert.assertEquals(3.0, next.close().getDouble(100), 0.0);
+        Assert.assertFalse(registerValues.contains(200));
+    }
+}
@@ -0,0 +1,71 @@
+package si.sunesis.interoperability.lpc.transformations.test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import si.sunesis.interoperability.lpc.transformations.configuration.models.ConfigurationModel;
+import si.sunesis.interoperability.lpc.transformations.configuration.models.ConnectionModel;
+import si.sunesis.interoperability.lpc.transformations.configuration.models.IntervalRequestModel;
+import si.sunesis.interoperability.lpc.transformations.configuration.models.MessageModel;
+import si.sunesis.interoperability.lpc.transformations.configuration.models.ModbusModel;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Register definitions and Modbus configuration shared by the tests.
+ * Configuration is parsed from YAML the same way as the configuration files, so tests cover the configuration keys.
+ */
+public final class ModbusFixtures {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper(new YAMLFactory());
+
+    static {
+        OBJECT_MAPPER.findAndRegisterModules();
+    }
+
+    private ModbusFixtures() {
+    }
+
+    public static ModbusModel register(int address, String type) {
+        ModbusModel model = new ModbusModel();
+        model.setAddress(address);
+        model.setType(type);
+        return model;
+    }
+
+    /**
+     * Parses a message, as configured under to-incoming, to-outgoing or request of interval-request.
+     */
+    public static MessageModel message(String yaml) {
+        return read(yaml, MessageModel.class);
+    }
+
+    /**
+     * Parses an interval-request of a transformation.
+     */
+    public static IntervalRequestModel intervalRequest(String yaml) {
+        return read(yaml, IntervalRequestModel.class);
+    }
+
+    /**
+     * Parses a connection of the connections list.
+     */
+    public static ConnectionModel connection(String yaml) {
+        return read(yaml, ConnectionModel.class);
+    }
+
+    /**
+     * Parses a whole configuration file with connections and transformations.
+     */
+    public static ConfigurationModel configuration(String yaml) {
+        return read(yaml, ConfigurationModel.class);
+    }
+
+    private static <T> T read(String yaml, Class<T> type) {
+        try {
+            return OBJECT_MAPPER.readValue(yaml, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package si.sunesis.interoperability.lpc.transformations.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+import si.sunesis.interoperability.lpc.transformations.modbus.ModbusGateway;
+import si.sunesis.interoperability.lpc.transformations.modbus.ModbusPdu;
+import si.sunesis.interoperability.lpc.transformations.modbus.ModbusTransport;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class ModbusGatewayTest {
+
+    private static final byte[] RESPONSE = {3, 2, 0, 1};
+
+    @Test
+    public void testUnitsAreServedRoundRobin() throws Exception {
+        FakeTransport transport = new FakeTransport();
+        transport.held = true;
+        ModbusGateway gateway = new ModbusGateway("gateway", transport, 1, 1000);
+
+        List<CompletableFuture<byte[]>> futures = new ArrayList<>();
+        futures.add(gateway.request(1, ModbusPdu.read(3, 0, 1)));
+        futures.add(gateway.request(1, ModbusPdu.read(3, 1, 1)));
+        futures.add(gateway.request(1, ModbusPdu.read(3, 2, 1)));
+        futures.add(gateway.request(2, ModbusPdu.read(3, 0, 1)));
+
+        while (transport.release()) {
+            // Completes the request in flight, the next one is sent
+        }
+
+        for (CompletableFuture<byte[]> future : futures) {
+            Assert.assertArrayEquals(RESPONSE, future.get(1, TimeUnit.SECONDS));
+        }
+        Assert.assertEquals(List.of(1, 2, 1, 1), transport.sent);
+    }
+
+    @Test
+    public void testUnitTimeout() {
+        FakeTransport transport = new FakeTransport();
+        transport.dead.add(5);
+        ModbusGateway gateway = new ModbusGateway("gateway", transport, 2, 50);
+
+        CompletableFuture<byte[]> dead = gateway.request(5, ModbusPdu.read(3, 0, 1));
+        CompletableFuture<byte[]> alive = gateway.request(6, ModbusPdu.read(3, 0, 1));
+
+        ExecutionException exception = Assert.assertThrows(ExecutionException.class, () -> dead.get(1, TimeUnit.SECONDS));
+        Assert.assertTrue(exception.getCause() instanceof TimeoutException);
+        Assert.assertTrue(alive.isDone());
+    }
+
+    @Test
+    public void testOfflineUnitFailsFastAndRecovers() throws Exception {
+        FakeTransport transport = new FakeTransport();
+        transport.dead.add(5);
+        ModbusGateway gateway = new ModbusGateway("gateway", transport, 1, 50);
+
+        for (int i = 0; i < ModbusGateway.OFFLINE_THRESHOLD; i++) {
+            CompletableFuture<byte[]> future = gateway.request(5, ModbusPdu.read(3, 0, 1));
+            Assert.assertThrows(ExecutionException.class, () -> future.get(1, TimeUnit.SECONDS));
+        }
+
+        Assert.assertFalse(gateway.isUnitOnline(5));
+        int sent = transport.sent.size();
+
+        // Requests to the offline unit do not reach the gateway, other units are still served
+        ExecutionException exception = Assert.assertThrows(ExecutionException.class,
+                () -> gateway.request(5, ModbusPdu.read(3, 0, 1)).get(1, TimeUnit.SECONDS));
+        Assert.assertTrue(exception.getCause() instanceof IOException);
+        Assert.assertArrayEquals(RESPONSE, gateway.request(6, ModbusPdu.read(3, 0, 1)).get(1, TimeUnit.SECONDS));
+        Assert.assertEquals(sent + 1, transport.sent.size());
+
+        // The probe after the probe interval reaches the unit again
+        transport.dead.clear();
+        Thread.sleep(1200);
+
+        Assert.assertArrayEquals(RESPONSE, gateway.request(5, ModbusPdu.read(3, 0, 1)).get(1, TimeUnit.SECONDS));
+        Assert.assertTrue(gateway.isUnitOnline(5));
+    }
+
+    private static class FakeTransport implements ModbusTransport {
+
+        private final List<Integer> sent = Collections.synchronizedList(new ArrayList<>());
+
+        private final Set<Integer> dead = Collections.synchronizedSet(new HashSet<>());
+
+        private final List<CompletableFuture<byte[]>> pending = Collections.synchronizedList(new ArrayList<>());
+
+        private volatile boolean held;
+
+        @Override
+        public CompletableFuture<byte[]> request(int unitId, byte[] pdu) {
+            sent.add(unitId);
+            CompletableFuture<byte[]> future = new CompletableFuture<>();
+
+            if (held) {
+                pending.add(future);
+            } else if (!dead.contains(unitId)) {
+                future.complete(RESPONSE);
+            }
+
+            return future;
+        }
+
+        private boolean release() {
+            if (pending.isEmpty()) {
+                return false;
+            }
+
+            pending.remove(0).complete(RESPONSE);
+            return true;
+        }
+
+        @Override
+        public void connect() {
+            // Always connected
+        }
+
+        @Override
+        public void disconnect() {
+            // Nothing to close
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package si.sunesis.interoperability.lpc.transformations.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+import si.sunesis.interoperability.lpc.transformations.configuration.models.MessageModel;
+import si.sunesis.interoperability.lpc.transformations.configuration.models.ModbusModel;
+import si.sunesis.interoperability.lpc.transformations.transformation.ModbusReadPlanner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static si.sunesis.interoperability.lpc.transformations.test.ModbusFixtures.message;
+import static si.sunesis.interoperability.lpc.transformations.test.ModbusFixtures.register;
+
+public class ModbusReadPlannerTest {
+
+    @Test
+    public void testContiguousRegistersAreMerged() {
+        List<ModbusModel> models = List.of(register(800, "float32"), register(802, "float32"), register(804, "float32"));
+
+        List<List<ModbusModel>> blocks = ModbusReadPlanner.plan(models, 0, 125);
+
+        Assert.assertEquals(1, blocks.size());
+        Assert.assertEquals(6, ModbusReadPlanner.getBlockQuantity(blocks.get(0)));
+    }
+
+    @Test
+    public void testGapTolerance() {
+        List<ModbusModel> models = List.of(register(800, "float32"), register(808, "float32"), register(810, "float32"));
+
+        Assert.assertEquals(2, ModbusReadPlanner.plan(models, 0, 125).size());
+        Assert.assertEquals(2, ModbusReadPlanner.plan(models, 5, 125).size());
+
+        List<List<ModbusModel>> blocks = ModbusReadPlanner.plan(models, 6, 125);
+        Assert.assertEquals(1, blocks.size());
+        Assert.assertEquals(12, ModbusReadPlanner.getBlockQuantity(blocks.get(0)));
+    }
+
+    @Test
+    public void testBlockSizeLimit() {
+        List<ModbusModel> models = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            models.add(register(1000 + i * 2, "float32"));
+        }
+
+        List<List<ModbusModel>> blocks = ModbusReadPlanner.plan(models, 0, 125);
+
+        Assert.assertEquals(2, blocks.size());
+        Assert.assertEquals(124, ModbusReadPlanner.getBlockQuantity(blocks.get(0)));
+        Assert.assertEquals(116, ModbusReadPlanner.getBlockQuantity(blocks.get(1)));
+    }
+
+    @Test
+    public void testPlanFromMessageConfiguration() {
+        MessageModel messageModel = message("""
+                modbus-function-code: 3
+                max-gap-registers: 6
+                max-block-registers: 10
+                modbus-registers:
+                  - register-address: 800
+                    type: float32
+                  - register-address: 808
+                    type: float32
+                  - register-address: 810
+                    type: float32
+                """);
+
+        List<List<ModbusModel>> blocks = ModbusReadPlanner.plan(messageModel, messageModel.getModbusRegisters());
+
+        // The gap of 6 registers is allowed, but 800 to 812 exceeds max-block-registers
+        Assert.assertEquals(2, blocks.size());
+        Assert.assertEquals(10, ModbusReadPlanner.getBlockQuantity(blocks.get(0)));
+        Assert.assertEquals(2, ModbusReadPlanner.getBlockQuantity(blocks.get(1)));
+    }
+
+    @Test
+    public void testUnsortedInput() {
+        List<ModbusModel> models = List.of(register(3, "int16"), register(0, "int16"), register(1, "int16"));
+
+        List<List<ModbusModel>> blocks = ModbusReadPlanner.plan(models, 1, 125);
+
+        Assert.assertEquals(1, blocks.size());
+        Assert.assertEquals(0, (int) blocks.get(0).get(0).getAddress());
+        Assert.assertEquals(4, ModbusReadPlanner.getBlockQuantity(blocks.get(0)));
+    }
+
+    @Test
+    public void testCoilsArePlannedAsBits() {
+        List<ModbusModel> models = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            models.add(register(i * 10, "bool"));
+        }
+
+        List<List<ModbusModel>> blocks = ModbusReadPlanner.planBits(models, 9, 2000);
+
+        Assert.assertEquals(2, blocks.size());
+        Assert.assertEquals(1991, ModbusReadPlanner.getBlockQuantity(blocks.get(0)));
+        Assert.assertEquals(991, ModbusReadPlanner.getBlockQuantity(blocks.get(1)));
+    }
+}
@@ -0,0 +1,168 @@
+package si.sunesis.interoperability.lpc.transformations.test;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import si.sunesis.interoperability.lpc.transformations.configuration.models.MessageModel;
+import si.sunesis.interoperability.lpc.transformations.exceptions.ModbusPduException;
+import si.sunesis.interoperability.lpc.transformations.modbus.ModbusPdu;
+import si.sunesis.interoperability.lpc.transformations.modbus.PipelinedModbusTcpMaster;
+import si.sunesis.interoperability.lpc.transformations.test.simulator.ModbusSimulator;
+import si.sunesis.interoperability.lpc.transformations.test.simulator.SimulatedDevice;
+import si.sunesis.interoperability.lpc.transformations.test.simulator.ValueGenerator;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static si.sunesis.interoperability.lpc.transformations.test.ModbusFixtures.message;
+import static si.sunesis.interoperability.lpc.transformations.test.ModbusFixtures.register;
+
+public class ModbusSimulatorTest {
+
+    private final ModbusSimulator simulator = new ModbusSimulator();
+
+    private PipelinedModbusTcpMaster master;
+
+    @After
+    public void tearDown() {
+        if (master != null) {
+            master.disconnect();
+        }
+        simulator.close();
+    }
+
+    @Test
+    public void testReadRegistersOverTcp() throws Exception {
+        MessageModel request = message("""
+                modbus-function-code: 3
+                modbus-registers:
+                  - register-address: 10
+                    type: int16
+                  - register-address: 11
+                    type: float32
+                """);
+        simulator.addDevices(new SimulatedDevice(1, request.getModbusRegisters())
+                .setGenerator(10, ValueGenerator.constant(-5))
+                .setGenerator(11, ValueGenerator.constant(1.5)), 3);
+
+        master = connect();
+        byte[] pdu = master.request(3, ModbusPdu.read(3, 10, 3)).get(1, TimeUnit.SECONDS);
+
+        ByteBuffer data = ByteBuffer.wrap(ModbusPdu.getData(pdu));
+        Assert.assertEquals(-5, data.getShort());
+        Assert.assertEquals(1.5f, data.getFloat(), 0f);
+    }
+
+    @Test
+    public void testWrittenRegistersAreKept() throws Exception {
+        simulator.addDevice(new SimulatedDevice(1, List.of(register(0, "uint16"), register(1, "bool")))
+                .setDefaultGenerator(ValueGenerator.constant(0)));
+
+        master = connect();
+        master.request(1, ModbusPdu.writeMultipleRegisters(0, new int[]{42})).get(1, TimeUnit.SECONDS);
+        master.request(1, ModbusPdu.writeSingleCoil(1, true)).get(1, TimeUnit.SECONDS);
+
+        Assert.assertArrayEquals(new byte[]{0, 42},
+                ModbusPdu.getData(master.request(1, ModbusPdu.read(3, 0, 1)).get(1, TimeUnit.SECONDS)));
+        Assert.assertArrayEquals(new byte[]{2},
+                ModbusPdu.getData(master.request(1, ModbusPdu.read(1, 0, 2)).get(1, TimeUnit.SECONDS)));
+    }
+
+    @Test
+    public void testExceptionInjectionAndUnknownUnit() throws Exception {
+        simulator.addDevice(new SimulatedDevice(1, List.of(register(0, "uint16"))))
+                .setExceptionRate(1.0, ModbusSimulator.SERVER_DEVICE_FAILURE);
+
+        master = connect();
+
+        ExecutionException exception = Assert.assertThrows(ExecutionException.class,
+                () -> master.request(1, ModbusPdu.read(3, 0, 1)).get(1, TimeUnit.SECONDS));
+        Assert.assertEquals(ModbusSimulator.SERVER_DEVICE_FAILURE, ((ModbusPduException) exception.getCause()).getExceptionCode());
+
+        exception = Assert.assertThrows(ExecutionException.class,
+                () -> master.request(2, ModbusPdu.read(3, 0, 1)).get(1, TimeUnit.SECONDS));
+        Assert.assertEquals(ModbusPduException.GATEWAY_TARGET_FAILED, ((ModbusPduException) exception.getCause()).getExceptionCode());
+    }
+
+    @Test
+    public void testLatency() throws Exception {
+        simulator.addDevice(new SimulatedDevice(1, List.of(register(0, "uint16")))).setLatency(100, 20);
+
+        master = connect();
+        long start = System.nanoTime();
+        master.request(1, ModbusPdu.read(3, 0, 1)).get(1, TimeUnit.SECONDS);
+
+        Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 100);
+        Assert.assertEquals(1, simulator.getRequestCount());
+    }
+
+    @Test
+    public void testRtu() {
+        simulator.addDevice(new SimulatedDevice(1, List.of(register(0, "uint16")))
+                .setGenerator(0, ValueGenerator.constant(300)));
+
+        byte[] valid = rtu(1, ModbusPdu.read(3, 0, 1));
+        byte[] corrupted = rtu(1, ModbusPdu.read(3, 0, 1));
+        corrupted[corrupted.length - 1] ^= 1;
+        byte[] unknownUnit = rtu(2, ModbusPdu.read(3, 0, 1));
+
+        ByteArrayOutputStream requests = new ByteArrayOutputStream();
+        requests.writeBytes(corrupted);
+        requests.writeBytes(unknownUnit);
+        requests.writeBytes(valid);
+
+        ByteArrayOutputStream responses = new ByteArrayOutputStream();
+        simulator.serveRtu(new ByteArrayInputStream(requests.toByteArray()), responses);
+
+        // Only the valid request is answered
+        byte[] response = responses.toByteArray();
+        Assert.assertArrayEquals(rtu(1, new byte[]{3, 2, 1, 44}), response);
+    }
+
+    @Test
+    public void testFromConfiguration() throws IOException {
+        String configuration = """
+                transformations:
+                  - name: meter
+                    interval-request:
+                      interval: 1000
+                      request:
+                        modbus-function-code: 3
+                        modbus-device-id: 7
+                        modbus-registers:
+                          - register-address: 100
+                            type: uint32
+                """;
+
+        InputStream inputStream = new ByteArrayInputStream(configuration.getBytes(StandardCharsets.UTF_8));
+        try (ModbusSimulator configured = ModbusSimulator.fromConfiguration(inputStream)) {
+            Assert.assertEquals(1, configured.getDevices().size());
+            Assert.assertNotNull(configured.getDevice(7));
+        }
+    }
+
+    private PipelinedModbusTcpMaster connect() throws IOException {
+        int port = simulator.startTcp(0);
+        PipelinedModbusTcpMaster tcpMaster = new PipelinedModbusTcpMaster("127.0.0.1", port, 4, 1000);
+        tcpMaster.connect();
+        return tcpMaster;
+    }
+
+    private static byte[] rtu(int unitId, byte[] pdu) {
+        byte[] frame = new byte[pdu.length + 3];
+        frame[0] = (byte) unitId;
+        System.arraycopy(pdu, 0, frame, 1, pdu.length);
+        int crc = ModbusSimulator.crc(frame, frame.length - 2);
+        frame[frame.length - 2] = (byte) crc;
+        frame[frame.length - 1] = (byte) (crc >> 8);
+        return frame;
+    }
+
+}
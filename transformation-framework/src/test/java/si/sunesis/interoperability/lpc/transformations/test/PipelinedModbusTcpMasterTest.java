@@ -0,0 +1,171 @@
+package si.sunesis.interoperability.lpc.transformations.test;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import si.sunesis.interoperability.lpc.transformations.exceptions.ModbusPduException;
+import si.sunesis.interoperability.lpc.transformations.modbus.ModbusPdu;
+import si.sunesis.interoperability.lpc.transformations.modbus.PipelinedModbusTcpMaster;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+public class PipelinedModbusTcpMasterTest {
+
+    private ServerSocket serverSocket;
+
+    private PipelinedModbusTcpMaster master;
+
+    @Before
+    public void setUp() throws IOException {
+        serverSocket = new ServerSocket(0);
+
+        Thread server = new Thread(this::serve);
+        server.setDaemon(true);
+        server.start();
+
+        master = new PipelinedModbusTcpMaster("127.0.0.1", serverSocket.getLocalPort(), 4, 500);
+        master.connect();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        master.disconnect();
+        serverSocket.close();
+    }
+
+    @Test
+    public void testResponsesMatchedByTransactionId() throws Exception {
+        List<CompletableFuture<byte[]>> futures = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            futures.add(master.request(1, ModbusPdu.read(3, i, 1)));
+        }
+
+        for (int i = 0; i < 6; i++) {
+            Assert.assertArrayEquals(new byte[]{0, (byte) i}, ModbusPdu.getData(futures.get(i).get()));
+        }
+    }
+
+    @Test
+    public void testExceptionResponse() throws Exception {
+        CompletableFuture<byte[]> illegal = master.request(1, ModbusPdu.read(3, 7, 1));
+        CompletableFuture<byte[]> valid = master.request(1, ModbusPdu.read(3, 8, 1));
+
+        ExecutionException exception = Assert.assertThrows(ExecutionException.class, illegal::get);
+        Assert.assertTrue(exception.getCause() instanceof ModbusPduException);
+        Assert.assertEquals(ModbusPduException.ILLEGAL_DATA_ADDRESS, ((ModbusPduException) exception.getCause()).getExceptionCode());
+        Assert.assertArrayEquals(new byte[]{0, 8}, ModbusPdu.getData(valid.get()));
+    }
+
+    @Test
+    public void testTimeoutReleasesWindow() throws Exception {
+        List<CompletableFuture<byte[]>> unanswered = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            unanswered.add(master.request(1, ModbusPdu.read(3, 999, 1)));
+        }
+
+        for (CompletableFuture<byte[]> future : unanswered) {
+            ExecutionException exception = Assert.assertThrows(ExecutionException.class, future::get);
+            Assert.assertTrue(exception.getCause() instanceof TimeoutException);
+        }
+
+        CompletableFuture<byte[]> first = master.request(1, ModbusPdu.read(3, 10, 1));
+        CompletableFuture<byte[]> second = master.request(1, ModbusPdu.read(3, 11, 1));
+
+        Assert.assertArrayEquals(new byte[]{0, 10}, ModbusPdu.getData(first.get()));
+        Assert.assertArrayEquals(new byte[]{0, 11}, ModbusPdu.getData(second.get()));
+    }
+
+    @Test
+    public void testQueuedRequestTimeoutStartsWhenSent() throws Exception {
+        List<CompletableFuture<byte[]>> unanswered = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            unanswered.add(master.request(1, ModbusPdu.read(3, 999, 1)));
+        }
+
+        // Queued behind the full window until the unanswered requests time out
+        CompletableFuture<byte[]> first = master.request(1, ModbusPdu.read(3, 10, 1));
+        CompletableFuture<byte[]> second = master.request(1, ModbusPdu.read(3, 11, 1));
+
+        for (CompletableFuture<byte[]> future : unanswered) {
+            ExecutionException exception = Assert.assertThrows(ExecutionException.class, future::get);
+            Assert.assertTrue(exception.getCause() instanceof TimeoutException);
+        }
+
+        Assert.assertArrayEquals(new byte[]{0, 10}, ModbusPdu.getData(first.get()));
+        Assert.assertArrayEquals(new byte[]{0, 11}, ModbusPdu.getData(second.get()));
+    }
+
+    @Test
+    public void testResponseMatchedByUnitIdAndFunctionCode() throws Exception {
+        CompletableFuture<byte[]> wrongUnit = master.request(1, ModbusPdu.read(3, 997, 1));
+        CompletableFuture<byte[]> wrongFunction = master.request(1, ModbusPdu.read(3, 998, 1));
+        CompletableFuture<byte[]> first = master.request(1, ModbusPdu.read(3, 12, 1));
+        CompletableFuture<byte[]> second = master.request(1, ModbusPdu.read(3, 13, 1));
+
+        Assert.assertArrayEquals(new byte[]{0, 12}, ModbusPdu.getData(first.get()));
+        Assert.assertArrayEquals(new byte[]{0, 13}, ModbusPdu.getData(second.get()));
+
+        for (CompletableFuture<byte[]> future : List.of(wrongUnit, wrongFunction)) {
+            ExecutionException exception = Assert.assertThrows(ExecutionException.class, future::get);
+            Assert.assertTrue(exception.getCause() instanceof TimeoutException);
+        }
+    }
+
+    /**
+     * Answers read requests with the start address as the register value, two requests at a time in reverse order.
+     * Address 7 returns an illegal data address exception, address 997 is answered with another unit ID,
+     * address 998 with another function code and address 999 is never answered.
+     */
+    private void serve() {
+        try (Socket socket = serverSocket.accept()) {
+            DataInputStream inputStream = new DataInputStream(socket.getInputStream());
+            OutputStream outputStream = socket.getOutputStream();
+            List<byte[]> responses = new ArrayList<>();
+
+            while (true) {
+                byte[] header = new byte[7];
+                inputStream.readFully(header);
+
+                byte[] pdu = new byte[(((header[4] & 0xFF) << 8) | (header[5] & 0xFF)) - 1];
+                inputStream.readFully(pdu);
+
+                int start = ((pdu[1] & 0xFF) << 8) | (pdu[2] & 0xFF);
+                if (start == 999) {
+                    continue;
+                }
+
+                byte[] response;
+                if (start == 7) {
+                    response = new byte[]{(byte) 0x83, 2};
+                } else {
+                    response = new byte[]{(byte) (start == 998 ? 4 : 3), 2, (byte) (start >> 8), (byte) start};
+                }
+
+                byte[] frame = new byte[7 + response.length];
+                System.arraycopy(header, 0, frame, 0, 4);
+                frame[5] = (byte) (response.length + 1);
+                frame[6] = (byte) (start == 997 ? header[6] + 1 : header[6]);
+                System.arraycopy(response, 0, frame, 7, response.length);
+
+                responses.add(frame);
+                if (responses.size() == 2) {
+                    outputStream.write(responses.get(1));
+                    outputStream.write(responses.get(0));
+                    responses.clear();
+                }
+            }
+        } catch (IOException ignored) {
+            // Connection closed
+        }
+    }
+}
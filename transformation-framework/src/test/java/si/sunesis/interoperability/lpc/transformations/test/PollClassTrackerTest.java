@@ -0,0 +1,109 @@
+package si.sunesis.interoperability.lpc.transformations.test;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import si.sunesis.interoperability.lpc.transformations.configuration.models.IntervalRequestModel;
+import si.sunesis.interoperability.lpc.transformations.configuration.models.ModbusModel;
+import si.sunesis.interoperability.lpc.transformations.transformation.PollClassTracker;
+import si.sunesis.interoperability.lpc.transformations.transformation.RegisterValues;
+
+import java.util.List;
+
+import static si.sunesis.interoperability.lpc.transformations.test.ModbusFixtures.intervalRequest;
+
+public class PollClassTrackerTest {
+
+    private IntervalRequestModel intervalRequest;
+
+    private List<ModbusModel> models;
+
+    private ModbusModel power;
+
+    private ModbusModel energy;
+
+    private ModbusModel serial;
+
+    @Before
+    public void setUp() {
+        intervalRequest = intervalRequest("""
+                interval: 1000
+                poll-classes:
+                  slow: 5000
+                  once: 0
+                request:
+                  modbus-function-code: 3
+                  modbus-registers:
+                    - register-address: 0
+                      type: int16
+                    - register-address: 10
+                      type: int16
+                      poll-class: slow
+                    - register-address: 20
+                      type: int16
+                      poll-class: once
+                """);
+        models = intervalRequest.getRequest().getModbusRegisters();
+        power = models.get(0);
+        energy = models.get(1);
+        serial = models.get(2);
+    }
+
+    @Test
+    public void testIsConfigured() {
+        Assert.assertTrue(PollClassTracker.isConfigured(intervalRequest));
+
+        intervalRequest.getRequest().setModbusRegisters(List.of(power));
+        Assert.assertFalse(PollClassTracker.isConfigured(intervalRequest));
+    }
+
+    @Test
+    public void testClassesAreReadWithTheirInterval() {
+        PollClassTracker tracker = new PollClassTracker(intervalRequest);
+
+        // All classes are read in the first poll
+        Assert.assertEquals(models, tracker.getDue("meter", models, 0));
+        tracker.complete("meter", models, models, values(models, 1), 0);
+
+        Assert.assertEquals(List.of(power), tracker.getDue("meter", models, 1000));
+        tracker.complete("meter", models, List.of(power), values(List.of(power), 2), 1000);
+
+        Assert.assertEquals(List.of(power, energy), tracker.getDue("meter", models, 5000));
+
+        // Every device has its own state
+        Assert.assertEquals(models, tracker.getDue("other", models, 5000));
+    }
+
+    @Test
+    public void testRegistersNotDueAreTakenFromCache() {
+        PollClassTracker tracker = new PollClassTracker(intervalRequest);
+        tracker.complete("meter", models, models, values(models, 1), 0);
+
+        RegisterValues registerValues = values(List.of(power), 2);
+        tracker.complete("meter", models, List.of(power), registerValues, 1000);
+
+        Assert.assertEquals(2, registerValues.getDouble(0), 0);
+        Assert.assertEquals(1, registerValues.getDouble(10), 0);
+        Assert.assertEquals(1, registerValues.getDouble(20), 0);
+    }
+
+    @Test
+    public void testIncompleteClassIsReadAgain() {
+        PollClassTracker tracker = new PollClassTracker(intervalRequest);
+
+        // The register of the once class failed
+        RegisterValues registerValues = values(List.of(power, energy), 1);
+        tracker.complete("meter", models, models, registerValues, 0);
+
+        Assert.assertFalse(registerValues.contains(20));
+        Assert.assertEquals(List.of(power, serial), tracker.getDue("meter", models, 1000));
+    }
+
+    private static RegisterValues values(List<ModbusModel> models, int value) {
+        RegisterValues registerValues = new RegisterValues();
+        for (ModbusModel model : models) {
+            registerValues.putInt(model.getAddress(), value);
+        }
+        return registerValues;
+    }
+}
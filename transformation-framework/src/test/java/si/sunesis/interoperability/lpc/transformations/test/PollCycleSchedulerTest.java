@@ -0,0 +1,92 @@
+package si.sunesis.interoperability.lpc.transformations.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+import si.sunesis.interoperability.lpc.transformations.enums.OverrunPolicy;
+import si.sunesis.interoperability.lpc.transformations.transformation.PollCycleScheduler;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+public class PollCycleSchedulerTest {
+
+    @Test
+    public void testNoOverrun() {
+        PollCycleScheduler.Slot slot = PollCycleScheduler.next(1000, 1900, 1000, OverrunPolicy.SKIP, 1);
+
+        Assert.assertEquals(2000, slot.tick());
+        Assert.assertEquals(0, slot.missed());
+        Assert.assertFalse(slot.late());
+    }
+
+    @Test
+    public void testSkipWaitsForNextTick() {
+        // The cycle of tick 1000 completed at 3500, ticks 2000 and 3000 already started
+        PollCycleScheduler.Slot slot = PollCycleScheduler.next(1000, 3500, 1000, OverrunPolicy.SKIP, 1);
+
+        Assert.assertEquals(4000, slot.tick());
+        Assert.assertEquals(2, slot.missed());
+        Assert.assertFalse(slot.late());
+    }
+
+    @Test
+    public void testRealignRunsLatestTick() {
+        PollCycleScheduler.Slot slot = PollCycleScheduler.next(1000, 3500, 1000, OverrunPolicy.REALIGN, 1);
+
+        Assert.assertEquals(3000, slot.tick());
+        Assert.assertEquals(1, slot.missed());
+        Assert.assertTrue(slot.late());
+
+        // Back on the grid after the late cycle
+        slot = PollCycleScheduler.next(3000, 3600, 1000, OverrunPolicy.REALIGN, 1);
+        Assert.assertEquals(4000, slot.tick());
+        Assert.assertFalse(slot.late());
+    }
+
+    @Test
+    public void testQueueDropsOldestTicksOverLimit() {
+        PollCycleScheduler.Slot slot = PollCycleScheduler.next(1000, 5500, 1000, OverrunPolicy.QUEUE, 2);
+
+        // Ticks 2000 to 5000 started, only 4000 and 5000 are run
+        Assert.assertEquals(4000, slot.tick());
+        Assert.assertEquals(2, slot.missed());
+        Assert.assertTrue(slot.late());
+
+        slot = PollCycleScheduler.next(4000, 5600, 1000, OverrunPolicy.QUEUE, 2);
+        Assert.assertEquals(5000, slot.tick());
+        Assert.assertEquals(0, slot.missed());
+        Assert.assertTrue(slot.late());
+    }
+
+    @Test
+    public void testSlowCyclesDoNotOverlap() throws InterruptedException {
+        ScheduledExecutorService executorService = Executors.newScheduledThreadPool(2);
+        PollCycleScheduler scheduler = new PollCycleScheduler("test", executorService, 50, 0, OverrunPolicy.SKIP, 1);
+        List<Long> ticks = new CopyOnWriteArrayList<>();
+
+        long start = System.currentTimeMillis();
+        scheduler.start(start, tick -> {
+            ticks.add(tick);
+            try {
+                Thread.sleep(120);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        Thread.sleep(600);
+        scheduler.cancel();
+        executorService.shutdownNow();
+
+        Assert.assertTrue(ticks.size() >= 3);
+        Assert.assertTrue(ticks.size() <= 5);
+        for (int i = 1; i < ticks.size(); i++) {
+            Assert.assertEquals(0, (ticks.get(i) - start) % 50);
+            Assert.assertTrue(ticks.get(i) - ticks.get(i - 1) >= 150);
+        }
+        Assert.assertTrue(scheduler.getMissedCycles() >= 4);
+        Assert.assertEquals(0, scheduler.getLateCycles());
+    }
+}
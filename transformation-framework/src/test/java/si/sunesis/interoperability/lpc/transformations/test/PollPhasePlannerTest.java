@@ -0,0 +1,52 @@
+package si.sunesis.interoperability.lpc.transformations.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+import si.sunesis.interoperability.lpc.transformations.enums.PhaseMode;
+import si.sunesis.interoperability.lpc.transformations.transformation.PollPhasePlanner;
+
+public class PollPhasePlannerTest {
+
+    @Test
+    public void testAlignedAndExplicitOffset() {
+        PollPhasePlanner planner = new PollPhasePlanner();
+
+        Assert.assertEquals(0, planner.plan("inverter", 1000, PhaseMode.ALIGNED, null));
+        Assert.assertEquals(250, planner.plan("meter", 1000, PhaseMode.SPREAD, 250));
+        Assert.assertEquals(200, planner.plan("battery", 1000, PhaseMode.HASH, 1200));
+    }
+
+    @Test
+    public void testHashIsDeterministic() {
+        long phase = new PollPhasePlanner().plan("inverter", 10000, PhaseMode.HASH, null);
+
+        Assert.assertEquals(phase, new PollPhasePlanner().plan("inverter", 10000, PhaseMode.HASH, null));
+        Assert.assertTrue(phase >= 0 && phase < 10000);
+        Assert.assertNotEquals(phase, new PollPhasePlanner().plan("meter", 10000, PhaseMode.HASH, null));
+    }
+
+    @Test
+    public void testSpreadFillsLargestGap() {
+        PollPhasePlanner planner = new PollPhasePlanner();
+
+        Assert.assertEquals(0, planner.plan("a", 1000, PhaseMode.SPREAD, null));
+        Assert.assertEquals(500, planner.plan("b", 1000, PhaseMode.SPREAD, null));
+        Assert.assertEquals(250, planner.plan("c", 1000, PhaseMode.SPREAD, null));
+        Assert.assertEquals(750, planner.plan("d", 1000, PhaseMode.SPREAD, null));
+
+        // Polls with other intervals are spread separately
+        Assert.assertEquals(0, planner.plan("e", 5000, PhaseMode.SPREAD, null));
+    }
+
+    @Test
+    public void testReleasedPhaseIsReused() {
+        PollPhasePlanner planner = new PollPhasePlanner();
+        planner.plan("a", 1000, PhaseMode.SPREAD, null);
+        planner.plan("b", 1000, PhaseMode.SPREAD, null);
+        planner.plan("c", 1000, PhaseMode.SPREAD, null);
+
+        planner.release("b");
+
+        Assert.assertEquals(625, planner.plan("d", 1000, PhaseMode.SPREAD, null));
+    }
+}
@@ -0,0 +1,60 @@
+package si.sunesis.interoperability.lpc.transformations.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+import si.sunesis.interoperability.lpc.transformations.modbus.PythonModbusFrame;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+public class PythonModbusFrameTest {
+
+    @Test
+    public void testEncodeRequests() {
+        ByteBuffer frame = PythonModbusFrame.encodeRequests(List.of(
+                new PythonModbusFrame.Request("plc", 502, 1, 16, 40001, 2, new int[]{0x1234, -1})));
+
+        byte[] expected = {
+                0, 0, 0, 21,
+                0, 1,
+                0, 3, 'p', 'l', 'c',
+                0x01, (byte) 0xF6,
+                1, 16,
+                (byte) 0x9C, 0x41,
+                0, 2,
+                0, 2, 0x12, 0x34, (byte) 0xFF, (byte) 0xFF
+        };
+
+        byte[] actual = new byte[frame.remaining()];
+        frame.get(actual);
+        Assert.assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    public void testDecodeResponses() throws IOException {
+        byte[] message = "Unsupported function code: 99".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer payload = ByteBuffer.allocate(2 + 3 + 4 + 2 + 3 + 2 + message.length);
+        payload.putShort((short) 2);
+        payload.put((byte) 0).putShort((short) 2).putShort((short) 0xFFFE).putShort((short) 7).putShort((short) 0);
+        payload.put((byte) 1).putShort((short) 0).putShort((short) message.length).put(message);
+        payload.flip();
+
+        List<PythonModbusFrame.Response> responses = PythonModbusFrame.decodeResponses(payload);
+
+        Assert.assertEquals(2, responses.size());
+        Assert.assertTrue(responses.get(0).success());
+        Assert.assertArrayEquals(new int[]{0xFFFE, 7}, responses.get(0).data());
+        Assert.assertFalse(responses.get(1).success());
+        Assert.assertEquals(0, responses.get(1).data().length);
+        Assert.assertEquals("Unsupported function code: 99", responses.get(1).message());
+    }
+
+    @Test
+    public void testTruncatedResponse() {
+        ByteBuffer payload = ByteBuffer.wrap(new byte[]{0, 1, 0, 0, 5, 0, 1});
+
+        Assert.assertThrows(IOException.class, () -> PythonModbusFrame.decodeResponses(payload));
+    }
+}
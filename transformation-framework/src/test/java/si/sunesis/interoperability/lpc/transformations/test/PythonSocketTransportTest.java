@@ -0,0 +1,177 @@
+package si.sunesis.interoperability.lpc.transformations.test;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import si.sunesis.interoperability.lpc.transformations.modbus.NioModbusEngine;
+import si.sunesis.interoperability.lpc.transformations.modbus.PythonModbusFrame;
+import si.sunesis.interoperability.lpc.transformations.modbus.PythonSocketTransport;
+
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PythonSocketTransportTest {
+
+    private Path directory;
+
+    private ServerSocketChannel server;
+
+    private PythonSocketTransport transport;
+
+    private final AtomicInteger connections = new AtomicInteger();
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("python-modbus");
+        Path socketPath = directory.resolve("modbus.sock");
+
+        server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(UnixDomainSocketAddress.of(socketPath));
+
+        Thread thread = new Thread(this::accept);
+        thread.setDaemon(true);
+        thread.start();
+
+        transport = new PythonSocketTransport(NioModbusEngine.getInstance(), socketPath);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        transport.close();
+        server.close();
+        Files.deleteIfExists(directory.resolve("modbus.sock"));
+        Files.deleteIfExists(directory);
+    }
+
+    @Test
+    public void testResponsesInOrderOfRequests() throws Exception {
+        List<PythonModbusFrame.Response> responses = transport.exchange(List.of(request(10), request(20)), deadline(2000))
+                .get(2, TimeUnit.SECONDS);
+
+        Assert.assertEquals(2, responses.size());
+        Assert.assertArrayEquals(new int[]{10}, responses.get(0).data());
+        Assert.assertArrayEquals(new int[]{20}, responses.get(1).data());
+    }
+
+    @Test
+    public void testConcurrentExchangesAndReuse() throws Exception {
+        List<CompletableFuture<List<PythonModbusFrame.Response>>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(transport.exchange(List.of(request(i)), deadline(2000)));
+        }
+
+        for (int i = 0; i < 4; i++) {
+            Assert.assertArrayEquals(new int[]{i}, futures.get(i).get(2, TimeUnit.SECONDS).get(0).data());
+        }
+
+        int opened = connections.get();
+        Assert.assertTrue(opened <= 4);
+
+        // Idle connections are reused
+        Assert.assertArrayEquals(new int[]{5}, transport.exchange(List.of(request(5)), deadline(2000))
+                .get(2, TimeUnit.SECONDS).get(0).data());
+        Assert.assertEquals(opened, connections.get());
+    }
+
+    @Test
+    public void testTimedOutConnectionIsNotReused() throws Exception {
+        CompletableFuture<List<PythonModbusFrame.Response>> unanswered = transport.exchange(List.of(request(999)), deadline(200));
+
+        ExecutionException exception = Assert.assertThrows(ExecutionException.class, unanswered::get);
+        Assert.assertTrue(exception.getCause() instanceof TimeoutException);
+
+        // The late response of the closed connection cannot be read by the next exchange
+        Assert.assertArrayEquals(new int[]{7}, transport.exchange(List.of(request(7)), deadline(2000))
+                .get(2, TimeUnit.SECONDS).get(0).data());
+        Assert.assertEquals(2, connections.get());
+    }
+
+    private static PythonModbusFrame.Request request(int start) {
+        return new PythonModbusFrame.Request("plc", 502, 1, 3, start, 1, new int[0]);
+    }
+
+    private static long deadline(long timeout) {
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+    }
+
+    private void accept() {
+        while (server.isOpen()) {
+            try {
+                SocketChannel channel = server.accept();
+                connections.incrementAndGet();
+
+                Thread thread = new Thread(() -> serve(channel));
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException ignored) {
+                // Server socket closed
+            }
+        }
+    }
+
+    /**
+     * Answers every request of a frame with its start register as the only data word,
+     * frames containing a request for register 999 are never answered.
+     */
+    private static void serve(SocketChannel channel) {
+        try (channel) {
+            while (true) {
+                ByteBuffer header = readFully(channel, ByteBuffer.allocate(PythonModbusFrame.HEADER_LENGTH));
+                ByteBuffer payload = readFully(channel, ByteBuffer.allocate(header.getInt()));
+
+                int count = Short.toUnsignedInt(payload.getShort());
+                List<Integer> starts = new ArrayList<>();
+                for (int i = 0; i < count; i++) {
+                    // Host, port, unit ID and function code are skipped
+                    int hostLength = Short.toUnsignedInt(payload.getShort());
+                    payload.position(payload.position() + hostLength + 4);
+                    starts.add(Short.toUnsignedInt(payload.getShort()));
+                    payload.getShort();
+                    int values = Short.toUnsignedInt(payload.getShort());
+                    payload.position(payload.position() + 2 * values);
+                }
+
+                if (starts.contains(999)) {
+                    continue;
+                }
+
+                ByteBuffer response = ByteBuffer.allocate(PythonModbusFrame.HEADER_LENGTH + 2 + 7 * count);
+                response.putInt(2 + 7 * count).putShort((short) count);
+                for (int start : starts) {
+                    response.put((byte) 0).putShort((short) 1).putShort((short) start).putShort((short) 0);
+                }
+
+                response.flip();
+                while (response.hasRemaining()) {
+                    channel.write(response);
+                }
+            }
+        } catch (IOException ignored) {
+            // Connection closed
+        }
+    }
+
+    private static ByteBuffer readFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("Connection closed");
+            }
+        }
+
+        return buffer.flip();
+    }
+}
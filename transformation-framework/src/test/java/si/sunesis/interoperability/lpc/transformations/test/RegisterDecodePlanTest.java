@@ -0,0 +1,187 @@
+package si.sunesis.interoperability.lpc.transformations.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+import si.sunesis.interoperability.lpc.transformations.configuration.models.MessageModel;
+import si.sunesis.interoperability.lpc.transformations.modbus.ModbusPdu;
+import si.sunesis.interoperability.lpc.transformations.transformation.RegisterDecodePlan;
+import si.sunesis.interoperability.lpc.transformations.transformation.RegisterValues;
+
+import static si.sunesis.interoperability.lpc.transformations.test.ModbusFixtures.message;
+
+public class RegisterDecodePlanTest {
+
+    @Test
+    public void testDecodeBigEndianBlock() {
+        MessageModel messageModel = message("""
+                modbus-function-code: 3
+                modbus-registers:
+                  - register-address: 104
+                    type: uint32
+                  - register-address: 100
+                    type: int16
+                    factor: 10
+                  - register-address: 101
+                    type: uint16
+                  - register-address: 102
+                    type: float32
+                    factor: 2
+                  - register-address: 106
+                    type: uint64
+                """);
+        RegisterDecodePlan.compileInto(messageModel);
+
+        byte[] block = new byte[]{
+                (byte) 0xFF, (byte) 0xFE,
+                (byte) 0xFF, (byte) 0xFE,
+                0x3F, (byte) 0xC0, 0x00, 0x00,
+                (byte) 0x80, 0x00, 0x00, 0x00,
+                (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF
+        };
+
+        RegisterValues registerValues = new RegisterValues();
+        messageModel.getDecodePlan().decode(block, 100, registerValues);
+
+        Assert.assertEquals("-20", registerValues.format(100));
+        Assert.assertEquals("65534", registerValues.format(101));
+        Assert.assertEquals("3.0", registerValues.format(102));
+        Assert.assertEquals("2147483648", registerValues.format(104));
+        Assert.assertEquals("18446744073709551615", registerValues.format(106));
+        Assert.assertEquals(RegisterValues.ValueType.FLOAT, registerValues.getType(102));
+        Assert.assertEquals(RegisterValues.ValueType.LONG, registerValues.getType(104));
+    }
+
+    @Test
+    public void testDecodeEndianness() {
+        // 1.5f is 3F C0 00 00 in big-endian
+        String[] endianness = {"big", "big-swap", "little", "little-swap"};
+        byte[][] blocks = {
+                {0x3F, (byte) 0xC0, 0x00, 0x00},
+                {(byte) 0xC0, 0x3F, 0x00, 0x00},
+                {0x00, 0x00, (byte) 0xC0, 0x3F},
+                {0x00, 0x00, 0x3F, (byte) 0xC0}
+        };
+
+        for (int i = 0; i < endianness.length; i++) {
+            MessageModel messageModel = message("""
+                    modbus-function-code: 4
+                    endianness: %s
+                    modbus-registers:
+                      - register-address: 0
+                        type: float32
+                    """.formatted(endianness[i]));
+            RegisterDecodePlan.compileInto(messageModel);
+
+            RegisterValues registerValues = new RegisterValues();
+            messageModel.getDecodePlan().decode(blocks[i], 0, registerValues);
+
+            Assert.assertEquals(endianness[i], "1.5", registerValues.format(0));
+        }
+    }
+
+    @Test
+    public void testDecodeCoalescedLittleEndianBlockFromPdu() {
+        MessageModel messageModel = message("""
+                modbus-function-code: 3
+                endianness: little
+                modbus-registers:
+                  - register-address: 10
+                    type: int16
+                  - register-address: 11
+                    type: uint32
+                  - register-address: 13
+                    type: int64
+                  - register-address: 17
+                    type: float64
+                """);
+        RegisterDecodePlan.compileInto(messageModel);
+
+        // Function code, byte count and 11 registers, every value stored with its least significant byte first
+        byte[] pdu = new byte[]{0x03, 22,
+                (byte) 0xFE, (byte) 0xFF,
+                0x04, 0x03, 0x02, 0x01,
+                (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+                0x00, 0x00, 0x00, 0x00, 0x00, 0x00, (byte) 0xF8, 0x3F};
+
+        RegisterValues registerValues = new RegisterValues();
+        messageModel.getDecodePlan().decode(ModbusPdu.getDataView(pdu), 10, registerValues);
+
+        Assert.assertEquals("-2", registerValues.format(10));
+        Assert.assertEquals(String.valueOf(0x01020304), registerValues.format(11));
+        Assert.assertEquals("-1", registerValues.format(13));
+        Assert.assertEquals("1.5", registerValues.format(17));
+    }
+
+    @Test
+    public void testDecodeSwappedWords() {
+        MessageModel messageModel = message("""
+                modbus-function-code: 3
+                endianness: little-swap
+                modbus-registers:
+                  - register-address: 0
+                    type: int64
+                  - register-address: 4
+                    type: int16
+                """);
+        RegisterDecodePlan.compileInto(messageModel);
+
+        byte[] block = new byte[]{0x07, 0x08, 0x05, 0x06, 0x03, 0x04, 0x01, 0x02, 0x12, 0x34};
+
+        RegisterValues registerValues = new RegisterValues();
+        messageModel.getDecodePlan().decode(block, 0, registerValues);
+
+        Assert.assertEquals(String.valueOf(0x0102030405060708L), registerValues.format(0));
+        Assert.assertEquals(String.valueOf(0x1234), registerValues.format(4));
+    }
+
+    @Test
+    public void testSkipsDefaultAndPartialValues() {
+        MessageModel messageModel = message("""
+                modbus-function-code: 3
+                modbus-registers:
+                  - register-address: 0
+                    type: int16
+                  - register-address: 1
+                    type: int16
+                    default: 5
+                  - register-address: 2
+                    type: int32
+                """);
+        RegisterDecodePlan.compileInto(messageModel);
+
+        RegisterDecodePlan plan = messageModel.getDecodePlan();
+        Assert.assertEquals(2, plan.size());
+
+        RegisterValues registerValues = new RegisterValues();
+        plan.decode(new byte[]{0x00, 0x07, 0x00, 0x01, 0x00, 0x02}, 0, registerValues);
+
+        Assert.assertEquals("7", registerValues.format(0));
+        Assert.assertFalse(registerValues.contains(1));
+        Assert.assertFalse(registerValues.contains(2));
+    }
+
+    @Test
+    public void testOnlyRegisterReadsAreCompiled() {
+        MessageModel messageModel = message("""
+                modbus-function-code: 16
+                modbus-registers:
+                  - register-address: 0
+                    type: string
+                """);
+        RegisterDecodePlan.compileInto(messageModel);
+
+        Assert.assertNull(messageModel.getDecodePlan());
+    }
+
+    @Test
+    public void testUnsupportedTypeFailsCompile() {
+        MessageModel messageModel = message("""
+                modbus-function-code: 3
+                modbus-registers:
+                  - register-address: 0
+                    type: string
+                """);
+
+        Assert.assertThrows(IllegalArgumentException.class, () -> RegisterDecodePlan.compileInto(messageModel));
+    }
+}
@@ -0,0 +1,167 @@
+package si.sunesis.interoperability.lpc.transformations.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+import si.sunesis.interoperability.lpc.transformations.configuration.models.ConnectionModel;
+import si.sunesis.interoperability.lpc.transformations.configuration.models.MessageModel;
+import si.sunesis.interoperability.lpc.transformations.configuration.models.ModbusModel;
+import si.sunesis.interoperability.lpc.transformations.transformation.RegisterHoleMap;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static si.sunesis.interoperability.lpc.transformations.test.ModbusFixtures.connection;
+import static si.sunesis.interoperability.lpc.transformations.test.ModbusFixtures.message;
+import static si.sunesis.interoperability.lpc.transformations.test.ModbusFixtures.register;
+
+public class RegisterHoleMapTest {
+
+    private static final String DEVICE = "inverter-1:1";
+
+    private final List<ModbusModel> block = List.of(register(100, "float32"), register(104, "float32"), register(110, "int16"), register(111, "int16"));
+
+    @Test
+    public void testBlockIsSplitAtLearnedHole() {
+        RegisterHoleMap holeMap = new RegisterHoleMap(null);
+        holeMap.learn("inverter", 106, 110);
+
+        List<List<ModbusModel>> blocks = holeMap.split("inverter", DEVICE, List.of(block), 0);
+
+        Assert.assertEquals(2, blocks.size());
+        Assert.assertEquals(List.of(block.get(0), block.get(1)), blocks.get(0));
+        Assert.assertEquals(List.of(block.get(2), block.get(3)), blocks.get(1));
+
+        // Other device models are not affected
+        Assert.assertEquals(1, holeMap.split("meter", DEVICE, List.of(block), 0).size());
+    }
+
+    @Test
+    public void testHoleOnlySplitsGaps() {
+        RegisterHoleMap holeMap = new RegisterHoleMap(null);
+        // Overlaps the configured register 104, but only the gap after it is skipped
+        holeMap.learn("inverter", 105, 110);
+
+        List<List<ModbusModel>> blocks = holeMap.split("inverter", DEVICE, List.of(block), 0);
+
+        Assert.assertEquals(2, blocks.size());
+        Assert.assertEquals(2, blocks.get(0).size());
+        Assert.assertEquals(2, blocks.get(1).size());
+    }
+
+    @Test
+    public void testUnreadableRegisterIsLeftOut() {
+        RegisterHoleMap holeMap = new RegisterHoleMap(null);
+        holeMap.learn(DEVICE, block.get(2), 0);
+
+        List<List<ModbusModel>> blocks = holeMap.split("inverter", DEVICE, List.of(block), 0);
+
+        Assert.assertEquals(2, blocks.size());
+        Assert.assertEquals(List.of(block.get(0), block.get(1)), blocks.get(0));
+        Assert.assertEquals(List.of(block.get(3)), blocks.get(1));
+
+        // A block of unreadable registers only is not read at all
+        Assert.assertTrue(holeMap.split("inverter", DEVICE, List.of(List.of(block.get(2))), 0).isEmpty());
+
+        // Other devices of the same device model still read the register
+        Assert.assertEquals(List.of(block), holeMap.split("inverter", "inverter-2:1", List.of(block), 0));
+    }
+
+    @Test
+    public void testUnreadableRegisterIsReadAgain() {
+        RegisterHoleMap holeMap = new RegisterHoleMap(null);
+        holeMap.learn(DEVICE, block.get(2), 0);
+
+        Assert.assertEquals(2, holeMap.split("inverter", DEVICE, List.of(block), RegisterHoleMap.REPROBE_INTERVAL - 1).size());
+        Assert.assertEquals(List.of(block), holeMap.split("inverter", DEVICE, List.of(block), RegisterHoleMap.REPROBE_INTERVAL));
+    }
+
+    @Test
+    public void testRegisterInsideHoleIsReadAlone() {
+        RegisterHoleMap holeMap = new RegisterHoleMap(null);
+        // Learned by another message of the device model, which does not read register 104
+        holeMap.learn("inverter", 102, 110);
+
+        List<List<ModbusModel>> blocks = holeMap.split("inverter", DEVICE, List.of(block), 0);
+
+        Assert.assertEquals(List.of(List.of(block.get(0)), List.of(block.get(1)), List.of(block.get(2), block.get(3))), blocks);
+    }
+
+    @Test
+    public void testLayoutIsPersisted() throws IOException {
+        Path file = Files.createTempFile("register-layouts", ".json");
+        Files.delete(file);
+
+        try {
+            new RegisterHoleMap(file).learn("inverter", 106, 110);
+
+            RegisterHoleMap reloaded = new RegisterHoleMap(file);
+            Assert.assertEquals(2, reloaded.split("inverter", DEVICE, List.of(block), 0).size());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    public void testDeviceModelSharesLearnedLayout() {
+        String registers = """
+                modbus-registers:
+                  - register-address: 100
+                    type: float32
+                  - register-address: 104
+                    type: float32
+                  - register-address: 110
+                    type: int16
+                  - register-address: 111
+                    type: int16
+                """;
+        MessageModel messageModel = message("""
+                modbus-function-code: 3
+                modbus-device-id: 1
+                device-model: inverter
+                """ + registers);
+        ConnectionModel first = connection("""
+                name: inverter-1
+                type: Modbus
+                """);
+        ConnectionModel second = connection("""
+                name: inverter-2
+                type: Modbus
+                """);
+        List<ModbusModel> readBlock = messageModel.getModbusRegisters();
+
+        // Both halves of the failed block were readable, so the registers between them are not
+        RegisterHoleMap holeMap = new RegisterHoleMap(null);
+        List<List<ModbusModel>> halves = RegisterHoleMap.bisect(readBlock);
+        holeMap.learn(RegisterHoleMap.getLayout(messageModel, first), halves.get(0), halves.get(1));
+
+        Assert.assertEquals(2, holeMap.split(RegisterHoleMap.getLayout(messageModel, second), DEVICE, List.of(readBlock), 0).size());
+
+        // Without a device model every device learns its own layout
+        MessageModel ownLayout = message("""
+                modbus-function-code: 3
+                modbus-device-id: 1
+                """ + registers);
+        holeMap.learn(RegisterHoleMap.getLayout(ownLayout, first), halves.get(0), halves.get(1));
+
+        Assert.assertEquals("inverter-1:1", RegisterHoleMap.getLayout(ownLayout, first));
+        Assert.assertEquals(2, holeMap.split(RegisterHoleMap.getLayout(ownLayout, first), DEVICE, List.of(readBlock), 0).size());
+        Assert.assertEquals(1, holeMap.split(RegisterHoleMap.getLayout(ownLayout, second), DEVICE, List.of(readBlock), 0).size());
+    }
+
+    @Test
+    public void testBisectRequests() {
+        // 4 registers are halved twice, reading both halves every round, a single register is not bisected
+        Assert.assertEquals(4, RegisterHoleMap.getBisectRequests(List.of(block)));
+        Assert.assertEquals(4 + 4, RegisterHoleMap.getBisectRequests(List.of(block.subList(0, 3), block, block.subList(0, 1))));
+    }
+
+    @Test
+    public void testBisect() {
+        List<List<ModbusModel>> halves = RegisterHoleMap.bisect(block.subList(0, 3));
+
+        Assert.assertEquals(List.of(block.get(0)), halves.get(0));
+        Assert.assertEquals(List.of(block.get(1), block.get(2)), halves.get(1));
+    }
+}
@@ -0,0 +1,134 @@
+package si.sunesis.interoperability.lpc.transformations.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+import si.sunesis.interoperability.lpc.transformations.modbus.RegisterSnapshotCache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RegisterSnapshotCacheTest {
+
+    private final Object connection = new Object();
+
+    @Test
+    public void testOverlappingBlockServedFromCache() throws Exception {
+        RegisterSnapshotCache cache = new RegisterSnapshotCache();
+        AtomicInteger reads = new AtomicInteger();
+
+        byte[] first = cache.read(connection, 1, 3, 100, 3, 1000, () -> {
+            reads.incrementAndGet();
+            return CompletableFuture.completedFuture(new byte[]{0, 1, 0, 2, 0, 3});
+        }).get();
+        Assert.assertArrayEquals(new byte[]{0, 1, 0, 2, 0, 3}, first);
+
+        byte[] second = cache.read(connection, 1, 3, 101, 2, 1000, () -> {
+            reads.incrementAndGet();
+            return CompletableFuture.completedFuture(new byte[4]);
+        }).get();
+        Assert.assertArrayEquals(new byte[]{0, 2, 0, 3}, second);
+        Assert.assertEquals(1, reads.get());
+
+        // Other function code and unit ID are not shared
+        cache.read(connection, 1, 4, 100, 1, 1000, () -> {
+            reads.incrementAndGet();
+            return CompletableFuture.completedFuture(new byte[2]);
+        }).get();
+        cache.read(connection, 2, 3, 100, 1, 1000, () -> {
+            reads.incrementAndGet();
+            return CompletableFuture.completedFuture(new byte[2]);
+        }).get();
+        Assert.assertEquals(3, reads.get());
+    }
+
+    @Test
+    public void testExpiredAndInvalidatedRegistersAreRead() throws Exception {
+        RegisterSnapshotCache cache = new RegisterSnapshotCache();
+        AtomicInteger reads = new AtomicInteger();
+
+        cache.read(connection, 1, 3, 0, 2, 1000, () -> {
+            reads.incrementAndGet();
+            return CompletableFuture.completedFuture(new byte[4]);
+        }).get();
+
+        Thread.sleep(20);
+        cache.read(connection, 1, 3, 0, 2, 10, () -> {
+            reads.incrementAndGet();
+            return CompletableFuture.completedFuture(new byte[4]);
+        }).get();
+        Assert.assertEquals(2, reads.get());
+
+        cache.invalidate(connection, 1, 3, 1, 1);
+        byte[] bytes = cache.read(connection, 1, 3, 0, 2, 1000, () -> {
+            reads.incrementAndGet();
+            return CompletableFuture.completedFuture(new byte[]{0, 0, 0, 7});
+        }).get();
+        Assert.assertArrayEquals(new byte[]{0, 0, 0, 7}, bytes);
+        Assert.assertEquals(3, reads.get());
+    }
+
+    @Test
+    public void testPendingReadIsShared() throws Exception {
+        RegisterSnapshotCache cache = new RegisterSnapshotCache();
+        AtomicInteger reads = new AtomicInteger();
+        CompletableFuture<byte[]> device = new CompletableFuture<>();
+
+        CompletableFuture<byte[]> first = cache.read(connection, 1, 3, 10, 1, 1000, () -> {
+            reads.incrementAndGet();
+            return device;
+        });
+        CompletableFuture<byte[]> second = cache.read(connection, 1, 3, 10, 1, 1000, () -> {
+            reads.incrementAndGet();
+            return CompletableFuture.completedFuture(new byte[2]);
+        });
+
+        Assert.assertFalse(second.isDone());
+        device.complete(new byte[]{1, 2});
+
+        Assert.assertArrayEquals(new byte[]{1, 2}, first.get());
+        Assert.assertArrayEquals(new byte[]{1, 2}, second.get());
+        Assert.assertEquals(1, reads.get());
+    }
+
+    @Test
+    public void testFailedReadIsNotCached() {
+        RegisterSnapshotCache cache = new RegisterSnapshotCache();
+
+        CompletableFuture<byte[]> failed = cache.read(connection, 1, 3, 0, 1, 1000,
+                () -> CompletableFuture.failedFuture(new IllegalStateException("timeout")));
+        Assert.assertTrue(failed.isCompletedExceptionally());
+
+        CompletableFuture<byte[]> retried = cache.read(connection, 1, 3, 0, 1, 1000,
+                () -> CompletableFuture.completedFuture(new byte[]{0, 5}));
+        Assert.assertArrayEquals(new byte[]{0, 5}, retried.join());
+    }
+
+    @Test
+    public void testReadPendingDuringInvalidateIsNotCached() throws Exception {
+        RegisterSnapshotCache cache = new RegisterSnapshotCache();
+        AtomicInteger reads = new AtomicInteger();
+
+        // Read sent before a write to the device, answered after the write invalidated the registers
+        CompletableFuture<byte[]> device = new CompletableFuture<>();
+        CompletableFuture<byte[]> beforeWrite = cache.read(connection, 1, 3, 0, 1, 1000, () -> device);
+        cache.invalidate(connection, 1, 3, 0, 1);
+
+        // Not shared with the pending read
+        CompletableFuture<byte[]> afterWrite = cache.read(connection, 1, 3, 0, 1, 1000, () -> {
+            reads.incrementAndGet();
+            return CompletableFuture.completedFuture(new byte[]{0, 2});
+        });
+        Assert.assertArrayEquals(new byte[]{0, 2}, afterWrite.get());
+
+        device.complete(new byte[]{0, 1});
+        Assert.assertArrayEquals(new byte[]{0, 1}, beforeWrite.get());
+
+        // The value from before the write does not replace the cached value
+        byte[] cached = cache.read(connection, 1, 3, 0, 1, 1000, () -> {
+            reads.incrementAndGet();
+            return CompletableFuture.completedFuture(new byte[]{0, 3});
+        }).get();
+        Assert.assertArrayEquals(new byte[]{0, 2}, cached);
+        Assert.assertEquals(1, reads.get());
+    }
+}
@@ -0,0 +1,98 @@
+package si.sunesis.interoperability.lpc.transformations.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+import si.sunesis.interoperability.lpc.transformations.transformation.RegisterValues;
+
+public class RegisterValuesTest {
+
+    @Test
+    public void testFormatMatchesJavaTypes() {
+        RegisterValues values = new RegisterValues();
+        values.putInt(0, -5);
+        values.putLong(1, 4294967295L);
+        values.putUnsignedLong(2, -1L);
+        values.putFloat(3, 0.1f);
+        values.putDouble(4, 0.1);
+        values.putBoolean(5, true);
+        values.put(6, 2.5f);
+
+        Assert.assertEquals("-5", values.format(0));
+        Assert.assertEquals("4294967295", values.format(1));
+        Assert.assertEquals("18446744073709551615", values.format(2));
+        Assert.assertEquals("0.1", values.format(3));
+        Assert.assertEquals("0.1", values.format(4));
+        Assert.assertEquals("true", values.format(5));
+        Assert.assertEquals("2.5", values.format(6));
+        Assert.assertNull(values.format(7));
+        Assert.assertEquals(1.8446744073709552E19, values.getDouble(2), 0);
+    }
+
+    @Test
+    public void testGrowAndReuse() {
+        RegisterValues values = new RegisterValues(2);
+        for (int address = 0; address < 1000; address += 3) {
+            values.putInt(address, address);
+        }
+
+        Assert.assertEquals(334, values.size());
+        for (int address = 0; address < 1000; address += 3) {
+            Assert.assertEquals(String.valueOf(address), values.format(address));
+            Assert.assertFalse(values.contains(address + 1));
+        }
+
+        values.putInt(3, 7);
+        Assert.assertEquals(334, values.size());
+        Assert.assertEquals("7", values.format(3));
+
+        values.clear();
+        Assert.assertTrue(values.isEmpty());
+        Assert.assertFalse(values.contains(3));
+
+        values.putInt(3, 8);
+        Assert.assertEquals("8", values.format(3));
+    }
+
+    @Test
+    public void testCopyAndCompare() {
+        RegisterValues values = new RegisterValues();
+        values.putFloat(10, 1.5f);
+
+        RegisterValues copy = values.copy();
+        Assert.assertTrue(copy.equalsAt(10, values));
+
+        values.putFloat(10, 2.5f);
+        Assert.assertFalse(copy.equalsAt(10, values));
+        Assert.assertEquals("1.5", copy.format(10));
+        Assert.assertTrue(copy.equalsAt(11, values));
+    }
+
+    @Test(timeout = 10000)
+    public void testMergeAndCompareInBothDirections() throws InterruptedException {
+        RegisterValues first = new RegisterValues();
+        RegisterValues second = new RegisterValues();
+        first.putInt(1, 1);
+        second.putInt(1, 2);
+
+        // Stores merged into and compared with each other from two threads at the same time
+        Thread forward = new Thread(() -> {
+            for (int i = 0; i < 100_000; i++) {
+                first.putAll(second);
+                first.equalsAt(1, second);
+            }
+        });
+        Thread backward = new Thread(() -> {
+            for (int i = 0; i < 100_000; i++) {
+                second.putAll(first);
+                second.equalsAt(1, first);
+            }
+        });
+
+        forward.start();
+        backward.start();
+        forward.join();
+        backward.join();
+
+        Assert.assertTrue(first.equalsAt(1, second));
+    }
+}
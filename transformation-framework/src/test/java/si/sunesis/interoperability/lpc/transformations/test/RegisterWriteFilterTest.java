@@ -0,0 +1,141 @@
+package si.sunesis.interoperability.lpc.transformations.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+import si.sunesis.interoperability.lpc.transformations.configuration.models.MessageModel;
+import si.sunesis.interoperability.lpc.transformations.configuration.models.ModbusModel;
+import si.sunesis.interoperability.lpc.transformations.transformation.RegisterWriteFilter;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static si.sunesis.interoperability.lpc.transformations.test.ModbusFixtures.message;
+import static si.sunesis.interoperability.lpc.transformations.test.ModbusFixtures.register;
+
+public class RegisterWriteFilterTest {
+
+    private final List<ModbusModel> block = List.of(register(100, "float32"), register(102, "int16"));
+
+    @Test
+    public void testUnchangedWriteIsSuppressed() {
+        RegisterWriteFilter filter = new RegisterWriteFilter();
+        int[] words = {0x4148, 0x0000, 7};
+
+        Assert.assertFalse(filter.suppress("plc:1", block, words, null, 0));
+        filter.written("plc:1", block, words, 0);
+
+        Assert.assertTrue(filter.suppress("plc:1", block, words.clone(), null, 60000));
+        Assert.assertEquals(1, filter.getSuppressedWrites());
+
+        // Other devices have their own state
+        Assert.assertFalse(filter.suppress("plc:2", block, words, null, 60000));
+    }
+
+    @Test
+    public void testChangedRegisterIsWritten() {
+        RegisterWriteFilter filter = new RegisterWriteFilter();
+        filter.written("plc:1", block, new int[]{0x4148, 0x0000, 7}, 0);
+
+        Assert.assertFalse(filter.suppress("plc:1", block, new int[]{0x4148, 0x0000, 8}, null, 0));
+        // A block starting at a register written before is compared register by register
+        Assert.assertTrue(filter.suppress("plc:1", List.of(register(102, "int16")), new int[]{7}, null, 0));
+        Assert.assertFalse(filter.suppress("plc:1", List.of(register(104, "int16")), new int[]{7}, null, 0));
+    }
+
+    @Test
+    public void testRefreshInterval() {
+        RegisterWriteFilter filter = new RegisterWriteFilter();
+        int[] words = {0x4148, 0x0000, 7};
+        filter.written("plc:1", block, words, 0);
+
+        Assert.assertTrue(filter.suppress("plc:1", block, words, 1000, 999));
+        Assert.assertFalse(filter.suppress("plc:1", block, words, 1000, 1000));
+    }
+
+    @Test
+    public void testForgetAfterFailedWrite() {
+        RegisterWriteFilter filter = new RegisterWriteFilter();
+        int[] words = {0x4148, 0x0000, 7};
+        filter.written("plc:1", block, words, 0);
+
+        filter.forget("plc:1", List.of(register(102, "int16")));
+
+        Assert.assertFalse(filter.suppress("plc:1", block, words, null, 0));
+        Assert.assertEquals(0, filter.getSuppressedWrites());
+    }
+
+    @Test
+    public void testReadReplacesChangedRegisters() {
+        RegisterWriteFilter filter = new RegisterWriteFilter();
+        int[] words = {0x4148, 0x0000, 7};
+        filter.written("plc:1", block, words, 0);
+
+        Assert.assertTrue(filter.isTracked("plc:1"));
+        Assert.assertFalse(filter.isTracked("plc:2"));
+
+        // Register 102 was changed locally to 9, the float at 100 was read unchanged
+        filter.read("plc:1", 100, new byte[]{0x41, 0x48, 0x00, 0x00, 0x00, 0x09}, 500);
+
+        Assert.assertFalse(filter.suppress("plc:1", block, words, null, 600));
+        Assert.assertTrue(filter.suppress("plc:1", block, new int[]{0x4148, 0x0000, 9}, null, 600));
+
+        // The refresh interval of a replaced register is counted from the read
+        Assert.assertTrue(filter.suppress("plc:1", List.of(register(102, "int16")), new int[]{9}, 1000, 1499));
+        Assert.assertFalse(filter.suppress("plc:1", List.of(register(102, "int16")), new int[]{9}, 1000, 1500));
+    }
+
+    @Test
+    public void testReadOfPartialRegisterIsIgnored() {
+        RegisterWriteFilter filter = new RegisterWriteFilter();
+        int[] words = {0x4148, 0x0000, -1};
+        filter.written("plc:1", block, words, 0);
+
+        // Only the second word of the float is read, and negative words compare as read from the device
+        filter.read("plc:1", 101, new byte[]{0x12, 0x34, (byte) 0xFF, (byte) 0xFF}, 0);
+
+        Assert.assertTrue(filter.suppress("plc:1", block, words, null, 0));
+    }
+
+    @Test
+    public void testFilterWithMessageConfiguration() {
+        MessageModel messageModel = message("""
+                modbus-function-code: 16
+                suppress-unchanged-writes: true
+                write-refresh-interval: 1000
+                modbus-registers:
+                  - register-address: 100
+                    type: float32
+                  - register-address: 102
+                    type: int16
+                """);
+        RegisterWriteFilter filter = new RegisterWriteFilter();
+        List<List<ModbusModel>> groups = List.of(messageModel.getModbusRegisters());
+        Map<Integer, Float> values = new HashMap<>(Map.of(100, 12.5f, 102, 7f));
+
+        Assert.assertTrue(RegisterWriteFilter.isConfigured(messageModel));
+
+        Map<List<ModbusModel>, int[]> writtenWords = new IdentityHashMap<>();
+        Assert.assertEquals(groups, filter.filter("plc:1", groups, values, messageModel, writtenWords, 0));
+        filter.written("plc:1", groups.get(0), writtenWords.get(groups.get(0)), 0);
+
+        // Unchanged values are suppressed until write-refresh-interval expires
+        Assert.assertTrue(filter.filter("plc:1", groups, values, messageModel, new IdentityHashMap<>(), 999).isEmpty());
+        Assert.assertEquals(groups, filter.filter("plc:1", groups, values, messageModel, new IdentityHashMap<>(), 1000));
+
+        values.put(102, 8f);
+        Assert.assertEquals(groups, filter.filter("plc:1", groups, values, messageModel, new IdentityHashMap<>(), 0));
+    }
+
+    @Test
+    public void testNotConfiguredForOtherFunctionCodes() {
+        Assert.assertFalse(RegisterWriteFilter.isConfigured(message("""
+                modbus-function-code: 3
+                suppress-unchanged-writes: true
+                """)));
+        Assert.assertFalse(RegisterWriteFilter.isConfigured(message("""
+                modbus-function-code: 16
+                """)));
+    }
+}
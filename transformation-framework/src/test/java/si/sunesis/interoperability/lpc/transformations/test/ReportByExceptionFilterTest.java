@@ -0,0 +1,154 @@
+package si.sunesis.interoperability.lpc.transformations.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+import si.sunesis.interoperability.lpc.transformations.configuration.models.IntervalRequestModel;
+import si.sunesis.interoperability.lpc.transformations.configuration.models.ModbusModel;
+import si.sunesis.interoperability.lpc.transformations.transformation.RegisterValues;
+import si.sunesis.interoperability.lpc.transformations.transformation.ReportByExceptionFilter;
+
+import java.util.List;
+
+import static si.sunesis.interoperability.lpc.transformations.test.ModbusFixtures.intervalRequest;
+
+public class ReportByExceptionFilterTest {
+
+    @Test
+    public void testAbsoluteDeadband() {
+        IntervalRequestModel intervalRequest = intervalRequest("""
+                interval: 10
+                request:
+                  modbus-function-code: 3
+                  modbus-registers:
+                    - register-address: 0
+                      type: float32
+                      deadband: 0.5
+                """);
+        ReportByExceptionFilter filter = new ReportByExceptionFilter(intervalRequest);
+        List<ModbusModel> models = intervalRequest.getRequest().getModbusRegisters();
+
+        Assert.assertTrue(ReportByExceptionFilter.isConfigured(intervalRequest));
+        Assert.assertTrue(publish(filter, "meter", values(0, 230.0f), models, 0));
+        Assert.assertFalse(publish(filter, "meter", values(0, 230.3f), models, 1000));
+        // Compared with the last published value, so slow drift is published eventually
+        Assert.assertTrue(publish(filter, "meter", values(0, 230.6f), models, 2000));
+        Assert.assertFalse(publish(filter, "meter", values(0, 230.2f), models, 3000));
+    }
+
+    @Test
+    public void testPercentDeadband() {
+        IntervalRequestModel intervalRequest = intervalRequest("""
+                interval: 10
+                request:
+                  modbus-function-code: 3
+                  modbus-registers:
+                    - register-address: 0
+                      type: float32
+                      deadband-percent: 1.0
+                """);
+        ReportByExceptionFilter filter = new ReportByExceptionFilter(intervalRequest);
+        List<ModbusModel> models = intervalRequest.getRequest().getModbusRegisters();
+
+        Assert.assertTrue(ReportByExceptionFilter.isConfigured(intervalRequest));
+        Assert.assertTrue(publish(filter, "meter", values(0, 1000), models, 0));
+        Assert.assertFalse(publish(filter, "meter", values(0, 1010), models, 1000));
+        Assert.assertTrue(publish(filter, "meter", values(0, 1011), models, 2000));
+    }
+
+    @Test
+    public void testRegistersWithoutDeadbandAndDevices() {
+        IntervalRequestModel intervalRequest = intervalRequest("""
+                interval: 10
+                request:
+                  modbus-function-code: 3
+                  modbus-registers:
+                    - register-address: 0
+                      type: float32
+                      deadband: 10
+                    - register-address: 2
+                      type: float32
+                """);
+        ReportByExceptionFilter filter = new ReportByExceptionFilter(intervalRequest);
+        List<ModbusModel> models = intervalRequest.getRequest().getModbusRegisters();
+
+        Assert.assertTrue(publish(filter, "meter-1", values(0, 100, 2, 1), models, 0));
+        Assert.assertTrue(publish(filter, "meter-2", values(0, 100, 2, 1), models, 0));
+        Assert.assertFalse(publish(filter, "meter-1", values(0, 105, 2, 1), models, 1000));
+        Assert.assertTrue(publish(filter, "meter-1", values(0, 105, 2, 2), models, 2000));
+    }
+
+    @Test
+    public void testMaxSilence() {
+        IntervalRequestModel intervalRequest = intervalRequest("""
+                interval: 1
+                max-silence: 5000
+                request:
+                  modbus-function-code: 3
+                  modbus-registers:
+                    - register-address: 0
+                      type: float32
+                      deadband: 1.0
+                """);
+        ReportByExceptionFilter filter = new ReportByExceptionFilter(intervalRequest);
+        List<ModbusModel> models = intervalRequest.getRequest().getModbusRegisters();
+
+        Assert.assertTrue(publish(filter, "meter", values(0, 50.0), models, 0));
+        Assert.assertFalse(publish(filter, "meter", values(0, 50.0), models, 4999));
+        Assert.assertTrue(publish(filter, "meter", values(0, 50.0), models, 5000));
+        Assert.assertFalse(publish(filter, "meter", values(0, 50.0), models, 6000));
+    }
+
+    @Test
+    public void testNotConfiguredWithoutDeadbandOrMaxSilence() {
+        IntervalRequestModel intervalRequest = intervalRequest("""
+                interval: 10
+                request:
+                  modbus-function-code: 3
+                  modbus-registers:
+                    - register-address: 0
+                      type: float32
+                """);
+
+        Assert.assertFalse(ReportByExceptionFilter.isConfigured(intervalRequest));
+    }
+
+    @Test
+    public void testUnsentValuesAreNotRecorded() {
+        IntervalRequestModel intervalRequest = intervalRequest("""
+                interval: 10
+                request:
+                  modbus-function-code: 3
+                  modbus-registers:
+                    - register-address: 0
+                      type: float32
+                      deadband: 0.5
+                """);
+        ReportByExceptionFilter filter = new ReportByExceptionFilter(intervalRequest);
+        List<ModbusModel> models = intervalRequest.getRequest().getModbusRegisters();
+
+        Assert.assertTrue(publish(filter, "meter", values(0, 230.0f), models, 0));
+        // The change is not sent, so the next poll still compares with the last sent value
+        Assert.assertTrue(filter.shouldPublish("meter", values(0, 231.0f), models, 1000));
+        Assert.assertTrue(filter.shouldPublish("meter", values(0, 231.0f), models, 2000));
+        filter.published("meter", values(0, 231.0f), 2000);
+        Assert.assertFalse(filter.shouldPublish("meter", values(0, 231.0f), models, 3000));
+    }
+
+    // Records the registers as published like the handler does after sending them
+    private static boolean publish(ReportByExceptionFilter filter, String device, RegisterValues values, List<ModbusModel> models,
+                                   long now) {
+        boolean publish = filter.shouldPublish(device, values, models, now);
+        if (publish) {
+            filter.published(device, values, now);
+        }
+        return publish;
+    }
+
+    private static RegisterValues values(Object... addressesAndValues) {
+        RegisterValues values = new RegisterValues();
+        for (int i = 0; i < addressesAndValues.length; i += 2) {
+            values.put((Integer) addressesAndValues[i], addressesAndValues[i + 1]);
+        }
+        return values;
+    }
+}
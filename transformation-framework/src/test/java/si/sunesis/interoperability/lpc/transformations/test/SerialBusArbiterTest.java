@@ -0,0 +1,123 @@
+package si.sunesis.interoperability.lpc.transformations.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+import si.sunesis.interoperability.lpc.transformations.modbus.SerialBusArbiter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+public class SerialBusArbiterTest {
+
+    @Test
+    public void testInterFrameGap() {
+        Assert.assertEquals(4_010_416L, SerialBusArbiter.getInterFrameGapNanos(9600));
+        Assert.assertEquals(2_005_208L, SerialBusArbiter.getInterFrameGapNanos(19200));
+        Assert.assertEquals(1_750_000L, SerialBusArbiter.getInterFrameGapNanos(115200));
+    }
+
+    @Test
+    public void testCommandsBeforePollsWithGap() throws Exception {
+        SerialBusArbiter arbiter = new SerialBusArbiter("test", 1200, 1000);
+        long deadline = System.nanoTime() + 5_000_000_000L;
+
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        List<Long> times = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch busy = new CountDownLatch(1);
+
+        CompletableFuture<String> first = arbiter.submit(SerialBusArbiter.Priority.POLL, deadline, reply -> {
+            busy.await();
+            times.add(System.nanoTime());
+            reply.accept("first");
+        });
+
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (String name : new String[]{"poll-1", "poll-2", "command"}) {
+            SerialBusArbiter.Priority priority = name.startsWith("poll") ? SerialBusArbiter.Priority.POLL : SerialBusArbiter.Priority.COMMAND;
+            futures.add(arbiter.submit(priority, deadline, reply -> {
+                order.add(name);
+                times.add(System.nanoTime());
+                reply.accept(name);
+            }));
+        }
+
+        busy.countDown();
+
+        Assert.assertEquals("first", first.get());
+        for (CompletableFuture<String> future : futures) {
+            future.get();
+        }
+
+        Assert.assertEquals(List.of("command", "poll-1", "poll-2"), order);
+        for (int i = 1; i < times.size(); i++) {
+            Assert.assertTrue(times.get(i) - times.get(i - 1) >= SerialBusArbiter.getInterFrameGapNanos(1200));
+        }
+
+        arbiter.shutdown();
+    }
+
+    @Test
+    public void testBusIdleAfterTimeout() throws Exception {
+        SerialBusArbiter arbiter = new SerialBusArbiter("test", 115200, 50, 300);
+        long deadline = System.nanoTime() + 5_000_000_000L;
+
+        CompletableFuture<String> timedOut = arbiter.submit(SerialBusArbiter.Priority.POLL, deadline, reply -> {
+        });
+        ExecutionException exception = Assert.assertThrows(ExecutionException.class, timedOut::get);
+        Assert.assertTrue(exception.getCause() instanceof TimeoutException);
+        long timedOutAt = System.nanoTime();
+
+        long[] sentAt = new long[1];
+        CompletableFuture<String> next = arbiter.submit(SerialBusArbiter.Priority.COMMAND, deadline, reply -> {
+            sentAt[0] = System.nanoTime();
+            reply.accept("next");
+        });
+
+        Assert.assertEquals("next", next.get());
+        Assert.assertTrue(sentAt[0] - timedOutAt >= 250_000_000L);
+
+        arbiter.shutdown();
+    }
+
+    @Test
+    public void testTimeoutsOfExchange() throws Exception {
+        // Defaults of the bus are longer than the timeouts of the slow slave's connection
+        SerialBusArbiter arbiter = new SerialBusArbiter("test", 115200, 5000, 5000);
+        long deadline = System.nanoTime() + 5_000_000_000L;
+
+        long submittedAt = System.nanoTime();
+        CompletableFuture<String> timedOut = arbiter.submit(SerialBusArbiter.Priority.POLL, deadline, 50, 100, reply -> {
+        });
+        ExecutionException exception = Assert.assertThrows(ExecutionException.class, timedOut::get);
+        Assert.assertTrue(exception.getCause() instanceof TimeoutException);
+
+        CompletableFuture<String> next = arbiter.submit(SerialBusArbiter.Priority.COMMAND, deadline, reply -> reply.accept("next"));
+
+        Assert.assertEquals("next", next.get());
+        Assert.assertTrue(System.nanoTime() - submittedAt < 1_000_000_000L);
+
+        arbiter.shutdown();
+    }
+
+    @Test
+    public void testExpiredRequestIsNotSent() throws Exception {
+        SerialBusArbiter arbiter = new SerialBusArbiter("test", 9600, 1000);
+        List<String> sent = Collections.synchronizedList(new ArrayList<>());
+
+        CompletableFuture<String> expired = arbiter.submit(SerialBusArbiter.Priority.POLL, System.nanoTime() - 1, reply -> {
+            sent.add("expired");
+            reply.accept("expired");
+        });
+
+        ExecutionException exception = Assert.assertThrows(ExecutionException.class, expired::get);
+        Assert.assertTrue(exception.getCause() instanceof TimeoutException);
+        Assert.assertTrue(sent.isEmpty());
+
+        arbiter.shutdown();
+    }
+}
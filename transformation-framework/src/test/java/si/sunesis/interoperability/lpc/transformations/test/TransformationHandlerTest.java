@@ -0,0 +1,352 @@
+package si.sunesis.interoperability.lpc.transformations.test;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import si.sunesis.interoperability.common.interfaces.RequestHandler;
+import si.sunesis.interoperability.lpc.transformations.configuration.Configuration;
+import si.sunesis.interoperability.lpc.transformations.configuration.models.ConfigurationModel;
+import si.sunesis.interoperability.lpc.transformations.configuration.models.ModbusModel;
+import si.sunesis.interoperability.lpc.transformations.configuration.models.RegistrationModel;
+import si.sunesis.interoperability.lpc.transformations.connections.Connections;
+import si.sunesis.interoperability.lpc.transformations.test.simulator.ModbusSimulator;
+import si.sunesis.interoperability.lpc.transformations.test.simulator.SimulatedDevice;
+import si.sunesis.interoperability.lpc.transformations.test.simulator.ValueGenerator;
+import si.sunesis.interoperability.lpc.transformations.transformation.ObjectTransformer;
+import si.sunesis.interoperability.lpc.transformations.transformation.TransformationHandler;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static si.sunesis.interoperability.lpc.transformations.test.ModbusFixtures.configuration;
+import static si.sunesis.interoperability.lpc.transformations.test.ModbusFixtures.register;
+
+/**
+ * Runs transformations against the Modbus simulator over TCP, with a fake server connection recording the published
+ * messages and delivering messages from the server.
+ */
+public class TransformationHandlerTest {
+
+    private final ModbusSimulator simulator = new ModbusSimulator();
+
+    private final FakeServer server = new FakeServer();
+
+    private TransformationHandler handler;
+
+    private int maxInflight = 2;
+
+    @After
+    public void tearDown() throws Exception {
+        if (handler != null) {
+            handler.destroy();
+        }
+        simulator.close();
+    }
+
+    @Test
+    public void testReportByExceptionPublishesAfterRecovery() throws Exception {
+        simulator.addDevice(new SimulatedDevice(1, List.of(register(100, "float32")))
+                .setGenerator(100, ValueGenerator.constant(5)));
+
+        startPolls("""
+                { "power": { "lpc:mapping": { "path": "100", "type": "float32" } } }""", """
+                interval: 100
+                max-silence: 500
+                request:
+                  modbus-function-code: 3
+                  modbus-device-id: 1
+                  modbus-registers:
+                    - register-address: 100
+                      type: float32
+                      deadband: 1
+                """);
+
+        Assert.assertNotNull(server.published.poll(2, TimeUnit.SECONDS));
+        // Unchanged values are not published before max-silence
+        Assert.assertNull(server.published.poll(300, TimeUnit.MILLISECONDS));
+
+        // Failed polls publish nothing, and must not count as published
+        simulator.setExceptionRate(1, ModbusSimulator.SERVER_DEVICE_FAILURE);
+        Assert.assertNull(server.published.poll(700, TimeUnit.MILLISECONDS));
+
+        // max-silence expired during the failures, so the first successful poll is published
+        simulator.setExceptionRate(0, ModbusSimulator.SERVER_DEVICE_FAILURE);
+        Assert.assertNotNull(server.published.poll(300, TimeUnit.MILLISECONDS));
+
+        // A change beyond the deadband is published by the next poll
+        simulator.getDevice(1).setGenerator(100, ValueGenerator.constant(20));
+        Published changed = server.published.poll(300, TimeUnit.MILLISECONDS);
+        Assert.assertNotNull(changed);
+        Assert.assertTrue(changed.message().contains("20"));
+    }
+
+    @Test
+    public void testUnreadableRegisterIsLearned() throws Exception {
+        String deviceModel = "handler-test-" + UUID.randomUUID();
+        // Register 101 is configured, but the device rejects every read covering it
+        simulator.addDevice(new SimulatedDevice(1, List.of(register(100, "int16"), register(102, "int16")))
+                .setStrict(true));
+
+        Connections connections = startPolls("""
+                {
+                  "first": { "lpc:mapping": { "path": "100", "type": "int16" } },
+                  "last": { "lpc:mapping": { "path": "102", "type": "int16" } }
+                }""", """
+                interval: 200
+                request:
+                  modbus-function-code: 3
+                  modbus-device-id: 1
+                  device-model: %s
+                  modbus-registers:
+                    - register-address: 100
+                      type: int16
+                    - register-address: 101
+                      type: int16
+                    - register-address: 102
+                      type: int16
+                """.formatted(deviceModel));
+
+        // The block is bisected down to the single unreadable register: 1 + 2 + 2 requests
+        Published first = server.published.poll(2, TimeUnit.SECONDS);
+        Assert.assertNotNull(first);
+        Assert.assertEquals(5, first.requests());
+
+        // Later polls read around the learned register right away
+        Published second = server.published.poll(2, TimeUnit.SECONDS);
+        Assert.assertNotNull(second);
+        Assert.assertEquals(2, second.requests() - first.requests());
+
+        List<ModbusModel> block = List.of(register(100, "int16"), register(101, "int16"), register(102, "int16"));
+        List<List<ModbusModel>> blocks = connections.getRegisterHoleMap().split(deviceModel, "meter:1", List.of(block), System.currentTimeMillis());
+        Assert.assertEquals(List.of(List.of(block.get(0)), List.of(block.get(2))), blocks);
+    }
+
+    @Test
+    public void testPollClassesAreMergedIntoDueRequests() throws Exception {
+        simulator.addDevice(new SimulatedDevice(1, List.of(register(100, "float32"), register(102, "float32")))
+                .setGenerator(102, ValueGenerator.constant(42)));
+
+        startPolls("""
+                {
+                  "time": "$timestamp",
+                  "power": { "lpc:mapping": { "path": "100", "type": "float32" } },
+                  "energy": { "lpc:mapping": { "path": "102", "type": "float32" } }
+                }""", """
+                interval: 100
+                poll-classes:
+                  slow: 60000
+                request:
+                  modbus-function-code: 3
+                  modbus-device-id: 1
+                  modbus-registers:
+                    - register-address: 100
+                      type: float32
+                    - register-address: 102
+                      type: float32
+                      poll-class: slow
+                """);
+
+        // Both classes are due in the first poll and read with a single request
+        Published first = server.published.poll(2, TimeUnit.SECONDS);
+        Assert.assertNotNull(first);
+        Assert.assertEquals(1, first.requests());
+
+        // The slow register is not read again, but published with its latest value
+        Published second = server.published.poll(2, TimeUnit.SECONDS);
+        Assert.assertNotNull(second);
+        Assert.assertEquals(1, second.requests() - first.requests());
+        Assert.assertTrue(second.message().contains("42"));
+
+        // Readings are published with the nominal time of their tick
+        Assert.assertEquals(0, (getTimestamp(second) - getTimestamp(first)) % 100);
+    }
+
+    @Test
+    public void testCoalescedWritesAreSentOnce() throws Exception {
+        simulator.addDevice(new SimulatedDevice(1, List.of()));
+
+        startWrites("""
+                modbus-function-code: 16
+                modbus-device-id: 1
+                coalesce-window: 300
+                modbus-registers:
+                  - register-address: 200
+                    path: /a
+                    type: int16
+                  - register-address: 201
+                    path: /b
+                    type: int16
+                  - register-address: 202
+                    path: /c
+                    type: int16
+                """);
+
+        // Every message has a value for all registers, the window still merges the whole burst
+        server.send("setpoints", "{\"a\": 1, \"b\": 2, \"c\": 3}");
+        server.send("setpoints", "{\"a\": 4, \"b\": 5, \"c\": 6}");
+        server.send("setpoints", "{\"a\": 7, \"b\": 8, \"c\": 9}");
+
+        long end = System.currentTimeMillis() + 2000;
+        while (simulator.getRequestCount() == 0 && System.currentTimeMillis() < end) {
+            Thread.sleep(20);
+        }
+        Thread.sleep(400);
+
+        Assert.assertEquals(1, simulator.getRequestCount());
+        Assert.assertArrayEquals(new int[]{7, 8, 9}, simulator.getDevice(1).readWords(200, 3, System.currentTimeMillis()));
+    }
+
+    @Test
+    public void testRejectedWriteIsNotSuppressed() throws Exception {
+        // Without requests in flight the jlibmodbus client of the connection is used
+        maxInflight = 1;
+        simulator.addDevice(new SimulatedDevice(1, List.of()));
+
+        startWrites("""
+                modbus-function-code: 16
+                modbus-device-id: 1
+                suppress-unchanged-writes: true
+                modbus-registers:
+                  - register-address: 200
+                    path: /a
+                    type: int16
+                """);
+
+        simulator.setExceptionRate(1, ModbusSimulator.SERVER_DEVICE_FAILURE);
+        server.send("setpoints", "{\"a\": 7}");
+        awaitRequests(1);
+
+        // The device rejected the write, so the same value is written again
+        simulator.setExceptionRate(0, ModbusSimulator.SERVER_DEVICE_FAILURE);
+        server.send("setpoints", "{\"a\": 7}");
+        awaitRequests(2);
+
+        Assert.assertEquals(2, simulator.getRequestCount());
+        Assert.assertArrayEquals(new int[]{7}, simulator.getDevice(1).readWords(200, 1, System.currentTimeMillis()));
+    }
+
+    private Connections startPolls(String message, String intervalRequest) throws Exception {
+        return start("""
+                    to-outgoing:
+                      to-topic: readings
+                      message: |
+                """ + message.indent(8) + """
+                    interval-request:
+                """ + intervalRequest.indent(6));
+    }
+
+    private void startWrites(String toIncoming) throws Exception {
+        start("""
+                    to-incoming:
+                """ + toIncoming.indent(6));
+    }
+
+    private Connections start(String messages) throws Exception {
+        int port = simulator.startTcp(0);
+
+        ConfigurationModel configurationModel = configuration("""
+                connections:
+                  - name: meter
+                    type: Modbus
+                    host: 127.0.0.1
+                    port: %d
+                    max-inflight: %d
+                    response-timeout: 500
+                transformations:
+                  - name: handler-test
+                    connections:
+                      incoming-connection:
+                        - meter
+                      outgoing-connection:
+                        - server
+                      outgoing-topic: setpoints
+                      outgoing-format: JSON
+                """.formatted(port, maxInflight) + messages);
+
+        Configuration configuration = new Configuration();
+        configuration.getConfigurations().add(configurationModel);
+
+        Connections connections = new Connections(configuration, true);
+        connections.getConnectionsMap().put("server", server.handler);
+
+        handler = new TransformationHandler(configurationModel.getTransformations().get(0), new ObjectTransformer(),
+                connections, new RegistrationModel());
+        handler.handle();
+        // Registration messages are published before the first poll is scheduled
+        server.published.clear();
+
+        return connections;
+    }
+
+    private void awaitRequests(long count) throws InterruptedException {
+        long end = System.currentTimeMillis() + 2000;
+        while (simulator.getRequestCount() < count && System.currentTimeMillis() < end) {
+            Thread.sleep(20);
+        }
+        // Responses are handled after the request is counted
+        Thread.sleep(200);
+    }
+
+    private static long getTimestamp(Published published) {
+        Matcher matcher = Pattern.compile("\"time\"\\s*:\\s*\"?(\\d+)").matcher(published.message());
+        Assert.assertTrue(matcher.find());
+        return Long.parseLong(matcher.group(1));
+    }
+
+    /**
+     * Message published to the readings topic, with the number of requests the simulator received until then.
+     */
+    private record Published(String message, long requests) {
+    }
+
+    /**
+     * Server connection that records published readings and delivers messages to the subscribed callbacks.
+     */
+    private class FakeServer {
+
+        private final LinkedBlockingQueue<Published> published = new LinkedBlockingQueue<>();
+
+        private final Map<String, Object> subscriptions = new ConcurrentHashMap<>();
+
+        private final RequestHandler handler = (RequestHandler) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{RequestHandler.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("publish") && "readings".equals(args[1])) {
+                        published.add(new Published((String) args[0], simulator.getRequestCount()));
+                    } else if (method.getName().equals("subscribe")) {
+                        subscriptions.put((String) args[0], args[1]);
+                    }
+
+                    if (method.getDeclaringClass() == Object.class) {
+                        return switch (method.getName()) {
+                            case "equals" -> proxy == args[0];
+                            case "hashCode" -> System.identityHashCode(proxy);
+                            default -> "FakeServer";
+                        };
+                    }
+
+                    return method.getReturnType() == boolean.class ? false : null;
+                });
+
+        void send(String topic, String message) throws Exception {
+            Object callback = subscriptions.get(topic);
+            Assert.assertNotNull("No subscription to " + topic, callback);
+
+            for (Method method : callback.getClass().getInterfaces()[0].getMethods()) {
+                if (Modifier.isAbstract(method.getModifiers())) {
+                    method.invoke(callback, (Object) message.getBytes(StandardCharsets.UTF_8));
+                    return;
+                }
+            }
+        }
+    }
+}
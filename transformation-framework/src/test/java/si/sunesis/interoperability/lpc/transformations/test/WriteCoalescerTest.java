@@ -0,0 +1,150 @@
+package si.sunesis.interoperability.lpc.transformations.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+import si.sunesis.interoperability.lpc.transformations.configuration.models.MessageModel;
+import si.sunesis.interoperability.lpc.transformations.configuration.models.ModbusModel;
+import si.sunesis.interoperability.lpc.transformations.transformation.ModbusReadPlanner;
+import si.sunesis.interoperability.lpc.transformations.transformation.WriteCoalescer;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static si.sunesis.interoperability.lpc.transformations.test.ModbusFixtures.message;
+import static si.sunesis.interoperability.lpc.transformations.test.ModbusFixtures.register;
+
+public class WriteCoalescerTest {
+
+    private final LinkedBlockingQueue<Map<Integer, Float>> writes = new LinkedBlockingQueue<>();
+
+    @Test
+    public void testBurstIsWrittenOnce() throws InterruptedException {
+        MessageModel messageModel = message("""
+                modbus-function-code: 16
+                coalesce-window: 100
+                modbus-registers:
+                  - register-address: 100
+                    type: float32
+                  - register-address: 102
+                    type: float32
+                  - register-address: 104
+                    type: float32
+                """);
+        WriteCoalescer coalescer = new WriteCoalescer("test-coalescer", messageModel, writes::add);
+
+        coalescer.submit(values(100, 1f, 102, null));
+        coalescer.submit(values(100, 2f, 102, 5f));
+        // Registers without a value keep the pending value
+        coalescer.submit(values(102, null));
+
+        Map<Integer, Float> write = writes.poll(1, TimeUnit.SECONDS);
+        Assert.assertNotNull(write);
+        Assert.assertEquals(values(100, 2f, 102, 5f), write);
+        Assert.assertNull(writes.poll(200, TimeUnit.MILLISECONDS));
+        coalescer.close();
+    }
+
+    @Test
+    public void testAllRegistersPendingWaitForWindow() throws InterruptedException {
+        MessageModel messageModel = message("""
+                modbus-function-code: 16
+                coalesce-window: 300
+                modbus-registers:
+                  - register-address: 100
+                    type: float32
+                  - register-address: 102
+                    type: float32
+                """);
+        WriteCoalescer coalescer = new WriteCoalescer("test-coalescer", messageModel, writes::add);
+
+        coalescer.submit(values(100, 1f));
+        coalescer.submit(values(102, 2f));
+
+        // A later message of the burst may still change a register, so the window is not cut short
+        Assert.assertNull(writes.poll(100, TimeUnit.MILLISECONDS));
+        coalescer.submit(values(100, 3f));
+
+        Assert.assertEquals(values(100, 3f, 102, 2f), writes.poll(1, TimeUnit.SECONDS));
+        Assert.assertNull(writes.poll(400, TimeUnit.MILLISECONDS));
+        coalescer.close();
+    }
+
+    @Test
+    public void testFlushWhenBlockFull() throws InterruptedException {
+        MessageModel messageModel = message("""
+                modbus-function-code: 16
+                coalesce-window: 10000
+                max-block-registers: 4
+                modbus-registers:
+                  - register-address: 100
+                    type: float32
+                  - register-address: 102
+                    type: float32
+                  - register-address: 104
+                    type: float32
+                  - register-address: 200
+                    type: float32
+                """);
+        WriteCoalescer coalescer = new WriteCoalescer("test-coalescer", messageModel, writes::add);
+
+        coalescer.submit(values(100, 1f));
+        Assert.assertNull(writes.poll(100, TimeUnit.MILLISECONDS));
+
+        coalescer.submit(values(102, 2f));
+        Assert.assertEquals(values(100, 1f, 102, 2f), writes.poll(1, TimeUnit.SECONDS));
+        coalescer.close();
+    }
+
+    @Test
+    public void testPlanContiguousBlocks() {
+        MessageModel messageModel = message("""
+                modbus-function-code: 16
+                max-block-registers: 125
+                """);
+        for (int address = 0; address < 300; address++) {
+            messageModel.getModbusRegisters().add(register(address, "int16"));
+        }
+
+        Map<Integer, Float> values = new HashMap<>();
+        for (int address = 0; address < 200; address++) {
+            values.put(address, 1f);
+        }
+        values.put(250, 1f);
+        values.put(252, 1f);
+
+        List<List<ModbusModel>> blocks = WriteCoalescer.plan(messageModel, values);
+
+        Assert.assertEquals(4, blocks.size());
+        Assert.assertEquals(WriteCoalescer.MAX_WRITE_REGISTERS, ModbusReadPlanner.getBlockQuantity(blocks.get(0)));
+        Assert.assertEquals(77, ModbusReadPlanner.getBlockQuantity(blocks.get(1)));
+        // Registers between pending registers are not overwritten
+        Assert.assertEquals(250, (int) blocks.get(2).get(0).getAddress());
+        Assert.assertEquals(1, blocks.get(2).size());
+    }
+
+    @Test
+    public void testConfiguredOnlyForWriteMultipleRegisters() {
+        Assert.assertTrue(WriteCoalescer.isConfigured(message("""
+                modbus-function-code: 16
+                coalesce-window: 100
+                """)));
+        Assert.assertFalse(WriteCoalescer.isConfigured(message("""
+                modbus-function-code: 6
+                coalesce-window: 100
+                """)));
+        Assert.assertFalse(WriteCoalescer.isConfigured(message("""
+                modbus-function-code: 16
+                """)));
+    }
+
+    private static Map<Integer, Float> values(Object... entries) {
+        Map<Integer, Float> values = new HashMap<>();
+        for (int i = 0; i < entries.length; i += 2) {
+            values.put((Integer) entries[i], (Float) entries[i + 1]);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,487 @@
+package si.sunesis.interoperability.lpc.transformations.test.simulator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import si.sunesis.interoperability.lpc.transformations.configuration.models.ConfigurationModel;
+import si.sunesis.interoperability.lpc.transformations.configuration.models.MessageModel;
+import si.sunesis.interoperability.lpc.transformations.configuration.models.ModbusModel;
+import si.sunesis.interoperability.lpc.transformations.configuration.models.TransformationModel;
+import si.sunesis.interoperability.lpc.transformations.exceptions.ModbusPduException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process Modbus slave simulator for load tests of the converter.
+ * Serves any number of {@link SimulatedDevice}s over Modbus TCP on localhost or over Modbus RTU on a serial line,
+ * for example one end of a virtual serial pair created with {@code socat -d -d pty,raw,echo=0 pty,raw,echo=0}.
+ * <p>
+ * Responses can be delayed by a fixed latency and random jitter, replaced by exception responses or dropped,
+ * to reproduce slow and misbehaving devices. TCP responses are sent from a scheduler, so pipelined requests
+ * are answered independently of each other.
+ */
+public class ModbusSimulator implements AutoCloseable {
+
+    public static final int SERVER_DEVICE_FAILURE = 4;
+
+    private final Map<Integer, SimulatedDevice> devices = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "modbus-simulator");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Random random = new Random();
+
+    private final LongAdder requests = new LongAdder();
+
+    private final List<AutoCloseable> resources = new ArrayList<>();
+
+    private long latency;
+
+    private long jitter;
+
+    private double exceptionRate;
+
+    private int exceptionCode = SERVER_DEVICE_FAILURE;
+
+    private double dropRate;
+
+    public ModbusSimulator addDevice(SimulatedDevice device) {
+        devices.put(device.getUnitId(), device);
+        return this;
+    }
+
+    /**
+     * Adds copies of the device with consecutive unit IDs, starting with the unit ID of the device.
+     */
+    public ModbusSimulator addDevices(SimulatedDevice device, int count) {
+        for (int i = 0; i < count; i++) {
+            addDevice(device.copy(device.getUnitId() + i));
+        }
+        return this;
+    }
+
+    public SimulatedDevice getDevice(int unitId) {
+        return devices.get(unitId);
+    }
+
+    public Collection<SimulatedDevice> getDevices() {
+        return devices.values();
+    }
+
+    /**
+     * Delays every response by the latency and a uniformly distributed jitter, both in milliseconds.
+     */
+    public ModbusSimulator setLatency(long latency, long jitter) {
+        this.latency = latency;
+        this.jitter = jitter;
+        return this;
+    }
+
+    /**
+     * Replaces the given share of responses with an exception response with the exception code.
+     */
+    public ModbusSimulator setExceptionRate(double exceptionRate, int exceptionCode) {
+        this.exceptionRate = exceptionRate;
+        this.exceptionCode = exceptionCode;
+        return this;
+    }
+
+    /**
+     * Leaves the given share of requests without a response.
+     */
+    public ModbusSimulator setDropRate(double dropRate) {
+        this.dropRate = dropRate;
+        return this;
+    }
+
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    /**
+     * Creates a simulator with a device for every Modbus device ID in the configuration,
+     * serving the registers of interval requests and incoming messages sent to that device.
+     */
+    public static ModbusSimulator fromConfiguration(InputStream configuration) throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper(new YAMLFactory());
+        objectMapper.findAndRegisterModules();
+        ConfigurationModel configurationModel = objectMapper.readValue(configuration, ConfigurationModel.class);
+
+        Map<Integer, List<ModbusModel>> registers = new TreeMap<>();
+        for (TransformationModel transformation : configurationModel.getTransformations()) {
+            MessageModel intervalRequest = transformation.getIntervalRequest() != null
+                    ? transformation.getIntervalRequest().getRequest()
+                    : null;
+
+            for (MessageModel message : new MessageModel[]{intervalRequest, transformation.getToIncoming()}) {
+                if (message == null || message.getDeviceId() == null) {
+                    continue;
+                }
+
+                registers.computeIfAbsent(message.getDeviceId(), k -> new ArrayList<>()).addAll(message.getModbusRegisters());
+            }
+        }
+
+        ModbusSimulator simulator = new ModbusSimulator();
+        registers.forEach((unitId, models) -> simulator.addDevice(new SimulatedDevice(unitId, models)));
+
+        return simulator;
+    }
+
+    /**
+     * Handles a request PDU.
+     *
+     * @return Response PDU, or null if the unit does not exist
+     */
+    public byte[] handle(int unitId, byte[] pdu) {
+        requests.increment();
+
+        int functionCode = pdu[0] & 0xFF;
+        SimulatedDevice device = devices.get(unitId);
+        if (device == null) {
+            return null;
+        }
+
+        if (exceptionRate > 0 && nextDouble() < exceptionRate) {
+            return exception(functionCode, exceptionCode);
+        }
+
+        ByteBuffer request = ByteBuffer.wrap(pdu, 1, pdu.length - 1);
+        long now = System.currentTimeMillis();
+
+        try {
+            return switch (functionCode) {
+                case 1, 2 -> {
+                    int start = request.getShort() & 0xFFFF;
+                    int quantity = request.getShort() & 0xFFFF;
+                    yield bitResponse(functionCode, device.readBits(start, quantity, now));
+                }
+                case 3, 4 -> {
+                    int start = request.getShort() & 0xFFFF;
+                    int quantity = request.getShort() & 0xFFFF;
+                    yield wordResponse(functionCode, device.readWords(start, quantity, now));
+                }
+                case 5 -> {
+                    device.writeBits(request.getShort() & 0xFFFF, new boolean[]{(request.getShort() & 0xFFFF) == 0xFF00});
+                    yield pdu.clone();
+                }
+                case 6 -> {
+                    device.writeWords(request.getShort() & 0xFFFF, new int[]{request.getShort() & 0xFFFF});
+                    yield pdu.clone();
+                }
+                case 15 -> {
+                    int start = request.getShort() & 0xFFFF;
+                    int quantity = request.getShort() & 0xFFFF;
+                    request.get();
+                    boolean[] values = new boolean[quantity];
+                    for (int i = 0; i < quantity; i++) {
+                        values[i] = (pdu[6 + i / 8] >> (i % 8) & 1) == 1;
+                    }
+                    device.writeBits(start, values);
+                    yield writeResponse(functionCode, start, quantity);
+                }
+                case 16 -> {
+                    int start = request.getShort() & 0xFFFF;
+                    int quantity = request.getShort() & 0xFFFF;
+                    request.get();
+                    int[] values = new int[quantity];
+                    for (int i = 0; i < quantity; i++) {
+                        values[i] = request.getShort() & 0xFFFF;
+                    }
+                    device.writeWords(start, values);
+                    yield writeResponse(functionCode, start, quantity);
+                }
+                default -> exception(functionCode, ModbusPduException.ILLEGAL_FUNCTION);
+            };
+        } catch (ModbusPduException e) {
+            return exception(functionCode, e.getExceptionCode());
+        } catch (RuntimeException e) {
+            return exception(functionCode, ModbusPduException.ILLEGAL_DATA_VALUE);
+        }
+    }
+
+    /**
+     * Starts a Modbus TCP server on localhost.
+     *
+     * @param port Port to listen on, 0 for any free port
+     * @return Port the server listens on
+     */
+    public int startTcp(int port) throws IOException {
+        ServerSocket serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        synchronized (resources) {
+            resources.add(serverSocket);
+        }
+
+        Thread acceptor = new Thread(() -> {
+            while (!serverSocket.isClosed()) {
+                try {
+                    Socket socket = serverSocket.accept();
+                    synchronized (resources) {
+                        resources.add(socket);
+                    }
+
+                    Thread handler = new Thread(() -> serveTcp(socket), "modbus-simulator-tcp");
+                    handler.setDaemon(true);
+                    handler.start();
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }, "modbus-simulator-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Serves Modbus RTU requests on one end of a serial line, for example a pseudo terminal of a virtual serial pair.
+     */
+    public void openSerial(Path device) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(device.toFile(), "rw");
+        synchronized (resources) {
+            resources.add(file);
+        }
+
+        Thread handler = new Thread(() -> serveRtu(Channels.newInputStream(file.getChannel()),
+                Channels.newOutputStream(file.getChannel())), "modbus-simulator-rtu");
+        handler.setDaemon(true);
+        handler.start();
+    }
+
+    /**
+     * Serves Modbus RTU requests from the input stream until it is closed.
+     * Frames with a wrong CRC and requests for unknown units are ignored, as on a real bus.
+     */
+    public void serveRtu(InputStream inputStream, OutputStream outputStream) {
+        DataInputStream input = new DataInputStream(inputStream);
+
+        try {
+            while (true) {
+                byte[] frame = readRtuFrame(input);
+                if (crc(frame, frame.length - 2) != ((frame[frame.length - 1] & 0xFF) << 8 | (frame[frame.length - 2] & 0xFF))) {
+                    continue;
+                }
+
+                int unitId = frame[0] & 0xFF;
+                byte[] pdu = new byte[frame.length - 3];
+                System.arraycopy(frame, 1, pdu, 0, pdu.length);
+
+                byte[] response = respond(unitId, pdu, false);
+                if (response == null) {
+                    continue;
+                }
+
+                byte[] reply = new byte[response.length + 3];
+                reply[0] = (byte) unitId;
+                System.arraycopy(response, 0, reply, 1, response.length);
+                int crc = crc(reply, reply.length - 2);
+                reply[reply.length - 2] = (byte) crc;
+                reply[reply.length - 1] = (byte) (crc >> 8);
+
+                // Responses on a serial line are sent one at a time
+                sleep(getDelay());
+                outputStream.write(reply);
+                outputStream.flush();
+            }
+        } catch (IOException e) {
+            // Serial line closed
+        }
+    }
+
+    /**
+     * Calculates the Modbus RTU CRC16 of the first bytes of the frame.
+     */
+    public static int crc(byte[] frame, int length) {
+        int crc = 0xFFFF;
+
+        for (int i = 0; i < length; i++) {
+            crc ^= frame[i] & 0xFF;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 1) != 0 ? (crc >>> 1) ^ 0xA001 : crc >>> 1;
+            }
+        }
+
+        return crc;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+
+        synchronized (resources) {
+            for (AutoCloseable resource : resources) {
+                try {
+                    resource.close();
+                } catch (Exception ignored) {
+                    // Closing anyway
+                }
+            }
+            resources.clear();
+        }
+    }
+
+    private void serveTcp(Socket socket) {
+        try (socket) {
+            DataInputStream inputStream = new DataInputStream(socket.getInputStream());
+            OutputStream outputStream = socket.getOutputStream();
+
+            while (true) {
+                byte[] header = new byte[7];
+                inputStream.readFully(header);
+                byte[] pdu = new byte[((header[4] & 0xFF) << 8 | (header[5] & 0xFF)) - 1];
+                inputStream.readFully(pdu);
+
+                int unitId = header[6] & 0xFF;
+                byte[] response = respond(unitId, pdu, true);
+                if (response == null) {
+                    continue;
+                }
+
+                byte[] frame = new byte[7 + response.length];
+                System.arraycopy(header, 0, frame, 0, 4);
+                frame[4] = (byte) ((response.length + 1) >> 8);
+                frame[5] = (byte) (response.length + 1);
+                frame[6] = (byte) unitId;
+                System.arraycopy(response, 0, frame, 7, response.length);
+
+                scheduler.schedule(() -> write(outputStream, frame), getDelay(), TimeUnit.MILLISECONDS);
+            }
+        } catch (IOException e) {
+            // Connection closed
+        }
+    }
+
+    private byte[] respond(int unitId, byte[] pdu, boolean gateway) {
+        if (dropRate > 0 && nextDouble() < dropRate) {
+            requests.increment();
+            return null;
+        }
+
+        byte[] response = handle(unitId, pdu);
+        if (response == null && gateway) {
+            // Answered like a TCP gateway without a device behind the unit ID
+            return exception(pdu[0] & 0xFF, ModbusPduException.GATEWAY_TARGET_FAILED);
+        }
+
+        return response;
+    }
+
+    private static byte[] readRtuFrame(DataInputStream input) throws IOException {
+        ByteArrayOutputStream frame = new ByteArrayOutputStream();
+        int unitId = input.read();
+        int functionCode = input.read();
+        if (unitId < 0 || functionCode < 0) {
+            throw new EOFException();
+        }
+        frame.write(unitId);
+        frame.write(functionCode);
+
+        int length = switch (functionCode) {
+            case 1, 2, 3, 4, 5, 6 -> 4;
+            case 15, 16 -> {
+                byte[] header = new byte[5];
+                input.readFully(header);
+                frame.write(header);
+                yield header[4] & 0xFF;
+            }
+            default -> 0;
+        };
+
+        byte[] rest = new byte[length + 2];
+        input.readFully(rest);
+        frame.write(rest);
+
+        return frame.toByteArray();
+    }
+
+    private static void write(OutputStream outputStream, byte[] frame) {
+        try {
+            synchronized (outputStream) {
+                outputStream.write(frame);
+                outputStream.flush();
+            }
+        } catch (IOException ignored) {
+            // Connection closed, the reader thread ends
+        }
+    }
+
+    private long getDelay() {
+        return jitter > 0 ? latency + (long) (nextDouble() * jitter) : latency;
+    }
+
+    private double nextDouble() {
+        synchronized (random) {
+            return random.nextDouble();
+        }
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static byte[] bitResponse(int functionCode, boolean[] bits) {
+        byte[] response = new byte[2 + (bits.length + 7) / 8];
+        response[0] = (byte) functionCode;
+        response[1] = (byte) (response.length - 2);
+
+        for (int i = 0; i < bits.length; i++) {
+            if (bits[i]) {
+                response[2 + i / 8] |= (byte) (1 << (i % 8));
+            }
+        }
+
+        return response;
+    }
+
+    private static byte[] wordResponse(int functionCode, int[] words) {
+        ByteBuffer response = ByteBuffer.allocate(2 + words.length * 2);
+        response.put((byte) functionCode).put((byte) (words.length * 2));
+        for (int word : words) {
+            response.putShort((short) word);
+        }
+
+        return response.array();
+    }
+
+    private static byte[] writeResponse(int functionCode, int start, int quantity) {
+        return ByteBuffer.allocate(5).put((byte) functionCode).putShort((short) start).putShort((short) quantity).array();
+    }
+
+    private static byte[] exception(int functionCode, int exceptionCode) {
+        return new byte[]{(byte) (functionCode | 0x80), (byte) exceptionCode};
+    }
+}
@@ -0,0 +1,166 @@
+package si.sunesis.interoperability.lpc.transformations.test.simulator;
+
+import si.sunesis.interoperability.lpc.transformations.configuration.models.ModbusModel;
+import si.sunesis.interoperability.lpc.transformations.enums.RegisterType;
+import si.sunesis.interoperability.lpc.transformations.exceptions.ModbusPduException;
+import si.sunesis.interoperability.lpc.transformations.transformation.ModbusReadPlanner;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Virtual Modbus device serving the registers of a register map, as configured for LPC.
+ * Register values are generated when they are read and encoded big-endian, divided by the factor of the register.
+ * Registers and coils written by a client keep the written value.
+ */
+public class SimulatedDevice {
+
+    private final int unitId;
+
+    // Register definition and word index within the value, per register address
+    private final Map<Integer, Slot> words = new HashMap<>();
+
+    private final Map<Integer, ModbusModel> bits = new HashMap<>();
+
+    private final Map<Integer, ValueGenerator> generators = new HashMap<>();
+
+    private final Map<Integer, Integer> writtenWords = new ConcurrentHashMap<>();
+
+    private final Map<Integer, Boolean> writtenBits = new ConcurrentHashMap<>();
+
+    private ValueGenerator defaultGenerator = ValueGenerator.sine(100, 60_000);
+
+    // Reads of addresses without a register fail with an illegal data address exception
+    private boolean strict;
+
+    public SimulatedDevice(int unitId, List<ModbusModel> models) {
+        this.unitId = unitId;
+        addRegisters(models);
+    }
+
+    public int getUnitId() {
+        return unitId;
+    }
+
+    public void addRegisters(List<ModbusModel> models) {
+        for (ModbusModel model : models) {
+            if (ModbusReadPlanner.isBit(model)) {
+                bits.put(model.getAddress(), model);
+                continue;
+            }
+
+            int registers = RegisterType.fromType(model.getType()).getRegisters();
+            for (int i = 0; i < registers; i++) {
+                words.put(model.getAddress() + i, new Slot(model, i));
+            }
+        }
+    }
+
+    public SimulatedDevice setGenerator(int address, ValueGenerator generator) {
+        generators.put(address, generator);
+        return this;
+    }
+
+    public SimulatedDevice setDefaultGenerator(ValueGenerator generator) {
+        this.defaultGenerator = generator;
+        return this;
+    }
+
+    public SimulatedDevice setStrict(boolean strict) {
+        this.strict = strict;
+        return this;
+    }
+
+    /**
+     * Creates a device with the same registers and generators under another unit ID.
+     */
+    public SimulatedDevice copy(int unitId) {
+        SimulatedDevice copy = new SimulatedDevice(unitId, List.of());
+        copy.words.putAll(words);
+        copy.bits.putAll(bits);
+        copy.generators.putAll(generators);
+        copy.defaultGenerator = defaultGenerator;
+        copy.strict = strict;
+        return copy;
+    }
+
+    public int[] readWords(int start, int quantity, long timeMillis) throws ModbusPduException {
+        int[] result = new int[quantity];
+
+        for (int i = 0; i < quantity; i++) {
+            Integer written = writtenWords.get(start + i);
+            Slot slot = words.get(start + i);
+
+            if (written != null) {
+                result[i] = written;
+            } else if (slot != null) {
+                result[i] = encode(slot.model(), timeMillis)[slot.index()];
+            } else if (strict) {
+                throw new ModbusPduException(3, ModbusPduException.ILLEGAL_DATA_ADDRESS);
+            }
+        }
+
+        return result;
+    }
+
+    public boolean[] readBits(int start, int quantity, long timeMillis) throws ModbusPduException {
+        boolean[] result = new boolean[quantity];
+
+        for (int i = 0; i < quantity; i++) {
+            Boolean written = writtenBits.get(start + i);
+            ModbusModel model = bits.get(start + i);
+
+            if (written != null) {
+                result[i] = written;
+            } else if (model != null) {
+                result[i] = getGenerator(model).value(timeMillis) != 0;
+            } else if (strict) {
+                throw new ModbusPduException(1, ModbusPduException.ILLEGAL_DATA_ADDRESS);
+            }
+        }
+
+        return result;
+    }
+
+    public void writeWords(int start, int[] values) {
+        for (int i = 0; i < values.length; i++) {
+            writtenWords.put(start + i, values[i] & 0xFFFF);
+        }
+    }
+
+    public void writeBits(int start, boolean[] values) {
+        for (int i = 0; i < values.length; i++) {
+            writtenBits.put(start + i, values[i]);
+        }
+    }
+
+    private ValueGenerator getGenerator(ModbusModel model) {
+        return generators.getOrDefault(model.getAddress(), defaultGenerator);
+    }
+
+    private int[] encode(ModbusModel model, long timeMillis) {
+        double value = getGenerator(model).value(timeMillis);
+        if (model.getFactor() != null && model.getFactor() != 0f) {
+            value /= model.getFactor();
+        }
+
+        RegisterType type = RegisterType.fromType(model.getType());
+        long raw = switch (type) {
+            case FLOAT32 -> Float.floatToRawIntBits((float) value);
+            case FLOAT64 -> Double.doubleToRawLongBits(value);
+            default -> Math.round(value);
+        };
+
+        int[] result = new int[type.getRegisters()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = (int) (raw >> (16 * (result.length - 1 - i))) & 0xFFFF;
+        }
+
+        return result;
+    }
+
+    private record Slot(ModbusModel model, int index) {
+    }
+}
@@ -0,0 +1,40 @@
+package si.sunesis.interoperability.lpc.transformations.test.simulator;
+
+import java.util.Random;
+
+/**
+ * Generates the engineering value of a simulated register at the time it is read.
+ */
+@FunctionalInterface
+public interface ValueGenerator {
+
+    double value(long timeMillis);
+
+    static ValueGenerator constant(double value) {
+        return timeMillis -> value;
+    }
+
+    /**
+     * Value increasing by the step every period, starting at 0 when the simulator starts.
+     */
+    static ValueGenerator ramp(double step, long periodMillis) {
+        long start = System.currentTimeMillis();
+        return timeMillis -> step * ((timeMillis - start) / periodMillis);
+    }
+
+    static ValueGenerator sine(double amplitude, long periodMillis) {
+        return timeMillis -> amplitude * Math.sin(2 * Math.PI * (timeMillis % periodMillis) / periodMillis);
+    }
+
+    /**
+     * Uniformly distributed value, repeatable for the same seed.
+     */
+    static ValueGenerator random(double min, double max, long seed) {
+        Random random = new Random(seed);
+        return timeMillis -> {
+            synchronized (random) {
+                return min + random.nextDouble() * (max - min);
+            }
+        };
+    }
+}